@@ -0,0 +1,78 @@
+package io.piveau.hub.benchmark;
+
+import io.piveau.hub.converters.DatasetToIndexConverter;
+import io.piveau.hub.util.json.PooledJsonBuffer;
+import io.piveau.utils.JenaUtils;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.RDF;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing the body of a bulk request from index documents with a generator into a pooled buffer
+ * and encoding every action to a string first, as the bulk writer did before. Run with -prof gc to compare
+ * the allocation per body, the documents themselves are built once in the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkBodyBenchmark {
+
+    @Param({"100", "1000"})
+    public int documents;
+
+    private final List<JsonObject> batch = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        Model model = JenaUtils.read(Files.readAllBytes(Paths.get("misc/example_dataset.ttl")), "text/turtle");
+        String uriRef = model.listSubjectsWithProperty(RDF.type, DCAT.Dataset).next().getURI();
+        model.createResource(uriRef.replace("/data/", "/record/"), DCAT.CatalogRecord);
+        JsonObject document = new DatasetToIndexConverter().convert(model, uriRef, "benchmark");
+        for (int i = 0; i < documents; i++) {
+            batch.add(document.copy().put("id", "dataset-" + i));
+        }
+    }
+
+    @Benchmark
+    public int pooled() {
+        PooledJsonBuffer body = PooledJsonBuffer.allocate(64 * 1024);
+        try {
+            for (JsonObject document : batch) {
+                body.writer().startObject().startObject("index")
+                        .put("_index", "dataset").put("_id", document.getString("id"))
+                        .endObject().endObject();
+                body.raw('\n');
+                body.writer().add(document);
+                body.raw('\n');
+            }
+            return body.length();
+        } finally {
+            body.release();
+        }
+    }
+
+    @Benchmark
+    public int encoded() {
+        Buffer body = Buffer.buffer();
+        for (JsonObject document : batch) {
+            String meta = new JsonObject().put("index", new JsonObject().put("_index", "dataset").put("_id", document.getString("id"))).encode();
+            body.appendBytes((meta + "\n" + document.encode() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return body.length();
+    }
+
+}
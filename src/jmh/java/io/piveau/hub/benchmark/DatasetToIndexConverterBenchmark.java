@@ -0,0 +1,63 @@
+package io.piveau.hub.benchmark;
+
+import io.piveau.hub.converters.DatasetToIndexConverter;
+import io.piveau.hub.util.PropertyParserDatasetConverter;
+import io.piveau.utils.JenaUtils;
+import io.vertx.core.json.JsonObject;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single pass converter with the former property parser based one.
+ * The sparse dataset has a title only, so the former converter creates an exception for nearly every property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatasetToIndexConverterBenchmark {
+
+    @Param({"full", "sparse"})
+    public String dataset;
+
+    private Model model;
+    private String uriRef;
+
+    private final DatasetToIndexConverter converter = new DatasetToIndexConverter();
+    private final PropertyParserDatasetConverter propertyParserConverter = new PropertyParserDatasetConverter();
+
+    @Setup
+    public void setup() throws IOException {
+        if ("full".equals(dataset)) {
+            model = JenaUtils.read(Files.readAllBytes(Paths.get("misc/example_dataset.ttl")), "text/turtle");
+            uriRef = model.listSubjectsWithProperty(RDF.type, DCAT.Dataset).next().getURI();
+        } else {
+            model = ModelFactory.createDefaultModel();
+            uriRef = "https://piveau.io/set/data/sparse-dataset";
+            model.createResource(uriRef, DCAT.Dataset).addProperty(DCTerms.title, "Sparse dataset");
+        }
+        model.createResource(uriRef.replace("/data/", "/record/"), DCAT.CatalogRecord);
+    }
+
+    @Benchmark
+    public JsonObject singlePass() {
+        return converter.convert(model, uriRef, "benchmark");
+    }
+
+    @Benchmark
+    public JsonObject propertyParser() {
+        return propertyParserConverter.convert(model, uriRef, "benchmark");
+    }
+
+}
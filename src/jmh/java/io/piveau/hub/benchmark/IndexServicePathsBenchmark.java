@@ -0,0 +1,131 @@
+package io.piveau.hub.benchmark;
+
+import io.piveau.hub.services.index.IndexService;
+import io.vertx.circuitbreaker.CircuitBreaker;
+import io.vertx.circuitbreaker.CircuitBreakerOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways to send a bulk of datasets to a mock search service, which answers every request after a delay
+ * like a remote service would: the upsert with one request, the split with one elasticsearch existence check,
+ * and the existence lookup of every dataset at the search service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexServicePathsBenchmark {
+
+    private static final int PORT = 9098;
+
+    @Param({"100", "1000"})
+    public int datasets;
+
+    @Param({"2"})
+    public long latency;
+
+    private Vertx vertx;
+    private IndexService upsert;
+    private IndexService elasticsearchCheck;
+
+    private JsonObject payload;
+    private JsonArray ids;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+
+        HttpServer server = vertx.createHttpServer().requestHandler(request -> request.bodyHandler(body ->
+                vertx.setTimer(latency, t -> {
+                    if (request.path().endsWith("/_mget")) {
+                        JsonArray docs = new JsonArray();
+                        body.toJsonObject().getJsonArray("ids").forEach(id -> docs.add(new JsonObject()
+                                .put("_id", id)
+                                .put("found", id.toString().startsWith("existing"))));
+                        request.response().setStatusCode(200).end(new JsonObject().put("docs", docs).encode());
+                    } else if (request.method() == HttpMethod.GET) {
+                        request.response().setStatusCode(request.path().startsWith("/datasets/existing") ? 200 : 404).end();
+                    } else {
+                        request.response().setStatusCode(request.method() == HttpMethod.POST ? 201 : 200).end();
+                    }
+                })));
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        server.listen(PORT, ar -> {
+            if (ar.succeeded()) {
+                listening.complete(ar.result());
+            } else {
+                listening.completeExceptionally(ar.cause());
+            }
+        });
+        listening.get();
+
+        JsonObject config = new JsonObject()
+                .put("url", "localhost")
+                .put("port", PORT)
+                .put("elasticsearchAddress", "http://localhost:" + PORT);
+        upsert = create(config);
+        elasticsearchCheck = create(config.copy().put("existenceCheck", "elasticsearch"));
+
+        JsonArray documents = new JsonArray();
+        ids = new JsonArray();
+        for (int i = 0; i < datasets; i++) {
+            String id = (i % 2 == 0 ? "existing-" : "new-") + i;
+            documents.add(new JsonObject().put("id", id).put("title", "Dataset " + i));
+            ids.add(id);
+        }
+        payload = new JsonObject().put("datasets", documents);
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public Object upsert() throws Exception {
+        CompletableFuture<JsonObject> result = new CompletableFuture<>();
+        upsert.addDatasetWithoutCB(payload, ar -> complete(result, ar.succeeded(), ar.result(), ar.cause()));
+        return result.get();
+    }
+
+    @Benchmark
+    public Object elasticsearchExistenceCheck() throws Exception {
+        CompletableFuture<JsonObject> result = new CompletableFuture<>();
+        elasticsearchCheck.addDatasetWithoutCB(payload, ar -> complete(result, ar.succeeded(), ar.result(), ar.cause()));
+        return result.get();
+    }
+
+    @Benchmark
+    public Object searchExistenceLookups() throws Exception {
+        CompletableFuture<JsonObject> result = new CompletableFuture<>();
+        upsert.datasetsExist(ids, ar -> complete(result, ar.succeeded(), ar.result(), ar.cause()));
+        return result.get();
+    }
+
+    private IndexService create(JsonObject config) throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.create("benchmark-breaker", vertx, new CircuitBreakerOptions().setMaxRetries(0).setTimeout(100000L));
+        CompletableFuture<IndexService> service = new CompletableFuture<>();
+        IndexService.create(vertx, WebClient.create(vertx), breaker, config, ar -> complete(service, ar.succeeded(), ar.result(), ar.cause()));
+        return service.get();
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, boolean succeeded, T result, Throwable cause) {
+        if (succeeded) {
+            future.complete(result);
+        } else {
+            future.completeExceptionally(cause);
+        }
+    }
+
+}
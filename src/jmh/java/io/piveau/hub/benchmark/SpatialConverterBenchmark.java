@@ -0,0 +1,87 @@
+package io.piveau.hub.benchmark;
+
+import io.piveau.hub.util.rdf.GeoParser;
+import io.piveau.hub.util.rdf.GeoParsingException;
+import io.piveau.hub.util.rdf.SpatialConverter;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the spatial converter with the geo parser on the dct:spatial corpus of the tests.
+ * Each operation converts the whole corpus, like a harvest repeating the same geometries.
+ * With cache size 0 only the per thread parsers and the direct GeoJSON building count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialConverterBenchmark {
+
+    @Param({"0", "4096"})
+    public int cacheSize;
+
+    private List<String[]> corpus;
+
+    private final GeoParser geoParser = new GeoParser();
+    private SpatialConverter converter;
+
+    @Setup
+    public void setup() throws IOException {
+        corpus = Files.readAllLines(Paths.get("src/test/resources/spatial/literals.tsv")).stream()
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .map(line -> line.split("\t", 2))
+                .collect(Collectors.toList());
+        converter = new SpatialConverter(cacheSize);
+    }
+
+    @Benchmark
+    public int spatialConverter() {
+        int converted = 0;
+        for (String[] literal : corpus) {
+            try {
+                if (converter.convert(literal[0], literal[1]) != null) {
+                    converted++;
+                }
+            } catch (GeoParsingException e) {
+                // part of the corpus
+            }
+        }
+        return converted;
+    }
+
+    @Benchmark
+    public int geoParser() {
+        int converted = 0;
+        for (String[] literal : corpus) {
+            try {
+                JsonObject result;
+                switch (literal[0]) {
+                    case SpatialConverter.WKT:
+                        result = geoParser.WKTtoGeoJSON(literal[1]);
+                        break;
+                    case SpatialConverter.GML:
+                        result = geoParser.GML3toGeoJSON(literal[1]);
+                        break;
+                    default:
+                        result = new JsonObject(literal[1]);
+                }
+                if (result != null) {
+                    converted++;
+                }
+            } catch (GeoParsingException | RuntimeException e) {
+                // part of the corpus
+            }
+        }
+        return converted;
+    }
+
+}
@@ -8,17 +8,25 @@ import io.piveau.hub.services.datasets.DatasetsService;
 import io.piveau.hub.services.datasets.DatasetsServiceVerticle;
 import io.piveau.hub.services.distributions.DistributionsService;
 import io.piveau.hub.services.distributions.DistributionsServiceVerticle;
+import io.piveau.hub.services.index.IndexService;
 import io.piveau.hub.services.index.IndexServiceVerticle;
+import io.piveau.hub.services.jobs.JobsService;
+import io.piveau.hub.services.jobs.JobsServiceVerticle;
+import io.piveau.hub.services.statistics.StatisticsServiceVerticle;
 import io.piveau.hub.services.metrics.MetricsService;
 import io.piveau.hub.services.metrics.MetricsServiceVerticle;
+import io.piveau.hub.services.sideeffects.SideEffectsServiceVerticle;
 import io.piveau.hub.services.translation.TranslationService;
 import io.piveau.hub.services.translation.TranslationServiceVerticle;
 import io.piveau.hub.services.validation.ValidationServiceVerticle;
 import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.IndexConversionPool;
 import io.piveau.hub.dataobjects.DatasetHelper;
 import io.piveau.hub.util.logger.PiveauLogger;
 import io.piveau.hub.util.logger.PiveauLoggerFactory;
-//import io.piveau.hub.util.rdf.VocabularyManager;
+import io.piveau.hub.util.rdf.VocabularyManager;
+import io.piveau.hub.verticles.ConsistencyCheckVerticle;
+import io.piveau.hub.verticles.IncrementalReindexVerticle;
 import io.piveau.hub.verticles.ShellVerticle;
 import io.piveau.utils.ConfigHelper;
 import io.piveau.utils.experimental.DCATAPUriSchema;
@@ -60,6 +68,8 @@ public class MainVerticle extends AbstractVerticle {
     private DistributionHandler distributionHandler;
 
     private TranslationServiceHandler translationServiceHandler;
+    private IndexHandler indexHandler;
+    private JobsHandler jobsHandler;
 
     /**
      * Composes all function for starting the Main Verticle
@@ -86,7 +96,14 @@ public class MainVerticle extends AbstractVerticle {
         Promise<Void> promise = Promise.promise();
         PiveauLogger LOGGER = PiveauLoggerFactory.getLogger(getClass());
 
-        //        VocabularyManager.init(config, vertx, ar -> {});
+        // the hub's own vocabulary tables are only needed with a snapshot, loading them does not delay the start
+        if (ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_VOCABULARY_SNAPSHOT).getBoolean("enabled", false)) {
+            VocabularyManager.init(config, vertx, ar -> {
+                if (ar.failed()) {
+                    LOGGER.warn("Loading vocabularies failed: " + ar.cause().getMessage());
+                }
+            });
+        }
         if (config.getBoolean(Constants.ENV_PIVEAU_HUB_LOAD_VOCABULARIES_FETCH, true)) {
             ConceptSchemes.enableRemotes();
         }
@@ -170,12 +187,24 @@ public class MainVerticle extends AbstractVerticle {
                 routerFactory.addHandlerByOperationId("putCatalogue", catalogueHandler::handlePutCatalogue);
                 routerFactory.addHandlerByOperationId("getCatalogue", catalogueHandler::handleGetCatalogue);
                 routerFactory.addHandlerByOperationId("deleteCatalogue", catalogueHandler::handleDeleteCatalogue);
+                routerFactory.addHandlerByOperationId("getCatalogueStatistics", catalogueHandler::handleGetCatalogueStatistics);
 
                 routerFactory.addHandlerByOperationId("getDistribution", distributionHandler::handleGetDistribution);
                 routerFactory.addHandlerByOperationId("postDistribution", distributionHandler::handlePostDistribution);
                 routerFactory.addHandlerByOperationId("deleteDistribution", distributionHandler::handleDeleteDistribution);
                 routerFactory.addHandlerByOperationId("putDistribution", distributionHandler::handlePutDistribution);
 
+                routerFactory.addHandlerByOperationId("getIndexOutbox", indexHandler::handleGetOutbox);
+                routerFactory.addHandlerByOperationId("drainIndexOutbox", indexHandler::handleDrainOutbox);
+                routerFactory.addHandlerByOperationId("getIndexFingerprints", indexHandler::handleGetFingerprints);
+                routerFactory.addHandlerByOperationId("getIndexConversion", indexHandler::handleGetConversion);
+
+                routerFactory.addHandlerByOperationId("listJobs", jobsHandler::handleListJobs);
+                routerFactory.addHandlerByOperationId("startJob", jobsHandler::handleStartJob);
+                routerFactory.addHandlerByOperationId("getJob", jobsHandler::handleGetJob);
+                routerFactory.addHandlerByOperationId("cancelJob", jobsHandler::handleCancelJob);
+                routerFactory.addHandlerByOperationId("throttleJob", jobsHandler::handleThrottleJob);
+
                 routerFactory.addHandlerByOperationId("getMetric", metricHandler::handleGetMetric);
                 //routerFactory.addHandlerByOperationId("postMetric", metricHandler::handlePostMetric);
                 routerFactory.addHandlerByOperationId("deleteMetric", metricHandler::handleDeleteMetric);
@@ -229,6 +258,16 @@ public class MainVerticle extends AbstractVerticle {
                         .add(Constants.ENV_PIVEAU_CLUSTER_CONFIG)
                         .add(Constants.ENV_PIVEAU_HUB_ELASTICSEARCH_ADDRESS)
                         .add(Constants.ENV_PIVEAU_HUB_CORS_DOMAINS)
+                        .add(Constants.ENV_PIVEAU_HUB_STATE_DIR)
+                        .add(Constants.ENV_PIVEAU_HUB_SIDE_EFFECTS)
+                        .add(Constants.ENV_PIVEAU_HUB_CONSISTENCY_CHECK)
+                        .add(Constants.ENV_PIVEAU_HUB_INCREMENTAL_REINDEX)
+                        .add(Constants.ENV_PIVEAU_HUB_JOBS)
+                        .add(Constants.ENV_PIVEAU_HUB_CONVERSION_POOL)
+                        .add(Constants.ENV_PIVEAU_HUB_VOCABULARY_SNAPSHOT)
+                        .add(Constants.ENV_PIVEAU_HUB_VOCABULARY_FETCH)
+                        .add(Constants.ENV_PIVEAU_HUB_CATALOGUE_DELETE)
+                        .add(Constants.ENV_PIVEAU_HUB_CATALOGUE_STATISTICS)
                 ));
 
         ConfigStoreOptions fileStoreOptions = new ConfigStoreOptions()
@@ -280,8 +319,44 @@ public class MainVerticle extends AbstractVerticle {
         Promise<String> validationSevicePromise = Promise.promise();
         vertx.deployVerticle(ValidationServiceVerticle.class.getName(), new DeploymentOptions().setConfig(config).setWorker(true), validationSevicePromise);
 
+        Promise<String> sideEffectsPromise = Promise.promise();
+        if (ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_SIDE_EFFECTS).getBoolean("enabled", false)) {
+            vertx.deployVerticle(SideEffectsServiceVerticle.class.getName(), options, sideEffectsPromise);
+        } else {
+            sideEffectsPromise.complete();
+        }
+
+        Promise<String> consistencyPromise = Promise.promise();
+        if (ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CONSISTENCY_CHECK).getBoolean("enabled", false)) {
+            vertx.deployVerticle(ConsistencyCheckVerticle.class.getName(), options, consistencyPromise);
+        } else {
+            consistencyPromise.complete();
+        }
+
+        Promise<String> incrementalReindexPromise = Promise.promise();
+        if (ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_INCREMENTAL_REINDEX).getBoolean("enabled", false)) {
+            vertx.deployVerticle(IncrementalReindexVerticle.class.getName(), options, incrementalReindexPromise);
+        } else {
+            incrementalReindexPromise.complete();
+        }
+
+        Promise<String> statisticsPromise = Promise.promise();
+        if (ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CATALOGUE_STATISTICS).getBoolean("enabled", false)) {
+            vertx.deployVerticle(StatisticsServiceVerticle.class.getName(), options, statisticsPromise);
+        } else {
+            statisticsPromise.complete();
+        }
+
+        Promise<String> jobsPromise = Promise.promise();
+        vertx.deployVerticle(JobsServiceVerticle.class.getName(), options, jobsPromise);
+
         CompositeFuture.all(Arrays.asList(
                 shellPromise.future(),
+                jobsPromise.future(),
+                sideEffectsPromise.future(),
+                statisticsPromise.future(),
+                consistencyPromise.future(),
+                incrementalReindexPromise.future(),
                 indexPromise.future(),
                 datasetsPromise.future(),
                 distributionsPromise.future(),
@@ -295,6 +370,8 @@ public class MainVerticle extends AbstractVerticle {
                 distributionHandler = new DistributionHandler(vertx, DistributionsService.SERVICE_ADDRESS);
                 catalogueHandler = new CatalogueHandler(vertx, CataloguesService.SERVICE_ADDRESS);
                 translationServiceHandler = new TranslationServiceHandler(vertx, TranslationService.SERVICE_ADDRESS);
+                indexHandler = new IndexHandler(vertx, IndexService.SERVICE_ADDRESS, IndexConversionPool.shared(vertx, config));
+                jobsHandler = new JobsHandler(vertx, JobsService.SERVICE_ADDRESS);
                 promise.complete(config);
             } else {
                 promise.fail(ar.cause());
@@ -2,20 +2,36 @@ package io.piveau.hub.converters;
 
 import io.piveau.hub.dataobjects.DatasetHelper;
 import io.piveau.hub.util.rdf.*;
+import io.piveau.utils.JenaUtils;
 import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.piveau.vocabularies.Concept;
+import io.piveau.vocabularies.ConceptSchemes;
+import io.piveau.vocabularies.DataTheme;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.apache.jena.vocabulary.SKOS;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Converts a Dataset Jena Model to JSON for the Search Index
- * ToDo Just a first version, should be more generic
+ * <p>
+ * The statements of the dataset, its record and each distribution, contact point and publisher are read in one pass
+ * and dispatched on their predicate. A missing or malformed property is simply left out of the document,
+ * no exception is created for it. Only the first value counts for single valued properties, like with getProperty.
+ * Vocabulary values come from the immutable {@link VocabularyManager#tables()}, not from the vocabulary graph.
  */
 public class DatasetToIndexConverter {
 
-    private PropertyParser propertyParser = new PropertyParser();
+    private final PropertyHelper propertyHelper = new PropertyHelper();
+    private final DateTimeUtil dateTimeUtil = new DateTimeUtil();
+    private final SpatialConverter spatialConverter = SpatialConverter.shared();
 
     public JsonObject convert(Model model, String uriRef, String catalogueId) {
         ResIterator it = model.listResourcesWithProperty(RDF.type, DCAT.CatalogRecord);
@@ -31,184 +47,648 @@ public class DatasetToIndexConverter {
     }
 
     private JsonObject convert(Resource res, Resource recordRes, String catalogueId) {
-        JsonObject result = new JsonObject();
+        List<Statement> titles = new ArrayList<>();
+        List<Statement> descriptions = new ArrayList<>();
+        List<Statement> themes = new ArrayList<>();
+        List<Statement> languages = new ArrayList<>();
+        List<Statement> contactPoints = new ArrayList<>();
+        List<Statement> distributions = new ArrayList<>();
+        List<Statement> keywords = new ArrayList<>();
+        List<Statement> conformsTo = new ArrayList<>();
+        List<Statement> pages = new ArrayList<>();
+        List<Statement> landingPages = new ArrayList<>();
+        List<Statement> provenances = new ArrayList<>();
+        Statement spatial = null;
+        Statement accessRights = null;
+        Statement issued = null;
+        Statement modified = null;
+        Statement publisher = null;
 
-        JsonObject translationMeta = new JsonObject();
+        StmtIterator it = res.listProperties();
+        while (it.hasNext()) {
+            Statement stmt = it.nextStatement();
+            switch (stmt.getPredicate().getURI()) {
+                case DCATAP.DCT_NS + "title":
+                    titles.add(stmt);
+                    break;
+                case DCATAP.DCT_NS + "description":
+                    descriptions.add(stmt);
+                    break;
+                case DCATAP.DCAT_NS + "theme":
+                    themes.add(stmt);
+                    break;
+                case DCATAP.DCT_NS + "language":
+                    languages.add(stmt);
+                    break;
+                case DCATAP.DCAT_NS + "contactPoint":
+                    contactPoints.add(stmt);
+                    break;
+                case DCATAP.DCAT_NS + "distribution":
+                    distributions.add(stmt);
+                    break;
+                case DCATAP.DCAT_NS + "keyword":
+                    keywords.add(stmt);
+                    break;
+                case DCATAP.DCT_NS + "conformsTo":
+                    conformsTo.add(stmt);
+                    break;
+                case DCATAP.FOAF_NS + "page":
+                    pages.add(stmt);
+                    break;
+                case DCATAP.DCAT_NS + "landingPage":
+                    landingPages.add(stmt);
+                    break;
+                case DCATAP.DCT_NS + "provenance":
+                    provenances.add(stmt);
+                    break;
+                case DCATAP.DCT_NS + "spatial":
+                    spatial = spatial == null ? stmt : spatial;
+                    break;
+                case DCATAP.DCT_NS + "accessRights":
+                    accessRights = accessRights == null ? stmt : accessRights;
+                    break;
+                case DCATAP.DCT_NS + "issued":
+                    issued = issued == null ? stmt : issued;
+                    break;
+                case DCATAP.DCT_NS + "modified":
+                    modified = modified == null ? stmt : modified;
+                    break;
+                case DCATAP.DCT_NS + "publisher":
+                    publisher = publisher == null ? stmt : publisher;
+                    break;
+                default:
+            }
+        }
 
+        JsonObject result = new JsonObject();
         String normalizedId = DCATAPUriSchema.parseUriRef(res.getURI()).getId();
         result.put("id", normalizedId);
         result.put("idName", normalizedId);
 
-        JsonArray messages =  new JsonArray();
-
-        try {
-            JsonObject description = propertyParser.getMTECDctDescription(res);
+        JsonObject description = multilingual(descriptions);
+        if (description != null) {
             result.put("description", description.getJsonObject("payload"));
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
-            }
         }
 
-        try {
-            JsonObject title = propertyParser.getMTECDctTitle(res);
+        JsonObject translationMeta = new JsonObject();
+        JsonObject title = multilingual(titles);
+        if (title != null) {
             result.put("title", title.getJsonObject("payload"));
-            JsonObject transInfo = propertyParser.getEdpTransInfo(recordRes);
-
-            if(!title.getJsonObject("meta").isEmpty() && !transInfo.isEmpty()) {
-                translationMeta.put("details", title.getJsonObject("meta"));
-
+            JsonObject details = title.getJsonObject("meta");
+            JsonObject transInfo = translationInfo(recordRes);
+            if (!details.isEmpty() && !transInfo.isEmpty()) {
                 JsonArray fullAvailable = new JsonArray();
-                JsonObject details = translationMeta.getJsonObject("details");
-                if (details != null) {
-                    for (String language :  details.fieldNames()) {
-                        // Todo This is not 100% correct
-                        fullAvailable.add(language);
-                        JsonObject langObject =  details.getJsonObject(language);
-                        if(langObject != null && langObject.getBoolean("machine_translated", false)) {
-                            langObject.mergeIn(transInfo);
-                            langObject.remove("status");
-                        }
+                details.forEach(entry -> {
+                    fullAvailable.add(entry.getKey());
+                    JsonObject langObject = (JsonObject) entry.getValue();
+                    if (langObject.getBoolean("machine_translated", false)) {
+                        langObject.mergeIn(transInfo);
+                        langObject.remove("status");
                     }
-                }
+                });
+                translationMeta.put("details", details);
                 translationMeta.put("status", transInfo.getString("status"));
                 translationMeta.put("full_available_languages", fullAvailable);
             }
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
-            }
         }
 
-        JsonArray categories = propertyParser.getDcatTheme(res);
+        JsonArray categories = themes(themes);
         if (!categories.isEmpty()) {
             result.put("categories", categories);
         }
 
-        try {
-            JsonArray languages = propertyParser.getDctLanguage(res);
-            result.put("languages", languages);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+        JsonArray languageCodes = languages(languages);
+        if (!languageCodes.isEmpty()) {
+            result.put("languages", languageCodes);
+        }
+
+        JsonArray contacts = new JsonArray();
+        contactPoints.forEach(stmt -> {
+            if (stmt.getObject().isResource()) {
+                JsonObject contact = contactPoint(stmt.getResource());
+                if (!contact.isEmpty()) {
+                    contacts.add(contact);
+                }
             }
+        });
+        if (!contacts.isEmpty()) {
+            result.put("contact_points", contacts);
         }
 
-        try {
-            JsonArray contactPoint = propertyParser.getDcatContactPoint(res);
-            result.put("contact_points", contactPoint);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+        JsonArray distros = new JsonArray();
+        distributions.forEach(stmt -> {
+            if (stmt.getObject().isResource()) {
+                JsonObject distribution = distribution(stmt.getResource());
+                if (!distribution.isEmpty()) {
+                    distros.add(distribution);
+                }
+            }
+        });
+        result.put("distributions", distros);
+
+        JsonArray keywordList = new JsonArray();
+        keywords.forEach(stmt -> {
+            if (stmt.getObject().isLiteral()) {
+                String keyword = stmt.getLiteral().getString();
+                keywordList.add(new JsonObject().put("id", JenaUtils.normalize(keyword)).put("title", keyword));
             }
+        });
+        if (!keywordList.isEmpty()) {
+            result.put("keywords", keywordList);
         }
 
-        try {
-            JsonArray distributions = propertyParser.getDcatDistributions(res);
-            result.put("distributions", distributions);
-        } catch (PropertyNotAvailableException e) {
-            result.put("distributions", new JsonArray());
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+        JsonObject geometry = spatial(spatial);
+        if (geometry != null) {
+            result.put("spatial", geometry);
+        }
+
+        String accessRight = literalOrUri(accessRights);
+        if (accessRight != null) {
+            result.put("access_right", accessRight);
+        }
+
+        JsonArray standards = guessAll(conformsTo, null);
+        if (!standards.isEmpty()) {
+            result.put("conforms_to", standards);
+        }
+
+        JsonArray documentations = urls(pages);
+        if (!documentations.isEmpty()) {
+            result.put("documentations", documentations);
+        }
+
+        String releaseDate = dateTime(issued);
+        if (releaseDate != null) {
+            result.put("release_date", releaseDate);
+        }
+
+        String modificationDate = dateTime(modified);
+        if (modificationDate != null) {
+            result.put("modification_date", modificationDate);
+        }
+
+        if (publisher != null && publisher.getObject().isResource()) {
+            JsonObject agent = publisher(publisher.getResource());
+            if (!agent.isEmpty()) {
+                result.put("publisher", agent);
             }
         }
 
-        try {
-            JsonArray keywords = propertyParser.getDcatKeyword(res);
-            result.put("keywords", keywords);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+        JsonArray landingPage = urls(landingPages);
+        if (!landingPage.isEmpty()) {
+            result.put("landing_page", landingPage);
+        }
+
+        JsonArray provenance = guessAll(provenances, "label");
+        if (!provenance.isEmpty()) {
+            result.put("provenances", provenance);
+        }
+
+        result.put("catalog", new JsonObject().put("id", catalogueId));
+
+        if (translationMeta.getJsonObject("details") != null && !translationMeta.getJsonObject("details").isEmpty()) {
+            result.put("translation_meta", translationMeta);
+        }
+
+        return result;
+    }
+
+    private JsonObject distribution(Resource distribution) {
+        List<Statement> titles = new ArrayList<>();
+        List<Statement> descriptions = new ArrayList<>();
+        List<Statement> downloadUrls = new ArrayList<>();
+        Statement format = null;
+        Statement accessUrl = null;
+        Statement licence = null;
+        Statement mediaType = null;
+
+        StmtIterator it = distribution.listProperties();
+        while (it.hasNext()) {
+            Statement stmt = it.nextStatement();
+            switch (stmt.getPredicate().getURI()) {
+                case DCATAP.DCT_NS + "title":
+                    titles.add(stmt);
+                    break;
+                case DCATAP.DCT_NS + "description":
+                    descriptions.add(stmt);
+                    break;
+                case DCATAP.DCAT_NS + "downloadURL":
+                    downloadUrls.add(stmt);
+                    break;
+                case DCATAP.DCT_NS + "format":
+                    format = format == null ? stmt : format;
+                    break;
+                case DCATAP.DCAT_NS + "accessURL":
+                    accessUrl = accessUrl == null ? stmt : accessUrl;
+                    break;
+                case DCATAP.DCT_NS + "license":
+                    licence = licence == null ? stmt : licence;
+                    break;
+                case DCATAP.DCAT_NS + "mediaType":
+                    mediaType = mediaType == null ? stmt : mediaType;
+                    break;
+                default:
             }
         }
 
-        try {
-            JsonObject spatial = propertyParser.getDctSpatialForDataset(res);
-            result.put("spatial", spatial);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+        JsonObject result = new JsonObject();
+        if (distribution.isURIResource()) {
+            result.put("id", propertyHelper.extractLabelFromURI(distribution.getURI()));
+        }
+
+        JsonObject title = multilingual(titles);
+        if (title != null) {
+            result.put("title", title.getJsonObject("payload"));
+        }
+        JsonObject description = multilingual(descriptions);
+        if (description != null) {
+            result.put("description", description.getJsonObject("payload"));
+        }
+
+        JsonObject formatObject = format(format);
+        if (formatObject != null) {
+            result.put("format", formatObject);
+        }
+
+        if (accessUrl != null && accessUrl.getObject().isResource()) {
+            result.put("access_url", accessUrl.getResource().getURI());
+        }
+
+        JsonObject licenceObject = licence(licence);
+        if (licenceObject != null) {
+            result.put("licence", licenceObject);
+        }
+
+        JsonArray downloads = urls(downloadUrls);
+        if (!downloads.isEmpty()) {
+            result.put("download_urls", downloads);
+        }
+
+        String media = literalOrUri(mediaType);
+        if (media != null) {
+            result.put("media_type", media);
+        }
+
+        return result;
+    }
+
+    private JsonObject contactPoint(Resource contactPoint) {
+        Statement type = null;
+        Statement name = null;
+        Statement email = null;
+
+        StmtIterator it = contactPoint.listProperties();
+        while (it.hasNext()) {
+            Statement stmt = it.nextStatement();
+            switch (stmt.getPredicate().getURI()) {
+                case DCATAP.RDF_NS + "type":
+                    type = type == null ? stmt : type;
+                    break;
+                case DCATAP.VCARD_NS + "fn":
+                    name = name == null ? stmt : name;
+                    break;
+                case DCATAP.VCARD_NS + "hasEmail":
+                    email = email == null ? stmt : email;
+                    break;
+                default:
             }
         }
 
-        try {
-            String accessRight = propertyParser.getDctAccssRights(res);
-            result.put("access_right", accessRight);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+        JsonObject result = new JsonObject();
+        if (type != null && type.getObject().isResource()) {
+            result.put("type", type.getResource().getLocalName());
+        }
+        if (name != null && name.getObject().isLiteral()) {
+            result.put("name", name.getLiteral().getString());
+        }
+        if (email != null && email.getObject().isResource()) {
+            result.put("email", email.getResource().getURI());
+        }
+        return result;
+    }
+
+    private JsonObject publisher(Resource publisher) {
+        JsonObject result = new JsonObject();
+        VocabularyConcept concept = vocabulary(publisher);
+        if (concept == null) {
+            Statement type = null;
+            Statement name = null;
+            Statement homepage = null;
+
+            StmtIterator it = publisher.listProperties();
+            while (it.hasNext()) {
+                Statement stmt = it.nextStatement();
+                switch (stmt.getPredicate().getURI()) {
+                    case DCATAP.RDF_NS + "type":
+                        type = type == null ? stmt : type;
+                        break;
+                    case DCATAP.FOAF_NS + "name":
+                        name = name == null ? stmt : name;
+                        break;
+                    case DCATAP.FOAF_NS + "homepage":
+                        homepage = homepage == null ? stmt : homepage;
+                        break;
+                    default:
+                }
+            }
+
+            if (type != null && type.getObject().isResource()) {
+                result.put("type", type.getResource().getLocalName());
+            }
+            if (name != null && name.getObject().isLiteral()) {
+                result.put("name", name.getLiteral().getString());
+            }
+            //ToDo Change search service to homepage here
+            if (homepage != null && homepage.getObject().isResource()) {
+                result.put("email", homepage.getResource().getURI());
+            }
+        } else {
+            result.put("type", "Organisation");
+            if (concept.hasPrefLabel()) {
+                result.put("name", concept.prefLabel("en"));
             }
+            if (concept.homepage() != null) {
+                result.put("email", concept.homepage());
+            }
+            result.put("resource", concept.uri());
         }
+        return result;
+    }
 
-        try {
-            JsonArray conformsTo = propertyParser.getDctConformsTo(res);
-            result.put("conforms_to", conformsTo);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+    /**
+     * @return the titles by language and the machine translation info, or null if there is no literal
+     */
+    private JsonObject multilingual(List<Statement> statements) {
+        JsonObject payload = new JsonObject();
+        JsonObject meta = new JsonObject();
+        for (Statement stmt : statements) {
+            if (!stmt.getObject().isLiteral()) {
+                continue;
+            }
+            Literal literal = stmt.getLiteral();
+            String lang = literal.getLanguage();
+            if (lang.contains("mtec")) {
+                if (lang.length() < 7) {
+                    // a malformed tag drops the whole property, as it always did
+                    return null;
+                }
+                String original = lang.length() == 13 ? lang.substring(6, 8) : lang.substring(5, 7);
+                payload.put(lang.substring(0, 2), literal.getString());
+                meta.put(lang.substring(0, 2), new JsonObject().put("machine_translated", true).put("original_language", original));
+            } else {
+                String key = lang.isEmpty() ? "en" : lang;
+                payload.put(key, literal.getString());
+                meta.put(key, new JsonObject().put("machine_translated", false));
             }
         }
+        return payload.isEmpty() ? null : new JsonObject().put("payload", payload).put("meta", meta);
+    }
 
-        try {
-            JsonArray documentation = propertyParser.getFoafPage(res);
-            result.put("documentations", documentation);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+    private JsonObject translationInfo(Resource record) {
+        Statement received = null;
+        Statement issued = null;
+        Statement status = null;
+
+        StmtIterator it = record.listProperties();
+        while (it.hasNext()) {
+            Statement stmt = it.nextStatement();
+            switch (stmt.getPredicate().getURI()) {
+                case EDP.EDP_NS + "transReceived":
+                    received = received == null ? stmt : received;
+                    break;
+                case EDP.EDP_NS + "transIssued":
+                    issued = issued == null ? stmt : issued;
+                    break;
+                case EDP.EDP_NS + "transStatus":
+                    status = status == null ? stmt : status;
+                    break;
+                default:
             }
         }
 
-        try {
-            String releaseDate = propertyParser.getDctIssued(res);
-            result.put("release_date", releaseDate);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+        JsonObject result = new JsonObject();
+        String receivedDate = dateTime(received);
+        if (receivedDate != null) {
+            result.put("received", receivedDate);
+        }
+        String issuedDate = dateTime(issued);
+        if (issuedDate != null) {
+            result.put("issued", issuedDate);
+        }
+        if (status != null && status.getObject().isResource()) {
+            Resource value = status.getResource();
+            if (value.equals(EDP.edpTranslationCompleted)) {
+                result.put("status", "completed");
+            } else if (value.equals(EDP.edpTranslationInProcess)) {
+                result.put("status", "processing");
+            } else {
+                result.put("status", "unknown");
             }
         }
+        return result;
+    }
 
-        try {
-            String modDate = propertyParser.getDctModified(res);
-            result.put("modification_date", modDate);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+    private JsonArray themes(List<Statement> statements) {
+        JsonArray result = new JsonArray();
+        for (Statement stmt : statements) {
+            RDFNode node = stmt.getObject();
+            Concept concept = null;
+            if (node.isLiteral()) {
+                concept = DataTheme.INSTANCE.getConcept(node.asLiteral().getLexicalForm());
+            } else if (node.isAnon()) {
+                Resource theme = node.asResource();
+                Statement identifier = theme.getProperty(DCTerms.identifier);
+                if (ConceptSchemes.isA(theme, SKOS.Concept) && identifier != null && identifier.getObject().isLiteral()) {
+                    concept = DataTheme.INSTANCE.getConcept(identifier.getString());
+                }
+            } else if (DataTheme.INSTANCE.isConcept(node.asResource())) {
+                concept = DataTheme.INSTANCE.getConcept(node.asResource());
+            }
+            if (concept != null) {
+                result.add(new JsonObject().put("id", concept.getIdentifier()).put("title", concept.label("en")));
             }
         }
+        return result;
+    }
 
-        try {
-            JsonObject publisher = propertyParser.getDctPublisher(res);
-            result.put("publisher", publisher);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+    /**
+     * Languages which are not in the vocabulary are skipped.
+     */
+    private JsonArray languages(List<Statement> statements) {
+        JsonArray result = new JsonArray();
+        for (Statement stmt : statements) {
+            VocabularyConcept language = vocabulary(stmt.getObject());
+            if (language != null) {
+                language.languageCodes().forEach(code -> result.add(code));
             }
         }
+        return result;
+    }
 
+    /**
+     * Only the first geometry of the location counts.
+     */
+    private JsonObject spatial(Statement spatial) {
+        if (spatial == null || !spatial.getObject().isResource()) {
+            return null;
+        }
+        Statement geometry = spatial.getResource().getProperty(EDP.locnGeometry);
+        if (geometry == null || !geometry.getObject().isLiteral()) {
+            return null;
+        }
+        Literal literal = geometry.getLiteral();
         try {
-            JsonArray landingPage = propertyParser.getDcatLandingPage(res);
-            result.put("landing_page", landingPage);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+            return spatialConverter.convert(literal.getDatatypeURI(), literal.getString());
+        } catch (GeoParsingException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private JsonObject format(Statement format) {
+        if (format == null) {
+            return null;
+        }
+        RDFNode node = format.getObject();
+        String name;
+        if (node.isLiteral()) {
+            name = node.asLiteral().getString();
+        } else {
+            VocabularyConcept concept = vocabulary(node);
+            if (concept != null) {
+                name = concept.identifier();
+            } else {
+                Statement label = node.asResource().getProperty(RDFS.label);
+                if (label != null && label.getObject().isLiteral()) {
+                    name = label.getString();
+                } else {
+                    name = node.isURIResource() ? propertyHelper.extractLabelFromURI(node.asResource().getURI()) : null;
+                }
             }
         }
+        return name != null ? new JsonObject().put("id", propertyHelper.generateID(name)).put("title", name) : null;
+    }
 
-        try {
-            JsonArray provenance = propertyParser.getDctProvenance(res);
-            result.put("provenances", provenance);
-        } catch (PropertyNotAvailableException e) {
-            if(e.getMessage() != null) {
-                messages.add(e.getMessage());
+    private JsonObject licence(Statement licence) {
+        if (licence == null) {
+            return null;
+        }
+        RDFNode node = licence.getObject();
+        if (node.isLiteral()) {
+            return new JsonObject()
+                    .put("id", propertyHelper.generateID(node.toString()))
+                    .put("title", node.toString())
+                    .put("description", node.toString())
+                    .putNull("la_url")
+                    .put("resource", "");
+        }
+
+        VocabularyConcept concept = vocabulary(node);
+        if (concept == null) {
+            Resource licenceResource = node.asResource();
+            String id = firstLiteral(licenceResource, EUVOC.dcIdentifier);
+            String title = firstLiteral(licenceResource, EUVOC.skosAltLabel);
+            String description = firstLiteral(licenceResource, EUVOC.skosPrefLabel);
+            Statement exactMatch = licenceResource.getProperty(EUVOC.skosExactMatch);
+            if (id != null && title != null && description != null && exactMatch != null && exactMatch.getObject().isResource()) {
+                return new JsonObject()
+                        .put("id", id)
+                        .put("title", title)
+                        .put("description", description)
+                        .putNull("la_url")
+                        .put("resource", exactMatch.getResource().getURI());
+            }
+            String label = licenceResource.isURIResource() ? propertyHelper.extractLabelFromURI(licenceResource.getURI()) : null;
+            if (label == null) {
+                return null;
             }
+            return new JsonObject()
+                    .put("id", propertyHelper.generateID(label))
+                    .put("title", label)
+                    .put("description", label)
+                    .putNull("la_url")
+                    .put("resource", licenceResource.getURI());
         }
 
-        result.put("catalog", new JsonObject().put("id", catalogueId));
+        if (concept.sameAs() != null) {
+            concept = VocabularyManager.tables().concept(concept.sameAs());
+            if (concept == null) {
+                return null;
+            }
+        }
+        // vocabulary licences without any alt or pref label have never been indexed
+        String id = concept.identifier();
+        if (id == null || !concept.hasAltLabel() || !concept.hasPrefLabel()) {
+            return null;
+        }
+        String title = concept.altLabel("en");
+        String description = concept.prefLabel("en");
 
-        if(translationMeta.getJsonObject("details") != null && !translationMeta.getJsonObject("details").isEmpty()) {
-            result.put("translation_meta", translationMeta);
+        JsonObject result = new JsonObject();
+        if (concept.exactMatch() != null) {
+            result.put("resource", concept.exactMatch());
+        } else {
+            result.putNull("resource");
+        }
+        if (concept.licensingAssistant() != null) {
+            result.put("la_url", concept.licensingAssistant());
+        } else {
+            result.putNull("in_la");
+        }
+        return result
+                .put("id", id)
+                .put("title", title != null ? title : id)
+                .put("description", description != null ? description : id);
+    }
+
+    /**
+     * @return the value of the first statement if it is a literal
+     */
+    private String firstLiteral(Resource resource, Property property) {
+        Statement stmt = resource.getProperty(property);
+        return stmt != null && stmt.getObject().isLiteral() ? stmt.getLiteral().getString() : null;
+    }
+
+    /**
+     * @return the concept from the vocabulary lookup tables, or null if the node is no vocabulary IRI
+     */
+    private VocabularyConcept vocabulary(RDFNode node) {
+        return propertyHelper.getConceptFromVocabulary(node);
+    }
+
+    private String literalOrUri(Statement stmt) {
+        if (stmt == null) {
+            return null;
+        } else if (stmt.getObject().isLiteral()) {
+            return stmt.getLiteral().getString();
+        } else if (stmt.getObject().isURIResource()) {
+            return stmt.getResource().getURI();
+        } else {
+            return null;
         }
+    }
+
+    private String dateTime(Statement stmt) {
+        return stmt != null && stmt.getObject().isLiteral() ? dateTimeUtil.parse(stmt.getLiteral().getString()) : null;
+    }
 
+    private JsonArray urls(List<Statement> statements) {
+        JsonArray result = new JsonArray();
+        statements.forEach(stmt -> {
+            if (stmt.getObject().isURIResource()) {
+                result.add(stmt.getResource().getURI());
+            }
+        });
+        return result;
+    }
+
+    private JsonArray guessAll(List<Statement> statements, String label) {
+        JsonArray result = new JsonArray();
+        statements.forEach(stmt -> {
+            JsonObject item = propertyHelper.guessTitleAndResource(stmt.getObject(), label);
+            if (!item.isEmpty()) {
+                result.add(item);
+            }
+        });
         return result;
     }
 
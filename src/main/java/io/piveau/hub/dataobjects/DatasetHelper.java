@@ -117,6 +117,10 @@ public class DatasetHelper {
         return catalogueId;
     }
 
+    public void catalogueId(String catalogueId) {
+        this.catalogueId = catalogueId;
+    }
+
     public String hash() {
         return hash;
     }
@@ -1,23 +1,35 @@
 package io.piveau.hub.handler;
 
 import io.piveau.hub.services.catalogues.CataloguesService;
+import io.piveau.hub.services.statistics.StatisticsService;
+import io.piveau.hub.util.CatalogueReader;
 import io.piveau.hub.util.Constants;
 import io.piveau.hub.util.RTPTokenHelper;
 import io.piveau.hub.util.logger.PiveauLogger;
 import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.client.WebClient;
 
+import java.util.UUID;
+
 public class CatalogueHandler {
 
 
     private CataloguesService cataloguesService;
+    private StatisticsService statisticsService;
     private WebClient client;
 
     public CatalogueHandler(Vertx vertx, String address) {
         this.cataloguesService = CataloguesService.createProxy(vertx, address);
+        this.statisticsService = StatisticsService.createProxy(vertx, StatisticsService.SERVICE_ADDRESS);
         this.client = WebClient.create(vertx);
     }
 
@@ -104,39 +116,140 @@ public class CatalogueHandler {
     }
 
 
+    /**
+     * Responds with one page of the catalogue when a cursor or limit is given. Otherwise the whole catalogue is
+     * streamed in formats which can be written triple by triple, and built as a model for all other formats.
+     */
     public void handleGetCatalogue(RoutingContext context) {
         String id = context.pathParam("id");
         String acceptType = context.getAcceptableContentType();
-        cataloguesService.getCatalogue(id, acceptType, ar -> {
-            if (ar.succeeded()) {
-                JsonObject result = ar.result();
-                switch (result.getString("status")) {
-                    case "success":
-                        context.response().putHeader("Content-Type", result.getString("contentType")).end(result.getString("content"));
-                        break;
-                    case "not found":
-                        context.response().setStatusCode(404).end();
-                        break;
-                    default:
-                        context.response().setStatusCode(400).end();
+        String after = context.queryParam("after").size() > 0 ? context.queryParam("after").get(0) : null;
+        Integer limit = context.queryParam("limit").size() > 0 ? Integer.parseInt(context.queryParam("limit").get(0)) : null;
+
+        if (after != null || limit != null) {
+            String viewUri = context.request().absoluteURI().split("\\?")[0];
+            cataloguesService.getCataloguePage(id, acceptType, after, limit, viewUri, ar -> {
+                if (ar.succeeded() && ar.result().containsKey("next")) {
+                    context.response().putHeader("Link", "<" + ar.result().getString("next") + ">; rel=\"next\"");
+                }
+                respondCatalogue(context, ar);
+            });
+        } else if (CatalogueReader.streamingFormat(acceptType) != null) {
+            streamCatalogue(context, id, acceptType);
+        } else {
+            cataloguesService.getCatalogue(id, acceptType, ar -> respondCatalogue(context, ar));
+        }
+    }
+
+    private void respondCatalogue(RoutingContext context, AsyncResult<JsonObject> ar) {
+        if (ar.succeeded()) {
+            JsonObject result = ar.result();
+            switch (result.getString("status")) {
+                case "success":
+                    context.response().putHeader("Content-Type", result.getString("contentType")).end(result.getString("content"));
+                    break;
+                case "not found":
+                    context.response().setStatusCode(404).end();
+                    break;
+                default:
+                    context.response().setStatusCode(400).end();
+            }
+        } else {
+            context.response().setStatusCode(500).end(ar.cause().getMessage());
+        }
+    }
+
+    /**
+     * Writes the chunks of the catalogue as they arrive. The next chunk is requested when the response
+     * accepts more data, so a slow client slows down reading from the triplestore.
+     * The end of the stream arrives as a last message, the reply of the service only tells that the stream started.
+     */
+    private void streamCatalogue(RoutingContext context, String id, String acceptType) {
+        HttpServerResponse response = context.response();
+        String address = CataloguesService.SERVICE_ADDRESS + ".stream." + UUID.randomUUID();
+        MessageConsumer<Buffer> consumer = context.vertx().eventBus().consumer(address);
+        consumer.handler(message -> {
+            String end = message.headers().get("end");
+            if (end != null) {
+                consumer.unregister();
+                if ("success".equals(end)) {
+                    if (!response.headWritten()) {
+                        response.putHeader("Content-Type", message.headers().get("contentType"));
+                    }
+                    response.end();
+                } else if (response.headWritten()) {
+                    // the status is sent already, only an incomplete response tells the client
+                    response.close();
+                } else {
+                    response.setStatusCode(500).end();
                 }
+                return;
+            }
+            if (response.closed()) {
+                message.fail(410, "Client closed the connection");
+                return;
+            }
+            if (!response.headWritten()) {
+                response.setChunked(true).putHeader("Content-Type", message.headers().get("contentType"));
+            }
+            response.write(message.body());
+            if (response.writeQueueFull()) {
+                response.drainHandler(v -> message.reply(null));
             } else {
-                context.response().setStatusCode(500).end(ar.cause().getMessage());
+                message.reply(null);
             }
         });
-
+        consumer.completionHandler(registered -> cataloguesService.streamCatalogue(id, acceptType, address, ar -> {
+            if (ar.failed() || !"streaming".equals(ar.result().getString("status"))) {
+                consumer.unregister();
+                respondCatalogue(context, ar);
+            }
+        }));
     }
 
-
+    /**
+     * Queues a delete job, large catalogues take longer than a request may. The job can be followed under /jobs,
+     * it removes the Keycloak resource of the catalogue when it is done.
+     */
     public void handleDeleteCatalogue(RoutingContext context) {
         String id = context.pathParam("id");
         cataloguesService.deleteCatalogue(id, ar -> {
             if (ar.succeeded()) {
-                RTPTokenHelper helper = new RTPTokenHelper(context);
-                helper.deleteKeycloakResource(client);
-                context.response().setStatusCode(200).end();
-            } else {
+                context.response()
+                        .putHeader("Content-Type", "application/json")
+                        .putHeader("Location", "/jobs/" + ar.result().getString("id"))
+                        .setStatusCode(202)
+                        .end(ar.result().encodePrettily());
+            } else if (ar.cause() instanceof ReplyException && ((ReplyException) ar.cause()).failureCode() == 404) {
                 context.response().setStatusCode(404).end();
+            } else {
+                PiveauLoggerFactory.getCatalogueLogger(id, getClass()).error("Queue delete job", ar.cause());
+                context.response().setStatusCode(500).end();
+            }
+        });
+    }
+
+    public void handleGetCatalogueStatistics(RoutingContext context) {
+        String id = context.pathParam("id");
+        statisticsService.getStatistics(id, ar -> {
+            if (ar.succeeded()) {
+                context.response().putHeader("Content-Type", "application/json").setStatusCode(200).end(ar.result().encodePrettily());
+            } else {
+                int status = 500;
+                String message = ar.cause().getMessage();
+                if (ar.cause() instanceof ReplyException) {
+                    ReplyException cause = (ReplyException) ar.cause();
+                    if (cause.failureType() == ReplyFailure.NO_HANDLERS) {
+                        status = 503;
+                        message = "Catalogue statistics are not enabled";
+                    } else if (cause.failureCode() == 404) {
+                        status = 404;
+                    }
+                }
+                context.response()
+                        .putHeader("Content-Type", "application/json")
+                        .setStatusCode(status)
+                        .end(new JsonObject().put("status", "error").put("message", message).toString());
             }
         });
     }
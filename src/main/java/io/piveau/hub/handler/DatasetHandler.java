@@ -141,6 +141,7 @@ public class DatasetHandler {
         Boolean dataUpload = !context.queryParam("data").isEmpty() && context.queryParam("data").get(0).equals("true");
         PiveauLogger log = PiveauLoggerFactory.getLogger(id, catalogueId, getClass());
 
+        Boolean synchronousIndex = !context.queryParam("synchronous").isEmpty() && context.queryParam("synchronous").get(0).equals("true");
         String hash = context.queryParam("hash").size() > 0 ? context.queryParam("hash").get(0) : null;
         log.info("hash: {}", hash);
         String contentType = context.parsedHeaders().contentType().rawValue();
@@ -157,7 +158,7 @@ public class DatasetHandler {
         }
 
         String dataset = context.getBodyAsString();
-        datasetsService.putDataset(id, dataset, contentType, catalogueId, hash, dataUpload, ar -> {
+        datasetsService.putDataset(id, dataset, contentType, catalogueId, hash, dataUpload, synchronousIndex, ar -> {
             if (ar.succeeded()) {
                 JsonObject status = ar.result();
                 switch (status.getString("status")) {
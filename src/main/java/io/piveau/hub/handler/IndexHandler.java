@@ -0,0 +1,51 @@
+package io.piveau.hub.handler;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.util.IndexConversionPool;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+public class IndexHandler {
+
+    private IndexService indexService;
+    private IndexConversionPool conversionPool;
+
+    public IndexHandler(Vertx vertx, String address, IndexConversionPool conversionPool) {
+        indexService = IndexService.createProxy(vertx, address);
+        this.conversionPool = conversionPool;
+    }
+
+    public void handleGetOutbox(RoutingContext context) {
+        indexService.outboxStatus(getHandler(context));
+    }
+
+    public void handleDrainOutbox(RoutingContext context) {
+        String id = context.queryParam("id").isEmpty() ? null : context.queryParam("id").get(0);
+        indexService.drainOutbox(id, getHandler(context));
+    }
+
+    public void handleGetFingerprints(RoutingContext context) {
+        indexService.fingerprintStatus(getHandler(context));
+    }
+
+    public void handleGetConversion(RoutingContext context) {
+        context.response().putHeader("Content-Type", "application/json").setStatusCode(200).end(conversionPool.metrics().encodePrettily());
+    }
+
+    private Handler<AsyncResult<JsonObject>> getHandler(RoutingContext context) {
+        return ar -> {
+            if (ar.succeeded()) {
+                context.response().putHeader("Content-Type", "application/json").setStatusCode(200).end(ar.result().encodePrettily());
+            } else {
+                context.response()
+                        .putHeader("Content-Type", "application/json")
+                        .setStatusCode(500)
+                        .end(new JsonObject().put("status", "error").put("message", ar.cause().getMessage()).toString());
+            }
+        };
+    }
+
+}
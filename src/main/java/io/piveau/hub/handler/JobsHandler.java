@@ -0,0 +1,80 @@
+package io.piveau.hub.handler;
+
+import io.piveau.hub.services.jobs.JobsService;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+public class JobsHandler {
+
+    private JobsService jobsService;
+
+    public JobsHandler(Vertx vertx, String address) {
+        jobsService = JobsService.createProxy(vertx, address);
+    }
+
+    public void handleListJobs(RoutingContext context) {
+        jobsService.listJobs(getHandler(context));
+    }
+
+    public void handleStartJob(RoutingContext context) {
+        JsonObject job;
+        try {
+            job = context.getBodyAsJson();
+        } catch (Exception e) {
+            job = null;
+        }
+        if (job == null) {
+            context.response()
+                    .putHeader("Content-Type", "application/json")
+                    .setStatusCode(400)
+                    .end(new JsonObject().put("status", "error").put("message", "Job description must be a JSON object").toString());
+            return;
+        }
+        jobsService.startJob(job, getHandler(context));
+    }
+
+    public void handleGetJob(RoutingContext context) {
+        jobsService.getJob(context.pathParam("id"), getHandler(context));
+    }
+
+    public void handleCancelJob(RoutingContext context) {
+        jobsService.cancelJob(context.pathParam("id"), getHandler(context));
+    }
+
+    public void handleThrottleJob(RoutingContext context) {
+        double maxRate;
+        try {
+            maxRate = Double.parseDouble(context.queryParam("maxRate").isEmpty() ? "0" : context.queryParam("maxRate").get(0));
+        } catch (NumberFormatException e) {
+            context.response()
+                    .putHeader("Content-Type", "application/json")
+                    .setStatusCode(400)
+                    .end(new JsonObject().put("status", "error").put("message", "maxRate must be a number").toString());
+            return;
+        }
+        jobsService.throttleJob(context.pathParam("id"), new JsonObject().put("maxRate", maxRate), getHandler(context));
+    }
+
+    private Handler<AsyncResult<JsonObject>> getHandler(RoutingContext context) {
+        return ar -> {
+            if (ar.succeeded()) {
+                context.response().putHeader("Content-Type", "application/json").setStatusCode(200).end(ar.result().encodePrettily());
+            } else {
+                int status = 500;
+                if (ar.cause() instanceof ReplyException) {
+                    int code = ((ReplyException) ar.cause()).failureCode();
+                    status = code >= 400 && code < 500 ? code : 500;
+                }
+                context.response()
+                        .putHeader("Content-Type", "application/json")
+                        .setStatusCode(status)
+                        .end(new JsonObject().put("status", "error").put("message", ar.cause().getMessage()).toString());
+            }
+        };
+    }
+
+}
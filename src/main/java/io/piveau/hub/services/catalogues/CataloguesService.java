@@ -14,8 +14,8 @@ import io.vertx.ext.web.RoutingContext;
 public interface CataloguesService {
     String SERVICE_ADDRESS="io.piveau.hub.catalogues.queue";
 
-    static CataloguesService create(TSConnector connector, Vertx vertx, Handler<AsyncResult<CataloguesService>> readyHandler) {
-        return new CataloguesServiceImpl(connector, vertx, readyHandler);
+    static CataloguesService create(TSConnector connector, JsonObject config, Vertx vertx, Handler<AsyncResult<CataloguesService>> readyHandler) {
+        return new CataloguesServiceImpl(connector, config, vertx, readyHandler);
     }
 
     static CataloguesService createProxy(Vertx vertx, String address) {
@@ -28,12 +28,35 @@ public interface CataloguesService {
     @Fluent
     CataloguesService getCatalogue(String id, String consumes, Handler<AsyncResult<JsonObject>> handler);
 
+    /**
+     * One page of the datasets of a catalogue with their records, described by a hydra:PartialCollectionView.
+     *
+     * @param after   the cursor of the page, null for the first page, status "invalid cursor" if it is no dataset uri ref
+     * @param viewUri the uri the page links are based on, e.g. the request uri without query
+     */
+    @Fluent
+    CataloguesService getCataloguePage(String id, String consumes, String after, Integer limit, String viewUri, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Sends the whole catalogue as chunks to the address, a chunk is sent after the previous one was replied to.
+     * Fails the reply to a chunk to stop the stream.
+     * The handler gets the status "streaming" before the first chunk, or the status why nothing is sent.
+     * The stream ends with an empty message with the header "end", "success" or "failed", which is not replied to.
+     */
+    @Fluent
+    CataloguesService streamCatalogue(String id, String consumes, String address, Handler<AsyncResult<JsonObject>> handler);
+
     @Fluent
     CataloguesService putCatalogue(String id, String catalogue, String contentType, String hash, Handler<AsyncResult<JsonObject>> handler);
 
     @Fluent
     CataloguesService postCatalogue(String catalogue, String contentType, Handler<AsyncResult<JsonObject>> handler);
 
+    /**
+     * Queues a delete job for the catalogue, its progress and result are reported by the {@link io.piveau.hub.services.jobs.JobsService}.
+     *
+     * @return the queued job, fails with 404 if the catalogue does not exist
+     */
     @Fluent
     CataloguesService deleteCatalogue(String id, Handler<AsyncResult<JsonObject>> handler);
 
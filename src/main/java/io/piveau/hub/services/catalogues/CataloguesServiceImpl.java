@@ -2,9 +2,12 @@ package io.piveau.hub.services.catalogues;
 
 //import io.piveau.hub.converters.CatalogToIndexConverter;
 import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.jobs.JobsService;
+import io.piveau.hub.services.statistics.StatisticsService;
 import io.piveau.hub.util.*;
 import io.piveau.hub.util.logger.PiveauLogger;
 import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.hub.util.rdf.HYDRA;
 import io.piveau.indexing.Indexing;
 import io.piveau.utils.JenaUtils;
 import io.piveau.utils.experimental.DCATAPUriRef;
@@ -12,27 +15,47 @@ import io.piveau.utils.experimental.DCATAPUriSchema;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpResponse;
-import org.apache.jena.query.ResultSet;
-import org.apache.jena.query.ResultSetFactory;
+import io.vertx.serviceproxy.ServiceException;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.vocabulary.DCAT;
 
-import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
 
 public class CataloguesServiceImpl implements CataloguesService {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MEMBER_PAGE_SIZE = 5000;
+    private static final long STREAM_ACK_TIMEOUT = 60000;
+
+    private Vertx vertx;
     private TSConnector connector;
+    private CatalogueReader catalogueReader;
     private IndexService indexService;
+    private JobsService jobsService;
+    private StatisticsService statisticsService;
 
-    CataloguesServiceImpl(TSConnector connector, Vertx vertx, Handler<AsyncResult<CataloguesService>> readyHandler) {
+    CataloguesServiceImpl(TSConnector connector, JsonObject config, Vertx vertx, Handler<AsyncResult<CataloguesService>> readyHandler) {
+        this.vertx = vertx;
         this.connector = connector;
+        this.catalogueReader = new CatalogueReader(connector, config);
         this.indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
+        if (config.getBoolean("statistics", false)) {
+            this.statisticsService = StatisticsService.createProxy(vertx, StatisticsService.SERVICE_ADDRESS);
+        }
+        this.jobsService = JobsService.createProxy(vertx, JobsService.SERVICE_ADDRESS);
         readyHandler.handle(Future.succeededFuture(this));
     }
 
@@ -56,88 +79,180 @@ public class CataloguesServiceImpl implements CataloguesService {
 
     @Override
     public CataloguesService getCatalogue(String catalogueId, String consumes, Handler<AsyncResult<JsonObject>> handler) {
-        PiveauLogger log = PiveauLoggerFactory.getCatalogueLogger(catalogueId,getClass());
-        String graphName = DCATAPUriSchema.applyFor(catalogueId).getCatalogueGraphName();
-        connector.getGraph(graphName, ar -> {
-            if (ar.succeeded()) {
-                connector.getDatasetsAndRecords(graphName, h -> {
-                    if (h.succeeded()) {
-                        Model model =ar.result();
-                        Resource catalog = model.getResource(graphName);
-                        h.result().get("dataset").forEach(resource -> {
-                            catalog.addProperty(DCAT.dataset, resource);
-                        });
-                        h.result().get("record").forEach(resource -> {
-                            catalog.addProperty(DCAT.record, resource);
-                        });
-
-                        String output =  JenaUtils.write(model,consumes);
-                        log.debug("handle return");
+        PiveauLogger log = PiveauLoggerFactory.getCatalogueLogger(catalogueId, getClass());
+        DCATAPUriRef catalogueRef = DCATAPUriSchema.applyFor(catalogueId);
+        catalogueReader.metadata(catalogueRef).setHandler(ar -> {
+            if (ar.failed()) {
+                handler.handle(Future.failedFuture(ar.cause()));
+            } else if (ar.result().isEmpty()) {
+                log.debug("Catalogue not found");
+                handler.handle(Future.succeededFuture(new JsonObject().put("status", "not found")));
+            } else {
+                // formats without a streaming writer need the whole model
+                Model model = ar.result();
+                Resource catalogue = model.getResource(catalogueRef.getCatalogueUriRef());
+                addMembers(catalogueRef, catalogue, DCAT.dataset, null).compose(v -> addMembers(catalogueRef, catalogue, DCAT.record, null)).setHandler(mr -> {
+                    if (mr.succeeded()) {
                         handler.handle(Future.succeededFuture(new JsonObject()
                                 .put("status", "success")
-                                .put("content",output)
-                        ));
+                                .put("contentType", consumes)
+                                .put("content", JenaUtils.write(model, consumes))));
                     } else {
-                        handler.handle(Future.failedFuture(h.cause()));
+                        handler.handle(Future.failedFuture(mr.cause()));
                     }
                 });
+            }
+        });
+        return this;
+    }
+
+    @Override
+    public CataloguesService getCataloguePage(String catalogueId, String consumes, String after, Integer limit, String viewUri, Handler<AsyncResult<JsonObject>> handler) {
+        DCATAPUriRef catalogueRef = DCATAPUriSchema.applyFor(catalogueId);
+        int pageSize = limit != null ? Math.max(1, Math.min(limit, MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+        String afterUriRef;
+        try {
+            afterUriRef = after != null ? new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8) : null;
+        } catch (IllegalArgumentException e) {
+            afterUriRef = "";
+        }
+        if (afterUriRef != null && !CatalogueReader.validCursor(afterUriRef)) {
+            handler.handle(Future.succeededFuture(new JsonObject().put("status", "invalid cursor")));
+            return this;
+        }
 
+        catalogueReader.metadata(catalogueRef).setHandler(ar -> {
+            if (ar.failed()) {
+                handler.handle(Future.failedFuture(ar.cause()));
+            } else if (ar.result().isEmpty()) {
+                handler.handle(Future.succeededFuture(new JsonObject().put("status", "not found")));
             } else {
+                Model model = ar.result();
+                Resource catalogue = model.getResource(catalogueRef.getCatalogueUriRef());
+                // one more than the page tells whether there is a next page
+                catalogueReader.members(catalogueRef, DCAT.dataset, afterUriRef, pageSize + 1).compose(datasets -> {
+                    List<String> page = datasets.subList(0, Math.min(pageSize, datasets.size()));
+                    page.forEach(dataset -> catalogue.addProperty(DCAT.dataset, model.createResource(dataset)));
+                    String next = datasets.size() > pageSize ? cursor(page.get(page.size() - 1)) : null;
+                    return catalogueReader.records(catalogueRef, page).map(records -> {
+                        records.forEach(record -> catalogue.addProperty(DCAT.record, model.createResource(record)));
+                        return next;
+                    });
+                }).setHandler(pr -> {
+                    if (pr.succeeded()) {
+                        String first = viewUri + "?limit=" + pageSize;
+                        Resource view = model.createResource(after != null ? first + "&after=" + after : first, HYDRA.PartialCollectionView)
+                                .addProperty(HYDRA.first, model.createResource(first))
+                                .addLiteral(HYDRA.itemsPerPage, pageSize);
+                        if (pr.result() != null) {
+                            view.addProperty(HYDRA.next, model.createResource(first + "&after=" + pr.result()));
+                        }
+                        catalogue.addProperty(HYDRA.view, view);
+                        model.setNsPrefixes(HYDRA.getNsMap());
 
-                try{
-                    ReplyException s = (io.vertx.core.eventbus.ReplyException)ar.cause();
-                    if(s.failureCode()==404){
-                        log.error("no cat: {}",s.failureType());
-                        handler.handle(Future.succeededFuture(new JsonObject()
-                                .put("status", "not found")
-                        ));
-                    }else{
-                        handler.handle(Future.failedFuture(ar.cause()));
+                        JsonObject result = new JsonObject()
+                                .put("status", "success")
+                                .put("contentType", consumes)
+                                .put("content", JenaUtils.write(model, consumes));
+                        if (pr.result() != null) {
+                            result.put("next", first + "&after=" + pr.result());
+                        }
+                        handler.handle(Future.succeededFuture(result));
+                    } else {
+                        handler.handle(Future.failedFuture(pr.cause()));
                     }
+                });
+            }
+        });
+        return this;
+    }
 
+    @Override
+    public CataloguesService streamCatalogue(String catalogueId, String consumes, String address, Handler<AsyncResult<JsonObject>> handler) {
+        PiveauLogger log = PiveauLoggerFactory.getCatalogueLogger(catalogueId, getClass());
+        RDFFormat format = CatalogueReader.streamingFormat(consumes);
+        if (format == null) {
+            handler.handle(Future.succeededFuture(new JsonObject().put("status", "not streamable")));
+            return this;
+        }
 
-
-                }catch (ClassCastException cce){
-                    log.error("casting is a no:",cce);
-                    handler.handle(Future.failedFuture(ar.cause()));
-                }catch(Exception e){
-                    log.error("this does not work:",e);
-                    handler.handle(Future.failedFuture(ar.cause()));
-                }
-
+        DCATAPUriRef catalogueRef = DCATAPUriSchema.applyFor(catalogueId);
+        DeliveryOptions options = new DeliveryOptions()
+                .setSendTimeout(STREAM_ACK_TIMEOUT)
+                .addHeader("contentType", consumes);
+        catalogueReader.metadata(catalogueRef).setHandler(ar -> {
+            if (ar.failed()) {
+                handler.handle(Future.failedFuture(ar.cause()));
+            } else if (ar.result().isEmpty()) {
+                handler.handle(Future.succeededFuture(new JsonObject().put("status", "not found")));
+            } else {
+                handler.handle(Future.succeededFuture(new JsonObject()
+                        .put("status", "streaming")
+                        .put("contentType", consumes)));
+                catalogueReader.stream(catalogueRef, ar.result(), format, chunk -> {
+                    Promise<Void> acknowledged = Promise.promise();
+                    vertx.eventBus().send(address, chunk, options, reply -> acknowledged.handle(reply.mapEmpty()));
+                    return acknowledged.future();
+                }).setHandler(sr -> {
+                    if (sr.failed()) {
+                        log.warn("Streaming catalogue stopped: {}", sr.cause().getMessage());
+                    }
+                    vertx.eventBus().send(address, Buffer.buffer(), new DeliveryOptions()
+                            .addHeader("contentType", consumes)
+                            .addHeader("end", sr.succeeded() ? "success" : "failed"));
+                });
             }
         });
         return this;
     }
 
+    /**
+     * Adds all members of one kind, page by page, to the catalogue resource.
+     */
+    private Future<Void> addMembers(DCATAPUriRef catalogueRef, Resource catalogue, Property property, String after) {
+        return catalogueReader.members(catalogueRef, property, after, MEMBER_PAGE_SIZE).compose(page -> {
+            page.forEach(member -> catalogue.addProperty(property, catalogue.getModel().createResource(member)));
+            if (page.size() < MEMBER_PAGE_SIZE) {
+                return Future.<Void>succeededFuture();
+            }
+            return addMembers(catalogueRef, catalogue, property, page.get(page.size() - 1));
+        });
+    }
+
+    private static String cursor(String uriRef) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(uriRef.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Override
     public CataloguesService putCatalogue(String catalogueId, String catalogue, String contentType, String hash, Handler<AsyncResult<JsonObject>> handler) {
         PiveauLogger log = PiveauLoggerFactory.getCatalogueLogger(catalogueId,getClass());
         CatalogueHelper catalogueHelper = new CatalogueHelper(catalogueId, contentType, catalogue);
         // log.info("Puttin catalogue");
-        Future<Void> createOrUpdateFuture = Future.future();
+        Promise<JsonObject> storePromise = Promise.promise();
 
         connector.catalogueExists(catalogueHelper.uriRef(), er -> {
             if (er.succeeded()) {
-                log.debug("Catalog already exists. lets update");
-                connector.getDatasetsAndRecords(catalogueHelper.uriRef(), ar -> {
-                    if (ar.succeeded()) {
-                        catalogueHelper.model(ar.result(), createOrUpdateFuture);
-                    } else {
-                        createOrUpdateFuture.fail(ar.cause());
-                    }
-                });
+                log.debug("Catalog already exists. Update its metadata");
+                Promise<Void> modelPromise = Promise.promise();
+                catalogueHelper.metadataModel(modelPromise);
+                modelPromise.future().compose(v -> {
+                    Promise<JsonObject> updatePromise = Promise.promise();
+                    updateMetadata(catalogueHelper, updatePromise);
+                    return updatePromise.future();
+                }).setHandler(storePromise);
             } else {
                 log.debug("catalogue does not exist. Create new");
-                catalogueHelper.model(createOrUpdateFuture);
+                Promise<Void> modelPromise = Promise.promise();
+                catalogueHelper.model(modelPromise);
+                modelPromise.future().compose(v -> {
+                    Promise<JsonObject> createPromise = Promise.promise();
+                    store(catalogueHelper, createPromise);
+                    return createPromise.future();
+                }).setHandler(storePromise);
             }
         });
 
-        createOrUpdateFuture.compose(exist -> {
-            Future<JsonObject> storeFuture = Future.future();
-            store(catalogueHelper, storeFuture);
-            return storeFuture;
-        }).setHandler(ar -> {
+        storePromise.future().setHandler(ar -> {
             if (ar.succeeded()) {
                 JsonObject indexMessage = Indexing.indexingCatalogue(catalogueHelper.getModel().getResource(catalogueHelper.uriRef()));
                 indexService.addCatalog(indexMessage, h -> {
@@ -162,42 +277,12 @@ public class CataloguesServiceImpl implements CataloguesService {
 
     @Override
     public CataloguesService deleteCatalogue(String catalogueId, Handler<AsyncResult<JsonObject>> handler) {
-        PiveauLogger log = PiveauLoggerFactory.getCatalogueLogger(catalogueId,getClass());
-
-        DCATAPUriRef schema = DCATAPUriSchema.applyFor(catalogueId);
-        String query = "SELECT ?dataset WHERE {GRAPH <" + schema.getCatalogueGraphName() + "> {<" + schema.getCatalogueUriRef() + "> <" + DCAT.dataset + "> ?dataset}}";
-        connector.query(query, "application/json", ar -> {
+        connector.catalogueExists(DCATAPUriSchema.applyFor(catalogueId).getCatalogueUriRef(), ar -> {
             if (ar.succeeded()) {
-                ResultSet resultSet = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
-                resultSet.forEachRemaining(querySolution -> {
-                    Resource dataset = querySolution.getResource("dataset");
-                    connector.deleteGraph(dataset.getURI(), dr -> {
-                        if (dr.failed()) {
-                            log.error("Delete dataset graph", dr.cause());
-                        }
-                    });
-                    indexService.deleteDataset(DCATAPUriSchema.parseUriRef(dataset.getURI()).getId(), dd -> {
-                        if (dd.failed()) {
-                            log.error("Delete dataset index", dd.cause());
-                        }
-                    });
-                });
-                connector.deleteGraph(schema.getCatalogueGraphName(), gr -> {
-                    if (gr.succeeded()) {
-                        indexService.deleteCatalog(schema.getId(), dc -> {
-                            if (dc.failed()) {
-                                log.error("Delete catalogue index", dc.cause());
-                            }else{
-                                log.info("Catalogue deleted");
-                            }
-                            handler.handle(Future.succeededFuture());
-                        });
-                    } else {
-                        handler.handle(Future.failedFuture(gr.cause()));
-                    }
-                });
+                JsonObject job = new JsonObject().put("type", "delete").put("catalogues", new JsonArray().add(catalogueId));
+                jobsService.startJob(job, handler);
             } else {
-                handler.handle(Future.failedFuture(ar.cause()));
+                handler.handle(ServiceException.fail(404, "Catalogue " + catalogueId + " not found"));
             }
         });
         return this;
@@ -215,6 +300,22 @@ public class CataloguesServiceImpl implements CataloguesService {
         return this;
     }
 
+    /**
+     * Replaces the description of an existing catalogue, its dataset and record links are not rewritten.
+     */
+    private void updateMetadata(CatalogueHelper helper, Handler<AsyncResult<JsonObject>> handler) {
+        PiveauLogger log = PiveauLoggerFactory.getCatalogueLogger(helper.getId(), getClass());
+        log.trace("updating metadata");
+        connector.replaceCatalogueMetadata(helper.uriRef(), helper.getModel(), ar -> {
+            if (ar.succeeded()) {
+                handler.handle(Future.succeededFuture(new JsonObject().put("status", "updated")));
+            } else {
+                log.error("update catalogue", ar.cause());
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+    }
+
     private void store(CatalogueHelper helper, Handler<AsyncResult<JsonObject>> handler) {
         PiveauLogger log = PiveauLoggerFactory.getCatalogueLogger(helper.getId(),getClass());
         log.trace("putting graph");
@@ -224,6 +325,14 @@ public class CataloguesServiceImpl implements CataloguesService {
                 if (response.statusCode() == 200) {
                     handler.handle(Future.succeededFuture(new JsonObject().put("status", "updated")));
                 } else if (response.statusCode() == 201) {
+                    if (statisticsService != null) {
+                        // a new catalogue starts with zero counts
+                        statisticsService.update(helper.getId(), new JsonObject(), sr -> {
+                            if (sr.failed()) {
+                                log.error("Register statistics", sr.cause());
+                            }
+                        });
+                    }
                     handler.handle(Future.succeededFuture(new JsonObject().put("status", "created")));
                 } else {
                     log.error("put catalogue: {}", response.statusMessage());
@@ -27,7 +27,11 @@ public class CataloguesServiceVerticle extends AbstractVerticle {
 
         TSConnector connector = TSConnector.create(client, breaker, conf);
 
-        CataloguesService.create(connector, vertx, ready -> {
+        // the service reads the triplestore config and whether the statistics are enabled
+        JsonObject serviceConfig = conf.copy()
+                .put("statistics", configHelper.forceJsonObject(Constants.ENV_PIVEAU_HUB_CATALOGUE_STATISTICS).getBoolean("enabled", false));
+
+        CataloguesService.create(connector, serviceConfig, vertx, ready -> {
             if (ready.succeeded()) {
                 new ServiceBinder(vertx).setAddress(CataloguesService.SERVICE_ADDRESS).register(CataloguesService.class, ready.result());
                 startPromise.complete();
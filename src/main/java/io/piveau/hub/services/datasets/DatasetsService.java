@@ -9,6 +9,7 @@ import io.vertx.codegen.annotations.ProxyGen;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 @ProxyGen
@@ -32,8 +33,11 @@ public interface DatasetsService {
     @Fluent
     DatasetsService getDatasetByNormalizedId(String datasetSuffix, String consumes, Handler<AsyncResult<JsonObject>> handler);
 
+    /**
+     * @param synchronousIndex answer only after the dataset is searchable (read your writes)
+     */
     @Fluent
-    DatasetsService putDataset(String datasetId, String dataset, String contentType, String catalogueId, String hash, Boolean createAccessURLs, Handler<AsyncResult<JsonObject>> handler);
+    DatasetsService putDataset(String datasetId, String dataset, String contentType, String catalogueId, String hash, Boolean createAccessURLs, Boolean synchronousIndex, Handler<AsyncResult<JsonObject>> handler);
 
     @Fluent
     DatasetsService postDataset(String dataset, String contentType, Handler<AsyncResult<JsonObject>> handler);
@@ -47,6 +51,16 @@ public interface DatasetsService {
     @Fluent
     DatasetsService indexDataset(String datasetId, String catalogueId, String defaultLang, Handler<AsyncResult<JsonObject>> handler);
 
+    /**
+     * Runs the (coalesced) side effects of dataset modifications on the currently stored state of a dataset.
+     *
+     * @param datasetId   the normalized dataset id
+     * @param catalogueId the catalogue id, looked up in the store if null
+     * @param effects     any of "index", "validate" and "translate"
+     */
+    @Fluent
+    DatasetsService processSideEffects(String datasetId, String catalogueId, JsonArray effects, Handler<AsyncResult<JsonObject>> handler);
+
     @Fluent
     DatasetsService getDataUploadInformation(String datasetId, String catalogueId, String resultDataset, Handler<AsyncResult<JsonObject>> handler);
 }
@@ -4,13 +4,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.piveau.hub.dataobjects.DatasetHelper;
 import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.sideeffects.SideEffectsService;
+import io.piveau.hub.services.statistics.StatisticsService;
 import io.piveau.hub.services.translation.TranslationService;
 import io.piveau.hub.services.validation.ValidationServiceVerticle;
 import io.piveau.hub.util.*;
 import io.piveau.hub.util.logger.PiveauLogger;
 import io.piveau.hub.util.logger.PiveauLoggerFactory;
 import io.piveau.hub.util.rdf.SPDX;
-import io.piveau.indexing.Indexing;
 import io.piveau.pipe.PipeLauncher;
 import io.piveau.rdf.RDFMimeTypes;
 import io.piveau.utils.ConfigHelper;
@@ -26,6 +27,7 @@ import org.apache.http.HttpHeaders;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.riot.Lang;
@@ -44,11 +46,15 @@ public class DatasetsServiceImpl implements DatasetsService {
     private Vertx vertx;
     private IndexService indexService;
     private TranslationService translationService;
+    private SideEffectsService sideEffectsService;
+    private StatisticsService statisticsService;
+    private IndexConversionPool conversionPool;
 
     private PipeLauncher launcher;
 
     private JsonObject validationConfig;
     private JsonObject translationConfig;
+    private boolean coalesceSideEffects;
 
     DatasetsServiceImpl(TSConnector connector, DataUploadConnector dataUploadConnector, JsonObject config, PipeLauncher launcher, Vertx vertx, Handler<AsyncResult<DatasetsService>> readyHandler) {
         this.vertx = vertx;
@@ -57,8 +63,16 @@ public class DatasetsServiceImpl implements DatasetsService {
         this.dataUploadConnector = dataUploadConnector;
         this.indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
         this.translationService = TranslationService.createProxy(vertx, TranslationService.SERVICE_ADDRESS);
+        this.conversionPool = IndexConversionPool.shared(vertx, config);
         validationConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_VALIDATOR);
         translationConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_TRANSLATION_SERVICE);
+        coalesceSideEffects = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_SIDE_EFFECTS).getBoolean("enabled", false);
+        if (coalesceSideEffects) {
+            sideEffectsService = SideEffectsService.createProxy(vertx, SideEffectsService.SERVICE_ADDRESS);
+        }
+        if (ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CATALOGUE_STATISTICS).getBoolean("enabled", false)) {
+            statisticsService = StatisticsService.createProxy(vertx, StatisticsService.SERVICE_ADDRESS);
+        }
         readyHandler.handle(Future.succeededFuture(this));
     }
 
@@ -211,11 +225,13 @@ public class DatasetsServiceImpl implements DatasetsService {
     }
 
     @Override
-    public DatasetsService putDataset(String datasetId, String dataset, String contentType, String catalogueId, String hash, Boolean createAccessURLs, Handler<AsyncResult<JsonObject>> handler) {
+    public DatasetsService putDataset(String datasetId, String dataset, String contentType, String catalogueId, String hash, Boolean createAccessURLs, Boolean synchronousIndex, Handler<AsyncResult<JsonObject>> handler) {
         PiveauLogger log = PiveauLoggerFactory.getLogger(datasetId, catalogueId, getClass());
         DatasetHelper.create(datasetId, dataset, contentType, hash, catalogueId, dr -> {
             if (dr.succeeded()) {
                 DatasetHelper datasetHelper = dr.result();
+                // the counts of the stored dataset before the update, for the catalogue statistics
+                JsonObject[] previous = new JsonObject[1];
                 Promise<JsonObject> existsPromise = Promise.promise();
                 connector.catalogueExists(datasetHelper.catalogueUriRef(), existsPromise);
                 existsPromise.future().compose(cat -> {
@@ -237,6 +253,7 @@ public class DatasetsServiceImpl implements DatasetsService {
                             String recordUriRef = hr.getString("recordUriRef");
                             connector.getGraph(DCATAPUriSchema.parseUriRef(recordUriRef).getDatasetGraphName(), ar -> {
                                 if (ar.succeeded()) {
+                                    previous[0] = CatalogueStatistics.contribution(ar.result());
                                     datasetHelper.update(ar.result(), recordUriRef);
                                     createOrUpdatePromise.complete();
                                 } else {
@@ -261,7 +278,7 @@ public class DatasetsServiceImpl implements DatasetsService {
                     return createOrUpdatePromise.future();
                 }).compose(v -> {
                     Promise<DatasetHelper> translationPromise = Promise.promise();
-                    if (translationConfig.getBoolean("enable")) {
+                    if (translationConfig.getBoolean("enable") && !coalesceSideEffects) {
                         translate(datasetHelper).setHandler(ar -> {
                             DatasetHelper finalHelper = ar.succeeded() ? ar.result() : datasetHelper;
                             translationPromise.complete(finalHelper);
@@ -273,15 +290,29 @@ public class DatasetsServiceImpl implements DatasetsService {
                 }).setHandler(dh -> {
                     if (dh.succeeded()) {
                         DatasetHelper finalHelper = dh.result();
-                        index(finalHelper);
-                        if (validationConfig.getBoolean("enabled")) {
+                        Future<Void> indexFuture = Future.succeededFuture();
+                        if (synchronousIndex) {
+                            indexFuture = index(finalHelper, true);
+                        } else if (!coalesceSideEffects) {
+                            index(finalHelper, false);
+                        }
+                        if (!coalesceSideEffects && validationConfig.getBoolean("enabled")) {
                             validate(finalHelper);
                         }
                         if (!finalHelper.model().containsResource(ModelFactory.createDefaultModel().createResource(finalHelper.uriRef()))) {
                             finalHelper.model().listSubjectsWithProperty(RDF.type, DCAT.Dataset).forEachRemaining(ds -> ResourceUtils.renameResource(ds, finalHelper.uriRef()));
                             finalHelper.model().listSubjectsWithProperty(RDF.type, DCAT.CatalogRecord).forEachRemaining(ds -> ResourceUtils.renameResource(ds, finalHelper.recordUriRef()));
                         }
-                        store(finalHelper).setHandler(handler);
+                        Future<Void> indexed = indexFuture;
+                        store(finalHelper).setHandler(sr -> {
+                            if (sr.succeeded() && coalesceSideEffects) {
+                                scheduleSideEffects(finalHelper);
+                            }
+                            if (sr.succeeded()) {
+                                updateStatistics(finalHelper.catalogueId(), CatalogueStatistics.delta(previous[0], CatalogueStatistics.contribution(finalHelper.model())));
+                            }
+                            indexed.setHandler(ir -> handler.handle(sr));
+                        });
                         catalogue(finalHelper);
                     } else {
                         handler.handle(Future.failedFuture(dh.cause()));
@@ -308,10 +339,20 @@ public class DatasetsServiceImpl implements DatasetsService {
             if (ar.succeeded()) {
                 JsonObject result = ar.result();
                 String datasetUriRef = result.getString("datasetUriRef");
-                connector.deleteGraph(datasetUriRef, dr -> {
+                Promise<JsonObject> previousPromise = Promise.promise();
+                if (statisticsService != null) {
+                    connector.getGraph(DCATAPUriSchema.parseUriRef(datasetUriRef).getDatasetGraphName(), gr ->
+                            previousPromise.complete(gr.succeeded() ? CatalogueStatistics.contribution(gr.result()) : null));
+                } else {
+                    previousPromise.complete();
+                }
+                previousPromise.future().setHandler(pr -> connector.deleteGraph(datasetUriRef, dr -> {
                     if (dr.failed()) {
                         handler.handle(Future.failedFuture(ar.cause()));
                     } else {
+                        if (pr.result() != null) {
+                            updateStatistics(catalogueId, CatalogueStatistics.delta(pr.result(), null));
+                        }
                         indexService.deleteDataset(DCATAPUriSchema.parseUriRef(datasetUriRef).getId(), ir -> {
                             if (ir.failed()) {
                                 log.error("Remove index", ir.cause());
@@ -324,7 +365,7 @@ public class DatasetsServiceImpl implements DatasetsService {
                         });
                         handler.handle(Future.succeededFuture(new JsonObject().put("status", "deleted")));
                     }
-                });
+                }));
                 if (result.containsKey("validationUriRef")) {
                     String validationUriRef = result.getString("validationUriRef");
                     connector.deleteGraph(validationUriRef, vr -> {
@@ -348,13 +389,18 @@ public class DatasetsServiceImpl implements DatasetsService {
                 DatasetHelper.create(datasetId, ar.result().getString("content"), contentType, null, catalogueId, dr -> {
                     if (dr.succeeded()) {
                         DatasetHelper helper = dr.result();
-                        JsonObject indexObject = Indexing.indexingDataset(helper.resource(), catalogueId, defaultLang);
-                        indexService.addDatasetPut(indexObject, ir -> {
-                            if (ir.failed()) {
-                                handler.handle(Future.failedFuture(ir.cause()));
-                            } else {
-                                handler.handle(Future.succeededFuture());
+                        conversionPool.convertDataset(helper.model(), helper.uriRef(), catalogueId, defaultLang).setHandler(cr -> {
+                            if (cr.failed()) {
+                                handler.handle(Future.failedFuture(cr.cause()));
+                                return;
                             }
+                            indexService.addDatasetPut(cr.result(), ir -> {
+                                if (ir.failed()) {
+                                    handler.handle(Future.failedFuture(ir.cause()));
+                                } else {
+                                    handler.handle(Future.succeededFuture());
+                                }
+                            });
                         });
                     } else {
                         handler.handle(Future.failedFuture(dr.cause()));
@@ -367,6 +413,77 @@ public class DatasetsServiceImpl implements DatasetsService {
         return this;
     }
 
+    @Override
+    public DatasetsService processSideEffects(String datasetId, String catalogueId, JsonArray effects, Handler<AsyncResult<JsonObject>> handler) {
+        PiveauLogger log = PiveauLoggerFactory.getLogger(datasetId, catalogueId, getClass());
+        DCATAPUriRef uriRef = DCATAPUriSchema.applyFor(datasetId);
+
+        Promise<String> cataloguePromise = Promise.promise();
+        if (catalogueId != null) {
+            cataloguePromise.complete(catalogueId);
+        } else {
+            connector.getCatalogueUriRefForDataset(uriRef.getDatasetUriRef(), ar -> {
+                if (ar.succeeded()) {
+                    cataloguePromise.complete(DCATAPUriSchema.parseUriRef(ar.result()).getId());
+                } else {
+                    cataloguePromise.fail(ar.cause());
+                }
+            });
+        }
+
+        Promise<String> graphPromise = Promise.promise();
+        connector.getGraph(uriRef.getDatasetGraphName(), "application/n-triples", graphPromise);
+
+        CompositeFuture.all(cataloguePromise.future(), graphPromise.future()).compose(cf -> {
+            Promise<DatasetHelper> helperPromise = Promise.promise();
+            DatasetHelper.create(graphPromise.future().result(), "application/n-triples", helperPromise);
+            return helperPromise.future();
+        }).compose(helper -> {
+            Promise<DatasetHelper> infoPromise = Promise.promise();
+            helper.catalogueId(cataloguePromise.future().result());
+            connector.catalogueExists(helper.catalogueUriRef(), ar -> {
+                if (ar.succeeded()) {
+                    helper.sourceType(ar.result().getString("type"));
+                    helper.sourceLang(ar.result().getString("lang"));
+                    infoPromise.complete(helper);
+                } else {
+                    infoPromise.fail(ar.cause());
+                }
+            });
+            return infoPromise.future();
+        }).compose(helper -> {
+            Promise<DatasetHelper> translationPromise = Promise.promise();
+            if (effects.contains(SideEffectsService.TRANSLATE) && translationConfig.getBoolean("enable", false)) {
+                // the translation request modifies the record, so it has to be written back
+                translate(helper).compose(translated -> store(translated).map(translated)).setHandler(ar -> {
+                    if (ar.succeeded()) {
+                        translationPromise.complete(ar.result());
+                    } else {
+                        log.error("Translation", ar.cause());
+                        translationPromise.complete(helper);
+                    }
+                });
+            } else {
+                translationPromise.complete(helper);
+            }
+            return translationPromise.future();
+        }).setHandler(ar -> {
+            if (ar.succeeded()) {
+                DatasetHelper helper = ar.result();
+                if (effects.contains(SideEffectsService.INDEX)) {
+                    index(helper, false);
+                }
+                if (effects.contains(SideEffectsService.VALIDATE) && validationConfig.getBoolean("enabled", false)) {
+                    validate(helper);
+                }
+                handler.handle(Future.succeededFuture(new JsonObject().put("status", "processed")));
+            } else {
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+        return this;
+    }
+
     @Override
     public DatasetsService getDataUploadInformation(String datasetId, String catalogueId, String resultDataset, Handler<AsyncResult<JsonObject>> handler) {
         DatasetHelper.create(resultDataset, Lang.NTRIPLES.getHeaderString(), dr -> {
@@ -460,14 +577,55 @@ public class DatasetsServiceImpl implements DatasetsService {
         });
     }
 
-    private void index(DatasetHelper helper) {
+    private void scheduleSideEffects(DatasetHelper helper) {
         PiveauLogger log = PiveauLoggerFactory.getLogger(helper, getClass());
-        JsonObject indexMessage = Indexing.indexingDataset(helper.resource(), helper.catalogueId(), helper.sourceLang());
-        indexService.addDatasetPut(indexMessage, ar -> {
+        JsonArray effects = new JsonArray().add(SideEffectsService.INDEX);
+        if (validationConfig.getBoolean("enabled")) {
+            effects.add(SideEffectsService.VALIDATE);
+        }
+        if (translationConfig.getBoolean("enable")) {
+            effects.add(SideEffectsService.TRANSLATE);
+        }
+        sideEffectsService.schedule(DCATAPUriSchema.parseUriRef(helper.uriRef()).getId(), helper.catalogueId(), effects, ar -> {
             if (ar.failed()) {
+                log.error("Scheduling side effects", ar.cause());
+            }
+        });
+    }
+
+    private void updateStatistics(String catalogueId, JsonObject delta) {
+        if (statisticsService != null) {
+            statisticsService.update(catalogueId, delta, ar -> {
+                if (ar.failed()) {
+                    PiveauLoggerFactory.getCatalogueLogger(catalogueId, getClass()).error("Update statistics", ar.cause());
+                }
+            });
+        }
+    }
+
+    private Future<Void> index(DatasetHelper helper, boolean synchronous) {
+        Promise<Void> promise = Promise.promise();
+        PiveauLogger log = PiveauLoggerFactory.getLogger(helper, getClass());
+        Handler<AsyncResult<JsonObject>> indexHandler = ar -> {
+            if (ar.succeeded()) {
+                promise.complete();
+            } else {
                 log.error("Indexing", ar.cause());
+                promise.fail(ar.cause());
+            }
+        };
+        // the caller goes on renaming resources in the helper model, so the conversion gets its own copy
+        Model model = ModelFactory.createDefaultModel().add(helper.model());
+        conversionPool.convertDataset(model, helper.uriRef(), helper.catalogueId(), helper.sourceLang()).setHandler(cr -> {
+            if (cr.failed()) {
+                indexHandler.handle(Future.failedFuture(cr.cause()));
+            } else if (synchronous) {
+                indexService.addDatasetPutSynchronous(cr.result(), indexHandler);
+            } else {
+                indexService.addDatasetPut(cr.result(), indexHandler);
             }
         });
+        return promise.future();
     }
 
     private void validate(DatasetHelper helper) {
@@ -2,24 +2,29 @@ package io.piveau.hub.services.distributions;
 
 //import io.piveau.hub.converters.DatasetToIndexConverter;
 import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.sideeffects.SideEffectsService;
+import io.piveau.hub.services.statistics.StatisticsService;
 import io.piveau.hub.services.translation.TranslationService;
 import io.piveau.hub.services.validation.ValidationServiceVerticle;
+import io.piveau.hub.util.CatalogueStatistics;
 import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.IndexConversionPool;
 import io.piveau.hub.dataobjects.DatasetHelper;
 import io.piveau.hub.util.TSConnector;
 import io.piveau.hub.util.logger.PiveauLogger;
 import io.piveau.hub.util.logger.PiveauLoggerFactory;
 import io.piveau.hub.util.rdf.SPDX;
-import io.piveau.indexing.Indexing;
 import io.piveau.utils.ConfigHelper;
 import io.piveau.utils.JenaUtils;
 import io.piveau.utils.experimental.DCATAPUriSchema;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpResponse;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -47,6 +52,11 @@ public class DistributionsServiceImpl implements DistributionsService {
     private Vertx vertx;
     private IndexService indexService;
     private TranslationService translationService;
+    private SideEffectsService sideEffectsService;
+    private StatisticsService statisticsService;
+    private IndexConversionPool conversionPool;
+
+    private boolean coalesceSideEffects;
 
     DistributionsServiceImpl(TSConnector connector, JsonObject config, Vertx vertx, Handler<AsyncResult<DistributionsService>> readyHandler) {
         this.vertx = vertx;
@@ -55,6 +65,14 @@ public class DistributionsServiceImpl implements DistributionsService {
 
         this.indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
         this.translationService = TranslationService.createProxy(vertx, TranslationService.SERVICE_ADDRESS);
+        this.conversionPool = IndexConversionPool.shared(vertx, config);
+        coalesceSideEffects = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_SIDE_EFFECTS).getBoolean("enabled", false);
+        if (coalesceSideEffects) {
+            sideEffectsService = SideEffectsService.createProxy(vertx, SideEffectsService.SERVICE_ADDRESS);
+        }
+        if (ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CATALOGUE_STATISTICS).getBoolean("enabled", false)) {
+            statisticsService = StatisticsService.createProxy(vertx, StatisticsService.SERVICE_ADDRESS);
+        }
         readyHandler.handle(Future.succeededFuture(this));
     }
 
@@ -237,8 +255,7 @@ public class DistributionsServiceImpl implements DistributionsService {
 
             if (ar.succeeded()) {
                 if (helper != null) {
-                    index(helper);
-                    translate(helper);
+                    sideEffects(helper);
                 }
 
 
@@ -282,8 +299,7 @@ public class DistributionsServiceImpl implements DistributionsService {
 
             if (ar.succeeded()) {
                 if (helper != null) {
-                    index(helper);
-                    translate(helper);
+                    sideEffects(helper);
                 }
 
 
@@ -305,6 +321,7 @@ public class DistributionsServiceImpl implements DistributionsService {
 
     private void put(String distribution, String distributionUriRef, String datasetUriRef, String contentType, JsonObject responseObject, Handler<AsyncResult<DatasetHelper>> handler) {
 
+        JsonObject[] before = new JsonObject[1];
         Future<String> graphFuture = Future.future();
         connector.getGraph(datasetUriRef, "application/n-triples", graphFuture);
         graphFuture.compose(graphModel -> {
@@ -312,6 +329,7 @@ public class DistributionsServiceImpl implements DistributionsService {
             DatasetHelper.create(graphModel, "application/n-triples", helperFuture);
             return helperFuture;
         }).compose(helper -> {
+            before[0] = CatalogueStatistics.contribution(helper.model());
             Future<String> withoutDistGraphFuture = Future.future();
             removeDistribution(helper, distributionUriRef, withoutDistGraphFuture);
             return withoutDistGraphFuture;
@@ -338,7 +356,12 @@ public class DistributionsServiceImpl implements DistributionsService {
             store(helper, storeFuture);
             return storeFuture;
 
-        }).setHandler(handler);
+        }).setHandler(ar -> {
+            if (ar.succeeded()) {
+                updateStatistics(ar.result(), before[0]);
+            }
+            handler.handle(ar);
+        });
     }
 
     @Override
@@ -347,6 +370,7 @@ public class DistributionsServiceImpl implements DistributionsService {
         Future<JsonObject> graphUriFuture = Future.future();
         connector.getDatasetUriRefForDistribution(id, graphUriFuture);
         JsonObject responseObject = new JsonObject();
+        JsonObject[] before = new JsonObject[1];
 
         graphUriFuture.compose(graphUriRef -> {
             Future<String> graphFuture = Future.future();
@@ -362,6 +386,7 @@ public class DistributionsServiceImpl implements DistributionsService {
             DatasetHelper.create(graphModel, "application/n-triples", helperFuture);
             return helperFuture;
         }).compose(helper -> {
+            before[0] = CatalogueStatistics.contribution(helper.model());
             Future<String> withoutDistGraphFuture = Future.future();
             String distributionUriRef = DCATAPUriSchema.applyFor(id).getDistributionUriRef();
             removeDistribution(helper, distributionUriRef, withoutDistGraphFuture);
@@ -378,6 +403,10 @@ public class DistributionsServiceImpl implements DistributionsService {
             return storeFuture;
         }).setHandler(ar -> {
             if (ar.succeeded()) {
+                updateStatistics(ar.result(), before[0]);
+                if (coalesceSideEffects) {
+                    sideEffects(ar.result());
+                }
                 handler.handle(Future.succeededFuture(new JsonObject()
                         .put("status", "success")
                 ));
@@ -393,6 +422,7 @@ public class DistributionsServiceImpl implements DistributionsService {
         Future<String> graphFuture = Future.future();
 
         String identifier = getIdentifier(distribution, contentType);
+        JsonObject[] before = new JsonObject[1];
 
         connector.getGraph(datasetGraphName, contentType, graphFuture);
         graphFuture.compose(graph -> {
@@ -400,6 +430,7 @@ public class DistributionsServiceImpl implements DistributionsService {
             DatasetHelper.create(id, graph, contentType, null, catalogueID, helperFuture);
             return helperFuture;
         }).compose(helper -> {
+            before[0] = CatalogueStatistics.contribution(helper.model());
             Future<DatasetHelper> helperFuture = Future.future();
             helper.addDistribution(distribution, contentType, false, helperFuture);
             return helperFuture;
@@ -413,9 +444,9 @@ public class DistributionsServiceImpl implements DistributionsService {
 
             if (ar.succeeded()) {
                 String distributionUri = getDistributionURI(identifier, helper);
+                updateStatistics(helper, before[0]);
 
-                index(helper);
-                translate(helper);
+                sideEffects(helper);
                 handler.handle(Future.succeededFuture(new JsonObject().put(HttpHeaders.LOCATION, distributionUri)));
             } else {
                 handler.handle(Future.failedFuture(ar.cause()));
@@ -525,6 +556,49 @@ public class DistributionsServiceImpl implements DistributionsService {
     }
 
 
+    /**
+     * Adds the change of the distributions to the statistics of the catalogue, which is looked up if the helper does not know it.
+     */
+    private void updateStatistics(DatasetHelper helper, JsonObject before) {
+        if (statisticsService == null) {
+            return;
+        }
+        PiveauLogger log = PiveauLoggerFactory.getLogger(helper, getClass());
+        JsonObject delta = CatalogueStatistics.delta(before, CatalogueStatistics.contribution(helper.model()));
+        Promise<String> cataloguePromise = Promise.promise();
+        if (helper.catalogueId() != null) {
+            cataloguePromise.complete(helper.catalogueId());
+        } else {
+            connector.getCatalogueUriRefForDataset(helper.uriRef(), ar -> cataloguePromise.handle(ar.map(uriRef -> DCATAPUriSchema.parseUriRef(uriRef).getId())));
+        }
+        cataloguePromise.future().setHandler(ar -> {
+            if (ar.succeeded()) {
+                statisticsService.update(ar.result(), delta, ur -> {
+                    if (ur.failed()) {
+                        log.error("Update statistics", ur.cause());
+                    }
+                });
+            } else {
+                log.error("Catalogue of the dataset for the statistics", ar.cause());
+            }
+        });
+    }
+
+    private void sideEffects(DatasetHelper helper) {
+        if (coalesceSideEffects) {
+            PiveauLogger log = PiveauLoggerFactory.getLogger(helper, getClass());
+            JsonArray effects = new JsonArray().add(SideEffectsService.INDEX).add(SideEffectsService.TRANSLATE);
+            sideEffectsService.schedule(DCATAPUriSchema.parseUriRef(helper.uriRef()).getId(), helper.catalogueId(), effects, ar -> {
+                if (ar.failed()) {
+                    log.error("Scheduling side effects", ar.cause());
+                }
+            });
+        } else {
+            index(helper);
+            translate(helper);
+        }
+    }
+
     private void translate(DatasetHelper helper) {
         PiveauLogger log = PiveauLoggerFactory.getLogger(helper, getClass());
         translationService.initializeTranslationProcess(helper, ar -> {
@@ -540,12 +614,16 @@ public class DistributionsServiceImpl implements DistributionsService {
         PiveauLogger log = PiveauLoggerFactory.getLogger(helper, getClass());
 //        DatasetToIndexConverter datasetToIndexConverter = new DatasetToIndexConverter();
 //        JsonObject indexMessage = datasetToIndexConverter.convert2(helper);
-        JsonObject indexMessage = Indexing.indexingDataset(helper.resource(), helper.catalogueId(), helper.sourceLang());
-        indexService.addDatasetPut(indexMessage, ar -> {
-            if (ar.failed()) {
-                log.error("Indexing", ar.cause());
-            }
-        });
+        conversionPool.convertDataset(helper.model(), helper.uriRef(), helper.catalogueId(), helper.sourceLang())
+                .compose(indexMessage -> {
+                    Promise<JsonObject> promise = Promise.promise();
+                    indexService.addDatasetPut(indexMessage, promise);
+                    return promise.future();
+                }).setHandler(ar -> {
+                    if (ar.failed()) {
+                        log.error("Indexing", ar.cause());
+                    }
+                });
     }
 
     private void validate(DatasetHelper helper) {
@@ -0,0 +1,231 @@
+package io.piveau.hub.services.index;
+
+import io.piveau.hub.util.json.PooledJsonBuffer;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams index and delete actions to the Elasticsearch bulk api as NDJSON.
+ * Actions are collected into chunks bounded by number of actions and bytes, a chunk is sealed when one of the
+ * bounds is reached or the maximum delay passed. Up to maxInFlight chunks are sent in parallel, the remaining
+ * chunks wait in a queue. Every caller gets the result of its own action from the bulk response.
+ * Actions are written with a json generator straight into the pooled buffer of the chunk.
+ */
+class ElasticsearchBulkWriter {
+
+    private final Vertx vertx;
+    private final WebClient client;
+    private final String address;
+
+    private final int maxActions;
+    private final long maxBytes;
+    private final int maxInFlight;
+    private final long maxDelay;
+
+    private Chunk current = new Chunk();
+    private final Deque<Chunk> sealed = new ArrayDeque<>();
+    private int inFlight = 0;
+    private long timerId = -1;
+
+    private long sentChunks = 0;
+    private long sentActions = 0;
+    private long failedActions = 0;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    private static class Action {
+        final String type;
+        final String id;
+        final Handler<AsyncResult<JsonObject>> handler;
+
+        Action(String type, String id, Handler<AsyncResult<JsonObject>> handler) {
+            this.type = type;
+            this.id = id;
+            this.handler = handler;
+        }
+    }
+
+    private static class Chunk {
+        final PooledJsonBuffer body = PooledJsonBuffer.allocate(64 * 1024);
+        final List<Action> actions = new ArrayList<>();
+        boolean refresh = false;
+    }
+
+    ElasticsearchBulkWriter(Vertx vertx, WebClient client, String address, JsonObject config) {
+        this.vertx = vertx;
+        this.client = client;
+        this.address = address;
+
+        maxActions = config.getInteger("maxActions", 1000);
+        maxBytes = config.getLong("maxBytes", 5L * 1024 * 1024);
+        maxInFlight = config.getInteger("maxInFlight", 4);
+        maxDelay = config.getLong("maxDelay", 1000L);
+    }
+
+    /**
+     * @param refresh wait until the document is searchable before reporting the result
+     */
+    void index(String index, String id, JsonObject document, boolean refresh, Handler<AsyncResult<JsonObject>> handler) {
+        add(new Action("index", id, handler), body -> {
+            meta(body, "index", index, id);
+            body.writer().add(document);
+            body.raw('\n');
+        }, refresh);
+    }
+
+    void delete(String index, String id, boolean refresh, Handler<AsyncResult<JsonObject>> handler) {
+        add(new Action("delete", id, handler), body -> meta(body, "delete", index, id), refresh);
+    }
+
+    /**
+     * Seals the current chunk and sends it as soon as a slot is free.
+     */
+    void flush() {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+            timerId = -1;
+        }
+        if (!current.actions.isEmpty()) {
+            sealed.add(current);
+            current = new Chunk();
+        }
+        dispatch();
+    }
+
+    private static void meta(PooledJsonBuffer body, String type, String index, String id) {
+        body.writer().startObject().startObject(type).put("_index", index).put("_id", id).endObject().endObject();
+        body.raw('\n');
+    }
+
+    JsonObject status() {
+        return new JsonObject()
+                .put("queuedActions", current.actions.size() + sealed.stream().mapToInt(chunk -> chunk.actions.size()).sum())
+                .put("queuedChunks", sealed.size())
+                .put("inFlight", inFlight)
+                .put("sentChunks", sentChunks)
+                .put("sentActions", sentActions)
+                .put("failedActions", failedActions);
+    }
+
+    private void add(Action action, Consumer<PooledJsonBuffer> lines, boolean refresh) {
+        int mark = current.body.length();
+        try {
+            lines.accept(current.body);
+        } catch (RuntimeException e) {
+            // the generator is stuck in the broken document, the chunk continues with a new one
+            Chunk fresh = new Chunk();
+            current.body.truncate(mark);
+            fresh.body.append(current.body, 0);
+            fresh.actions.addAll(current.actions);
+            fresh.refresh = current.refresh;
+            current.body.release();
+            current = fresh;
+            action.handler.handle(Future.failedFuture(e));
+            return;
+        }
+        // a single action larger than maxBytes still gets a chunk of its own, the action moves into the next chunk
+        if (!current.actions.isEmpty() && current.body.length() > maxBytes) {
+            Chunk next = new Chunk();
+            next.body.append(current.body, mark);
+            current.body.truncate(mark);
+            flush();
+            current.body.release();
+            current = next;
+        }
+        current.actions.add(action);
+        current.refresh |= refresh;
+
+        if (current.actions.size() >= maxActions || current.body.length() >= maxBytes) {
+            flush();
+        } else if (timerId == -1) {
+            timerId = vertx.setTimer(maxDelay, id -> {
+                timerId = -1;
+                flush();
+            });
+        }
+    }
+
+    private void dispatch() {
+        while (inFlight < maxInFlight && !sealed.isEmpty()) {
+            send(sealed.poll());
+        }
+    }
+
+    private void send(Chunk chunk) {
+        inFlight++;
+        HttpRequest<Buffer> request = client.postAbs(address + "/_bulk")
+                .putHeader("Content-Type", "application/x-ndjson");
+        if (chunk.refresh) {
+            request.addQueryParam("refresh", "wait_for");
+        }
+        log.debug("Sending bulk request with {} actions ({} bytes)", chunk.actions.size(), chunk.body.length());
+
+        request.sendBuffer(chunk.body.retain(), ar -> {
+            chunk.body.release();
+            inFlight--;
+            sentChunks++;
+            sentActions += chunk.actions.size();
+            if (ar.succeeded() && ar.result().statusCode() == 200) {
+                report(chunk, ar.result());
+            } else {
+                String message = ar.succeeded()
+                        ? ar.result().statusCode() + " " + ar.result().bodyAsString()
+                        : ar.cause().getMessage();
+                log.error("Bulk request with {} actions failed: {}", chunk.actions.size(), message);
+                failedActions += chunk.actions.size();
+                chunk.actions.forEach(action -> action.handler.handle(Future.failedFuture(message)));
+            }
+            dispatch();
+        });
+        // the send holds the body now
+        chunk.body.release();
+    }
+
+    /**
+     * Items of the bulk response are in the same order as the actions of the request.
+     * Deleting a document which does not exist is not an error.
+     */
+    private void report(Chunk chunk, HttpResponse<Buffer> response) {
+        JsonArray items;
+        try {
+            items = response.bodyAsJsonObject().getJsonArray("items", new JsonArray());
+        } catch (Exception e) {
+            items = new JsonArray();
+        }
+
+        for (int i = 0; i < chunk.actions.size(); i++) {
+            Action action = chunk.actions.get(i);
+            if (i >= items.size()) {
+                failedActions++;
+                action.handler.handle(Future.failedFuture("No result for " + action.type + " of " + action.id + " in bulk response"));
+                continue;
+            }
+            JsonObject item = items.getJsonObject(i).getJsonObject(action.type, new JsonObject());
+            int status = item.getInteger("status", 500);
+            if ((status >= 200 && status < 300) || ("delete".equals(action.type) && status == 404)) {
+                action.handler.handle(Future.succeededFuture(new JsonObject().put("result", item.getString("result"))));
+            } else {
+                failedActions++;
+                JsonObject error = item.getJsonObject("error", new JsonObject());
+                action.handler.handle(Future.failedFuture(status + " " + error.encode()));
+            }
+        }
+    }
+
+}
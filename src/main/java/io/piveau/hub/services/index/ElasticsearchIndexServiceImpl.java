@@ -0,0 +1,125 @@
+package io.piveau.hub.services.index;
+
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.vertx.circuitbreaker.CircuitBreaker;
+import io.vertx.core.*;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes index documents directly into Elasticsearch instead of sending them through the search service.
+ * All writes go through the bulk writer, reads, outbox and fingerprints are the same as for the search service.
+ * The documents are stored as they are produced by the indexing, the index mappings have to be set up by the search service.
+ */
+class ElasticsearchIndexServiceImpl extends IndexServiceImpl {
+
+    private final WebClient client;
+    private final String elasticsearchAddress;
+    private final String datasetIndex;
+    private final String catalogueIndex;
+
+    private final ElasticsearchBulkWriter bulkWriter;
+
+    ElasticsearchIndexServiceImpl(Vertx vertx, WebClient client, CircuitBreaker breaker, JsonObject config, Handler<AsyncResult<IndexService>> readyHandler) {
+        // the bulk writer collects documents itself, batching for the search service is not used
+        super(vertx, client, breaker, config.copy().put("batching", new JsonObject().put("enabled", false)), ready -> {
+        });
+
+        JsonObject elasticsearchConfig = config.getJsonObject("elasticsearch", new JsonObject());
+        this.client = client;
+        this.elasticsearchAddress = config.getString("elasticsearchAddress", "http://elasticsearch:9200");
+        this.datasetIndex = elasticsearchConfig.getString("datasetIndex", "dataset");
+        this.catalogueIndex = elasticsearchConfig.getString("catalogueIndex", "catalogue");
+
+        bulkWriter = new ElasticsearchBulkWriter(vertx, client, elasticsearchAddress, elasticsearchConfig);
+
+        readyHandler.handle(Future.succeededFuture(this));
+    }
+
+    /**
+     * Existence checks are not needed, every document is written with an index action.
+     */
+    @Override
+    public IndexService addDatasetWithoutCB(JsonObject dataset, Handler<AsyncResult<JsonObject>> handler) {
+        return addDatasetsUpsert(dataset, handler);
+    }
+
+    @Override
+    protected Future<Void> sendBulk(HttpMethod method, JsonObject datasets) {
+        List<Future> results = datasets.getJsonArray("datasets", new JsonArray()).stream()
+                .map(item -> {
+                    JsonObject document = (JsonObject) item;
+                    Promise<JsonObject> promise = Promise.promise();
+                    bulkWriter.index(datasetIndex, document.getString("id"), document, false, promise);
+                    return promise.future();
+                })
+                .collect(Collectors.toList());
+        bulkWriter.flush();
+        return CompositeFuture.all(results).mapEmpty();
+    }
+
+    @Override
+    protected void sendDatasetPut(JsonObject dataset, boolean synchronous, Handler<AsyncResult<JsonObject>> handler) {
+        bulkWriter.index(datasetIndex, dataset.getString("id"), dataset, synchronous, handler);
+    }
+
+    @Override
+    protected void sendDeleteDataset(String datasetId, Handler<AsyncResult<JsonObject>> handler) {
+        bulkWriter.delete(datasetIndex, datasetId, false, handler);
+    }
+
+    @Override
+    protected void flushDeletes() {
+        bulkWriter.flush();
+    }
+
+    @Override
+    protected void sendCatalog(JsonObject catalog, Handler<AsyncResult<JsonObject>> handler) {
+        bulkWriter.index(catalogueIndex, catalog.getString("id"), catalog, false, handler);
+    }
+
+    /**
+     * Deletes the catalogue and all its datasets, like the search service does.
+     */
+    @Override
+    protected void sendDeleteCatalog(String catalogId, Handler<AsyncResult<JsonObject>> handler) {
+        PiveauLogger LOGGER = PiveauLoggerFactory.getCatalogueLogger(catalogId, getClass());
+
+        Promise<JsonObject> cataloguePromise = Promise.promise();
+        bulkWriter.delete(catalogueIndex, catalogId, false, cataloguePromise);
+        bulkWriter.flush();
+
+        Promise<JsonObject> datasetsPromise = Promise.promise();
+        JsonObject query = new JsonObject().put("query", new JsonObject()
+                .put("term", new JsonObject().put("catalog.id", catalogId)));
+        client.postAbs(elasticsearchAddress + "/" + datasetIndex + "/_delete_by_query")
+                .addQueryParam("conflicts", "proceed")
+                .putHeader("Content-Type", "application/json")
+                .expect(ResponsePredicate.SC_OK)
+                .sendJsonObject(query, ar -> {
+                    if (ar.succeeded()) {
+                        datasetsPromise.complete(new JsonObject().put("deleted", ar.result().bodyAsJsonObject().getLong("deleted", 0L)));
+                    } else {
+                        datasetsPromise.fail(ar.cause());
+                    }
+                });
+
+        CompositeFuture.all(cataloguePromise.future(), datasetsPromise.future()).setHandler(ar -> {
+            if (ar.succeeded()) {
+                LOGGER.info("Successfully deleted catalog and {} datasets from Elasticsearch", datasetsPromise.future().result().getLong("deleted"));
+                handler.handle(Future.succeededFuture());
+            } else {
+                LOGGER.error("Unable to delete catalog from Elasticsearch");
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+    }
+
+}
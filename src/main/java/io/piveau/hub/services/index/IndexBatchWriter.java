@@ -0,0 +1,146 @@
+package io.piveau.hub.services.index;
+
+import io.piveau.hub.util.json.JsonWriter;
+import io.piveau.hub.util.json.PooledJsonBuffer;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.vertx.circuitbreaker.CircuitBreaker;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Collects dataset index documents and sends them as one bulk request to the search service.
+ * A batch is flushed when it reaches its maximum size or when the oldest document waited for the maximum delay.
+ * Within a batch the latest document of a dataset wins, all callers of that dataset get the result of the winning document.
+ * The request body is written with a json generator into a pooled buffer, without a wrapping JsonObject.
+ * Batches are sent through the circuit breaker of the index service, a server error is retried like any other send.
+ */
+class IndexBatchWriter {
+
+    private final Vertx vertx;
+    private final CircuitBreaker breaker;
+    private final Supplier<HttpRequest<Buffer>> requestFactory;
+
+    private final int maxSize;
+    private final long maxDelay;
+
+    private Map<String, Entry> batch = new LinkedHashMap<>();
+    private long timerId = -1;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    private static class Entry {
+        JsonObject document;
+        final List<Handler<AsyncResult<JsonObject>>> handlers = new ArrayList<>();
+    }
+
+    IndexBatchWriter(Vertx vertx, CircuitBreaker breaker, Supplier<HttpRequest<Buffer>> requestFactory, int maxSize, long maxDelay) {
+        this.vertx = vertx;
+        this.breaker = breaker;
+        this.requestFactory = requestFactory;
+        this.maxSize = maxSize;
+        this.maxDelay = maxDelay;
+    }
+
+    void add(JsonObject document, Handler<AsyncResult<JsonObject>> handler) {
+        Entry entry = batch.computeIfAbsent(document.getString("id"), id -> new Entry());
+        entry.document = document;
+        entry.handlers.add(handler);
+
+        if (batch.size() >= maxSize) {
+            flush();
+        } else if (timerId == -1) {
+            timerId = vertx.setTimer(maxDelay, id -> {
+                timerId = -1;
+                flush();
+            });
+        }
+    }
+
+    void flush() {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+            timerId = -1;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, Entry> current = batch;
+        batch = new LinkedHashMap<>();
+
+        PooledJsonBuffer body = PooledJsonBuffer.allocate(64 * 1024);
+        JsonWriter out = body.writer().startObject().startArray("datasets");
+        current.values().forEach(entry -> out.add(entry.document));
+        out.endArray().endObject();
+        log.debug("Sending batch of {} datasets", current.size());
+
+        // every attempt holds the body until its response, the body is released when the breaker is done
+        breaker.<HttpResponse<Buffer>>execute(promise -> requestFactory.get().sendBuffer(body.retain(), ar -> {
+            body.release();
+            if (ar.failed()) {
+                promise.fail(ar.cause());
+            } else if (ar.result().statusCode() >= 500) {
+                promise.fail(ar.result().statusCode() + " " + ar.result().statusMessage());
+            } else {
+                promise.complete(ar.result());
+            }
+        })).setHandler(ar -> {
+            body.release();
+            if (ar.succeeded()) {
+                report(current, ar.result());
+            } else {
+                log.error("Sending batch of " + current.size() + " datasets failed", ar.cause());
+                current.values().forEach(entry -> entry.handlers.forEach(handler -> handler.handle(Future.failedFuture(ar.cause()))));
+            }
+        });
+    }
+
+    /**
+     * Distributes the bulk response to the callers. Documents without an individual result in the response
+     * get the overall result of the request.
+     */
+    private void report(Map<String, Entry> current, HttpResponse<Buffer> response) {
+        Map<String, JsonObject> results = new HashMap<>();
+        boolean success = response.statusCode() >= 200 && response.statusCode() < 300;
+        String message = response.statusMessage();
+
+        try {
+            JsonObject body = response.bodyAsJsonObject();
+            if (body != null) {
+                success = success && body.getBoolean("success", true);
+                Object result = body.getValue("result");
+                if (result instanceof JsonArray) {
+                    ((JsonArray) result).stream()
+                            .filter(item -> item instanceof JsonObject && ((JsonObject) item).containsKey("id"))
+                            .map(item -> (JsonObject) item)
+                            .forEach(item -> results.put(item.getString("id"), item));
+                } else if (result != null) {
+                    message = result.toString();
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Bulk response without json body: {}", e.getMessage());
+        }
+
+        for (Map.Entry<String, Entry> item : current.entrySet()) {
+            JsonObject result = results.get(item.getKey());
+            boolean itemSuccess = result != null ? result.getBoolean("success", success) : success;
+            AsyncResult<JsonObject> asyncResult = itemSuccess
+                    ? Future.succeededFuture()
+                    : Future.failedFuture(result != null ? result.encode() : message);
+            item.getValue().handlers.forEach(handler -> handler.handle(asyncResult));
+        }
+    }
+
+}
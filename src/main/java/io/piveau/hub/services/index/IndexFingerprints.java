@@ -0,0 +1,205 @@
+package io.piveau.hub.services.index;
+
+import io.piveau.hub.util.AppendLog;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers a 64-bit hash of the last document successfully sent to the search service per dataset and catalogue.
+ * A document with an unchanged fingerprint does not need to be sent again.
+ * Fingerprints are only trusted after a successful send and dropped as soon as a send failed.
+ * A document is never suppressed while another send of it is in flight, that send might still change or fail it.
+ */
+class IndexFingerprints {
+
+    private static final int COMPACT_THRESHOLD = 10000;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AppendLog journal;
+
+    private final Map<String, Fingerprint> fingerprints = new HashMap<>();
+    // sends in flight per key, not journaled
+    private final Map<String, Integer> sending = new HashMap<>();
+
+    private int journalWrites = 0;
+
+    private long checked = 0;
+    private long suppressed = 0;
+    private long forgotten = 0;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    private static class Fingerprint {
+        final long hash;
+        final String catalogueId;
+
+        Fingerprint(long hash, String catalogueId) {
+            this.hash = hash;
+            this.catalogueId = catalogueId;
+        }
+    }
+
+    IndexFingerprints(AppendLog journal) {
+        this.journal = journal;
+        recover();
+    }
+
+    static String datasetKey(String id) {
+        return "dataset:" + id;
+    }
+
+    static String catalogueKey(String id) {
+        return "catalogue:" + id;
+    }
+
+    /**
+     * Computes a FNV-1a hash over the canonical form of the document, so the order of keys does not matter.
+     */
+    static long fingerprint(JsonObject document) {
+        StringBuilder canonical = new StringBuilder();
+        canonicalize(document, canonical);
+        long hash = FNV_OFFSET;
+        for (byte b : canonical.toString().getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static void canonicalize(Object value, StringBuilder out) {
+        if (value instanceof JsonObject) {
+            JsonObject object = (JsonObject) value;
+            out.append('{');
+            String separator = "";
+            for (String key : new TreeSet<>(object.fieldNames())) {
+                out.append(separator).append(Json.encode(key)).append(':');
+                canonicalize(object.getValue(key), out);
+                separator = ",";
+            }
+            out.append('}');
+        } else if (value instanceof JsonArray) {
+            out.append('[');
+            String separator = "";
+            for (Object item : (JsonArray) value) {
+                out.append(separator);
+                canonicalize(item, out);
+                separator = ",";
+            }
+            out.append(']');
+        } else {
+            out.append(Json.encode(value));
+        }
+    }
+
+    /**
+     * @return true if the document was already sent with exactly this fingerprint
+     */
+    boolean unchanged(String key, long hash) {
+        checked++;
+        Fingerprint current = fingerprints.get(key);
+        if (current != null && current.hash == hash && !sending.containsKey(key)) {
+            suppressed++;
+            return true;
+        }
+        return false;
+    }
+
+    void sending(String key) {
+        sending.merge(key, 1, Integer::sum);
+    }
+
+    void sent(String key) {
+        sending.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * @param catalogueId the catalogue of a dataset, used to drop its fingerprint together with the catalogue
+     */
+    void put(String key, long hash, String catalogueId) {
+        Fingerprint previous = fingerprints.put(key, new Fingerprint(hash, catalogueId));
+        if (previous == null || previous.hash != hash) {
+            write(new JsonObject().put("op", "put").put("key", key).put("fingerprint", hash).put("catalogue", catalogueId));
+        }
+    }
+
+    void remove(String key) {
+        if (fingerprints.remove(key) != null) {
+            write(new JsonObject().put("op", "remove").put("key", key));
+        }
+    }
+
+    /**
+     * Drops the fingerprints of a catalogue and all its datasets, so their next send goes through.
+     *
+     * @param catalogueId the catalogue, or null for all fingerprints
+     * @return the number of dropped fingerprints
+     */
+    int forget(String catalogueId) {
+        List<String> keys = fingerprints.entrySet().stream()
+                .filter(entry -> catalogueId == null
+                        || entry.getKey().equals(catalogueKey(catalogueId))
+                        || catalogueId.equals(entry.getValue().catalogueId))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        keys.forEach(fingerprints::remove);
+        journal.appendAll(keys.stream()
+                .map(key -> new JsonObject().put("op", "remove").put("key", key))
+                .collect(Collectors.toList()));
+        journalWrites += keys.size();
+        forgotten += keys.size();
+        compactIfNeeded();
+        return keys.size();
+    }
+
+    JsonObject status() {
+        return new JsonObject()
+                .put("entries", fingerprints.size())
+                .put("checked", checked)
+                .put("suppressed", suppressed)
+                .put("sent", checked - suppressed)
+                .put("forgotten", forgotten);
+    }
+
+    private void write(JsonObject op) {
+        journal.append(op);
+        journalWrites++;
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (journalWrites > COMPACT_THRESHOLD && journalWrites > fingerprints.size()) {
+            compact();
+        }
+    }
+
+    private void recover() {
+        for (JsonObject op : journal.readAll()) {
+            if ("put".equals(op.getString("op"))) {
+                fingerprints.put(op.getString("key"), new Fingerprint(op.getLong("fingerprint"), op.getString("catalogue")));
+            } else if ("remove".equals(op.getString("op"))) {
+                fingerprints.remove(op.getString("key"));
+            }
+        }
+        compact();
+        log.info("Loaded {} index fingerprints", fingerprints.size());
+    }
+
+    private void compact() {
+        journal.rewrite(fingerprints.entrySet().stream()
+                .map(entry -> new JsonObject().put("op", "put").put("key", entry.getKey()).put("fingerprint", entry.getValue().hash)
+                        .put("catalogue", entry.getValue().catalogueId))
+                .collect(Collectors.toList()));
+        journalWrites = 0;
+    }
+
+}
@@ -0,0 +1,279 @@
+package io.piveau.hub.services.index;
+
+import io.piveau.hub.util.AppendLog;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.vertx.circuitbreaker.CircuitBreaker;
+import io.vertx.circuitbreaker.CircuitBreakerState;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps index operations that are being sent or failed, and retries the failed ones with jittered exponential backoff.
+ * An operation is journaled before it is sent and resolved when it succeeded, so operations which were in flight
+ * when the process stopped are retried after the restart.
+ * Only the latest operation per entity is kept, it supersedes all earlier operations on the same entity.
+ * Retries are suspended while the circuit breaker of the search service is open.
+ */
+class IndexOutbox {
+
+    static final String PUT_DATASET = "putDataset";
+    static final String DELETE_DATASET = "deleteDataset";
+    static final String PUT_CATALOGUE = "putCatalogue";
+    static final String DELETE_CATALOGUE = "deleteCatalogue";
+
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private final Vertx vertx;
+    private final AppendLog journal;
+    private final CircuitBreaker breaker;
+    private final Function<JsonObject, Future<Void>> executor;
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int concurrency;
+
+    private final Map<String, JsonObject> entries = new LinkedHashMap<>();
+    private final Set<String> inFlight = new HashSet<>();
+
+    private int journalWrites = 0;
+
+    private long enqueued = 0;
+    private long retried = 0;
+    private long recovered = 0;
+    private long failedAttempts = 0;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    IndexOutbox(Vertx vertx, AppendLog journal, CircuitBreaker breaker, Function<JsonObject, Future<Void>> executor, JsonObject config) {
+        this.vertx = vertx;
+        this.journal = journal;
+        this.breaker = breaker;
+        this.executor = executor;
+
+        maxAttempts = config.getInteger("maxAttempts", 10);
+        baseDelay = config.getLong("baseDelay", 1000L);
+        maxDelay = config.getLong("maxDelay", 300000L);
+        concurrency = config.getInteger("concurrency", 4);
+
+        recover();
+        vertx.setPeriodic(config.getLong("interval", 1000L), id -> retryDue());
+    }
+
+    static JsonObject operation(String type, String id, JsonObject document) {
+        JsonObject operation = new JsonObject()
+                .put("key", type.endsWith("Dataset") ? "dataset:" + id : "catalogue:" + id)
+                .put("type", type)
+                .put("id", id);
+        if (document != null) {
+            operation.put("document", document);
+        }
+        return operation;
+    }
+
+    /**
+     * Journals an operation which is about to be sent. It is not retried unless it fails or the process stops before its result.
+     */
+    void sending(JsonObject operation) {
+        JsonObject entry = new JsonObject()
+                .put("operation", operation)
+                .put("attempts", 0)
+                .put("sending", true);
+        entries.put(operation.getString("key"), entry);
+        persist(entry);
+    }
+
+    /**
+     * Schedules a failed operation for retries, unless a later operation on the same entity superseded it.
+     */
+    void failed(JsonObject operation, Throwable cause) {
+        String key = operation.getString("key");
+        JsonObject entry = entries.get(key);
+        if (entry != null && entry.getJsonObject("operation") != operation) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entry = new JsonObject()
+                .put("operation", operation)
+                .put("attempts", 0)
+                .put("firstFailure", now)
+                .put("nextAttempt", now + backoff(0))
+                .put("lastError", cause != null ? String.valueOf(cause.getMessage()) : null);
+        enqueued++;
+        entries.put(key, entry);
+        persist(entry);
+    }
+
+    /**
+     * Removes a succeeded operation, unless a later operation on the same entity superseded it.
+     */
+    void succeeded(JsonObject operation) {
+        JsonObject entry = entries.get(operation.getString("key"));
+        if (entry != null && entry.getJsonObject("operation") == operation) {
+            resolve(operation.getString("key"));
+        }
+    }
+
+    private void resolve(String key) {
+        if (entries.remove(key) != null) {
+            journal.append(new JsonObject().put("op", "remove").put("key", key));
+            journalWrites++;
+        }
+    }
+
+    /**
+     * Retries all entries now, including the ones which exceeded the maximum attempts.
+     *
+     * @param filter only entries whose operation contains this id, or all if null
+     */
+    Future<JsonObject> drain(String filter) {
+        List<String> keys = entries.entrySet().stream()
+                .filter(e -> filter == null || e.getValue().getJsonObject("operation").getString("id").equals(filter))
+                .filter(e -> !e.getValue().getBoolean("sending", false))
+                .map(Map.Entry::getKey)
+                .filter(key -> !inFlight.contains(key))
+                .collect(Collectors.toList());
+
+        List<Future> attempts = keys.stream().map(this::attempt).collect(Collectors.toList());
+        return CompositeFuture.join(attempts).otherwiseEmpty().map(v -> {
+            long remaining = keys.stream().filter(entries::containsKey).count();
+            return new JsonObject()
+                    .put("drained", keys.size() - remaining)
+                    .put("remaining", remaining);
+        });
+    }
+
+    /**
+     * @return the keys of all entities with an operation in the outbox
+     */
+    Set<String> keys() {
+        return new HashSet<>(entries.keySet());
+    }
+
+    JsonObject status() {
+        long now = System.currentTimeMillis();
+        Map<String, Long> types = entries.values().stream()
+                .collect(Collectors.groupingBy(e -> e.getJsonObject("operation").getString("type"), Collectors.counting()));
+
+        JsonArray sample = new JsonArray();
+        entries.values().stream().limit(20).forEach(e -> sample.add(new JsonObject()
+                .put("type", e.getJsonObject("operation").getString("type"))
+                .put("id", e.getJsonObject("operation").getString("id"))
+                .put("attempts", e.getInteger("attempts"))
+                .put("lastError", e.getString("lastError"))));
+
+        return new JsonObject()
+                .put("pending", entries.values().stream().filter(e -> !e.getBoolean("dead", false) && !e.getBoolean("sending", false)).count())
+                .put("sending", entries.values().stream().filter(e -> e.getBoolean("sending", false)).count())
+                .put("dead", entries.values().stream().filter(e -> e.getBoolean("dead", false)).count())
+                .put("inFlight", inFlight.size())
+                .put("oldestAge", entries.values().stream().filter(e -> e.containsKey("firstFailure")).mapToLong(e -> now - e.getLong("firstFailure")).max().orElse(0))
+                .put("byType", new JsonObject(new HashMap<>(types)))
+                .put("enqueued", enqueued)
+                .put("retried", retried)
+                .put("recovered", recovered)
+                .put("failedAttempts", failedAttempts)
+                .put("circuit", breaker.state().name())
+                .put("entries", sample);
+    }
+
+    private void retryDue() {
+        if (breaker.state() == CircuitBreakerState.OPEN) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.entrySet().stream()
+                .filter(e -> !e.getValue().getBoolean("dead", false) && !e.getValue().getBoolean("sending", false))
+                .filter(e -> e.getValue().getLong("nextAttempt") <= now)
+                .filter(e -> !inFlight.contains(e.getKey()))
+                .limit(Math.max(0, concurrency - inFlight.size()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList())
+                .forEach(this::attempt);
+    }
+
+    private Future<Void> attempt(String key) {
+        JsonObject entry = entries.get(key);
+        JsonObject operation = entry.getJsonObject("operation");
+        inFlight.add(key);
+        retried++;
+        Promise<Void> result = Promise.promise();
+        breaker.<Void>execute(promise -> executor.apply(operation).setHandler(promise)).setHandler(ar -> {
+            inFlight.remove(key);
+            // a newer operation might have replaced the entry meanwhile
+            if (entries.get(key) != entry) {
+                result.handle(ar);
+                return;
+            }
+            if (ar.succeeded()) {
+                recovered++;
+                resolve(key);
+            } else {
+                failedAttempts++;
+                int attempts = entry.getInteger("attempts") + 1;
+                entry.put("attempts", attempts)
+                        .put("nextAttempt", System.currentTimeMillis() + backoff(attempts))
+                        .put("lastError", String.valueOf(ar.cause().getMessage()));
+                if (attempts >= maxAttempts) {
+                    entry.put("dead", true);
+                    log.warn("Giving up index operation {} after {} attempts", key, attempts);
+                }
+                persist(entry);
+            }
+            result.handle(ar);
+        });
+        return result.future();
+    }
+
+    private long backoff(int attempts) {
+        long delay = Math.min(maxDelay, baseDelay * (1L << Math.min(attempts, 20)));
+        return (long) (delay * ThreadLocalRandom.current().nextDouble(0.5, 1.5));
+    }
+
+    private void persist(JsonObject entry) {
+        journal.append(new JsonObject().put("op", "put").put("entry", entry));
+        journalWrites++;
+        if (journalWrites > COMPACT_THRESHOLD && journalWrites > entries.size() * 2) {
+            compact();
+        }
+    }
+
+    private void recover() {
+        for (JsonObject op : journal.readAll()) {
+            if ("put".equals(op.getString("op"))) {
+                JsonObject entry = op.getJsonObject("entry");
+                entries.put(entry.getJsonObject("operation").getString("key"), entry);
+            } else if ("remove".equals(op.getString("op"))) {
+                entries.remove(op.getString("key"));
+            }
+        }
+        // operations without a result before the stop are retried right away
+        long now = System.currentTimeMillis();
+        entries.values().stream().filter(entry -> entry.getBoolean("sending", false)).forEach(entry -> {
+            entry.remove("sending");
+            entry.put("firstFailure", now).put("nextAttempt", now).put("lastError", "No result before restart");
+        });
+        compact();
+        if (!entries.isEmpty()) {
+            log.info("Recovered {} index operations from outbox", entries.size());
+        }
+    }
+
+    private void compact() {
+        journal.rewrite(entries.values().stream()
+                .map(entry -> new JsonObject().put("op", "put").put("entry", entry))
+                .collect(Collectors.toList()));
+        journalWrites = 0;
+    }
+
+}
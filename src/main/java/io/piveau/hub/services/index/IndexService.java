@@ -16,8 +16,11 @@ import io.vertx.ext.web.client.WebClient;
 public interface IndexService {
     String SERVICE_ADDRESS = "io.piveau.hub.index.queue";
 
-    static IndexService create(WebClient client, CircuitBreaker breaker, JsonObject config, Handler<AsyncResult<IndexService>> readyHandler) {
-        return new IndexServiceImpl(client, breaker, config, readyHandler);
+    static IndexService create(Vertx vertx, WebClient client, CircuitBreaker breaker, JsonObject config, Handler<AsyncResult<IndexService>> readyHandler) {
+        if ("elasticsearch".equals(config.getString("backend", "search"))) {
+            return new ElasticsearchIndexServiceImpl(vertx, client, breaker, config, readyHandler);
+        }
+        return new IndexServiceImpl(vertx, client, breaker, config, readyHandler);
     }
 
     static IndexService createProxy(Vertx vertx, String address) {
@@ -30,9 +33,35 @@ public interface IndexService {
     @Fluent
     IndexService addDataset(JsonObject dataset, Handler<AsyncResult<JsonObject>> handler);
 
+    /**
+     * Sends datasets in one bulk request as upserts, without checking their existence.
+     *
+     * @param datasets object with the documents in a "datasets" array
+     */
+    @Fluent
+    IndexService addDatasetsUpsert(JsonObject datasets, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Checks the existence of many datasets with one request.
+     *
+     * @param ids dataset ids
+     * @return object mapping every id to true or false
+     */
+    @Fluent
+    IndexService datasetsExist(JsonArray ids, Handler<AsyncResult<JsonObject>> handler);
+
     @Fluent
     IndexService deleteDataset(String id, Handler<AsyncResult<JsonObject>> handler);
 
+    /**
+     * Deletes many datasets, with one bulk request where the backend supports it.
+     *
+     * @param ids dataset ids
+     * @return object with the number of deleted datasets and the ids of the failed ones in a "failed" array
+     */
+    @Fluent
+    IndexService deleteDatasets(JsonArray ids, Handler<AsyncResult<JsonObject>> handler);
+
     @Fluent
     IndexService deleteCatalog(String id, Handler<AsyncResult<JsonObject>> handler);
 
@@ -48,4 +77,44 @@ public interface IndexService {
     @Fluent
     IndexService addDatasetPut(JsonObject dataset, Handler<AsyncResult<JsonObject>> handler);
 
+    /**
+     * Sends a dataset and waits until it is searchable, regardless of the configured indexing mode.
+     */
+    @Fluent
+    IndexService addDatasetPutSynchronous(JsonObject dataset, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Makes all datasets sent so far searchable.
+     */
+    @Fluent
+    IndexService refreshIndex(Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Reports the failed index operations waiting for a retry.
+     */
+    @Fluent
+    IndexService outboxStatus(Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Retries failed index operations immediately, including the ones the outbox gave up on.
+     *
+     * @param id only operations for this dataset or catalogue id, or all if null
+     */
+    @Fluent
+    IndexService drainOutbox(String id, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Reports how many sends were suppressed because the document did not change.
+     */
+    @Fluent
+    IndexService fingerprintStatus(Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Drops the fingerprints of a catalogue and its datasets, so they are sent again on the next indexing.
+     *
+     * @param catalogueId the catalogue, or null for all fingerprints
+     */
+    @Fluent
+    IndexService forgetFingerprints(String catalogueId, Handler<AsyncResult<JsonObject>> handler);
+
 }
@@ -1,10 +1,13 @@
 package io.piveau.hub.services.index;
 
+import io.piveau.hub.util.AppendLog;
+import io.piveau.hub.util.json.PooledJsonBuffer;
 import io.piveau.hub.util.logger.PiveauLogger;
 import io.piveau.hub.util.logger.PiveauLoggerFactory;
 import io.vertx.circuitbreaker.CircuitBreaker;
 import io.vertx.core.*;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpRequest;
@@ -14,6 +17,7 @@ import io.vertx.ext.web.client.predicate.ResponsePredicate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class IndexServiceImpl implements IndexService {
 
@@ -24,8 +28,20 @@ public class IndexServiceImpl implements IndexService {
     private String url;
     private String apiKey;
 
+    private IndexBatchWriter batchWriter;
+    private IndexOutbox outbox;
+    private IndexFingerprints fingerprints;
 
-    IndexServiceImpl(WebClient client, CircuitBreaker breaker, JsonObject config, Handler<AsyncResult<IndexService>> readyHandler) {
+    // in async mode documents are sent without waiting for a refresh, the index is refreshed once per window instead
+    private boolean async;
+    private String elasticsearchAddress;
+    private String datasetIndex;
+    // none: datasets are upserted without checking their existence, elasticsearch: one _mget against the index behind the search service
+    private String existenceCheck;
+    private boolean refreshPending = false;
+
+
+    IndexServiceImpl(Vertx vertx, WebClient client, CircuitBreaker breaker, JsonObject config, Handler<AsyncResult<IndexService>> readyHandler) {
         this.client = client;
         this.breaker = breaker;
 
@@ -33,108 +49,208 @@ public class IndexServiceImpl implements IndexService {
         this.url = config.getString("url", "localhost");
         this.apiKey = config.getString("api_key", "");
 
+        this.async = "async".equals(config.getString("mode", "sync"));
+        this.elasticsearchAddress = config.getString("elasticsearchAddress", "http://elasticsearch:9200");
+        this.datasetIndex = config.getJsonObject("elasticsearch", new JsonObject()).getString("datasetIndex", "dataset");
+        this.existenceCheck = config.getString("existenceCheck", "none");
+
+        JsonObject batching = config.getJsonObject("batching", new JsonObject());
+        if (batching.getBoolean("enabled", false)) {
+            batchWriter = new IndexBatchWriter(vertx, breaker, () -> {
+                HttpRequest<Buffer> request = client.put(this.port, this.url, "/datasets")
+                        .putHeader("Authorization", this.apiKey)
+                        .putHeader("Content-Type", "application/json");
+                if (!async) {
+                    request.addQueryParam("synchronous", "true");
+                }
+                return request;
+            },
+                    batching.getInteger("maxSize", 200),
+                    batching.getLong("maxDelay", 1000L));
+        }
+
+        JsonObject outboxConfig = config.getJsonObject("outbox", new JsonObject());
+        if (outboxConfig.getBoolean("enabled", false)) {
+            outbox = new IndexOutbox(vertx, AppendLog.open(config.getString("stateDir", "state"), "indexoutbox.log"), breaker, this::replay, outboxConfig);
+        }
+
+        if (config.getJsonObject("fingerprints", new JsonObject()).getBoolean("enabled", false)) {
+            fingerprints = new IndexFingerprints(AppendLog.open(config.getString("stateDir", "state"), "fingerprints.log"));
+            if (outbox != null) {
+                // the indexed state of operations which were in flight or failed before the restart is unknown
+                outbox.keys().forEach(fingerprints::remove);
+            }
+        }
+
+        if (async) {
+            vertx.setPeriodic(config.getLong("refreshInterval", 5000L), id -> {
+                if (refreshPending) {
+                    refreshPending = false;
+                    refreshIndex(ar -> {
+                        if (ar.failed()) {
+                            PiveauLoggerFactory.getLogger(getClass()).warn("Periodic index refresh failed: {}", ar.cause().getMessage());
+                        }
+                    });
+                }
+            });
+        }
+
         readyHandler.handle(Future.succeededFuture(this));
     }
 
     /**
-     * Sends a dataset to the search service
+     * Sends datasets to the search service. Without an existence check all datasets are upserted with one PUT.
+     * With the elasticsearch existence check they are split into updates (PUT) and creations (POST),
+     * the existence of all datasets is checked with one request.
+     * Both bodies are written directly from the received documents, without wrapping arrays.
      *
      * @param dataset
      */
     @Override
     public IndexService addDatasetWithoutCB(JsonObject dataset, Handler<AsyncResult<JsonObject>> handler) {
+        if (!"elasticsearch".equals(existenceCheck)) {
+            return addDatasetsUpsert(dataset, handler);
+        }
 
-        JsonObject payload = dataset;
+        PiveauLogger LOGGER = PiveauLoggerFactory.getLogger(getClass());
+
+        JsonArray datasets = dataset.getJsonArray("datasets", new JsonArray());
+        JsonArray ids = new JsonArray(datasets.stream().map(item -> ((JsonObject) item).getString("id")).collect(Collectors.toList()));
 
-        JsonArray putArray = new JsonArray();
-        JsonArray postArray = new JsonArray();
-
-        List<Future> existList = new ArrayList<>();
-
-        payload.getJsonArray("datasets").forEach(item -> {
-            JsonObject obj = (JsonObject) item;
-            PiveauLogger LOGGER = PiveauLoggerFactory.getDatasetLogger(obj.getString("id"),getClass());
-            Promise existPromise = Promise.promise();
-            existList.add(existPromise.future());
-            entityExists(obj.getString("id"), "datasets").setHandler(existHandler -> {
-                if (existHandler.succeeded()) {
-                    if (existHandler.result()) {
-                        putArray.add(obj);
-                        existPromise.complete();
+        datasetsExist(ids, ar -> {
+            if (ar.succeeded()) {
+                JsonObject existing = ar.result();
+
+                PooledJsonBuffer putBody = null;
+                PooledJsonBuffer postBody = null;
+                for (Object item : datasets) {
+                    JsonObject obj = (JsonObject) item;
+                    if (existing.getBoolean(obj.getString("id"), false)) {
+                        putBody = putBody != null ? putBody : startBulkBody();
+                        putBody.writer().add(obj);
                     } else {
-                        postArray.add(obj);
-                        existPromise.complete();
+                        postBody = postBody != null ? postBody : startBulkBody();
+                        postBody.writer().add(obj);
                     }
-                } else {
-                    LOGGER.error("Unable to check if dataset exits" + existHandler.cause());
-                    existPromise.complete();
                 }
-            });
-        });
 
-        // LOGGER.info(payload.encodePrettily());
-        PiveauLogger LOGGER = PiveauLoggerFactory.getLogger(getClass());
+                List<Future> sends = new ArrayList<>();
+                if (putBody != null) {
+                    putBody.writer().endArray().endObject();
+                    sends.add(sendBulk(HttpMethod.PUT, putBody));
+                }
+                if (postBody != null) {
+                    postBody.writer().endArray().endObject();
+                    sends.add(sendBulk(HttpMethod.POST, postBody));
+                }
+                CompositeFuture.all(sends).setHandler(sr -> {
+                    if (sr.succeeded()) {
+                        handler.handle(Future.succeededFuture());
+                    } else {
+                        LOGGER.error("Unable to send dataset to Search Service");
+                        handler.handle(Future.failedFuture(sr.cause()));
+                    }
+                });
+            } else {
+                LOGGER.error("Unable to check if datasets exist", ar.cause());
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+        return this;
+    }
 
-        CompositeFuture.all(existList).setHandler(ar -> {
+    @Override
+    public IndexService addDatasetsUpsert(JsonObject datasets, Handler<AsyncResult<JsonObject>> handler) {
+        sendBulk(HttpMethod.PUT, datasets).setHandler(ar -> {
             if (ar.succeeded()) {
+                handler.handle(Future.succeededFuture());
+            } else {
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+        return this;
+    }
 
-                JsonObject putDatasets = new JsonObject();
-                JsonObject postDatasets = new JsonObject();
-
-                putDatasets.put("datasets", putArray);
-                postDatasets.put("datasets", postArray);
+    /**
+     * The search service has no bulk lookup, so without the elasticsearch existence check every id is looked up
+     * at the search service, all lookups in parallel. The elasticsearch check asks the index behind the search service
+     * with one _mget request.
+     */
+    @Override
+    public IndexService datasetsExist(JsonArray ids, Handler<AsyncResult<JsonObject>> handler) {
+        if (ids.isEmpty()) {
+            handler.handle(Future.succeededFuture(new JsonObject()));
+            return this;
+        }
+        if (!"elasticsearch".equals(existenceCheck)) {
+            List<String> datasetIds = ids.stream().map(Object::toString).collect(Collectors.toList());
+            List<Future> lookups = datasetIds.stream().map(id -> entityExists(id, "datasets")).collect(Collectors.toList());
+            CompositeFuture.all(lookups).setHandler(ar -> {
+                if (ar.succeeded()) {
+                    JsonObject existing = new JsonObject();
+                    for (int i = 0; i < datasetIds.size(); i++) {
+                        existing.put(datasetIds.get(i), ar.result().<Boolean>resultAt(i));
+                    }
+                    handler.handle(Future.succeededFuture(existing));
+                } else {
+                    handler.handle(Future.failedFuture(ar.cause()));
+                }
+            });
+            return this;
+        }
 
+        HttpRequest<Buffer> request = client.postAbs(elasticsearchAddress + "/" + datasetIndex + "/_mget")
+                .addQueryParam("_source", "false")
+                .putHeader("Content-Type", "application/json")
+                .expect(ResponsePredicate.SC_OK);
 
-                if (putArray.size() != 0) {
-                    HttpRequest<Buffer> putRequest = client.put(this.port, this.url, "/datasets")
-                            .putHeader("Authorization", this.apiKey)
-                            .putHeader("Content-Type", "application/json");
+        breaker.<JsonObject>execute(promise -> request.sendJsonObject(new JsonObject().put("ids", ids), ar -> {
+            if (ar.succeeded()) {
+                JsonObject existing = new JsonObject();
+                ar.result().bodyAsJsonObject().getJsonArray("docs", new JsonArray()).forEach(doc -> {
+                    JsonObject info = (JsonObject) doc;
+                    existing.put(info.getString("_id"), info.getBoolean("found", false));
+                });
+                promise.complete(existing);
+            } else {
+                promise.fail(ar.cause());
+            }
+        })).setHandler(handler);
+        return this;
+    }
 
-                    breaker.execute(promise -> putRequest.sendJsonObject(putDatasets, ar2 -> {
-                        if (ar2.succeeded()) {
-                            promise.complete();
-                        } else {
-                            LOGGER.error("Unable to send dataset to Search Service. ", ar2.cause());
-                            promise.fail(ar2.cause());
-                        }
-                    })).setHandler(ar2 -> {
-                        if (ar2.succeeded()) {
-                            handler.handle(Future.succeededFuture());
-                        } else {
-                            LOGGER.error("Unable to send dataset to Search Service");
-                            handler.handle(Future.failedFuture(ar2.cause()));
-                        }
-                    });
+    protected Future<Void> sendBulk(HttpMethod method, JsonObject datasets) {
+        return sendBulk(method, PooledJsonBuffer.of(datasets));
+    }
 
-                }
+    private static PooledJsonBuffer startBulkBody() {
+        PooledJsonBuffer body = PooledJsonBuffer.allocate(64 * 1024);
+        body.writer().startObject().startArray("datasets");
+        return body;
+    }
 
-                if (postArray.size() != 0) {
-                    HttpRequest<Buffer> postRequest = client.post(this.port, this.url, "/datasets")
-                            .putHeader("Authorization", this.apiKey)
-                            .putHeader("Content-Type", "application/json");
+    /**
+     * Every attempt of the breaker holds the body until its response, the body is released when the breaker is done.
+     */
+    private Future<Void> sendBulk(HttpMethod method, PooledJsonBuffer body) {
+        HttpRequest<Buffer> request = client.request(method, this.port, this.url, "/datasets")
+                .putHeader("Authorization", this.apiKey)
+                .putHeader("Content-Type", "application/json")
+                .expect(ResponsePredicate.SC_SUCCESS);
 
-                    breaker.execute(promise -> postRequest.sendJsonObject(postDatasets, ar2 -> {
-                        if (ar2.succeeded()) {
-                            promise.complete();
-                        } else {
-                            LOGGER.error(ar2.cause().getMessage());
-                            promise.fail(ar2.cause());
-                        }
-                    })).setHandler(ar2 -> {
-                        if (ar2.succeeded()) {
-                            handler.handle(Future.succeededFuture());
-                        } else {
-                            LOGGER.error("Unable to send dataset to Search Service");
-                            handler.handle(Future.failedFuture(ar2.cause()));
-                        }
-                    });
-                }
+        Promise<Void> result = Promise.promise();
+        breaker.<Void>execute(promise -> request.sendBuffer(body.retain(), ar -> {
+            body.release();
+            if (ar.succeeded()) {
+                promise.complete();
             } else {
-                handler.handle(Future.failedFuture(ar.cause()));
+                promise.fail(ar.cause());
             }
-
+        })).setHandler(ar -> {
+            body.release();
+            result.handle(ar);
         });
-        return this;
+        return result.future();
     }
 
 
@@ -209,13 +325,170 @@ public class IndexServiceImpl implements IndexService {
 
     @Override
     public IndexService addDatasetPut(JsonObject dataset, Handler<AsyncResult<JsonObject>> handler) {
+        String id = dataset.getString("id");
+        sendIfChanged(IndexFingerprints.datasetKey(id), dataset, datasetCatalogue(dataset), handler, h -> {
+            Handler<AsyncResult<JsonObject>> trackedHandler = tracked(IndexOutbox.operation(IndexOutbox.PUT_DATASET, id, dataset), h);
+            if (async) {
+                refreshPending = true;
+            }
+            if (batchWriter != null) {
+                batchWriter.add(dataset, trackedHandler);
+            } else {
+                sendDatasetPut(dataset, !async, trackedHandler);
+            }
+        });
+        return this;
+    }
+
+    @Override
+    public IndexService addDatasetPutSynchronous(JsonObject dataset, Handler<AsyncResult<JsonObject>> handler) {
+        // never suppressed, an unchanged document might still wait for the next refresh
+        String id = dataset.getString("id");
+        Handler<AsyncResult<JsonObject>> trackedHandler = tracked(IndexOutbox.operation(IndexOutbox.PUT_DATASET, id, dataset), handler);
+        sendDatasetPut(dataset, true, fingerprinted(IndexFingerprints.datasetKey(id), dataset, datasetCatalogue(dataset), trackedHandler));
+        return this;
+    }
+
+    @Override
+    public IndexService fingerprintStatus(Handler<AsyncResult<JsonObject>> handler) {
+        if (fingerprints != null) {
+            handler.handle(Future.succeededFuture(fingerprints.status().put("enabled", true)));
+        } else {
+            handler.handle(Future.succeededFuture(new JsonObject().put("enabled", false)));
+        }
+        return this;
+    }
 
+    @Override
+    public IndexService forgetFingerprints(String catalogueId, Handler<AsyncResult<JsonObject>> handler) {
+        int forgotten = fingerprints != null ? fingerprints.forget(catalogueId) : 0;
+        handler.handle(Future.succeededFuture(new JsonObject().put("forgotten", forgotten)));
+        return this;
+    }
+
+    /**
+     * Completes the handler right away if the document is unchanged since its last successful send,
+     * otherwise passes a handler to the sender which records the new fingerprint.
+     */
+    private void sendIfChanged(String key, JsonObject document, String catalogueId, Handler<AsyncResult<JsonObject>> handler, Handler<Handler<AsyncResult<JsonObject>>> sender) {
+        if (fingerprints == null) {
+            sender.handle(handler);
+            return;
+        }
+        long fingerprint = IndexFingerprints.fingerprint(document);
+        if (fingerprints.unchanged(key, fingerprint)) {
+            handler.handle(Future.succeededFuture(new JsonObject().put("status", "unchanged")));
+        } else {
+            sender.handle(fingerprinted(key, fingerprint, catalogueId, handler));
+        }
+    }
+
+    private Handler<AsyncResult<JsonObject>> fingerprinted(String key, JsonObject document, String catalogueId, Handler<AsyncResult<JsonObject>> handler) {
+        return fingerprints != null ? fingerprinted(key, IndexFingerprints.fingerprint(document), catalogueId, handler) : handler;
+    }
+
+    private Handler<AsyncResult<JsonObject>> fingerprinted(String key, long fingerprint, String catalogueId, Handler<AsyncResult<JsonObject>> handler) {
+        // a crash before the result only costs one redundant send, so nothing is journaled before sending
+        fingerprints.sending(key);
+        return ar -> {
+            fingerprints.sent(key);
+            if (ar.succeeded()) {
+                fingerprints.put(key, fingerprint, catalogueId);
+            } else {
+                fingerprints.remove(key);
+            }
+            handler.handle(ar);
+        };
+    }
+
+    private String datasetCatalogue(JsonObject dataset) {
+        JsonObject catalog = dataset.getJsonObject("catalog");
+        return catalog != null ? catalog.getString("id") : null;
+    }
+
+    @Override
+    public IndexService outboxStatus(Handler<AsyncResult<JsonObject>> handler) {
+        if (outbox != null) {
+            handler.handle(Future.succeededFuture(outbox.status().put("enabled", true)));
+        } else {
+            handler.handle(Future.succeededFuture(new JsonObject().put("enabled", false)));
+        }
+        return this;
+    }
+
+    @Override
+    public IndexService drainOutbox(String id, Handler<AsyncResult<JsonObject>> handler) {
+        if (outbox != null) {
+            outbox.drain(id).setHandler(handler);
+        } else {
+            handler.handle(Future.succeededFuture(new JsonObject().put("drained", 0).put("remaining", 0)));
+        }
+        return this;
+    }
+
+    /**
+     * Journals an index operation in the outbox before it is sent and records its outcome. Failed operations are retried later,
+     * a succeeded one is removed from the outbox.
+     */
+    private Handler<AsyncResult<JsonObject>> tracked(JsonObject operation, Handler<AsyncResult<JsonObject>> handler) {
+        if (outbox == null) {
+            return handler;
+        }
+        outbox.sending(operation);
+        return ar -> {
+            if (ar.succeeded()) {
+                outbox.succeeded(operation);
+            } else {
+                outbox.failed(operation, ar.cause());
+            }
+            handler.handle(ar);
+        };
+    }
+
+    private Future<Void> replay(JsonObject operation) {
+        Promise<JsonObject> promise = Promise.promise();
+        switch (operation.getString("type")) {
+            case IndexOutbox.PUT_DATASET:
+                sendDatasetPut(operation.getJsonObject("document"), !async, promise);
+                break;
+            case IndexOutbox.DELETE_DATASET:
+                sendDeleteDataset(operation.getString("id"), promise);
+                break;
+            case IndexOutbox.PUT_CATALOGUE:
+                sendCatalog(operation.getJsonObject("document"), promise);
+                break;
+            case IndexOutbox.DELETE_CATALOGUE:
+                sendDeleteCatalog(operation.getString("id"), promise);
+                break;
+            default:
+                promise.fail("Unknown index operation " + operation.getString("type"));
+        }
+        return promise.future().mapEmpty();
+    }
+
+    @Override
+    public IndexService refreshIndex(Handler<AsyncResult<JsonObject>> handler) {
+        client.postAbs(elasticsearchAddress + "/" + datasetIndex + "/_refresh")
+                .expect(ResponsePredicate.SC_SUCCESS)
+                .send(ar -> {
+                    if (ar.succeeded()) {
+                        handler.handle(Future.succeededFuture(new JsonObject().put("status", "refreshed")));
+                    } else {
+                        handler.handle(Future.failedFuture(ar.cause()));
+                    }
+                });
+        return this;
+    }
+
+    protected void sendDatasetPut(JsonObject dataset, boolean synchronous, Handler<AsyncResult<JsonObject>> handler) {
         HttpRequest<Buffer> request = client.put(this.port, this.url, "/datasets/" + dataset.getString("id"))
                 .putHeader("Authorization", this.apiKey)
                 .putHeader("Content-Type", "application/json")
                 .expect(ResponsePredicate.SC_SUCCESS);
 
-        request.addQueryParam("synchronous", "true");
+        if (synchronous) {
+            request.addQueryParam("synchronous", "true");
+        }
 
         request.sendJsonObject(dataset, ar-> {
             if (ar.succeeded()) {
@@ -229,11 +502,50 @@ public class IndexServiceImpl implements IndexService {
                 handler.handle(Future.failedFuture(ar.cause()));
             }
         });
-        return this;
     }
 
     @Override
     public IndexService deleteDataset(String datasetId, Handler<AsyncResult<JsonObject>> handler) {
+        if (fingerprints != null) {
+            fingerprints.remove(IndexFingerprints.datasetKey(datasetId));
+        }
+        sendDeleteDataset(datasetId, tracked(IndexOutbox.operation(IndexOutbox.DELETE_DATASET, datasetId, null), handler));
+        return this;
+    }
+
+    @Override
+    public IndexService deleteDatasets(JsonArray ids, Handler<AsyncResult<JsonObject>> handler) {
+        List<Future> deletes = new ArrayList<>();
+        List<String> datasetIds = ids.stream().map(Object::toString).collect(Collectors.toList());
+        datasetIds.forEach(datasetId -> {
+            Promise<JsonObject> promise = Promise.promise();
+            deleteDataset(datasetId, promise);
+            deletes.add(promise.future());
+        });
+        flushDeletes();
+
+        // join instead of all, so the result covers every dataset
+        CompositeFuture.join(deletes).setHandler(ar -> {
+            JsonArray failed = new JsonArray();
+            for (int i = 0; i < deletes.size(); i++) {
+                if (deletes.get(i).failed()) {
+                    failed.add(datasetIds.get(i));
+                }
+            }
+            handler.handle(Future.succeededFuture(new JsonObject()
+                    .put("deleted", datasetIds.size() - failed.size())
+                    .put("failed", failed)));
+        });
+        return this;
+    }
+
+    /**
+     * Sends deletes collected by {@link #sendDeleteDataset(String, Handler)} right away, for backends which collect them.
+     */
+    protected void flushDeletes() {
+    }
+
+    protected void sendDeleteDataset(String datasetId, Handler<AsyncResult<JsonObject>> handler) {
         PiveauLogger LOGGER = PiveauLoggerFactory.getDatasetLogger(datasetId,getClass());
 
         HttpRequest<Buffer> request = client.delete(this.port, this.url, "/datasets/" + datasetId)
@@ -250,7 +562,6 @@ public class IndexServiceImpl implements IndexService {
                 handler.handle(Future.failedFuture(ar.cause()));
             }
         });
-        return this;
     }
 
     @Override
@@ -327,6 +638,15 @@ public class IndexServiceImpl implements IndexService {
 
     @Override
     public IndexService deleteCatalog(String catalogId, Handler<AsyncResult<JsonObject>> handler) {
+        if (fingerprints != null) {
+            // the search service removes the datasets of the catalogue as well
+            fingerprints.forget(catalogId);
+        }
+        sendDeleteCatalog(catalogId, tracked(IndexOutbox.operation(IndexOutbox.DELETE_CATALOGUE, catalogId, null), handler));
+        return this;
+    }
+
+    protected void sendDeleteCatalog(String catalogId, Handler<AsyncResult<JsonObject>> handler) {
         PiveauLogger LOGGER = PiveauLoggerFactory.getCatalogueLogger(catalogId,getClass());
         HttpRequest<Buffer> request = client.delete(this.port, this.url, "/catalogues/" + catalogId)
                 .putHeader("Authorization", this.apiKey)
@@ -349,7 +669,6 @@ public class IndexServiceImpl implements IndexService {
                 handler.handle(Future.failedFuture(ar.cause()));
             }
         });
-        return this;
     }
 
 
@@ -360,6 +679,13 @@ public class IndexServiceImpl implements IndexService {
      */
     @Override
     public IndexService addCatalog(JsonObject catalog, Handler<AsyncResult<JsonObject>> handler) {
+        String id = catalog.getString("id");
+        sendIfChanged(IndexFingerprints.catalogueKey(id), catalog, null, handler,
+                h -> sendCatalog(catalog, tracked(IndexOutbox.operation(IndexOutbox.PUT_CATALOGUE, id, catalog), h)));
+        return this;
+    }
+
+    protected void sendCatalog(JsonObject catalog, Handler<AsyncResult<JsonObject>> handler) {
         JsonObject payload = catalog;
         PiveauLogger LOGGER = PiveauLoggerFactory.getCatalogueLogger(payload.getString("id"),getClass());
 
@@ -434,7 +760,6 @@ public class IndexServiceImpl implements IndexService {
 //
 //        });
 
-        return this;
     }
 
 
@@ -22,14 +22,16 @@ public class IndexServiceVerticle extends AbstractVerticle {
     public void start(Promise<Void> startPromise) {
         PiveauLoggerFactory.getLogger(getClass()).info("Starting IndexService Verticle");
 
-        JsonObject conf = ConfigHelper.forConfig(config()).getJson(Constants.ENV_PIVEAU_HUB_SEARCH_SERVICE);
+        JsonObject conf = ConfigHelper.forConfig(config()).getJson(Constants.ENV_PIVEAU_HUB_SEARCH_SERVICE).copy()
+                .put("elasticsearchAddress", config().getString(Constants.ENV_PIVEAU_HUB_ELASTICSEARCH_ADDRESS, "http://elasticsearch:9200"))
+                .put("stateDir", config().getString(Constants.ENV_PIVEAU_HUB_STATE_DIR, "state"));
         WebClient client = WebClient.create(vertx);
 
         CircuitBreaker breaker = CircuitBreaker.create("index-breaker", vertx, new CircuitBreakerOptions()
                 .setMaxRetries(0).setTimeout(100000L))
                 .retryPolicy(count -> count * 1000L);
 
-        IndexService.create(client, breaker, conf, ready -> {
+        IndexService.create(vertx, client, breaker, conf, ready -> {
             if (ready.succeeded()) {
                 new ServiceBinder(vertx).setAddress(IndexService.SERVICE_ADDRESS).register(IndexService.class, ready.result());
                 startPromise.complete();
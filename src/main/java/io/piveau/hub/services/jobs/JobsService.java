@@ -0,0 +1,68 @@
+package io.piveau.hub.services.jobs;
+
+import io.piveau.hub.util.TSConnector;
+import io.vertx.codegen.annotations.Fluent;
+import io.vertx.codegen.annotations.ProxyGen;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+
+/**
+ * Runs reindex, consistency and delete jobs in the background, one job at a time in the order they were started.
+ * Delete jobs have their own queue and run next to the other jobs.
+ * A job is described by its type (reindex, incremental, resume, consistency or delete), the ids of its catalogues
+ * (all catalogues if empty, except for delete jobs) and options for the reindex engine, the consistency check
+ * or the deletion.
+ */
+@ProxyGen
+public interface JobsService {
+    String SERVICE_ADDRESS = "io.piveau.hub.jobs.queue";
+
+    static JobsService create(Vertx vertx, WebClient client, TSConnector connector, JsonObject config, Handler<AsyncResult<JobsService>> readyHandler) {
+        return new JobsServiceImpl(vertx, client, connector, config, readyHandler);
+    }
+
+    static JobsService createProxy(Vertx vertx, String address) {
+        return new JobsServiceVertxEBProxy(vertx, address);
+    }
+
+    /**
+     * Queues a new job.
+     *
+     * @param job object with type, catalogues and options
+     * @return the queued job
+     */
+    @Fluent
+    JobsService startJob(JsonObject job, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * @return object with the running and queued jobs of both queues and the latest finished jobs in a "jobs" array
+     */
+    @Fluent
+    JobsService listJobs(Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * @return the job with its current progress, fails with 404 for an unknown id
+     */
+    @Fluent
+    JobsService getJob(String id, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Removes a queued job from the queue or stops a running job after the datasets in flight.
+     * A cancelled reindex can be continued with a resume job, a cancelled deletion with a new delete job for its catalogues.
+     * The job ends in the state cancelled, a stopped reindex keeps the message of the engine in message.
+     */
+    @Fluent
+    JobsService cancelJob(String id, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Changes the throughput limit of a queued or running job.
+     *
+     * @param limits object with maxRate in datasets per second, 0 for no limit
+     */
+    @Fluent
+    JobsService throttleJob(String id, JsonObject limits, Handler<AsyncResult<JsonObject>> handler);
+
+}
@@ -0,0 +1,409 @@
+package io.piveau.hub.services.jobs;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.statistics.StatisticsService;
+import io.piveau.hub.util.*;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.utils.ConfigHelper;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.*;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.serviceproxy.ServiceException;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the jobs in memory and every state change in a journal. Jobs which were running or queued when the
+ * hub stopped are marked as interrupted on start, an interrupted reindex can be continued with a resume job.
+ * Interrupted delete jobs are queued again, their deletions continue from the checkpoints.
+ * Reindex jobs convert on the shared {@link IndexConversionPool}. Delete jobs remove their catalogues one after the other
+ * with the {@link CatalogueDeleter}, which keeps its own checkpoints. They have a queue of their own and run next to
+ * the other jobs, so a deletion neither waits for a reindex nor holds one up.
+ */
+public class JobsServiceImpl implements JobsService {
+
+    private static final String JOBS_LOG = "jobs.log";
+    private static final Set<String> TYPES = Set.of("reindex", "incremental", "resume", "consistency", "delete");
+    // jobs which keep their own progress instead of the one of the reindex engine
+    private static final Set<String> OWN_PROGRESS = Set.of("consistency", "delete");
+
+    private final Vertx vertx;
+    private final TSConnector connector;
+    private final ReindexEngine engine;
+    private final ConsistencyChecker checker;
+    private final CatalogueDeleter deleter;
+    private final AppendLog journal;
+
+    private final int history;
+    private final double defaultMaxRate;
+
+    private final Map<String, JsonObject> jobs = new LinkedHashMap<>();
+    private final Lane jobsLane = new Lane();
+    private final Lane deletesLane = new Lane();
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    JobsServiceImpl(Vertx vertx, WebClient client, TSConnector connector, JsonObject config, Handler<AsyncResult<JobsService>> readyHandler) {
+        this.vertx = vertx;
+        this.connector = connector;
+
+        JsonObject jobsConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_JOBS);
+        history = jobsConfig.getInteger("history", 100);
+        defaultMaxRate = jobsConfig.getDouble("maxRate", 0.0);
+
+        String stateDir = config.getString(Constants.ENV_PIVEAU_HUB_STATE_DIR, "state");
+        JsonObject triplestoreConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG);
+        IndexService indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
+        checker = new ConsistencyChecker(vertx, client, connector, config);
+        engine = new ReindexEngine(vertx, connector, new GraphReader(connector, triplestoreConfig),
+                indexService, checker, IndexConversionPool.shared(vertx, config), stateDir);
+        StatisticsService statisticsService = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CATALOGUE_STATISTICS).getBoolean("enabled", false)
+                ? StatisticsService.createProxy(vertx, StatisticsService.SERVICE_ADDRESS) : null;
+        JsonObject authorization = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_AUTHORIZATION_PROCESS_DATA);
+        KeycloakResources keycloakResources = KeycloakResources.configured(authorization)
+                ? new KeycloakResources(client, authorization, config.getString(Constants.ENV_PIVEAU_HUB_BASE_URI, "https://io.piveau/")) : null;
+        deleter = new CatalogueDeleter(vertx, connector, indexService, statisticsService, keycloakResources, triplestoreConfig,
+                ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CATALOGUE_DELETE), stateDir);
+
+        journal = AppendLog.open(stateDir, JOBS_LOG);
+        vertx.<List<JsonObject>>executeBlocking(future -> {
+            Map<String, JsonObject> loaded = new LinkedHashMap<>();
+            journal.readAll().forEach(entry -> loaded.put(entry.getString("id"), entry));
+            loaded.values().stream()
+                    .filter(job -> "queued".equals(job.getString("state")) || "running".equals(job.getString("state")))
+                    .forEach(job -> {
+                        if ("delete".equals(job.getString("type"))) {
+                            job.put("state", "queued").put("requeued", Instant.now().toString());
+                            job.remove("started");
+                        } else {
+                            job.put("state", "interrupted").put("finished", Instant.now().toString());
+                        }
+                    });
+            List<JsonObject> kept = new ArrayList<>(loaded.values());
+            kept = kept.subList(Math.max(0, kept.size() - history), kept.size());
+            journal.rewrite(kept);
+            future.complete(kept);
+        }, ar -> {
+            if (ar.succeeded()) {
+                ar.result().forEach(job -> {
+                    jobs.put(job.getString("id"), job);
+                    if ("queued".equals(job.getString("state"))) {
+                        log.info("Queueing interrupted delete job {} again", job.getString("id"));
+                        deletesLane.queue.add(job.getString("id"));
+                    }
+                });
+                readyHandler.handle(Future.succeededFuture(this));
+                next(deletesLane);
+            } else {
+                readyHandler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+    }
+
+    @Override
+    public JobsService startJob(JsonObject job, Handler<AsyncResult<JsonObject>> handler) {
+        String type = job.getString("type", "reindex");
+        if (!TYPES.contains(type)) {
+            handler.handle(ServiceException.fail(400, "Unknown job type " + type + ", expected one of " + TYPES));
+            return this;
+        }
+        if ("delete".equals(type) && job.getJsonArray("catalogues", new JsonArray()).isEmpty()) {
+            handler.handle(ServiceException.fail(400, "Delete jobs need the ids of their catalogues"));
+            return this;
+        }
+
+        JsonObject options = job.getJsonObject("options", new JsonObject()).copy();
+        if (!options.containsKey("maxRate") && defaultMaxRate > 0) {
+            options.put("maxRate", defaultMaxRate);
+        }
+        JsonObject queued = new JsonObject()
+                .put("id", UUID.randomUUID().toString())
+                .put("type", type)
+                .put("state", "queued")
+                .put("catalogues", job.getJsonArray("catalogues", new JsonArray()).copy())
+                .put("options", options)
+                .put("created", Instant.now().toString());
+
+        Lane lane = lane(queued);
+        jobs.put(queued.getString("id"), queued);
+        lane.queue.add(queued.getString("id"));
+        persist(queued);
+        handler.handle(Future.succeededFuture(snapshot(queued)));
+
+        next(lane);
+        return this;
+    }
+
+    @Override
+    public JobsService listJobs(Handler<AsyncResult<JsonObject>> handler) {
+        List<JsonObject> list = new ArrayList<>(jobs.values());
+        Collections.reverse(list);
+        handler.handle(Future.succeededFuture(new JsonObject()
+                .put("running", jobsLane.running)
+                .put("queued", jobsLane.queue.size())
+                .put("runningDelete", deletesLane.running)
+                .put("queuedDeletes", deletesLane.queue.size())
+                .put("jobs", new JsonArray(list.stream().map(this::snapshot).collect(Collectors.toList())))));
+        return this;
+    }
+
+    @Override
+    public JobsService getJob(String id, Handler<AsyncResult<JsonObject>> handler) {
+        JsonObject job = jobs.get(id);
+        if (job == null) {
+            handler.handle(ServiceException.fail(404, "Job " + id + " not found"));
+        } else {
+            handler.handle(Future.succeededFuture(snapshot(job)));
+        }
+        return this;
+    }
+
+    @Override
+    public JobsService cancelJob(String id, Handler<AsyncResult<JsonObject>> handler) {
+        JsonObject job = jobs.get(id);
+        if (job == null) {
+            handler.handle(ServiceException.fail(404, "Job " + id + " not found"));
+        } else if (lane(job).queue.remove(id)) {
+            finish(job, "cancelled");
+            handler.handle(Future.succeededFuture(snapshot(job)));
+        } else if (id.equals(lane(job).running)) {
+            lane(job).cancelRequested = true;
+            if (lane(job) == jobsLane) {
+                engine.cancel();
+            }
+            handler.handle(Future.succeededFuture(snapshot(job).put("cancelRequested", true)));
+        } else {
+            handler.handle(ServiceException.fail(409, "Job " + id + " is already " + job.getString("state")));
+        }
+        return this;
+    }
+
+    @Override
+    public JobsService throttleJob(String id, JsonObject limits, Handler<AsyncResult<JsonObject>> handler) {
+        JsonObject job = jobs.get(id);
+        double maxRate = limits.getDouble("maxRate", 0.0);
+        if (job == null) {
+            handler.handle(ServiceException.fail(404, "Job " + id + " not found"));
+        } else if (OWN_PROGRESS.contains(job.getString("type"))) {
+            handler.handle(ServiceException.fail(400, "Only reindex jobs can be throttled"));
+        } else if (jobsLane.queue.contains(id) || id.equals(jobsLane.running)) {
+            job.getJsonObject("options").put("maxRate", maxRate);
+            if (id.equals(jobsLane.running)) {
+                engine.throttle(maxRate);
+            }
+            persist(job);
+            handler.handle(Future.succeededFuture(snapshot(job)));
+        } else {
+            handler.handle(ServiceException.fail(409, "Job " + id + " is already " + job.getString("state")));
+        }
+        return this;
+    }
+
+    private Lane lane(JsonObject job) {
+        return "delete".equals(job.getString("type")) ? deletesLane : jobsLane;
+    }
+
+    private void next(Lane lane) {
+        if (lane.running != null || lane.queue.isEmpty()) {
+            return;
+        }
+        JsonObject job = jobs.get(lane.queue.poll());
+        lane.running = job.getString("id");
+        lane.cancelRequested = false;
+        job.put("state", "running").put("started", Instant.now().toString());
+        persist(job);
+        log.info("Starting {} job {}", job.getString("type"), lane.running);
+
+        execute(job).setHandler(ar -> {
+            if (ar.succeeded()) {
+                job.put("result", ar.result());
+                finish(job, lane.cancelRequested ? "cancelled" : "finished");
+            } else if (lane.cancelRequested) {
+                // a cancelled engine run fails, with a hint how to continue
+                job.put("message", ar.cause().getMessage());
+                finish(job, "cancelled");
+            } else {
+                job.put("error", ar.cause().getMessage());
+                finish(job, "failed");
+                log.error("Job " + job.getString("id") + " failed", ar.cause());
+            }
+            lane.running = null;
+            next(lane);
+        });
+    }
+
+    private Future<JsonObject> execute(JsonObject job) {
+        JsonObject options = job.getJsonObject("options");
+        Consumer<String> out = message -> {
+            if (!message.isBlank() && !message.startsWith("\r")) {
+                log.debug("Job {}: {}", job.getString("id"), message.trim());
+            }
+        };
+
+        if ("resume".equals(job.getString("type"))) {
+            return engine.resume(options, out);
+        }
+        return catalogueIds(job.getJsonArray("catalogues")).compose(ids -> {
+            // a cancel during the catalogue query finds no engine run to stop
+            if (lane(job).cancelRequested) {
+                return Future.succeededFuture(new JsonObject());
+            }
+            List<String> uriRefs = ids.stream()
+                    .map(id -> DCATAPUriSchema.applyFor(id).getCatalogueUriRef())
+                    .collect(Collectors.toList());
+            switch (job.getString("type")) {
+                case "incremental":
+                    return engine.runIncremental(uriRefs, options, out);
+                case "consistency":
+                    JsonObject progress = new JsonObject().put("total", ids.size()).put("checked", 0).put("failed", 0);
+                    job.put("progress", progress);
+                    Promise<JsonObject> promise = Promise.promise();
+                    check(new ArrayDeque<>(ids), options.getBoolean("repair", true), progress, new JsonArray(), promise);
+                    return promise.future();
+                case "delete":
+                    JsonObject deletion = new JsonObject().put("total", ids.size()).put("catalogues", 0);
+                    job.put("progress", deletion);
+                    Promise<JsonObject> deleted = Promise.promise();
+                    delete(new ArrayDeque<>(ids), options, deletion, new JsonArray(), deleted);
+                    return deleted.future();
+                default:
+                    return engine.run(uriRefs, options, out);
+            }
+        });
+    }
+
+    /**
+     * Checks one catalogue after the other, a cancellation takes effect between two catalogues.
+     */
+    private void check(Deque<String> ids, boolean repair, JsonObject progress, JsonArray reports, Promise<JsonObject> promise) {
+        if (ids.isEmpty() || jobsLane.cancelRequested) {
+            promise.complete(new JsonObject().put("reports", reports));
+            return;
+        }
+        String catalogueId = ids.poll();
+        progress.put("current", catalogueId);
+        checker.check(catalogueId, repair, ar -> {
+            progress.put("checked", progress.getInteger("checked") + 1);
+            if (ar.succeeded()) {
+                reports.add(ar.result());
+            } else {
+                progress.put("failed", progress.getInteger("failed") + 1);
+                reports.add(new JsonObject().put("catalogue", catalogueId).put("error", ar.cause().getMessage()));
+            }
+            check(ids, repair, progress, reports, promise);
+        });
+    }
+
+    /**
+     * Deletes one catalogue after the other and stops at the first failure, the deleter checks for a cancellation between batches.
+     */
+    private void delete(Deque<String> ids, JsonObject options, JsonObject progress, JsonArray results, Promise<JsonObject> promise) {
+        if (ids.isEmpty() || deletesLane.cancelRequested) {
+            promise.complete(new JsonObject().put("catalogues", results));
+            return;
+        }
+        String catalogueId = ids.poll();
+        deleter.delete(catalogueId, options, progress, () -> deletesLane.cancelRequested).setHandler(ar -> {
+            if (ar.succeeded()) {
+                progress.put("catalogues", progress.getInteger("catalogues") + 1);
+                results.add(ar.result());
+                delete(ids, options, progress, results, promise);
+            } else {
+                promise.fail(ar.cause());
+            }
+        });
+    }
+
+    /**
+     * @return the given catalogue ids, or the ids of all catalogues if none are given
+     */
+    private Future<List<String>> catalogueIds(JsonArray catalogues) {
+        if (!catalogues.isEmpty()) {
+            return Future.succeededFuture(catalogues.stream().map(Object::toString).collect(Collectors.toList()));
+        }
+        Promise<List<String>> promise = Promise.promise();
+        connector.query("SELECT ?c WHERE {?c a dcat:Catalog}", "application/json", ar -> {
+            if (ar.succeeded()) {
+                List<String> ids = new ArrayList<>();
+                ResultSet set = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
+                set.forEachRemaining(qs -> ids.add(DCATAPUriSchema.parseUriRef(qs.getResource("c").getURI()).getId()));
+                promise.complete(ids);
+            } else {
+                promise.fail(ar.cause());
+            }
+        });
+        return promise.future();
+    }
+
+    private void finish(JsonObject job, String state) {
+        job.put("state", state).put("finished", Instant.now().toString());
+        if (!OWN_PROGRESS.contains(job.getString("type"))) {
+            job.remove("progress");
+        }
+
+        // finished jobs beyond the history are dropped, the journal is compacted then
+        List<String> done = jobs.values().stream()
+                .filter(j -> !lane(j).queue.contains(j.getString("id")) && !j.getString("id").equals(lane(j).running))
+                .map(j -> j.getString("id"))
+                .collect(Collectors.toList());
+        if (done.size() > history) {
+            done.subList(0, done.size() - history).forEach(jobs::remove);
+            List<JsonObject> kept = jobs.values().stream().map(JsonObject::copy).collect(Collectors.toList());
+            vertx.executeBlocking(future -> {
+                journal.rewrite(kept);
+                future.complete();
+            }, true, ar -> {
+                if (ar.failed()) {
+                    log.error("Compacting job journal", ar.cause());
+                }
+            });
+        } else {
+            persist(job);
+        }
+    }
+
+    private void persist(JsonObject job) {
+        JsonObject entry = job.copy();
+        vertx.executeBlocking(future -> {
+            journal.append(entry);
+            future.complete();
+        }, true, ar -> {
+            if (ar.failed()) {
+                log.error("Writing job " + entry.getString("id") + " to journal", ar.cause());
+            }
+        });
+    }
+
+    /**
+     * @return a copy of the job, with the live progress of the engine while a reindex is running
+     */
+    private JsonObject snapshot(JsonObject job) {
+        JsonObject copy = job.copy();
+        if (job.getString("id").equals(jobsLane.running) && !OWN_PROGRESS.contains(job.getString("type"))) {
+            JsonObject progress = engine.progress();
+            if (progress != null) {
+                copy.put("progress", progress);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Jobs of a lane run one at a time in the order they were started.
+     */
+    private static class Lane {
+        private final Deque<String> queue = new ArrayDeque<>();
+        private String running;
+        private boolean cancelRequested = false;
+    }
+
+}
@@ -0,0 +1,30 @@
+package io.piveau.hub.services.jobs;
+
+import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.TSConnector;
+import io.piveau.utils.ConfigHelper;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.serviceproxy.ServiceBinder;
+
+public class JobsServiceVerticle extends AbstractVerticle {
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        WebClient client = WebClient.create(vertx);
+        JsonObject conf = ConfigHelper.forConfig(config()).forceJsonObject(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG);
+        TSConnector connector = TSConnector.create(client, null, conf);
+
+        JobsService.create(vertx, client, connector, config(), ready -> {
+            if (ready.succeeded()) {
+                new ServiceBinder(vertx).setAddress(JobsService.SERVICE_ADDRESS).register(JobsService.class, ready.result());
+                startPromise.complete();
+            } else {
+                startPromise.fail(ready.cause());
+            }
+        });
+    }
+
+}
@@ -0,0 +1,5 @@
+@ModuleGen(groupPackage = "io.piveau.hub.services.jobs", name = "hub-jobs-service")
+package io.piveau.hub.services.jobs;
+
+
+import io.vertx.codegen.annotations.ModuleGen;
@@ -0,0 +1,50 @@
+package io.piveau.hub.services.sideeffects;
+
+import io.vertx.codegen.annotations.Fluent;
+import io.vertx.codegen.annotations.ProxyGen;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Coalesces the side effects of dataset modifications (indexing, validation, translation).
+ * Requests for the same dataset within the quiet period are merged and processed once with the latest stored state.
+ */
+@ProxyGen
+public interface SideEffectsService {
+    String SERVICE_ADDRESS = "io.piveau.hub.sideeffects.queue";
+
+    String INDEX = "index";
+    String VALIDATE = "validate";
+    String TRANSLATE = "translate";
+
+    static SideEffectsService create(Vertx vertx, JsonObject config, Handler<AsyncResult<SideEffectsService>> readyHandler) {
+        return new SideEffectsServiceImpl(vertx, config, readyHandler);
+    }
+
+    static SideEffectsService createProxy(Vertx vertx, String address) {
+        return new SideEffectsServiceVertxEBProxy(vertx, address);
+    }
+
+    /**
+     * Schedules side effects for a dataset.
+     *
+     * @param datasetId   the normalized dataset id
+     * @param catalogueId the catalogue id, may be null if unknown
+     * @param effects     any of {@link #INDEX}, {@link #VALIDATE}, {@link #TRANSLATE}
+     */
+    @Fluent
+    SideEffectsService schedule(String datasetId, String catalogueId, JsonArray effects, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Processes all pending side effects immediately.
+     */
+    @Fluent
+    SideEffectsService flush(Handler<AsyncResult<JsonObject>> handler);
+
+    @Fluent
+    SideEffectsService metrics(Handler<AsyncResult<JsonObject>> handler);
+
+}
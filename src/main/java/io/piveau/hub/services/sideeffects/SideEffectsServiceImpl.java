@@ -0,0 +1,230 @@
+package io.piveau.hub.services.sideeffects;
+
+import io.piveau.hub.services.datasets.DatasetsService;
+import io.piveau.hub.util.AppendLog;
+import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.utils.ConfigHelper;
+import io.vertx.core.*;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SideEffectsServiceImpl implements SideEffectsService {
+
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private final Vertx vertx;
+    private final DatasetsService datasetsService;
+    private final AppendLog journal;
+
+    private final long quietPeriod;
+    private final long maxDelay;
+
+    private final Map<String, JsonObject> pending = new LinkedHashMap<>();
+    private final Map<String, JsonObject> inFlight = new HashMap<>();
+    private final Map<String, Long> timers = new HashMap<>();
+
+    private int journalWrites = 0;
+
+    private long requests = 0;
+    private long processedRequests = 0;
+    private long processed = 0;
+    private long failed = 0;
+    private long queueAgeSum = 0;
+    private long maxQueueAge = 0;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    SideEffectsServiceImpl(Vertx vertx, JsonObject config, Handler<AsyncResult<SideEffectsService>> readyHandler) {
+        this.vertx = vertx;
+        this.datasetsService = DatasetsService.createProxy(vertx, DatasetsService.SERVICE_ADDRESS);
+
+        JsonObject sideEffectsConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_SIDE_EFFECTS);
+        quietPeriod = sideEffectsConfig.getLong("quietPeriod", 10000L);
+        maxDelay = sideEffectsConfig.getLong("maxDelay", 60000L);
+
+        journal = AppendLog.open(config.getString(Constants.ENV_PIVEAU_HUB_STATE_DIR, "state"), "sideeffects.log");
+        recover();
+
+        readyHandler.handle(Future.succeededFuture(this));
+    }
+
+    @Override
+    public SideEffectsService schedule(String datasetId, String catalogueId, JsonArray effects, Handler<AsyncResult<JsonObject>> handler) {
+        long now = System.currentTimeMillis();
+        requests++;
+
+        JsonObject entry = pending.computeIfAbsent(datasetId, id -> new JsonObject()
+                .put("datasetId", id)
+                .put("effects", new JsonArray())
+                .put("firstScheduled", now)
+                .put("requests", 0));
+        merge(entry, catalogueId, effects, now);
+
+        journal.append(new JsonObject()
+                .put("op", "schedule")
+                .put("datasetId", datasetId)
+                .put("catalogueId", catalogueId)
+                .put("effects", effects)
+                .put("time", now));
+        journalWrites++;
+
+        arm(entry, now);
+
+        handler.handle(Future.succeededFuture(new JsonObject()
+                .put("status", "scheduled")
+                .put("requests", entry.getInteger("requests"))));
+        return this;
+    }
+
+    @Override
+    public SideEffectsService flush(Handler<AsyncResult<JsonObject>> handler) {
+        List<String> ids = new ArrayList<>(pending.keySet());
+        ids.forEach(id -> {
+            Long timer = timers.remove(id);
+            if (timer != null) {
+                vertx.cancelTimer(timer);
+            }
+        });
+        List<Future> fires = ids.stream().map(this::fire).collect(Collectors.toList());
+        CompositeFuture.join(fires).setHandler(ar -> handler.handle(Future.succeededFuture(new JsonObject()
+                .put("flushed", ids.size()))));
+        return this;
+    }
+
+    @Override
+    public SideEffectsService metrics(Handler<AsyncResult<JsonObject>> handler) {
+        long now = System.currentTimeMillis();
+        long oldest = pending.values().stream()
+                .mapToLong(entry -> now - entry.getLong("firstScheduled"))
+                .max()
+                .orElse(0);
+
+        handler.handle(Future.succeededFuture(new JsonObject()
+                .put("quietPeriod", quietPeriod)
+                .put("maxDelay", maxDelay)
+                .put("pending", pending.size())
+                .put("oldestPendingAge", oldest)
+                .put("requests", requests)
+                .put("processed", processed)
+                .put("failed", failed)
+                .put("coalescingRatio", processed > 0 ? (double) processedRequests / processed : 0.0)
+                .put("averageQueueAge", processed > 0 ? queueAgeSum / processed : 0)
+                .put("maxQueueAge", maxQueueAge)));
+        return this;
+    }
+
+    private void merge(JsonObject entry, String catalogueId, JsonArray effects, long time) {
+        if (catalogueId != null) {
+            entry.put("catalogueId", catalogueId);
+        }
+        JsonArray merged = entry.getJsonArray("effects");
+        effects.stream().filter(effect -> !merged.contains(effect)).forEach(merged::add);
+        entry.put("lastScheduled", time);
+        entry.put("requests", entry.getInteger("requests") + 1);
+    }
+
+    private void arm(JsonObject entry, long now) {
+        String datasetId = entry.getString("datasetId");
+        Long timer = timers.remove(datasetId);
+        if (timer != null) {
+            vertx.cancelTimer(timer);
+        }
+        long due = Math.min(entry.getLong("lastScheduled") + quietPeriod, entry.getLong("firstScheduled") + maxDelay);
+        timers.put(datasetId, vertx.setTimer(Math.max(1, due - now), id -> {
+            timers.remove(datasetId);
+            fire(datasetId);
+        }));
+    }
+
+    private Future<Void> fire(String datasetId) {
+        Promise<Void> promise = Promise.promise();
+        JsonObject entry = pending.remove(datasetId);
+        if (entry == null) {
+            promise.complete();
+            return promise.future();
+        }
+
+        inFlight.put(datasetId, entry);
+
+        long queueAge = System.currentTimeMillis() - entry.getLong("firstScheduled");
+        processed++;
+        processedRequests += entry.getInteger("requests");
+        queueAgeSum += queueAge;
+        maxQueueAge = Math.max(maxQueueAge, queueAge);
+
+        PiveauLogger datasetLog = PiveauLoggerFactory.getLogger(datasetId, entry.getString("catalogueId"), getClass());
+        datasetLog.debug("Processing {} coalesced side effect requests after {} ms", entry.getInteger("requests"), queueAge);
+
+        datasetsService.processSideEffects(datasetId, entry.getString("catalogueId"), entry.getJsonArray("effects"), ar -> {
+            if (ar.failed()) {
+                failed++;
+                datasetLog.error("Processing side effects", ar.cause());
+            }
+            inFlight.remove(datasetId, entry);
+            journal.append(new JsonObject()
+                    .put("op", "done")
+                    .put("datasetId", datasetId)
+                    .put("lastScheduled", entry.getLong("lastScheduled")));
+            journalWrites++;
+            compactIfNeeded();
+            promise.complete();
+        });
+        return promise.future();
+    }
+
+    /**
+     * Rebuilds the pending side effects from the journal. Entries which were scheduled again
+     * after their last processing are kept, everything else is dropped during compaction.
+     */
+    private void recover() {
+        for (JsonObject op : journal.readAll()) {
+            String datasetId = op.getString("datasetId");
+            if ("schedule".equals(op.getString("op"))) {
+                JsonObject entry = pending.computeIfAbsent(datasetId, id -> new JsonObject()
+                        .put("datasetId", id)
+                        .put("effects", new JsonArray())
+                        .put("firstScheduled", op.getLong("time"))
+                        .put("requests", 0));
+                merge(entry, op.getString("catalogueId"), op.getJsonArray("effects", new JsonArray()), op.getLong("time"));
+            } else if ("done".equals(op.getString("op"))) {
+                JsonObject entry = pending.get(datasetId);
+                if (entry != null && entry.getLong("lastScheduled") <= op.getLong("lastScheduled", Long.MAX_VALUE)) {
+                    pending.remove(datasetId);
+                }
+            }
+        }
+        compact();
+
+        if (!pending.isEmpty()) {
+            log.info("Recovered {} pending side effects", pending.size());
+            long now = System.currentTimeMillis();
+            pending.values().forEach(entry -> arm(entry, now));
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (journalWrites > COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        // in flight entries are kept until they are done, otherwise a crash would lose them
+        journal.rewrite(Stream.concat(inFlight.values().stream(), pending.values().stream())
+                .map(entry -> new JsonObject()
+                        .put("op", "schedule")
+                        .put("datasetId", entry.getString("datasetId"))
+                        .put("catalogueId", entry.getString("catalogueId"))
+                        .put("effects", entry.getJsonArray("effects"))
+                        .put("time", entry.getLong("lastScheduled")))
+                .collect(Collectors.toList()));
+        journalWrites = 0;
+    }
+
+}
@@ -0,0 +1,21 @@
+package io.piveau.hub.services.sideeffects;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.serviceproxy.ServiceBinder;
+
+public class SideEffectsServiceVerticle extends AbstractVerticle {
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        SideEffectsService.create(vertx, config(), ready -> {
+            if (ready.succeeded()) {
+                new ServiceBinder(vertx).setAddress(SideEffectsService.SERVICE_ADDRESS).register(SideEffectsService.class, ready.result());
+                startPromise.complete();
+            } else {
+                startPromise.fail(ready.cause());
+            }
+        });
+    }
+
+}
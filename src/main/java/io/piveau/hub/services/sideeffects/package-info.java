@@ -0,0 +1,4 @@
+@ModuleGen(groupPackage = "io.piveau.hub.services.sideeffects", name = "hub-sideeffects-service")
+package io.piveau.hub.services.sideeffects;
+
+import io.vertx.codegen.annotations.ModuleGen;
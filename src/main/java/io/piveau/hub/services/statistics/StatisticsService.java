@@ -0,0 +1,69 @@
+package io.piveau.hub.services.statistics;
+
+import io.piveau.hub.util.TSConnector;
+import io.vertx.codegen.annotations.Fluent;
+import io.vertx.codegen.annotations.ProxyGen;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Keeps the counts of datasets, distributions and formats and the time of the last change for every catalogue.
+ * The counts are changed with every stored or deleted dataset and kept in a journal, reading them never queries the triplestore.
+ */
+@ProxyGen
+public interface StatisticsService {
+    String SERVICE_ADDRESS = "io.piveau.hub.statistics.queue";
+
+    static StatisticsService create(Vertx vertx, TSConnector connector, JsonObject config, Handler<AsyncResult<StatisticsService>> readyHandler) {
+        return new StatisticsServiceImpl(vertx, connector, config, readyHandler);
+    }
+
+    static StatisticsService createProxy(Vertx vertx, String address) {
+        return new StatisticsServiceVertxEBProxy(vertx, address);
+    }
+
+    /**
+     * @param options e.g. with a send timeout long enough for a rebuild
+     */
+    static StatisticsService createProxy(Vertx vertx, String address, DeliveryOptions options) {
+        return new StatisticsServiceVertxEBProxy(vertx, address, options);
+    }
+
+    /**
+     * Adds the change of a dataset to the counts of its catalogue, see {@link io.piveau.hub.util.CatalogueStatistics}.
+     *
+     * @param delta object with the change of datasets, distributions, formats and the record modification,
+     *              empty to register a new catalogue, whose counts are exact from the start
+     */
+    @Fluent
+    StatisticsService update(String catalogueId, JsonObject delta, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Forgets the counts of a deleted catalogue.
+     */
+    @Fluent
+    StatisticsService removeCatalogue(String catalogueId, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * @return the counts of the catalogue, with stale set while they only sum up the changes since the statistics were
+     * enabled and the catalogue was not rebuilt yet, or the catalogue changed during its last rebuild,
+     * fails with 404 for an unknown catalogue
+     */
+    @Fluent
+    StatisticsService getStatistics(String catalogueId, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Counts the catalogues again from the triplestore, page by page. Changes of a catalogue while it is counted
+     * are applied to the new counts and mark them stale, the scan might have counted them already.
+     *
+     * @param catalogueIds the catalogues to count, all catalogues if empty
+     * @return object with the counts of the rebuilt catalogues in a "catalogues" array
+     */
+    @Fluent
+    StatisticsService rebuild(JsonArray catalogueIds, Handler<AsyncResult<JsonObject>> handler);
+
+}
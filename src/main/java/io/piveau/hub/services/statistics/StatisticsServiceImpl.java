@@ -0,0 +1,279 @@
+package io.piveau.hub.services.statistics;
+
+import io.piveau.hub.util.*;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.utils.ConfigHelper;
+import io.piveau.utils.experimental.DCATAPUriRef;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.*;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import org.apache.jena.sparql.vocabulary.FOAF;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the counts of all catalogues in memory. Every change is appended to a journal, which is replayed on start
+ * and compacted to one entry per catalogue after a number of writes.
+ * <p>
+ * Counts which started from a change of a catalogue the service did not know, e.g. after the statistics were enabled
+ * on a running hub, are marked stale until the catalogue is rebuilt. Changes which arrive while a catalogue is rebuilt
+ * are buffered and applied to the new counts.
+ */
+public class StatisticsServiceImpl implements StatisticsService {
+
+    private static final String STATISTICS_LOG = "statistics.log";
+
+    private final TSConnector connector;
+    private final CatalogueReader catalogueReader;
+    private final AppendLog journal;
+
+    private final int pageSize;
+    private final int compactThreshold;
+
+    private final Map<String, JsonObject> statistics = new HashMap<>();
+    // deltas which arrived while the catalogue is counted
+    private final Map<String, List<JsonObject>> rebuilding = new HashMap<>();
+
+    private int journalWrites = 0;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    StatisticsServiceImpl(Vertx vertx, TSConnector connector, JsonObject config, Handler<AsyncResult<StatisticsService>> readyHandler) {
+        this.connector = connector;
+        this.catalogueReader = new CatalogueReader(connector, ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG));
+
+        JsonObject statisticsConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CATALOGUE_STATISTICS);
+        pageSize = statisticsConfig.getInteger("pageSize", 500);
+        compactThreshold = statisticsConfig.getInteger("compactThreshold", 1000);
+
+        journal = AppendLog.open(config.getString(Constants.ENV_PIVEAU_HUB_STATE_DIR, "state"), STATISTICS_LOG);
+        recover();
+
+        readyHandler.handle(Future.succeededFuture(this));
+    }
+
+    @Override
+    public StatisticsService update(String catalogueId, JsonObject delta, Handler<AsyncResult<JsonObject>> handler) {
+        JsonObject catalogue = apply(catalogueId, delta);
+        if (rebuilding.containsKey(catalogueId)) {
+            rebuilding.get(catalogueId).add(delta);
+        }
+        write(new JsonObject()
+                .put("op", "update")
+                .put("catalogue", catalogueId)
+                .put("delta", delta));
+        handler.handle(Future.succeededFuture(snapshot(catalogueId, catalogue)));
+        return this;
+    }
+
+    @Override
+    public StatisticsService removeCatalogue(String catalogueId, Handler<AsyncResult<JsonObject>> handler) {
+        // a rebuild running for the catalogue drops its counts
+        rebuilding.remove(catalogueId);
+        if (statistics.remove(catalogueId) != null) {
+            write(new JsonObject().put("op", "remove").put("catalogue", catalogueId));
+        }
+        handler.handle(Future.succeededFuture(new JsonObject().put("catalogue", catalogueId).put("status", "removed")));
+        return this;
+    }
+
+    @Override
+    public StatisticsService getStatistics(String catalogueId, Handler<AsyncResult<JsonObject>> handler) {
+        JsonObject catalogue = statistics.get(catalogueId);
+        if (catalogue == null) {
+            handler.handle(ServiceException.fail(404, "No statistics for catalogue " + catalogueId));
+        } else {
+            handler.handle(Future.succeededFuture(snapshot(catalogueId, catalogue)));
+        }
+        return this;
+    }
+
+    @Override
+    public StatisticsService rebuild(JsonArray catalogueIds, Handler<AsyncResult<JsonObject>> handler) {
+        catalogueIds(catalogueIds).compose(ids -> {
+            JsonArray rebuilt = new JsonArray();
+            Future<Void> chain = Future.succeededFuture();
+            for (String id : ids) {
+                chain = chain.compose(v -> {
+                    rebuilding.put(id, new ArrayList<>());
+                    return count(id).<Void>map(counts -> {
+                        List<JsonObject> buffered = rebuilding.remove(id);
+                        if (buffered == null) {
+                            log.info("Catalogue {} was removed while it was counted", id);
+                            return null;
+                        }
+                        // the scan may or may not have seen these changes, so the counts are not exact anymore
+                        buffered.forEach(delta -> CatalogueStatistics.apply(counts, delta));
+                        if (buffered.stream().anyMatch(delta -> !delta.isEmpty())) {
+                            counts.put("stale", true);
+                        }
+                        statistics.put(id, counts);
+                        write(new JsonObject().put("op", "set").put("catalogue", id).put("statistics", counts));
+                        rebuilt.add(snapshot(id, counts));
+                        return null;
+                    }).recover(cause -> {
+                        rebuilding.remove(id);
+                        return Future.failedFuture(cause);
+                    });
+                });
+            }
+            return chain.map(v -> new JsonObject().put("catalogues", rebuilt));
+        }).setHandler(handler);
+        return this;
+    }
+
+    /**
+     * Applies a delta to the counts of a catalogue. Counts of an unknown catalogue start at zero, they are only
+     * exact if the delta registers a new catalogue.
+     */
+    private JsonObject apply(String catalogueId, JsonObject delta) {
+        JsonObject catalogue = statistics.computeIfAbsent(catalogueId, id -> delta.isEmpty()
+                ? CatalogueStatistics.empty()
+                : CatalogueStatistics.empty().put("stale", true));
+        CatalogueStatistics.apply(catalogue, delta);
+        return catalogue;
+    }
+
+    /**
+     * Counts the datasets of a catalogue in keyset pages, the distributions, formats and record modification with one query per page.
+     */
+    private Future<JsonObject> count(String catalogueId) {
+        PiveauLogger catalogueLog = PiveauLoggerFactory.getCatalogueLogger(catalogueId, getClass());
+        JsonObject counts = CatalogueStatistics.empty();
+        return countPage(DCATAPUriSchema.applyFor(catalogueId), null, counts).map(v -> {
+            catalogueLog.info("Counted {} datasets", counts.getInteger("datasets"));
+            return counts;
+        });
+    }
+
+    private Future<Void> countPage(DCATAPUriRef catalogue, String after, JsonObject counts) {
+        return catalogueReader.members(catalogue, DCAT.dataset, after, pageSize).compose(datasets -> {
+            if (datasets.isEmpty()) {
+                return Future.succeededFuture();
+            }
+            counts.put("datasets", counts.getInteger("datasets") + datasets.size());
+            Future<Void> counted = countDistributions(datasets, counts);
+            if (datasets.size() < pageSize) {
+                return counted;
+            }
+            return counted.compose(v -> countPage(catalogue, datasets.get(datasets.size() - 1), counts));
+        });
+    }
+
+    private Future<Void> countDistributions(List<String> datasets, JsonObject counts) {
+        String values = datasets.stream()
+                .map(dataset -> "(<" + DCATAPUriSchema.parseUriRef(dataset).getDatasetGraphName() + "> <" + dataset + ">)")
+                .collect(Collectors.joining(" "));
+        String query = "SELECT ?distribution ?format ?modified WHERE { VALUES (?g ?dataset) { " + values + " } GRAPH ?g { { ?dataset <"
+                + DCAT.distribution + "> ?distribution OPTIONAL { ?distribution <" + DCTerms.format + "> ?format } } UNION { ?record <"
+                + FOAF.primaryTopic + "> ?dataset ; <" + DCTerms.modified + "> ?modified } } }";
+
+        Promise<Void> promise = Promise.promise();
+        connector.queryPost(query, "application/sparql-results+json", ar -> {
+            if (ar.failed()) {
+                promise.fail(ar.cause());
+                return;
+            }
+            try {
+                JsonArray bindings = ar.result().bodyAsJsonObject().getJsonObject("results", new JsonObject()).getJsonArray("bindings", new JsonArray());
+                Set<String> distributions = new HashSet<>();
+                JsonObject formats = counts.getJsonObject("formats");
+                for (Object item : bindings) {
+                    JsonObject binding = (JsonObject) item;
+                    if (binding.containsKey("distribution")) {
+                        distributions.add(binding.getJsonObject("distribution").getString("value"));
+                        if (binding.containsKey("format")) {
+                            String format = binding.getJsonObject("format").getString("value");
+                            formats.put(format, formats.getInteger(format, 0) + 1);
+                        }
+                    }
+                    if (binding.containsKey("modified")) {
+                        CatalogueStatistics.modified(counts, binding.getJsonObject("modified").getString("value"));
+                    }
+                }
+                counts.put("distributions", counts.getInteger("distributions") + distributions.size());
+                promise.complete();
+            } catch (Exception e) {
+                promise.fail(e);
+            }
+        });
+        return promise.future();
+    }
+
+    /**
+     * @return the given catalogue ids, or the ids of all catalogues if none are given
+     */
+    private Future<List<String>> catalogueIds(JsonArray catalogueIds) {
+        if (!catalogueIds.isEmpty()) {
+            return Future.succeededFuture(catalogueIds.stream().map(Object::toString).collect(Collectors.toList()));
+        }
+        Promise<List<String>> promise = Promise.promise();
+        connector.query("SELECT DISTINCT ?c WHERE { GRAPH ?g { ?c <" + RDF.type + "> <" + DCAT.Catalog + "> } }", "application/sparql-results+json", ar -> {
+            if (ar.succeeded()) {
+                try {
+                    JsonArray bindings = ar.result().bodyAsJsonObject().getJsonObject("results", new JsonObject()).getJsonArray("bindings", new JsonArray());
+                    promise.complete(bindings.stream()
+                            .map(binding -> ((JsonObject) binding).getJsonObject("c").getString("value"))
+                            .map(uriRef -> DCATAPUriSchema.parseUriRef(uriRef).getId())
+                            .collect(Collectors.toList()));
+                } catch (Exception e) {
+                    promise.fail(e);
+                }
+            } else {
+                promise.fail(ar.cause());
+            }
+        });
+        return promise.future();
+    }
+
+    private static JsonObject snapshot(String catalogueId, JsonObject counts) {
+        return counts.copy().put("catalogue", catalogueId);
+    }
+
+    private void write(JsonObject entry) {
+        journal.append(entry);
+        journalWrites++;
+        if (journalWrites > compactThreshold) {
+            compact();
+        }
+    }
+
+    private void recover() {
+        for (JsonObject op : journal.readAll()) {
+            String catalogueId = op.getString("catalogue");
+            switch (op.getString("op", "")) {
+                case "update":
+                    apply(catalogueId, op.getJsonObject("delta", new JsonObject()));
+                    break;
+                case "set":
+                    statistics.put(catalogueId, op.getJsonObject("statistics"));
+                    break;
+                case "remove":
+                    statistics.remove(catalogueId);
+                    break;
+                default:
+                    log.warn("Unknown statistics journal entry {}", op.encode());
+            }
+        }
+        compact();
+        log.info("Recovered statistics of {} catalogues", statistics.size());
+    }
+
+    private void compact() {
+        journal.rewrite(statistics.entrySet().stream()
+                .map(entry -> new JsonObject()
+                        .put("op", "set")
+                        .put("catalogue", entry.getKey())
+                        .put("statistics", entry.getValue()))
+                .collect(Collectors.toList()));
+        journalWrites = 0;
+    }
+
+}
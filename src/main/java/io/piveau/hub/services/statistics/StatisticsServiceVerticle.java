@@ -0,0 +1,35 @@
+package io.piveau.hub.services.statistics;
+
+import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.TSConnector;
+import io.piveau.utils.ConfigHelper;
+import io.vertx.circuitbreaker.CircuitBreaker;
+import io.vertx.circuitbreaker.CircuitBreakerOptions;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.serviceproxy.ServiceBinder;
+
+public class StatisticsServiceVerticle extends AbstractVerticle {
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        JsonObject conf = ConfigHelper.forConfig(config()).forceJsonObject(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG);
+
+        CircuitBreaker breaker = CircuitBreaker.create("statistics-breaker", vertx, new CircuitBreakerOptions().setMaxRetries(2))
+                .retryPolicy(count -> count * 1000L);
+
+        TSConnector connector = TSConnector.create(WebClient.create(vertx), breaker, conf);
+
+        StatisticsService.create(vertx, connector, config(), ready -> {
+            if (ready.succeeded()) {
+                new ServiceBinder(vertx).setAddress(StatisticsService.SERVICE_ADDRESS).register(StatisticsService.class, ready.result());
+                startPromise.complete();
+            } else {
+                startPromise.fail(ready.cause());
+            }
+        });
+    }
+
+}
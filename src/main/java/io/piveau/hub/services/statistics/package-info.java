@@ -0,0 +1,4 @@
+@ModuleGen(groupPackage = "io.piveau.hub.services.statistics", name = "hub-statistics-service")
+package io.piveau.hub.services.statistics;
+
+import io.vertx.codegen.annotations.ModuleGen;
@@ -2,10 +2,10 @@ package io.piveau.hub.services.translation;
 
 import io.piveau.hub.services.index.IndexService;
 import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.IndexConversionPool;
 import io.piveau.hub.dataobjects.DatasetHelper;
 import io.piveau.hub.util.TSConnector;
 import io.piveau.hub.util.rdf.EDP;
-import io.piveau.indexing.Indexing;
 import io.piveau.rdf.LanguageTag;
 import io.piveau.utils.ConfigHelper;
 import io.piveau.utils.Piveau;
@@ -43,6 +43,7 @@ public class TranslationServiceImpl implements TranslationService {
     private final JsonObject config;
     private final TSConnector tsConnector;
     private final IndexService indexService;
+    private final IndexConversionPool conversionPool;
 
     private WebClient client;
 
@@ -54,6 +55,7 @@ public class TranslationServiceImpl implements TranslationService {
         this.config = config;
         this.tsConnector = tsConnector;
         this.indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
+        this.conversionPool = IndexConversionPool.shared(vertx, config);
 
         moduleContext = Piveau.createPiveauContext("hub", "Translation");
 
@@ -198,12 +200,18 @@ public class TranslationServiceImpl implements TranslationService {
                     QuerySolution solution = set.next();
                     RDFNode c = solution.get("c");
                     String catalogueId = DCATAPUriSchema.parseUriRef(c.asResource().getURI()).getId();
-                    indexService.addDatasetPut(Indexing.indexingDataset(resource, catalogueId, language), ir -> {
-                        if (ir.succeeded()) {
-                            log.debug("Successfully send to Index Service");
-                        } else {
-                            log.error("Dataset could not send to IndexService", ir.cause());
+                    conversionPool.convertDataset(resource.getModel(), resource.getURI(), catalogueId, language).setHandler(cr -> {
+                        if (cr.failed()) {
+                            log.error("Converting dataset for IndexService", cr.cause());
+                            return;
                         }
+                        indexService.addDatasetPut(cr.result(), ir -> {
+                            if (ir.succeeded()) {
+                                log.debug("Successfully send to Index Service");
+                            } else {
+                                log.error("Dataset could not send to IndexService", ir.cause());
+                            }
+                        });
                     });
                 }
             } else {
@@ -0,0 +1,150 @@
+package io.piveau.hub.util;
+
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A simple file based journal. Every entry is a json object written as a single line.
+ * Used by services that need to survive a restart without an additional database.
+ * The file stays open for appending until the journal is rewritten, deleted or closed. Every append is flushed.
+ * All methods are blocking and must only be called from worker verticles.
+ */
+public class AppendLog {
+
+    private final Path file;
+    private BufferedWriter writer;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    private AppendLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens (or creates) the journal with the given name in the configured state directory.
+     *
+     * @param directory the state directory, created if missing
+     * @param name      the file name of the journal
+     * @return the journal
+     */
+    public static AppendLog open(String directory, String name) {
+        Path dir = Paths.get(directory);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create state directory " + dir.toAbsolutePath(), e);
+        }
+        return new AppendLog(dir.resolve(name));
+    }
+
+    public synchronized void append(JsonObject entry) {
+        appendAll(List.of(entry));
+    }
+
+    public synchronized void appendAll(Collection<JsonObject> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (JsonObject entry : entries) {
+                writer.write(entry.encode());
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Writing to " + file, e);
+            close();
+        }
+    }
+
+    /**
+     * Closes the file, the next append opens it again.
+     */
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.error("Closing " + file, e);
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Reads all entries. Lines that cannot be parsed (e.g. a partial write before a crash) are skipped.
+     *
+     * @return all entries in write order
+     */
+    public synchronized List<JsonObject> readAll() {
+        List<JsonObject> entries = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    try {
+                        entries.add(new JsonObject(line));
+                    } catch (DecodeException e) {
+                        log.warn("Skipping corrupt entry in {}", file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Reading " + file, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Removes the journal, e.g. when the work it tracked is done.
+     */
+    public synchronized void delete() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("Deleting " + file, e);
+        }
+    }
+
+    /**
+     * Replaces the content of the journal atomically, e.g. to compact it.
+     *
+     * @param entries the new content
+     */
+    public synchronized void rewrite(Collection<JsonObject> entries) {
+        // the open file would keep appending to the replaced one
+        close();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (JsonObject entry : entries) {
+                writer.write(entry.encode());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            log.error("Writing " + tmp, e);
+            return;
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Replacing " + file, e);
+        }
+    }
+
+}
@@ -0,0 +1,321 @@
+package io.piveau.hub.util;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.statistics.StatisticsService;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.utils.experimental.DCATAPUriRef;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.jena.vocabulary.DCAT;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes a catalogue with all its datasets in batches. Each batch drops the dataset, validation and metrics graphs
+ * of its datasets with one update and removes them from the index with one bulk request, a few batches are in flight at once.
+ * <p>
+ * The dataset links stay in the catalogue graph until all datasets are gone, so the datasets are read in keyset pages
+ * like {@link CatalogueReader} does. The last dataset of every completed batch is written to a checkpoint, a deletion
+ * of the same catalogue which starts after an interruption continues from there. The catalogue graph, its Keycloak
+ * resource and the checkpoint are removed at last.
+ */
+public class CatalogueDeleter {
+
+    private static final String CHECKPOINT_DIR = "deletes";
+
+    private final Vertx vertx;
+    private final TSConnector connector;
+    private final CatalogueReader catalogueReader;
+    private final IndexService indexService;
+    private final StatisticsService statisticsService;
+    private final KeycloakResources keycloakResources;
+    private final String checkpointDir;
+
+    private final int batchSize;
+    private final int concurrency;
+
+    /**
+     * @param statisticsService null if the catalogue statistics are disabled
+     * @param keycloakResources null if catalogues have no Keycloak resources
+     * @param triplestoreConfig the triplestore config
+     * @param config            the delete config, using batchSize and concurrency
+     */
+    public CatalogueDeleter(Vertx vertx, TSConnector connector, IndexService indexService, StatisticsService statisticsService,
+                            KeycloakResources keycloakResources, JsonObject triplestoreConfig, JsonObject config, String stateDir) {
+        this.vertx = vertx;
+        this.connector = connector;
+        this.catalogueReader = new CatalogueReader(connector, triplestoreConfig);
+        this.indexService = indexService;
+        this.statisticsService = statisticsService;
+        this.keycloakResources = keycloakResources;
+        this.checkpointDir = Paths.get(stateDir, CHECKPOINT_DIR).toString();
+        batchSize = config.getInteger("batchSize", 500);
+        concurrency = config.getInteger("concurrency", 2);
+    }
+
+    /**
+     * @param options   may override batchSize and concurrency
+     * @param progress  counts deleted datasets, batches and failed index deletes while the deletion runs
+     * @param cancelled checked before each batch, a cancelled deletion keeps its checkpoint
+     * @return the counts of the deletion, with cancelled set if it stopped early
+     */
+    public Future<JsonObject> delete(String catalogueId, JsonObject options, JsonObject progress, BooleanSupplier cancelled) {
+        Run run = new Run(DCATAPUriSchema.applyFor(catalogueId), options, progress, cancelled);
+        vertx.<JsonObject>executeBlocking(future -> {
+            run.checkpoint = AppendLog.open(checkpointDir, URLEncoder.encode(catalogueId, StandardCharsets.UTF_8) + ".log");
+            List<JsonObject> entries = run.checkpoint.readAll();
+            future.complete(entries.isEmpty() ? null : entries.get(entries.size() - 1));
+        }, ar -> {
+            if (ar.failed()) {
+                run.promise.fail(ar.cause());
+            } else {
+                if (ar.result() != null) {
+                    run.resumed = true;
+                    run.after = ar.result().getString("after");
+                    run.readAfter = run.after;
+                    run.deleted = ar.result().getInteger("deleted", 0);
+                    run.log.info("Continuing deletion after {} deleted datasets", run.deleted);
+                }
+                run.progress.put("catalogue", catalogueId).put("deleted", run.progress.getInteger("deleted", 0) + run.deleted);
+                pump(run);
+            }
+        });
+        return run.promise.future();
+    }
+
+    /**
+     * Reads the next page while there is room for another batch, and finishes when all batches are done.
+     */
+    private void pump(Run run) {
+        if (run.reading) {
+            return;
+        }
+        boolean stopped = run.failure != null || run.cancelled.getAsBoolean();
+        if (stopped || run.exhausted) {
+            if (run.batches.isEmpty()) {
+                if (run.failure != null) {
+                    closeCheckpoint(run);
+                    run.promise.fail(run.failure);
+                } else if (!run.exhausted) {
+                    closeCheckpoint(run);
+                    run.promise.complete(run.result().put("cancelled", true));
+                } else {
+                    finish(run);
+                }
+            }
+            return;
+        }
+        if (run.batches.size() >= run.concurrency) {
+            return;
+        }
+
+        run.reading = true;
+        catalogueReader.members(run.catalogue, DCAT.dataset, run.readAfter, run.batchSize).setHandler(ar -> {
+            run.reading = false;
+            if (ar.failed()) {
+                run.failure = ar.cause();
+            } else {
+                List<String> datasets = ar.result();
+                run.exhausted = datasets.size() < run.batchSize;
+                if (!datasets.isEmpty()) {
+                    run.readAfter = datasets.get(datasets.size() - 1);
+                    Batch batch = new Batch(run.readAfter, datasets.size());
+                    run.batches.add(batch);
+                    deleteBatch(datasets).setHandler(br -> completed(run, batch, br.succeeded() ? br.result() : null, br.cause()));
+                }
+            }
+            pump(run);
+        });
+    }
+
+    /**
+     * @return the number of datasets the index failed to delete
+     */
+    private Future<Integer> deleteBatch(List<String> datasets) {
+        String update = datasets.stream()
+                .map(DCATAPUriSchema::parseUriRef)
+                .flatMap(ref -> List.of(ref.getDatasetGraphName(), ref.getValidationGraphName(), ref.getMetricsGraphName()).stream())
+                .map(graph -> "DROP SILENT GRAPH <" + graph + ">")
+                .collect(Collectors.joining(" ;\n"));
+        Promise<Void> graphs = Promise.promise();
+        connector.updatePost(update, ar -> {
+            if (ar.succeeded()) {
+                graphs.complete();
+            } else {
+                graphs.fail(ar.cause());
+            }
+        });
+
+        // index failures are repaired by the index outbox or a consistency check, they do not stop the deletion
+        JsonArray ids = new JsonArray(datasets.stream().map(dataset -> DCATAPUriSchema.parseUriRef(dataset).getId()).collect(Collectors.toList()));
+        Promise<Integer> index = Promise.promise();
+        indexService.deleteDatasets(ids, ar -> index.complete(ar.succeeded() ? ar.result().getJsonArray("failed", new JsonArray()).size() : ids.size()));
+
+        return graphs.future().compose(v -> index.future());
+    }
+
+    /**
+     * Moves the checkpoint over all batches which are done in read order. A later batch may complete first,
+     * it is only covered by the checkpoint once the batches before it are done as well.
+     */
+    private void completed(Run run, Batch batch, Integer failedIndexDeletes, Throwable cause) {
+        if (cause != null) {
+            run.log.error("Deleting datasets up to " + batch.last, cause);
+            run.failure = cause;
+        } else {
+            batch.done = true;
+            run.failedIndexDeletes += failedIndexDeletes;
+            run.progress.put("failedIndexDeletes", run.progress.getInteger("failedIndexDeletes", 0) + failedIndexDeletes);
+        }
+
+        boolean moved = false;
+        while (run.failure == null && !run.batches.isEmpty() && run.batches.peek().done) {
+            Batch head = run.batches.poll();
+            run.after = head.last;
+            run.deleted += head.size;
+            run.progress
+                    .put("deleted", run.progress.getInteger("deleted", 0) + head.size)
+                    .put("batches", run.progress.getInteger("batches", 0) + 1);
+            moved = true;
+        }
+        if (moved) {
+            JsonObject entry = new JsonObject().put("catalogue", run.catalogue.getId()).put("after", run.after).put("deleted", run.deleted);
+            vertx.executeBlocking(future -> {
+                run.checkpoint.append(entry);
+                future.complete();
+            }, true, ar -> {
+                if (ar.failed()) {
+                    run.log.error("Writing delete checkpoint", ar.cause());
+                }
+            });
+        }
+        if (run.failure != null) {
+            // after a failure only the batches still in flight are waited for
+            run.batches.removeIf(b -> b == batch || b.done);
+        }
+        pump(run);
+    }
+
+    /**
+     * Keeps the checkpoint of a stopped deletion but releases its file.
+     */
+    private void closeCheckpoint(Run run) {
+        vertx.executeBlocking(future -> {
+            run.checkpoint.close();
+            future.complete();
+        }, true, ar -> {
+        });
+    }
+
+    private void finish(Run run) {
+        Promise<Void> graph = Promise.promise();
+        if (run.resumed) {
+            // the graph may already be gone when the last run stopped right after dropping it
+            connector.updatePost("DROP SILENT GRAPH <" + run.catalogue.getCatalogueGraphName() + ">", ar -> graph.handle(ar.mapEmpty()));
+        } else {
+            connector.deleteGraph(run.catalogue.getCatalogueGraphName(), ar -> graph.handle(ar.mapEmpty()));
+        }
+
+        graph.future().compose(v -> {
+            Promise<Void> index = Promise.promise();
+            indexService.deleteCatalog(run.catalogue.getId(), ar -> {
+                if (ar.failed()) {
+                    run.log.error("Delete catalogue index", ar.cause());
+                }
+                index.complete();
+            });
+            return index.future();
+        }).compose(v -> {
+            if (statisticsService != null) {
+                statisticsService.removeCatalogue(run.catalogue.getId(), ar -> {
+                    if (ar.failed()) {
+                        run.log.error("Remove catalogue statistics", ar.cause());
+                    }
+                });
+            }
+            if (keycloakResources != null) {
+                keycloakResources.deleteCatalogue(run.catalogue.getId()).setHandler(ar -> {
+                    if (ar.failed()) {
+                        run.log.error("Remove catalogue keycloak resource", ar.cause());
+                    }
+                });
+            }
+            Promise<Void> checkpoint = Promise.promise();
+            vertx.executeBlocking(future -> {
+                run.checkpoint.delete();
+                future.complete();
+            }, true, checkpoint);
+            return checkpoint.future();
+        }).setHandler(ar -> {
+            if (ar.succeeded()) {
+                run.log.info("Catalogue deleted");
+                run.promise.complete(run.result());
+            } else {
+                run.promise.fail(ar.cause());
+            }
+        });
+    }
+
+    private static class Batch {
+        private final String last;
+        private final int size;
+        private boolean done = false;
+
+        private Batch(String last, int size) {
+            this.last = last;
+            this.size = size;
+        }
+    }
+
+    private class Run {
+        private final DCATAPUriRef catalogue;
+        private final int batchSize;
+        private final int concurrency;
+        private final JsonObject progress;
+        private final BooleanSupplier cancelled;
+        private final Promise<JsonObject> promise = Promise.promise();
+        private final PiveauLogger log;
+
+        // batches in read order, at most concurrency of them
+        private final Deque<Batch> batches = new ArrayDeque<>();
+
+        private AppendLog checkpoint;
+        private boolean resumed = false;
+        private String after;
+        private String readAfter;
+        private int deleted = 0;
+        private int failedIndexDeletes = 0;
+        private boolean reading = false;
+        private boolean exhausted = false;
+        private Throwable failure;
+
+        private Run(DCATAPUriRef catalogue, JsonObject options, JsonObject progress, BooleanSupplier cancelled) {
+            this.catalogue = catalogue;
+            this.batchSize = Math.max(1, options.getInteger("batchSize", CatalogueDeleter.this.batchSize));
+            this.concurrency = Math.max(1, options.getInteger("concurrency", CatalogueDeleter.this.concurrency));
+            this.progress = progress;
+            this.cancelled = cancelled;
+            this.log = PiveauLoggerFactory.getCatalogueLogger(catalogue.getId(), CatalogueDeleter.class);
+        }
+
+        private JsonObject result() {
+            return new JsonObject()
+                    .put("catalogue", catalogue.getId())
+                    .put("deleted", deleted)
+                    .put("failedIndexDeletes", failedIndexDeletes);
+        }
+    }
+
+}
@@ -18,8 +18,6 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
-import java.util.Map;
 
 public class CatalogueHelper {
     private String id;
@@ -43,22 +41,15 @@ public class CatalogueHelper {
     }
     public String getId(){return id;}
 
-    public void
-    model(Map<String, List<Resource>> saved, Handler<AsyncResult<Void>> handler) {
+    /**
+     * The description of an existing catalogue, without its stored dataset and record links.
+     */
+    public void metadataModel(Handler<AsyncResult<Void>> handler) {
         if (model == null) {
             try {
                 model = JenaUtils.read(content.getBytes(), contentType);
                 renameReferences();
-
-                Resource catalog = model.getResource(uriRef());
-                saved.get("dataset").forEach(resource -> {
-                    catalog.addProperty(DCAT.dataset, resource);
-                });
-                saved.get("record").forEach(resource -> {
-                    catalog.addProperty(DCAT.record, resource);
-                });
-                modify(catalog);
-
+                modify(model.getResource(uriRef()));
             } catch (Exception e) {
                 handler.handle(Future.failedFuture(e));
                 return;
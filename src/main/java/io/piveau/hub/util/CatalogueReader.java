@@ -0,0 +1,219 @@
+package io.piveau.hub.util;
+
+import io.piveau.utils.experimental.DCATAPUriRef;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.util.FmtUtils;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Reads catalogues without enumerating all members up front. Datasets and records are read in keyset pages,
+ * ordered by uri ref and continued after the last uri ref of the previous page, so pages stay stable
+ * while datasets are added or removed and no page needs an offset.
+ * <p>
+ * The keyset compares the IRIs themselves by default, which the store can answer from its index. Stores which
+ * reject the comparison of IRIs, like Jena, are configured with keysetOrder "string" to compare their lexical forms.
+ */
+public class CatalogueReader {
+
+    private static final Pattern UNSAFE_IRI = Pattern.compile("[<>\"{}|^`\\\\\\s]");
+
+    private final TSConnector connector;
+    private final GraphReader graphReader;
+
+    private final int pageSize;
+    private final boolean lexicalKeyset;
+
+    /**
+     * @param config the triplestore config, using maxResultRows and keysetOrder
+     */
+    public CatalogueReader(TSConnector connector, JsonObject config) {
+        this.connector = connector;
+        this.graphReader = new GraphReader(connector, config);
+        pageSize = Math.min(5000, config.getInteger("maxResultRows", 10000));
+        lexicalKeyset = "string".equals(config.getString("keysetOrder", "iri"));
+    }
+
+    /**
+     * @return the streaming format for the content type, null if the content type can only be written from a model
+     */
+    public static RDFFormat streamingFormat(String contentType) {
+        Lang lang = contentType != null ? RDFLanguages.contentTypeToLang(contentType) : null;
+        if (lang == null) {
+            return null;
+        } else if (lang.equals(Lang.NTRIPLES)) {
+            return RDFFormat.NTRIPLES_UTF8;
+        } else if (lang.equals(Lang.TURTLE) || lang.equals(Lang.N3)) {
+            // the flat variant writes triple by triple, blocks would collect all members of the catalogue subject
+            return RDFFormat.TURTLE_FLAT;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * A cursor comes from the client, it is only accepted if it is a dataset uri ref which can be written into a query.
+     *
+     * @param uriRef the decoded cursor
+     * @return true if the cursor can continue a page of datasets
+     */
+    public static boolean validCursor(String uriRef) {
+        if (uriRef == null || uriRef.isEmpty() || UNSAFE_IRI.matcher(uriRef).find()) {
+            return false;
+        }
+        try {
+            return uriRef.equals(DCATAPUriSchema.parseUriRef(uriRef).getDatasetUriRef());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the catalogue graph without the dataset and record links
+     */
+    public Future<Model> metadata(DCATAPUriRef catalogue) {
+        return graphReader.readGraph(catalogue.getCatalogueGraphName(), "?p != <" + DCAT.dataset + "> && ?p != <" + DCAT.record + ">");
+    }
+
+    /**
+     * @param property dcat:dataset or dcat:record
+     * @param after    the last uri ref of the previous page, null for the first page
+     * @return up to limit uri refs following after, in their stable order, fails if after is no IRI
+     */
+    public Future<List<String>> members(DCATAPUriRef catalogue, Property property, String after, int limit) {
+        if (after != null && (after.isEmpty() || UNSAFE_IRI.matcher(after).find())) {
+            return Future.failedFuture(new IllegalArgumentException("Invalid keyset cursor " + after));
+        }
+        String key = lexicalKeyset ? "STR(?member)" : "?member";
+        String query = "SELECT ?member WHERE { GRAPH <" + catalogue.getCatalogueGraphName() + "> { <" + catalogue.getCatalogueUriRef()
+                + "> <" + property + "> ?member } FILTER (isIRI(?member)"
+                + (after != null ? " && " + key + " > " + (lexicalKeyset ? FmtUtils.stringForString(after) : "<" + after + ">") : "")
+                + ") } ORDER BY " + key + " LIMIT " + limit;
+
+        Promise<List<String>> promise = Promise.promise();
+        connector.query(query, "application/sparql-results+json", ar -> {
+            if (ar.succeeded()) {
+                try {
+                    promise.complete(values(ar.result().bodyAsJsonObject(), "member"));
+                } catch (Exception e) {
+                    promise.fail(e);
+                }
+            } else {
+                promise.fail(ar.cause());
+            }
+        });
+        return promise.future();
+    }
+
+    /**
+     * @return the records of the datasets which are linked from the catalogue
+     */
+    public Future<List<String>> records(DCATAPUriRef catalogue, List<String> datasets) {
+        if (datasets.isEmpty()) {
+            return Future.succeededFuture(Collections.emptyList());
+        }
+        String values = datasets.stream()
+                .map(dataset -> "<" + DCATAPUriSchema.parseUriRef(dataset).getRecordUriRef() + ">")
+                .collect(Collectors.joining(" "));
+        String query = "SELECT ?record WHERE { GRAPH <" + catalogue.getCatalogueGraphName() + "> { VALUES ?record { " + values
+                + " } <" + catalogue.getCatalogueUriRef() + "> <" + DCAT.record + "> ?record } } ORDER BY STR(?record)";
+
+        Promise<List<String>> promise = Promise.promise();
+        connector.queryPost(query, "application/sparql-results+json", ar -> {
+            if (ar.succeeded()) {
+                try {
+                    promise.complete(values(ar.result().bodyAsJsonObject(), "record"));
+                } catch (Exception e) {
+                    promise.fail(e);
+                }
+            } else {
+                promise.fail(ar.cause());
+            }
+        });
+        return promise.future();
+    }
+
+    /**
+     * Writes the whole catalogue page by page. Each chunk is handed over when its page is written,
+     * the next page is read when the returned future of the consumer completed. Only one page is held in memory.
+     *
+     * @param metadata the catalogue graph as read with {@link #metadata(DCATAPUriRef)}
+     * @param format   a streaming format, see {@link #streamingFormat(String)}
+     * @param chunks   receives the written bytes, fails to stop reading
+     */
+    public Future<Void> stream(DCATAPUriRef catalogue, Model metadata, RDFFormat format, Function<Buffer, Future<Void>> chunks) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF writer = StreamRDFWriter.getWriterStream(out, format);
+        Node subject = NodeFactory.createURI(catalogue.getCatalogueUriRef());
+
+        writer.start();
+        writer.prefix("dcat", DCAT.NS);
+        writer.prefix("dct", DCTerms.NS);
+        metadata.getGraph().find().forEachRemaining(writer::triple);
+        return drain(out, chunks)
+                .compose(v -> streamMembers(catalogue, DCAT.dataset, null, subject, writer, out, chunks))
+                .compose(v -> streamMembers(catalogue, DCAT.record, null, subject, writer, out, chunks))
+                .compose(v -> {
+                    writer.finish();
+                    return drain(out, chunks);
+                });
+    }
+
+    private Future<Void> streamMembers(DCATAPUriRef catalogue, Property property, String after, Node subject,
+                                       StreamRDF writer, ByteArrayOutputStream out, Function<Buffer, Future<Void>> chunks) {
+        return members(catalogue, property, after, pageSize).compose(page -> {
+            page.forEach(member -> writer.triple(Triple.create(subject, property.asNode(), NodeFactory.createURI(member))));
+            Future<Void> sent = drain(out, chunks);
+            if (page.size() < pageSize) {
+                return sent;
+            }
+            return sent.compose(v -> streamMembers(catalogue, property, page.get(page.size() - 1), subject, writer, out, chunks));
+        });
+    }
+
+    /**
+     * Hands over what the writer wrote so far. The writer may buffer the end of a page until the next one.
+     */
+    private Future<Void> drain(ByteArrayOutputStream out, Function<Buffer, Future<Void>> chunks) {
+        if (out.size() == 0) {
+            return Future.succeededFuture();
+        }
+        Buffer chunk = Buffer.buffer(out.toByteArray());
+        out.reset();
+        return chunks.apply(chunk);
+    }
+
+    private static List<String> values(JsonObject results, String variable) {
+        JsonArray bindings = results.getJsonObject("results", new JsonObject()).getJsonArray("bindings", new JsonArray());
+        List<String> values = new ArrayList<>(bindings.size());
+        for (Object item : bindings) {
+            JsonObject binding = ((JsonObject) item).getJsonObject(variable);
+            if (binding != null && "uri".equals(binding.getString("type"))) {
+                values.add(binding.getString("value"));
+            }
+        }
+        return values;
+    }
+
+}
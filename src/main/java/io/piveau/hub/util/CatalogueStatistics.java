@@ -0,0 +1,125 @@
+package io.piveau.hub.util;
+
+import io.vertx.core.json.JsonObject;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.sparql.vocabulary.FOAF;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+
+/**
+ * The counts of a catalogue: datasets, distributions and distributions per format. A dataset contributes
+ * its counts, a change of a dataset is the difference between the contributions before and after,
+ * so the counts of a catalogue can be kept up to date without counting all its datasets again.
+ * <p>
+ * The modification time of a catalogue is the latest dct:modified of its records, whether it is counted or
+ * taken from the changed datasets. Deleting a dataset leaves it unchanged.
+ */
+public final class CatalogueStatistics {
+
+    private CatalogueStatistics() {
+    }
+
+    /**
+     * @return zero counts
+     */
+    public static JsonObject empty() {
+        return new JsonObject()
+                .put("datasets", 0)
+                .put("distributions", 0)
+                .put("formats", new JsonObject());
+    }
+
+    /**
+     * @param dataset the dataset graph, with its record
+     * @return the counts of the dataset and the modification of its record
+     */
+    public static JsonObject contribution(Model dataset) {
+        JsonObject counts = empty().put("datasets", 1);
+        dataset.listSubjectsWithProperty(FOAF.primaryTopic).forEachRemaining(record -> {
+            Statement modified = record.getProperty(DCTerms.modified);
+            if (modified != null && modified.getObject().isLiteral()) {
+                modified(counts, modified.getLiteral().getLexicalForm());
+            }
+        });
+        JsonObject formats = counts.getJsonObject("formats");
+        dataset.listObjectsOfProperty(DCAT.distribution).forEachRemaining(distribution -> {
+            counts.put("distributions", counts.getInteger("distributions") + 1);
+            if (distribution.isResource()) {
+                Resource resource = distribution.asResource();
+                resource.listProperties(DCTerms.format).forEachRemaining(format -> add(formats, format(format.getObject()), 1));
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * @param before the contribution before the change, null for a new dataset
+     * @param after  the contribution after the change, null for a deleted dataset
+     * @return the change of the catalogue counts
+     */
+    public static JsonObject delta(JsonObject before, JsonObject after) {
+        JsonObject delta = empty();
+        if (after != null) {
+            apply(delta, after, 1);
+            if (after.containsKey("modified")) {
+                delta.put("modified", after.getString("modified"));
+            }
+        }
+        if (before != null) {
+            apply(delta, before, -1);
+        }
+        return delta;
+    }
+
+    /**
+     * Adds a delta to the counts of a catalogue and moves its modification time forward. Formats which are not used anymore are removed.
+     */
+    public static void apply(JsonObject statistics, JsonObject delta) {
+        apply(statistics, delta, 1);
+        if (delta.containsKey("modified")) {
+            modified(statistics, delta.getString("modified"));
+        }
+    }
+
+    /**
+     * Keeps the later of the modification times, both are xsd:dateTime lexical forms.
+     */
+    public static void modified(JsonObject counts, String modified) {
+        if (modified.compareTo(counts.getString("modified", "")) > 0) {
+            counts.put("modified", modified);
+        }
+    }
+
+    /**
+     * @return the key of a format, the uri of a vocabulary concept or the literal
+     */
+    public static String format(RDFNode format) {
+        return format.isURIResource() ? format.asResource().getURI() : format.isLiteral() ? format.asLiteral().getLexicalForm() : "";
+    }
+
+    private static void apply(JsonObject target, JsonObject counts, int sign) {
+        target.put("datasets", target.getInteger("datasets", 0) + sign * counts.getInteger("datasets", 0));
+        target.put("distributions", target.getInteger("distributions", 0) + sign * counts.getInteger("distributions", 0));
+        JsonObject formats = target.getJsonObject("formats");
+        if (formats == null) {
+            formats = new JsonObject();
+            target.put("formats", formats);
+        }
+        for (String format : counts.getJsonObject("formats", new JsonObject()).fieldNames()) {
+            add(formats, format, sign * counts.getJsonObject("formats").getInteger(format));
+        }
+    }
+
+    private static void add(JsonObject formats, String format, int count) {
+        int sum = formats.getInteger(format, 0) + count;
+        if (sum == 0) {
+            formats.remove(format);
+        } else {
+            formats.put(format, sum);
+        }
+    }
+
+}
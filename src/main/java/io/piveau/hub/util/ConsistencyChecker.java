@@ -0,0 +1,324 @@
+package io.piveau.hub.util;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.hub.util.rdf.SPDX;
+import io.piveau.utils.ConfigHelper;
+import io.piveau.utils.experimental.DCATAPUriRef;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.*;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ResIterator;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.FOAF;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Finds drift between the triplestore and the search index of a catalogue.
+ * Both sides are read once as (dataset id, record checksum) pairs into Merkle trees, no pair is kept.
+ * The trees are compared top-down. Only if they differ, both sides are read again and the pairs of the differing
+ * hash ranges are kept and compared one by one.
+ * Datasets missing in the index or with an outdated checksum are reindexed, datasets missing in the store are deleted.
+ */
+public class ConsistencyChecker {
+
+    /**
+     * Field of the index document holding the checksum of the dataset record.
+     */
+    public static final String CHECKSUM_FIELD = "record_checksum";
+
+    private static final int INDEX_PAGE_SIZE = 5000;
+    private static final int REPAIR_CONCURRENCY = 8;
+
+    private final WebClient client;
+    private final TSConnector connector;
+    private final CatalogueReader catalogueReader;
+    private final IndexService indexService;
+    private final IndexConversionPool conversionPool;
+
+    private final String elasticsearchAddress;
+    private final String datasetIndex;
+    private final int depth;
+    private final int storePageSize;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    public ConsistencyChecker(Vertx vertx, WebClient client, TSConnector connector, JsonObject config) {
+        this.client = client;
+        this.connector = connector;
+        JsonObject triplestoreConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG);
+        this.catalogueReader = new CatalogueReader(connector, triplestoreConfig);
+        this.indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
+        this.conversionPool = IndexConversionPool.shared(vertx, config);
+
+        elasticsearchAddress = config.getString(Constants.ENV_PIVEAU_HUB_ELASTICSEARCH_ADDRESS, "http://elasticsearch:9200");
+        datasetIndex = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_SEARCH_SERVICE)
+                .getJsonObject("elasticsearch", new JsonObject()).getString("datasetIndex", "dataset");
+        depth = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CONSISTENCY_CHECK).getInteger("depth", 3);
+        storePageSize = Math.min(5000, triplestoreConfig.getInteger("maxResultRows", 10000));
+    }
+
+    /**
+     * Adds the checksum of the dataset record to an index document, so the index can be compared with the store.
+     *
+     * @param document the index document of the dataset
+     * @param model    the dataset graph, including its record
+     * @return the document
+     */
+    public static JsonObject withChecksum(JsonObject document, Model model) {
+        ResIterator records = model.listSubjectsWithProperty(FOAF.primaryTopic);
+        if (records.hasNext()) {
+            Resource checksum = records.next().getPropertyResourceValue(SPDX.checksum);
+            if (checksum != null && checksum.hasProperty(SPDX.checksumValue)) {
+                document.put(CHECKSUM_FIELD, checksum.getProperty(SPDX.checksumValue).getString());
+            }
+        }
+        return document;
+    }
+
+    /**
+     * @param repair reindex and delete differing datasets, otherwise only report them
+     */
+    public void check(String catalogueId, boolean repair, Handler<AsyncResult<JsonObject>> handler) {
+        long start = System.currentTimeMillis();
+        DCATAPUriRef catalogueRef = DCATAPUriSchema.applyFor(catalogueId);
+
+        MerkleTree storeTree = new MerkleTree(depth);
+        MerkleTree indexTree = new MerkleTree(depth);
+        long[] withChecksum = new long[2];
+        CompositeFuture.all(
+                scanStore(catalogueRef, (id, checksum) -> {
+                    storeTree.add(id, checksum);
+                    withChecksum[0] += checksum != null ? 1 : 0;
+                }),
+                scanIndex(catalogueId, (id, checksum) -> {
+                    indexTree.add(id, checksum);
+                    withChecksum[1] += checksum != null ? 1 : 0;
+                })
+        ).compose(scanned -> {
+            JsonObject report = new JsonObject()
+                    .put("catalogue", catalogueId)
+                    .put("storeDatasets", storeTree.size())
+                    .put("indexDatasets", indexTree.size());
+
+            // without any checksum in the index every dataset would differ, which hints at a mapping dropping the field
+            if (indexTree.size() > 0 && withChecksum[1] == 0 && withChecksum[0] > 0) {
+                return Future.failedFuture(new IllegalStateException("The index returned no " + CHECKSUM_FIELD + " for "
+                        + indexTree.size() + " datasets. Reindex the catalogue once, if the field is still missing "
+                        + "the search service does not store it."));
+            }
+
+            List<Integer> leaves = storeTree.diff(indexTree);
+            report.put("differingRanges", leaves.size());
+            if (leaves.isEmpty()) {
+                return Future.succeededFuture(report.put("reindex", 0).put("delete", 0));
+            }
+
+            // only the pairs of the differing ranges are kept when both sides are read again
+            Set<Integer> ranges = new HashSet<>(leaves);
+            Map<String, String> storeChecksums = new HashMap<>();
+            Map<String, String> indexChecksums = new HashMap<>();
+            return CompositeFuture.all(
+                    scanStore(catalogueRef, (id, checksum) -> {
+                        if (ranges.contains(storeTree.leaf(id))) {
+                            storeChecksums.put(id, checksum);
+                        }
+                    }),
+                    scanIndex(catalogueId, (id, checksum) -> {
+                        if (ranges.contains(indexTree.leaf(id))) {
+                            indexChecksums.put(id, checksum);
+                        }
+                    })
+            ).compose(enumerated -> {
+                List<String> reindex = storeChecksums.keySet().stream()
+                        .filter(id -> !indexChecksums.containsKey(id) || !Objects.equals(storeChecksums.get(id), indexChecksums.get(id)))
+                        .collect(Collectors.toList());
+                List<String> delete = indexChecksums.keySet().stream()
+                        .filter(id -> !storeChecksums.containsKey(id))
+                        .collect(Collectors.toList());
+                report.put("reindex", reindex.size()).put("delete", delete.size());
+
+                if (!repair) {
+                    return Future.succeededFuture(report);
+                }
+                List<String> reindexUriRefs = reindex.stream()
+                        .map(id -> DCATAPUriSchema.applyFor(id).getDatasetUriRef())
+                        .collect(Collectors.toList());
+                return repair(catalogueRef, reindexUriRefs, delete).map(report::mergeIn);
+            });
+        }).setHandler(ar -> {
+            if (ar.succeeded()) {
+                JsonObject report = ar.result().put("duration", System.currentTimeMillis() - start);
+                log.info("Consistency check of {}: {}", catalogueId, report.encode());
+                handler.handle(Future.succeededFuture(report));
+            } else {
+                log.error("Consistency check of " + catalogueId + " failed", ar.cause());
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+    }
+
+    /**
+     * Reads the ids of all datasets of a catalogue in the index page by page with search_after.
+     *
+     * @param consumer gets the id and the record checksum, which might be null
+     */
+    public Future<Void> scanIndex(String catalogueId, BiConsumer<String, String> consumer) {
+        Promise<Void> promise = Promise.promise();
+        nextIndexPage(catalogueId, null, consumer, promise);
+        return promise.future();
+    }
+
+    private void nextIndexPage(String catalogueId, JsonArray searchAfter, BiConsumer<String, String> consumer, Promise<Void> promise) {
+        // catalog.id might be an analyzed text field in the search mapping, where a term query misses ids with separators.
+        // The phrase matches like the former query string did, the exact id is checked on the source.
+        // Sorting by the id field gives a unique and stable order for search_after.
+        JsonObject query = new JsonObject()
+                .put("size", INDEX_PAGE_SIZE)
+                .put("_source", new JsonArray().add("id").add("catalog.id").add(CHECKSUM_FIELD))
+                .put("query", new JsonObject().put("match_phrase", new JsonObject().put("catalog.id", catalogueId)))
+                .put("sort", new JsonArray().add(new JsonObject().put("id", "asc")));
+        if (searchAfter != null) {
+            query.put("search_after", searchAfter);
+        }
+
+        client.postAbs(elasticsearchAddress + "/" + datasetIndex + "/_search")
+                .putHeader("Content-Type", "application/json")
+                .expect(ResponsePredicate.SC_OK)
+                .sendJsonObject(query, ar -> {
+                    if (ar.succeeded()) {
+                        JsonArray hits = ar.result().bodyAsJsonObject().getJsonObject("hits", new JsonObject()).getJsonArray("hits", new JsonArray());
+                        hits.stream()
+                                .map(hit -> ((JsonObject) hit).getJsonObject("_source", new JsonObject()))
+                                .filter(source -> source.containsKey("id"))
+                                .filter(source -> catalogueId.equals(source.getJsonObject("catalog", new JsonObject()).getString("id")))
+                                .forEach(source -> consumer.accept(source.getString("id"), source.getString(CHECKSUM_FIELD)));
+                        if (hits.size() < INDEX_PAGE_SIZE) {
+                            promise.complete();
+                        } else {
+                            nextIndexPage(catalogueId, hits.getJsonObject(hits.size() - 1).getJsonArray("sort"), consumer, promise);
+                        }
+                    } else {
+                        promise.fail(ar.cause());
+                    }
+                });
+    }
+
+    /**
+     * Reads the datasets of a catalogue with the checksums of their records from the triplestore.
+     * The records are read in keyset pages of the catalogue graph, the datasets and checksums with one query per page.
+     *
+     * @param consumer gets the dataset id and the record checksum, which might be null
+     */
+    private Future<Void> scanStore(DCATAPUriRef catalogueRef, BiConsumer<String, String> consumer) {
+        return nextStorePage(catalogueRef, null, (uriRef, checksum) -> consumer.accept(DCATAPUriSchema.parseUriRef(uriRef).getId(), checksum));
+    }
+
+    private Future<Void> nextStorePage(DCATAPUriRef catalogueRef, String after, BiConsumer<String, String> consumer) {
+        return catalogueReader.members(catalogueRef, DCAT.record, after, storePageSize).compose(records -> {
+            if (records.isEmpty()) {
+                return Future.succeededFuture();
+            }
+            Future<Void> read = readChecksums(records, consumer);
+            if (records.size() < storePageSize) {
+                return read;
+            }
+            return read.compose(v -> nextStorePage(catalogueRef, records.get(records.size() - 1), consumer));
+        });
+    }
+
+    private Future<Void> readChecksums(List<String> records, BiConsumer<String, String> consumer) {
+        String values = records.stream().map(record -> "<" + record + ">").collect(Collectors.joining(" "));
+        String query = "SELECT ?dataset ?checksum WHERE { VALUES ?record { " + values + " } GRAPH ?g { ?record <"
+                + FOAF.primaryTopic + "> ?dataset . OPTIONAL { ?record <" + SPDX.checksum + ">/<" + SPDX.checksumValue + "> ?checksum } } }";
+
+        Promise<Void> promise = Promise.promise();
+        connector.queryPost(query, "application/sparql-results+json", ar -> {
+            if (ar.succeeded()) {
+                try {
+                    ResultSet set = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
+                    while (set.hasNext()) {
+                        QuerySolution solution = set.next();
+                        if (solution.contains("dataset") && solution.get("dataset").isURIResource()) {
+                            consumer.accept(solution.getResource("dataset").getURI(),
+                                    solution.contains("checksum") ? solution.getLiteral("checksum").getString() : null);
+                        }
+                    }
+                    promise.complete();
+                } catch (Exception e) {
+                    promise.fail(e);
+                }
+            } else {
+                promise.fail(ar.cause());
+            }
+        });
+        return promise.future();
+    }
+
+    private Future<JsonObject> repair(DCATAPUriRef catalogueRef, List<String> reindexUriRefs, List<String> deleteIds) {
+        Promise<JsonObject> infoPromise = Promise.promise();
+        connector.catalogueExists(catalogueRef.getCatalogueUriRef(), infoPromise);
+
+        // the fingerprints of the index service would suppress documents which only got lost in the index
+        Promise<JsonObject> forgetPromise = Promise.promise();
+        indexService.forgetFingerprints(catalogueRef.getId(), forgetPromise);
+
+        return CompositeFuture.all(infoPromise.future(), forgetPromise.future()).compose(v -> {
+            String lang = infoPromise.future().result().getString("lang", "en");
+            List<Supplier<Future<Void>>> tasks = new ArrayList<>();
+            reindexUriRefs.forEach(uriRef -> tasks.add(() -> reindex(uriRef, catalogueRef.getId(), lang)));
+            deleteIds.forEach(id -> tasks.add(() -> {
+                Promise<JsonObject> promise = Promise.promise();
+                indexService.deleteDataset(id, promise);
+                return promise.future().mapEmpty();
+            }));
+
+            Promise<Integer> promise = Promise.promise();
+            runTasks(tasks, 0, 0, promise);
+            return promise.future().map(failed -> new JsonObject().put("repaired", tasks.size() - failed).put("failed", failed));
+        });
+    }
+
+    private Future<Void> reindex(String datasetUriRef, String catalogueId, String lang) {
+        Promise<Model> graphPromise = Promise.promise();
+        connector.getGraph(DCATAPUriSchema.parseUriRef(datasetUriRef).getDatasetGraphName(), graphPromise);
+        return graphPromise.future()
+                .compose(model -> conversionPool.convertDataset(model, datasetUriRef, catalogueId, lang))
+                .compose(document -> {
+                    Promise<JsonObject> promise = Promise.promise();
+                    indexService.addDatasetPut(document, promise);
+                    return promise.future().mapEmpty();
+                });
+    }
+
+    /**
+     * Runs the tasks in windows of limited size and counts the failed ones.
+     */
+    private void runTasks(List<Supplier<Future<Void>>> tasks, int from, int failed, Promise<Integer> promise) {
+        if (from >= tasks.size()) {
+            promise.complete(failed);
+            return;
+        }
+        int to = Math.min(from + REPAIR_CONCURRENCY, tasks.size());
+        List<Future> window = tasks.subList(from, to).stream().map(Supplier::get).collect(Collectors.toList());
+        CompositeFuture.join(window).setHandler(ar -> {
+            int windowFailed = (int) window.stream().filter(Future::failed).count();
+            runTasks(tasks, to, failed + windowFailed, promise);
+        });
+    }
+
+}
@@ -31,6 +31,17 @@ final public class Constants {
 
     static public final String ENV_PIVEAU_CLUSTER_CONFIG ="PIVEAU_CLUSTER_CONFIG";
 
+    static public final String ENV_PIVEAU_HUB_STATE_DIR = "PIVEAU_HUB_STATE_DIR";
+    static public final String ENV_PIVEAU_HUB_SIDE_EFFECTS = "PIVEAU_HUB_SIDE_EFFECTS";
+    static public final String ENV_PIVEAU_HUB_CONSISTENCY_CHECK = "PIVEAU_HUB_CONSISTENCY_CHECK";
+    static public final String ENV_PIVEAU_HUB_INCREMENTAL_REINDEX = "PIVEAU_HUB_INCREMENTAL_REINDEX";
+    static public final String ENV_PIVEAU_HUB_JOBS = "PIVEAU_HUB_JOBS";
+    static public final String ENV_PIVEAU_HUB_CONVERSION_POOL = "PIVEAU_HUB_CONVERSION_POOL";
+    static public final String ENV_PIVEAU_HUB_VOCABULARY_SNAPSHOT = "PIVEAU_HUB_VOCABULARY_SNAPSHOT";
+    static public final String ENV_PIVEAU_HUB_VOCABULARY_FETCH = "PIVEAU_HUB_VOCABULARY_FETCH";
+    static public final String ENV_PIVEAU_HUB_CATALOGUE_DELETE = "PIVEAU_HUB_CATALOGUE_DELETE";
+    static public final String ENV_PIVEAU_HUB_CATALOGUE_STATISTICS = "PIVEAU_HUB_CATALOGUE_STATISTICS";
+
     public static final List<String> ALLOWED_CONTENT_TYPES = Collections.unmodifiableList(Arrays.asList(
         "application/rdf+xml",
         "application/ld+json",
@@ -0,0 +1,197 @@
+package io.piveau.hub.util;
+
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.hub.util.rdf.GraphSplitter;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reads named graphs page by page with a stable order. The quads of many graphs are selected with one query
+ * over a VALUES list of graph names and split into one model per graph.
+ * Results are read as SPARQL json, so blank node labels stay the same across pages.
+ * <p>
+ * The page size adapts to the observed response times and sizes, between a lower bound and the maximum number
+ * of result rows of the triplestore. A page shorter than requested marks the end of the result, so the upper bound
+ * must not exceed the result limit of the triplestore (ResultSetMaxRows for Virtuoso).
+ */
+public class GraphReader {
+
+    private static final int MIN_PAGE_SIZE = 1000;
+
+    private final TSConnector connector;
+
+    private final int maxPageSize;
+    private final long targetPageTime;
+    private final long maxPageBytes;
+
+    private int pageSize;
+
+    private long pages = 0;
+    private long fetched = 0;
+    private long kept = 0;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    public GraphReader(TSConnector connector) {
+        this(connector, new JsonObject());
+    }
+
+    /**
+     * @param config the triplestore config, using maxResultRows, pageTime and maxPageBytes
+     */
+    public GraphReader(TSConnector connector, JsonObject config) {
+        this.connector = connector;
+        maxPageSize = Math.max(MIN_PAGE_SIZE, config.getInteger("maxResultRows", 10000));
+        targetPageTime = config.getLong("pageTime", 2000L);
+        maxPageBytes = config.getLong("maxPageBytes", 16L * 1024 * 1024);
+        pageSize = Math.min(5000, maxPageSize);
+    }
+
+    /**
+     * @param graphName the graph to read
+     * @param filter    an optional SPARQL filter expression over ?s, ?p and ?o
+     * @return the graph, empty if it does not exist
+     */
+    public Future<Model> readGraph(String graphName, String filter) {
+        return read(List.of(graphName), filter)
+                .map(models -> models.getOrDefault(graphName, ModelFactory.createDefaultModel()));
+    }
+
+    /**
+     * @param graphNames the graphs to read
+     * @return the models by graph name, empty or missing graphs are not contained
+     */
+    public Future<Map<String, Model>> readGraphs(Collection<String> graphNames) {
+        return read(graphNames, null);
+    }
+
+    /**
+     * @return pages and triples read since start, fetched triples beyond the kept ones were duplicates
+     */
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("pages", pages)
+                .put("fetched", fetched)
+                .put("kept", kept)
+                .put("pageSize", pageSize);
+    }
+
+    private Future<Map<String, Model>> read(Collection<String> graphNames, String filter) {
+        GraphSplitter splitter = new GraphSplitter();
+        if (graphNames.isEmpty()) {
+            return Future.succeededFuture(splitter.getModels());
+        }
+
+        // the ordered subquery keeps paging stable, and Virtuoso does not limit the size of the sorted result then
+        String values = graphNames.stream().map(name -> "<" + name + ">").collect(Collectors.joining(" "));
+        String query = "SELECT ?g ?s ?p ?o WHERE { { SELECT ?g ?s ?p ?o WHERE { VALUES ?g { " + values
+                + " } GRAPH ?g { ?s ?p ?o " + (filter != null ? "FILTER (" + filter + ") " : "")
+                + "} } ORDER BY ?g ?s ?p ?o } }";
+
+        Promise<Void> promise = Promise.promise();
+        splitter.start();
+        nextPage(query, 0, splitter, promise);
+        return promise.future().map(v -> {
+            splitter.finish();
+            long size = splitter.getModels().values().stream().mapToLong(Model::size).sum();
+            kept += size;
+            if (splitter.getQuads() > size) {
+                log.debug("Fetched {} triples for {} kept triples", splitter.getQuads(), size);
+            }
+            return splitter.getModels();
+        });
+    }
+
+    private void nextPage(String query, long offset, GraphSplitter destination, Promise<Void> promise) {
+        int limit = pageSize;
+        long start = System.currentTimeMillis();
+        connector.queryPost(query + " LIMIT " + limit + " OFFSET " + offset, "application/sparql-results+json", ar -> {
+            if (ar.succeeded()) {
+                int rows;
+                try {
+                    rows = parse(ar.result().bodyAsJsonObject(), destination);
+                } catch (Exception e) {
+                    promise.fail(e);
+                    return;
+                }
+                pages++;
+                fetched += rows;
+                adapt(rows, limit, System.currentTimeMillis() - start, ar.result().body().length());
+
+                if (rows < limit) {
+                    promise.complete();
+                } else {
+                    nextPage(query, offset + rows, destination, promise);
+                }
+            } else {
+                promise.fail(ar.cause());
+            }
+        });
+    }
+
+    /**
+     * Doubles the page size for fast full pages and halves it for slow or large ones.
+     */
+    private void adapt(int rows, int limit, long duration, long bytes) {
+        if (duration > targetPageTime || bytes > maxPageBytes) {
+            pageSize = Math.max(MIN_PAGE_SIZE, limit / 2);
+        } else if (rows == limit && duration < targetPageTime / 2) {
+            pageSize = Math.min(maxPageSize, limit * 2);
+        }
+    }
+
+    /**
+     * Sends every solution with the variables g, s, p and o as quad to the destination.
+     *
+     * @return the number of solutions
+     */
+    static int parse(JsonObject results, StreamRDF destination) {
+        JsonArray bindings = results.getJsonObject("results", new JsonObject()).getJsonArray("bindings", new JsonArray());
+        for (Object item : bindings) {
+            JsonObject binding = (JsonObject) item;
+            destination.quad(Quad.create(
+                    node(binding.getJsonObject("g")),
+                    node(binding.getJsonObject("s")),
+                    node(binding.getJsonObject("p")),
+                    node(binding.getJsonObject("o"))));
+        }
+        return bindings.size();
+    }
+
+    static Node node(JsonObject term) {
+        String value = term.getString("value");
+        switch (term.getString("type")) {
+            case "uri":
+                return NodeFactory.createURI(value);
+            case "bnode":
+                return NodeFactory.createBlankNode(value);
+            case "literal":
+            case "typed-literal":
+                if (term.containsKey("xml:lang")) {
+                    return NodeFactory.createLiteral(value, term.getString("xml:lang"));
+                } else if (term.containsKey("datatype")) {
+                    return NodeFactory.createLiteral(value, TypeMapper.getInstance().getSafeTypeByName(term.getString("datatype")));
+                } else {
+                    return NodeFactory.createLiteral(value);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown term type " + term.getString("type"));
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+package io.piveau.hub.util;
+
+import io.piveau.hub.converters.DatasetToIndexConverter;
+import io.piveau.hub.util.rdf.SpatialConverter;
+import io.piveau.indexing.Indexing;
+import io.piveau.utils.ConfigHelper;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import org.apache.jena.rdf.model.Model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed pool of threads for the CPU heavy conversion of dataset models into index documents.
+ * It is shared by all verticles of the process, so conversions from reindexing and from the dataset services
+ * together use up to one thread per core and do not occupy the Vert.x worker pool.
+ * <p>
+ * The queue in front of the pool is bounded. When it is full, the conversion waits for a slot without blocking
+ * the caller and is counted as overflow, so a burst is slowed down to the pace of the pool. The number of waiting
+ * conversions is bounded as well, beyond it a conversion is rejected and fails.
+ * Results are delivered on the context of the caller.
+ */
+public class IndexConversionPool implements Shareable {
+
+    private static final String SHARED_MAP = "io.piveau.hub.conversion";
+
+    private final Vertx vertx;
+    private final ThreadPoolExecutor executor;
+    private final int queueSize;
+    private final int maxWaiting;
+    private final boolean singlePass;
+    private final ThreadLocal<DatasetToIndexConverter> converters = ThreadLocal.withInitial(DatasetToIndexConverter::new);
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong overflow = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private final long created = System.nanoTime();
+    private long sampledAt = created;
+    private long sampledBusy = 0;
+
+    private IndexConversionPool(Vertx vertx, int size, int queueSize, int maxWaiting, boolean singlePass) {
+        this.vertx = vertx;
+        this.queueSize = queueSize;
+        this.maxWaiting = maxWaiting;
+        this.singlePass = singlePass;
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "hub-conversion-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @param config the hub config, using PIVEAU_HUB_CONVERSION_POOL when the pool is created
+     * @return the pool of this Vert.x instance, created on first use
+     */
+    public static IndexConversionPool shared(Vertx vertx, JsonObject config) {
+        LocalMap<String, IndexConversionPool> map = vertx.sharedData().getLocalMap(SHARED_MAP);
+        IndexConversionPool pool = map.get(SHARED_MAP);
+        if (pool == null) {
+            synchronized (IndexConversionPool.class) {
+                pool = map.get(SHARED_MAP);
+                if (pool == null) {
+                    JsonObject poolConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_CONVERSION_POOL);
+                    int size = poolConfig.getInteger("size", 0) > 0
+                            ? poolConfig.getInteger("size")
+                            : Runtime.getRuntime().availableProcessors();
+                    int queueSize = poolConfig.getInteger("queueSize", 0) > 0 ? poolConfig.getInteger("queueSize") : size * 4;
+                    int maxWaiting = poolConfig.getInteger("maxWaiting", 0) > 0 ? poolConfig.getInteger("maxWaiting") : queueSize * 16;
+                    boolean singlePass = "hub".equals(poolConfig.getString("converter", "indexing"));
+                    pool = new IndexConversionPool(vertx, size, queueSize, maxWaiting, singlePass);
+                    map.put(SHARED_MAP, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Converts a dataset into its index document, including the record checksum.
+     * The piveau-indexing library is used unless the converter is configured as "hub". The single pass
+     * {@link DatasetToIndexConverter} files untagged literals under "en" instead of the default language.
+     *
+     * @param model         the dataset graph, it must not be changed until the conversion finished
+     * @param datasetUriRef the dataset resource in the model
+     * @param lang          the default language of the indexing library
+     * @return the index document, fails if the conversion produced nothing
+     */
+    public Future<JsonObject> convertDataset(Model model, String datasetUriRef, String catalogueId, String lang) {
+        return submit(() -> {
+            JsonObject document;
+            try {
+                document = singlePass
+                        ? converters.get().convert(model, datasetUriRef, catalogueId)
+                        : Indexing.indexingDataset(model.getResource(datasetUriRef), catalogueId, lang);
+            } catch (Exception e) {
+                throw new IllegalStateException("Indexing dataset " + datasetUriRef + " failed: " + e.getMessage(), e);
+            }
+            if (document.isEmpty()) {
+                throw new IllegalStateException("Index info for " + datasetUriRef + " was empty!");
+            }
+            return ConsistencyChecker.withChecksum(document, model);
+        });
+    }
+
+    /**
+     * Runs the task on the pool. If the queue is full, the task waits until a running task finished.
+     * Fails with a {@link RejectedExecutionException} if too many tasks are waiting already.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        Context context = vertx.getOrCreateContext();
+        Promise<T> promise = Promise.promise();
+        long queued = System.nanoTime();
+        submitted.incrementAndGet();
+        boolean accepted = enqueue(() -> {
+            long start = System.nanoTime();
+            waitNanos.addAndGet(start - queued);
+            try {
+                T result = task.call();
+                context.runOnContext(v -> promise.complete(result));
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                context.runOnContext(v -> promise.fail(e));
+            } finally {
+                busyNanos.addAndGet(System.nanoTime() - start);
+                release();
+            }
+        });
+        if (!accepted) {
+            rejected.incrementAndGet();
+            promise.fail(new RejectedExecutionException("Conversion pool is full, " + maxWaiting + " conversions are waiting"));
+        }
+        return promise.future();
+    }
+
+    /**
+     * @return false if the job was rejected, because the queue is full and too many jobs are waiting
+     */
+    private boolean enqueue(Runnable job) {
+        synchronized (waiting) {
+            if (waiting.isEmpty()) {
+                try {
+                    executor.execute(job);
+                    return true;
+                } catch (RejectedExecutionException e) {
+                    // the queue is full, wait for a finishing task
+                }
+            }
+            if (waiting.size() >= maxWaiting) {
+                return false;
+            }
+            overflow.incrementAndGet();
+            waiting.add(job);
+            return true;
+        }
+    }
+
+    /**
+     * Moves waiting tasks into the queue as long as it has room. Called by every finishing task, so a waiting task
+     * always has a task ahead of it which releases it.
+     */
+    private void release() {
+        synchronized (waiting) {
+            Runnable job;
+            while ((job = waiting.peek()) != null) {
+                try {
+                    executor.execute(job);
+                } catch (RejectedExecutionException e) {
+                    return;
+                }
+                waiting.poll();
+            }
+        }
+    }
+
+    /**
+     * @return pool size and load, utilization is the busy share of all threads since the previous call,
+     * and the cache of the shared spatial converter used by the single pass converter
+     */
+    public synchronized JsonObject metrics() {
+        long now = System.nanoTime();
+        long busy = busyNanos.get();
+        int size = executor.getMaximumPoolSize();
+        double utilization = now > sampledAt ? (double) (busy - sampledBusy) / ((now - sampledAt) * size) : 0;
+        double totalUtilization = (double) busy / ((now - created) * size);
+        sampledAt = now;
+        sampledBusy = busy;
+
+        long completed = executor.getCompletedTaskCount();
+        SpatialConverter spatial = SpatialConverter.shared();
+        return new JsonObject()
+                .put("size", size)
+                .put("active", executor.getActiveCount())
+                .put("queued", executor.getQueue().size())
+                .put("waiting", waiting())
+                .put("queueSize", queueSize)
+                .put("maxWaiting", maxWaiting)
+                .put("submitted", submitted.get())
+                .put("completed", completed)
+                .put("failed", failed.get())
+                .put("overflow", overflow.get())
+                .put("rejected", rejected.get())
+                .put("utilization", Math.round(Math.min(1, utilization) * 1000) / 1000.0)
+                .put("totalUtilization", Math.round(Math.min(1, totalUtilization) * 1000) / 1000.0)
+                .put("averageMillis", completed > 0 ? busy / completed / 1000000.0 : 0)
+                .put("averageWaitMillis", completed > 0 ? waitNanos.get() / completed / 1000000.0 : 0)
+                .put("converter", singlePass ? "hub" : "indexing")
+                .put("spatialCacheHits", spatial.hits())
+                .put("spatialCacheMisses", spatial.misses());
+    }
+
+    private int waiting() {
+        synchronized (waiting) {
+            return waiting.size();
+        }
+    }
+
+}
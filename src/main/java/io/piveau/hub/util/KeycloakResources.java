@@ -0,0 +1,112 @@
+package io.piveau.hub.util;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Removes the Keycloak resources of catalogues with the client credentials of the hub, without the request
+ * which created them. The resources are named like {@link RTPTokenHelper#createResource(String)} names them.
+ */
+public class KeycloakResources {
+
+    private final WebClient client;
+    private final String host;
+    private final String realm;
+    private final String clientId;
+    private final String clientSecret;
+    private final String baseUri;
+
+    /**
+     * @param config  the authorization process data, using keycloak_uri, keycloak_realm, clientID and client_secret
+     * @param baseUri the base uri the resource names start with
+     */
+    public KeycloakResources(WebClient client, JsonObject config, String baseUri) {
+        this.client = client;
+        this.baseUri = baseUri;
+        host = config.getString("keycloak_uri");
+        realm = "/auth/realms/" + config.getString("keycloak_realm");
+        clientId = config.getString("clientID");
+        clientSecret = config.getString("client_secret");
+    }
+
+    /**
+     * @return true if the authorization process data names a Keycloak
+     */
+    public static boolean configured(JsonObject config) {
+        return config.getString("keycloak_uri") != null && config.getString("clientID") != null;
+    }
+
+    /**
+     * Deletes all resources of the catalogue, succeeds if there are none.
+     */
+    public Future<Void> deleteCatalogue(String catalogueId) {
+        return token().compose(token -> {
+            Promise<List<String>> ids = Promise.promise();
+            client.get(443, host, realm + "/authz/protection/resource_set")
+                    .ssl(true)
+                    .addQueryParam("name", baseUri + "id/catalogue/" + catalogueId)
+                    .addQueryParam("exactName", "true")
+                    .bearerTokenAuthentication(token)
+                    .send(ar -> {
+                        if (ar.failed()) {
+                            ids.fail(ar.cause());
+                        } else if (ar.result().statusCode() != 200) {
+                            ids.fail("Keycloak resource lookup answered " + ar.result().statusCode());
+                        } else {
+                            JsonArray found = ar.result().bodyAsJsonArray();
+                            ids.complete(found.stream().map(Object::toString).collect(Collectors.toList()));
+                        }
+                    });
+            return ids.future().compose(list -> {
+                List<Future> deleted = list.stream().map(id -> delete(token, id)).collect(Collectors.toList());
+                return CompositeFuture.all(deleted).mapEmpty();
+            });
+        });
+    }
+
+    private Future<Void> delete(String token, String id) {
+        Promise<Void> promise = Promise.promise();
+        client.delete(443, host, realm + "/authz/protection/resource_set/" + id)
+                .ssl(true)
+                .bearerTokenAuthentication(token)
+                .send(ar -> {
+                    if (ar.failed()) {
+                        promise.fail(ar.cause());
+                    } else if (ar.result().statusCode() >= 300 && ar.result().statusCode() != 404) {
+                        promise.fail("Keycloak resource " + id + " delete answered " + ar.result().statusCode());
+                    } else {
+                        promise.complete();
+                    }
+                });
+        return promise.future();
+    }
+
+    private Future<String> token() {
+        Promise<String> promise = Promise.promise();
+        MultiMap form = MultiMap.caseInsensitiveMultiMap()
+                .set("grant_type", "client_credentials")
+                .set("client_id", clientId)
+                .set("client_secret", clientSecret);
+        client.post(443, host, realm + "/protocol/openid-connect/token")
+                .ssl(true)
+                .sendForm(form, ar -> {
+                    if (ar.failed()) {
+                        promise.fail(ar.cause());
+                    } else if (ar.result().statusCode() != 200) {
+                        promise.fail("Keycloak token request answered " + ar.result().statusCode());
+                    } else {
+                        promise.complete(ar.result().bodyAsJsonObject().getString("access_token"));
+                    }
+                });
+        return promise.future();
+    }
+
+}
@@ -0,0 +1,99 @@
+package io.piveau.hub.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Merkle tree over (id, checksum) pairs. Ids are distributed to the leaves by their hash, so every leaf
+ * covers a fixed hash range and two trees built from the same pairs are equal regardless of the order of insertion.
+ * A node is the sum of its children, which allows building the tree in one pass without keeping any ids.
+ */
+public class MerkleTree {
+
+    private static final int FANOUT_BITS = 4;
+    private static final int FANOUT = 1 << FANOUT_BITS;
+
+    private final int depth;
+    private final long[][] levels;
+
+    private long size = 0;
+
+    /**
+     * @param depth number of levels below the root, the tree has 16^depth leaves
+     */
+    public MerkleTree(int depth) {
+        if (depth < 1 || depth > 5) {
+            throw new IllegalArgumentException("Depth must be between 1 and 5");
+        }
+        this.depth = depth;
+        levels = new long[depth + 1][];
+        for (int level = 0; level <= depth; level++) {
+            levels[level] = new long[1 << (FANOUT_BITS * level)];
+        }
+    }
+
+    public void add(String id, String checksum) {
+        long value = hash(id + "\u0000" + (checksum != null ? checksum : ""));
+        int leaf = leaf(id);
+        for (int level = depth; level >= 0; level--) {
+            levels[level][leaf >>> (FANOUT_BITS * (depth - level))] += value;
+        }
+        size++;
+    }
+
+    public int leaf(String id) {
+        return (int) (hash(id) >>> (64 - FANOUT_BITS * depth));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long root() {
+        return levels[0][0];
+    }
+
+    /**
+     * Compares two trees of the same depth top-down and descends only into differing nodes.
+     *
+     * @return the leaves whose hash ranges differ
+     */
+    public List<Integer> diff(MerkleTree other) {
+        if (other.depth != depth) {
+            throw new IllegalArgumentException("Trees of different depth cannot be compared");
+        }
+        List<Integer> leaves = new ArrayList<>();
+        diff(other, 0, 0, leaves);
+        return leaves;
+    }
+
+    private void diff(MerkleTree other, int level, int index, List<Integer> leaves) {
+        if (levels[level][index] == other.levels[level][index]) {
+            return;
+        }
+        if (level == depth) {
+            leaves.add(index);
+        } else {
+            for (int child = index * FANOUT; child < (index + 1) * FANOUT; child++) {
+                diff(other, level + 1, child, leaves);
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash with a final avalanche step, so the high bits used for the hash ranges are well distributed.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,790 @@
+package io.piveau.hub.util;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.indexing.Indexing;
+import io.piveau.utils.experimental.DCATAPUriRef;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.*;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.jena.ext.com.google.common.collect.Lists;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.FOAF;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Reindexes catalogues from the triplestore into the search index.
+ * Up to catalogueConcurrency catalogues are processed in parallel. The graphs of a partition are fetched with one
+ * query, then its datasets flow through convert and send with at most datasetConcurrency datasets in flight.
+ * Only partitionConcurrency partitions per catalogue are held at a time, so no more datasets are fetched than can be sent.
+ * Finished partitions and catalogues are written to a checkpoint journal, an interrupted run can be resumed from there.
+ */
+public class ReindexEngine {
+
+    private static final String CHECKPOINT_LOG = "reindex.log";
+    private static final String WATERMARK_LOG = "watermarks.log";
+    private static final int CHANGES_PAGE_SIZE = 10000;
+    private static final int MAX_ERROR_SAMPLES = 20;
+    private static final String LOCK = "io.piveau.hub.reindex";
+
+    private final Vertx vertx;
+    private final TSConnector connector;
+    private final IndexService indexService;
+    private final ConsistencyChecker consistencyChecker;
+    private final AppendLog checkpoints;
+    private final ReindexWatermarks watermarks;
+    private final GraphReader graphReader;
+    private final IndexConversionPool conversionPool;
+
+    private Run current;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    private static class Run {
+        final JsonObject options;
+        final Consumer<String> out;
+        final boolean verbose;
+        final long start = System.currentTimeMillis();
+
+        // catalogue uri ref -> partition index -> first dataset of the partition, from the checkpoint of a resumed run
+        final Map<String, Map<Integer, String>> donePartitions = new HashMap<>();
+
+        // watermarks of an incremental run, as found before the run and as reached by the run
+        final boolean incremental;
+        final Map<String, JsonObject> watermarks = new HashMap<>();
+        final Map<String, JsonObject> advanced = new HashMap<>();
+
+        final Map<String, Long> counted = new HashMap<>();
+        long total = 0;
+        long indexed = 0;
+        long failed = 0;
+        long skipped = 0;
+        long deleted = 0;
+        int catalogues = 0;
+
+        final List<String> errors = new ArrayList<>();
+
+        boolean cancelled = false;
+        double maxRate;
+        double nextStart = 0;
+        long timerId = -1;
+
+        Run(JsonObject options, Consumer<String> out) {
+            this.options = options;
+            this.out = out;
+            this.verbose = options.getBoolean("verbose", false);
+            this.incremental = options.getBoolean("incremental", false);
+            this.maxRate = options.getDouble("maxRate", 0.0);
+        }
+
+        /**
+         * Keeps the first failures as samples, all of them are written to the output.
+         */
+        void error(String message) {
+            if (errors.size() < MAX_ERROR_SAMPLES) {
+                errors.add(message);
+            }
+            out.accept("\n" + message + "\n");
+        }
+
+        /**
+         * Takes a slot for the next dataset if the rate limit allows it.
+         */
+        boolean acquire() {
+            if (maxRate <= 0) {
+                return true;
+            }
+            double now = System.currentTimeMillis();
+            if (nextStart > now) {
+                return false;
+            }
+            nextStart = Math.max(now, nextStart) + 1000.0 / maxRate;
+            return true;
+        }
+
+        double rate() {
+            long elapsed = System.currentTimeMillis() - start;
+            return elapsed > 0 ? (indexed + failed) * 1000.0 / elapsed : 0;
+        }
+
+        JsonObject progress() {
+            double rate = rate();
+            long remaining = Math.max(0, total - indexed - failed - skipped);
+            JsonObject progress = new JsonObject()
+                    .put("total", total)
+                    .put("indexed", indexed)
+                    .put("failed", failed)
+                    .put("skipped", skipped)
+                    .put("deleted", deleted)
+                    .put("catalogues", catalogues)
+                    .put("errorSamples", new JsonArray(new ArrayList<>(errors)))
+                    .put("maxRate", maxRate)
+                    .put("rate", Math.round(rate * 10) / 10.0)
+                    .put("duration", System.currentTimeMillis() - start);
+            if (rate > 0) {
+                progress.put("eta", Math.round(remaining / rate));
+            }
+            return progress;
+        }
+
+        String progressLine() {
+            JsonObject progress = progress();
+            return String.format("Indexed %d of %d datasets (%d failed, %d skipped), %.1f datasets/s, ETA %s",
+                    indexed, total, failed, skipped, progress.getDouble("rate"),
+                    progress.containsKey("eta") ? Duration.ofSeconds(progress.getLong("eta")).toString() : "unknown");
+        }
+    }
+
+    private static class Window<T> {
+        final Iterator<T> items;
+        final int limit;
+        final Function<T, Future<Void>> task;
+        final Promise<Integer> promise = Promise.promise();
+        int inFlight = 0;
+        int failed = 0;
+
+        // only dataset windows count against the rate limit
+        boolean throttled = false;
+        boolean waiting = false;
+
+        Window(Iterator<T> items, int limit, Function<T, Future<Void>> task) {
+            this.items = items;
+            this.limit = Math.max(1, limit);
+            this.task = task;
+        }
+    }
+
+    public ReindexEngine(Vertx vertx, TSConnector connector, GraphReader graphReader, IndexService indexService,
+                         ConsistencyChecker consistencyChecker, IndexConversionPool conversionPool, String stateDir) {
+        this.vertx = vertx;
+        this.connector = connector;
+        this.graphReader = graphReader;
+        this.indexService = indexService;
+        this.consistencyChecker = consistencyChecker;
+        this.conversionPool = conversionPool;
+        this.checkpoints = AppendLog.open(stateDir, CHECKPOINT_LOG);
+        this.watermarks = new ReindexWatermarks(AppendLog.open(stateDir, WATERMARK_LOG));
+    }
+
+    public static JsonObject defaults() {
+        return new JsonObject()
+                .put("catalogueConcurrency", 2)
+                .put("datasetConcurrency", 16)
+                .put("partitionSize", 1000)
+                .put("partitionConcurrency", 2)
+                .put("force", false)
+                .put("verbose", false)
+                .put("maxRate", 0)
+                .put("progressInterval", 5000);
+    }
+
+    /**
+     * Starts a new run, the checkpoint of a previous run is discarded.
+     *
+     * @param catalogueUriRefs the catalogues to reindex
+     * @param options          overrides of the {@link #defaults()}
+     * @param out              receives progress messages
+     * @return a summary of the run
+     */
+    public Future<JsonObject> run(List<String> catalogueUriRefs, JsonObject options, Consumer<String> out) {
+        Run run = new Run(defaults().mergeIn(options), out);
+        return start(run, () -> {
+            JsonObject start = new JsonObject()
+                    .put("op", "start")
+                    .put("catalogues", new JsonArray(new ArrayList<>(catalogueUriRefs)))
+                    .put("options", run.options)
+                    .put("time", Instant.now().toString());
+            return blocking(() -> {
+                checkpoints.rewrite(List.of(start));
+                return null;
+            }).compose(v -> execute(run, catalogueUriRefs));
+        });
+    }
+
+    /**
+     * Continues the last run if it did not finish. Finished catalogues and partitions are skipped.
+     * The partition size of the interrupted run is kept, other options can be overridden.
+     */
+    public Future<JsonObject> resume(JsonObject options, Consumer<String> out) {
+        Run run = new Run(defaults().mergeIn(options), out);
+        return start(run, () -> blocking(checkpoints::readAll).compose(entries -> {
+            if (entries.isEmpty() || !"start".equals(entries.get(0).getString("op"))
+                    || "finish".equals(entries.get(entries.size() - 1).getString("op"))) {
+                return Future.failedFuture("No interrupted reindex to resume");
+            }
+
+            JsonObject start = entries.get(0);
+            Set<String> doneCatalogues = new HashSet<>();
+            entries.forEach(entry -> {
+                if ("partition".equals(entry.getString("op"))) {
+                    run.donePartitions.computeIfAbsent(entry.getString("catalogue"), c -> new HashMap<>())
+                            .put(entry.getInteger("partition"), entry.getString("first"));
+                } else if ("catalogue".equals(entry.getString("op"))) {
+                    doneCatalogues.add(entry.getString("catalogue"));
+                }
+            });
+
+            JsonObject startOptions = start.getJsonObject("options", new JsonObject());
+            startOptions.forEach(option -> {
+                if (!options.containsKey(option.getKey())) {
+                    run.options.put(option.getKey(), option.getValue());
+                }
+            });
+            run.options.put("partitionSize", startOptions.getInteger("partitionSize", defaults().getInteger("partitionSize")));
+            run.maxRate = run.options.getDouble("maxRate", 0.0);
+            List<String> catalogues = start.getJsonArray("catalogues", new JsonArray()).stream()
+                    .map(Object::toString)
+                    .filter(catalogue -> !doneCatalogues.contains(catalogue))
+                    .collect(Collectors.toList());
+
+            out.accept("Resuming reindex started at " + start.getString("time") + ", " + doneCatalogues.size()
+                    + " catalogues already finished, " + catalogues.size() + " remaining\n");
+            return execute(run, catalogues);
+        }));
+    }
+
+    /**
+     * Reindexes only the datasets whose records were modified since the watermark of their catalogue.
+     * Catalogues without a watermark are reindexed completely. The watermarks of all catalogues which were
+     * reindexed without failures are advanced together when the run finishes, a failed or cancelled run
+     * is simply repeated by the next one. Deleted datasets are not found this way, they are removed
+     * from the index when they are deleted.
+     *
+     * @param catalogueUriRefs the catalogues to reindex
+     * @param options          overrides of the {@link #defaults()}
+     * @param out              receives progress messages
+     * @return a summary of the run
+     */
+    public Future<JsonObject> runIncremental(List<String> catalogueUriRefs, JsonObject options, Consumer<String> out) {
+        Run run = new Run(defaults().mergeIn(options).put("incremental", true), out);
+        return start(run, () -> blocking(watermarks::load).compose(loaded -> {
+            run.watermarks.putAll(loaded);
+            return execute(run, catalogueUriRefs);
+        }));
+    }
+
+    /**
+     * Stops starting new datasets, the datasets in flight are finished. The run can be resumed later.
+     *
+     * @return true if a run was cancelled
+     */
+    public boolean cancel() {
+        if (current != null && !current.cancelled) {
+            current.cancelled = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Limits the current run to the given number of datasets per second.
+     *
+     * @param maxRate datasets per second, 0 for no limit
+     * @return true if a run was throttled
+     */
+    public boolean throttle(double maxRate) {
+        if (current != null) {
+            current.maxRate = Math.max(0, maxRate);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the progress of the current run, or null if there is none
+     */
+    public JsonObject progress() {
+        return current != null ? current.progress().put("conversion", conversionPool.metrics()) : null;
+    }
+
+    /**
+     * Runs one engine run at a time. All engines of the process share a lock, because they share the checkpoint
+     * and watermark journals of the state directory.
+     */
+    private Future<JsonObject> start(Run run, Supplier<Future<JsonObject>> body) {
+        if (current != null) {
+            return Future.failedFuture("A reindex is already running");
+        }
+        current = run;
+
+        Promise<JsonObject> promise = Promise.promise();
+        vertx.sharedData().getLocalLockWithTimeout(LOCK, 100, lr -> {
+            if (lr.failed()) {
+                current = null;
+                promise.fail("A reindex is already running");
+                return;
+            }
+            body.get().setHandler(ar -> {
+                lr.result().release();
+                current = null;
+                promise.handle(ar);
+            });
+        });
+        return promise.future();
+    }
+
+    private Future<JsonObject> execute(Run run, List<String> catalogues) {
+        Promise<JsonObject> promise = Promise.promise();
+        run.timerId = vertx.setPeriodic(run.options.getLong("progressInterval"), id ->
+                run.out.accept(run.verbose ? run.progressLine() + "\n" : "\r" + run.progressLine()));
+
+        // the number of changed datasets is only known when they are listed
+        Future<Map<String, Long>> counts = run.incremental ? Future.succeededFuture(new HashMap<>()) : countDatasets();
+        counts.compose(counted -> {
+            catalogues.forEach(catalogue -> {
+                long count = counted.getOrDefault(catalogue, 0L);
+                run.counted.put(catalogue, count);
+                run.total += count;
+            });
+            Window<String> window = new Window<>(catalogues.iterator(), run.options.getInteger("catalogueConcurrency"),
+                    catalogue -> run.incremental ? indexChanges(run, catalogue) : indexCatalogue(run, catalogue));
+            pump(run, window);
+            return window.promise.future();
+        }).compose(failedCatalogues -> {
+            if (run.cancelled) {
+                return Future.<JsonObject>failedFuture(run.incremental
+                        ? "Reindex cancelled, watermarks not advanced"
+                        : "Reindex cancelled, continue with --resume");
+            }
+            Future<Void> finished = run.incremental
+                    ? blocking(() -> {
+                        watermarks.advance(run.advanced);
+                        return null;
+                    })
+                    : checkpoint(new JsonObject().put("op", "finish").put("time", Instant.now().toString()));
+            return finished.map(v -> run.progress()
+                    .put("failedCatalogues", failedCatalogues)
+                    .put("advancedWatermarks", run.advanced.size())
+                    .put("triples", graphReader.stats()));
+        }).setHandler(ar -> {
+            vertx.cancelTimer(run.timerId);
+            if (ar.succeeded()) {
+                log.info("Reindex finished: {}", ar.result().encode());
+            } else {
+                log.warn("Reindex stopped: {}", ar.cause().getMessage());
+            }
+            promise.handle(ar);
+        });
+        return promise.future();
+    }
+
+    private Future<Void> indexCatalogue(Run run, String catalogueUriRef) {
+        long start = System.currentTimeMillis();
+        DCATAPUriRef catalogueRef = DCATAPUriSchema.parseUriRef(catalogueUriRef);
+        Map<Integer, String> donePartitions = run.donePartitions.getOrDefault(catalogueUriRef, Collections.emptyMap());
+        run.out.accept("Start indexing " + catalogueRef.getId() + "\n");
+
+        Promise<JsonObject> forgetPromise = Promise.promise();
+        if (run.options.getBoolean("force") && donePartitions.isEmpty()) {
+            indexService.forgetFingerprints(catalogueRef.getId(), forgetPromise);
+        } else {
+            forgetPromise.complete();
+        }
+
+        Future<Void> result = forgetPromise.future()
+                .compose(v -> graphReader.readGraph(catalogueRef.getCatalogueGraphName(), "?p != <" + DCAT.record + ">"))
+                .compose(catalogueModel -> {
+                    Promise<JsonObject> cataloguePromise = Promise.promise();
+                    indexService.addCatalog(Indexing.indexingCatalogue(catalogueModel.getResource(catalogueRef.getCatalogueUriRef())), cataloguePromise);
+                    return cataloguePromise.future()
+                            .recover(cause -> Future.failedFuture("Indexing metadata of catalogue " + catalogueRef.getId() + " failed: " + cause.getMessage()))
+                            .map(catalogueModel);
+                })
+                .compose(catalogueModel -> {
+                    List<String> datasets = catalogueModel.listObjectsOfProperty(DCAT.dataset)
+                            .filterKeep(RDFNode::isURIResource)
+                            .mapWith(node -> node.asResource().getURI())
+                            .toList();
+                    // a stable order keeps partition indexes meaningful for resuming
+                    Collections.sort(datasets);
+
+                    run.total += datasets.size() - run.counted.getOrDefault(catalogueUriRef, 0L);
+                    run.counted.put(catalogueUriRef, (long) datasets.size());
+
+                    List<List<String>> partitions = Lists.partition(datasets, run.options.getInteger("partitionSize"));
+                    List<Integer> pending = new ArrayList<>();
+                    for (int i = 0; i < partitions.size(); i++) {
+                        if (partitions.get(i).get(0).equals(donePartitions.get(i))) {
+                            run.skipped += partitions.get(i).size();
+                        } else {
+                            pending.add(i);
+                        }
+                    }
+                    run.out.accept("Start indexing " + datasets.size() + " datasets of " + catalogueRef.getId()
+                            + " in " + pending.size() + " of " + partitions.size() + " partitions\n");
+
+                    return indexPartitions(run, catalogueRef, partitions, pending).compose(failed -> {
+                        if (run.cancelled) {
+                            return Future.<Void>failedFuture("cancelled");
+                        }
+                        indexService.refreshIndex(rr -> {
+                            if (rr.failed()) {
+                                run.out.accept("Refreshing index failed: " + rr.cause().getMessage() + "\n");
+                            }
+                        });
+                        return removeObsolete(run, catalogueRef, new HashSet<>(datasets)).compose(v -> {
+                            if (failed > 0) {
+                                return Future.<Void>failedFuture(failed + " partitions with failed datasets");
+                            }
+                            return checkpoint(new JsonObject().put("op", "catalogue").put("catalogue", catalogueUriRef));
+                        });
+                    });
+                });
+
+        Promise<Void> promise = Promise.promise();
+        result.setHandler(ar -> {
+            if (ar.succeeded()) {
+                run.catalogues++;
+                run.out.accept("\nReindex of " + catalogueRef.getId() + " finished. Duration "
+                        + Duration.ofMillis(System.currentTimeMillis() - start) + "\n");
+            } else {
+                run.error("Reindex of " + catalogueRef.getId() + " failed: " + ar.cause().getMessage());
+            }
+            promise.handle(ar);
+        });
+        return promise.future();
+    }
+
+    private Future<Void> indexChanges(Run run, String catalogueUriRef) {
+        long start = System.currentTimeMillis();
+        DCATAPUriRef catalogueRef = DCATAPUriSchema.parseUriRef(catalogueUriRef);
+        JsonObject watermark = run.watermarks.get(catalogueUriRef);
+        if (watermark == null) {
+            run.out.accept("No watermark for " + catalogueRef.getId() + ", indexing all datasets\n");
+        }
+
+        List<String> changed = new ArrayList<>();
+        Future<Void> result = listChanges(catalogueRef, watermark, changed::add).compose(reached -> {
+            run.total += changed.size();
+            run.out.accept(changed.size() + " datasets of " + catalogueRef.getId() + " changed since "
+                    + (watermark != null ? watermark.getString("value") : "ever") + "\n");
+
+            List<List<String>> partitions = Lists.partition(changed, run.options.getInteger("partitionSize"));
+            List<Integer> pending = new ArrayList<>();
+            for (int i = 0; i < partitions.size(); i++) {
+                pending.add(i);
+            }
+            return indexPartitions(run, catalogueRef, partitions, pending).compose(failed -> {
+                if (failed > 0 || run.cancelled) {
+                    return Future.<Void>failedFuture(failed + " partitions with failed datasets");
+                }
+                if (reached != null) {
+                    run.advanced.put(catalogueUriRef, reached);
+                }
+                return Future.<Void>succeededFuture();
+            });
+        });
+
+        Promise<Void> promise = Promise.promise();
+        result.setHandler(ar -> {
+            if (ar.succeeded()) {
+                run.catalogues++;
+                run.out.accept("\nIncremental reindex of " + catalogueRef.getId() + " finished. Duration "
+                        + Duration.ofMillis(System.currentTimeMillis() - start) + "\n");
+            } else {
+                run.error("Incremental reindex of " + catalogueRef.getId() + " failed: " + ar.cause().getMessage());
+            }
+            promise.handle(ar);
+        });
+        return promise.future();
+    }
+
+    /**
+     * Lists the datasets of a catalogue whose records were modified at or after the watermark, ordered by modification.
+     * Pages are read with a keyset on (modified, dataset), so no page has to skip the previous ones.
+     * Records with exactly the watermark are listed again, a record written in the same instant is not lost that way.
+     * Modifications are compared by their lexical form, a typed comparison fails between datatypes like xsd:date
+     * and xsd:dateTime. Records whose modification is no ISO 8601 date are listed on every run and logged.
+     *
+     * @param watermark the watermark, or null for all datasets
+     * @return the latest modification found, the watermark if nothing changed
+     */
+    private Future<JsonObject> listChanges(DCATAPUriRef catalogueRef, JsonObject watermark, Consumer<String> consumer) {
+        if (watermark != null && !ReindexWatermarks.comparable(watermark.getString("value"))) {
+            log.warn("Watermark \"{}\" of {} is no ISO 8601 date, listing all datasets", watermark.getString("value"), catalogueRef.getId());
+            watermark = null;
+        }
+        Promise<JsonObject> promise = Promise.promise();
+        nextChanges(catalogueRef, watermark, null, null, watermark, consumer, promise);
+        return promise.future();
+    }
+
+    private void nextChanges(DCATAPUriRef catalogueRef, JsonObject watermark, String lastModified, String lastDataset,
+                             JsonObject reached, Consumer<String> consumer, Promise<JsonObject> promise) {
+        StringBuilder query = new StringBuilder("SELECT DISTINCT ?dataset ?modified WHERE { GRAPH <")
+                .append(catalogueRef.getCatalogueGraphName()).append("> { <").append(catalogueRef.getCatalogueUriRef())
+                .append("> <").append(DCAT.record).append("> ?record } GRAPH ?g { ?record <").append(FOAF.primaryTopic)
+                .append("> ?dataset ; <").append(DCTerms.modified).append("> ?modified } ");
+        if (watermark != null) {
+            query.append("FILTER (STR(?modified) >= ").append(ReindexWatermarks.lexical(watermark.getString("value")))
+                    .append(" || !REGEX(STR(?modified), \"").append(ReindexWatermarks.ISO_DATE_PATTERN).append("\")) ");
+        }
+        if (lastModified != null) {
+            String last = ReindexWatermarks.lexical(lastModified);
+            query.append("FILTER (STR(?modified) > ").append(last).append(" || (STR(?modified) = ").append(last)
+                    .append(" && STR(?dataset) > \"").append(lastDataset).append("\")) ");
+        }
+        query.append("} ORDER BY STR(?modified) STR(?dataset) LIMIT ").append(CHANGES_PAGE_SIZE);
+
+        connector.query(query.toString(), "application/sparql-results+json", ar -> {
+            if (ar.failed()) {
+                promise.fail(ar.cause());
+                return;
+            }
+            int count = 0;
+            JsonObject modified = reached;
+            String cursor = lastModified;
+            String dataset = lastDataset;
+            try {
+                ResultSet set = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
+                while (set.hasNext()) {
+                    QuerySolution solution = set.next();
+                    count++;
+                    if (solution.contains("dataset") && solution.get("dataset").isURIResource() && solution.contains("modified")) {
+                        dataset = solution.getResource("dataset").getURI();
+                        Literal literal = solution.getLiteral("modified");
+                        cursor = literal.getLexicalForm();
+                        if (!ReindexWatermarks.comparable(cursor)) {
+                            log.warn("Modification \"{}\" of {} is no ISO 8601 date, it is reindexed on every incremental run", cursor, dataset);
+                        } else if (modified == null || cursor.compareTo(modified.getString("value")) > 0) {
+                            // only comparable values advance the watermark, others could sort after every date
+                            modified = new JsonObject().put("value", cursor);
+                            if (literal.getDatatypeURI() != null && literal.getLanguage().isEmpty()) {
+                                modified.put("datatype", literal.getDatatypeURI());
+                            }
+                        }
+                        consumer.accept(dataset);
+                    }
+                }
+            } catch (Exception e) {
+                promise.fail(e);
+                return;
+            }
+            if (count < CHANGES_PAGE_SIZE) {
+                promise.complete(modified);
+            } else {
+                nextChanges(catalogueRef, watermark, cursor, dataset, modified, consumer, promise);
+            }
+        });
+    }
+
+    /**
+     * Indexes the pending partitions with up to partitionConcurrency partitions in flight, so the next partition
+     * is fetched while the datasets of the previous one are converted and sent.
+     * A partition is checkpointed when all its datasets were indexed successfully.
+     *
+     * @return the number of partitions with failed datasets
+     */
+    private Future<Integer> indexPartitions(Run run, DCATAPUriRef catalogueRef, List<List<String>> partitions, List<Integer> pending) {
+        Window<Integer> window = new Window<>(pending.iterator(), run.options.getInteger("partitionConcurrency"), partition -> {
+            List<String> datasets = partitions.get(partition);
+            return fetchPartition(run, catalogueRef, partition, datasets).compose(models -> {
+                Window<String> datasetWindow = new Window<>(datasets.iterator(), run.options.getInteger("datasetConcurrency"),
+                        datasetUriRef -> indexDataset(run, catalogueRef, datasetUriRef, models.remove(datasetUriRef)));
+                datasetWindow.throttled = true;
+                pump(run, datasetWindow);
+                return datasetWindow.promise.future();
+            }).compose(failed -> {
+                if (failed > 0 || run.cancelled) {
+                    return Future.<Void>failedFuture(failed + " datasets of partition " + partition + " failed");
+                }
+                if (run.verbose) {
+                    run.out.accept("Partition " + partition + " of " + catalogueRef.getId() + " finished\n");
+                }
+                if (run.incremental) {
+                    return Future.<Void>succeededFuture();
+                }
+                return checkpoint(new JsonObject()
+                        .put("op", "partition")
+                        .put("catalogue", catalogueRef.getCatalogueUriRef())
+                        .put("partition", partition)
+                        .put("first", datasets.get(0)));
+            });
+        });
+        pump(run, window);
+        return window.promise.future();
+    }
+
+    /**
+     * Reads the graphs of all datasets of a partition at once. If that fails, the datasets are fetched one by one.
+     */
+    private Future<Map<String, Model>> fetchPartition(Run run, DCATAPUriRef catalogueRef, int partition, List<String> datasets) {
+        long start = System.currentTimeMillis();
+        return graphReader.readGraphs(datasets).map(models -> {
+            if (run.verbose) {
+                run.out.accept("Fetched " + models.size() + " of " + datasets.size() + " datasets of partition " + partition
+                        + " in " + (System.currentTimeMillis() - start) + " ms\n");
+            }
+            return models;
+        }).recover(cause -> {
+            log.warn("Fetching partition {} of {} failed, falling back to single datasets: {}", partition, catalogueRef.getId(), cause.getMessage());
+            return Future.<Map<String, Model>>succeededFuture(new HashMap<>());
+        });
+    }
+
+    /**
+     * @param prefetched the dataset graph if it was read with its partition, otherwise it is fetched on its own
+     */
+    private Future<Void> indexDataset(Run run, DCATAPUriRef catalogueRef, String datasetUriRef, Model prefetched) {
+        if (run.verbose) {
+            run.out.accept("Index dataset " + datasetUriRef + "\n");
+        }
+        Future<Model> datasetFuture = prefetched != null
+                ? Future.succeededFuture(prefetched)
+                : graphReader.readGraph(datasetUriRef, null);
+
+        Promise<Void> promise = Promise.promise();
+        datasetFuture
+                .recover(cause -> Future.failedFuture("Failed to fetch " + datasetUriRef + ": " + cause.getMessage()))
+                .compose(dataset -> convert(dataset, datasetUriRef, catalogueRef.getId()))
+                .compose(indexInfo -> {
+                    Promise<JsonObject> sendPromise = Promise.promise();
+                    indexService.addDatasetPut(indexInfo, sendPromise);
+                    return sendPromise.future()
+                            .recover(cause -> Future.failedFuture("Sent indexed dataset " + datasetUriRef + " failed: " + cause.getMessage()));
+                })
+                .<Void>mapEmpty()
+                .setHandler(ar -> {
+                    if (ar.succeeded()) {
+                        run.indexed++;
+                        if (run.verbose) {
+                            run.out.accept("Dataset " + datasetUriRef + " indexed successfully\n");
+                        }
+                    } else {
+                        run.failed++;
+                        run.error(ar.cause().getMessage());
+                    }
+                    promise.handle(ar);
+                });
+        return promise.future();
+    }
+
+    /**
+     * Converts the dataset graph into its index document on the conversion pool, the event loop only moves data.
+     */
+    private Future<JsonObject> convert(Model dataset, String datasetUriRef, String catalogueId) {
+        return conversionPool.convertDataset(dataset, datasetUriRef, catalogueId, "de");
+    }
+
+    /**
+     * Deletes the datasets of a catalogue which are in the index but not in the triplestore.
+     */
+    private Future<Void> removeObsolete(Run run, DCATAPUriRef catalogueRef, Set<String> datasetUriRefs) {
+        Set<String> storeIds = datasetUriRefs.stream()
+                .map(uriRef -> DCATAPUriSchema.parseUriRef(uriRef).getId())
+                .collect(Collectors.toSet());
+        List<String> obsolete = new ArrayList<>();
+        return consistencyChecker.scanIndex(catalogueRef.getId(), (id, checksum) -> {
+            if (!storeIds.contains(id)) {
+                obsolete.add(id);
+            }
+        }).compose(v -> {
+            run.out.accept("Number of obsolete datasets in " + catalogueRef.getId() + " index: " + obsolete.size() + "\n");
+            Window<String> window = new Window<>(obsolete.iterator(), run.options.getInteger("datasetConcurrency"), id -> {
+                Promise<JsonObject> promise = Promise.promise();
+                indexService.deleteDataset(id, promise);
+                return promise.future().<Void>map(deleted -> {
+                    run.deleted++;
+                    return null;
+                });
+            });
+            pump(run, window);
+            return window.promise.future().mapEmpty();
+        });
+    }
+
+    /**
+     * Starts tasks until the window is full, every finished task makes room for the next one.
+     */
+    private <T> void pump(Run run, Window<T> window) {
+        while (window.inFlight < window.limit && window.items.hasNext() && !run.cancelled) {
+            if (window.throttled && !run.acquire()) {
+                if (!window.waiting) {
+                    window.waiting = true;
+                    long delay = Math.max(1, (long) run.nextStart - System.currentTimeMillis());
+                    vertx.setTimer(delay, id -> {
+                        window.waiting = false;
+                        pump(run, window);
+                    });
+                }
+                return;
+            }
+            window.inFlight++;
+            window.task.apply(window.items.next()).setHandler(ar -> {
+                window.inFlight--;
+                if (ar.failed()) {
+                    window.failed++;
+                }
+                pump(run, window);
+            });
+        }
+        if (window.inFlight == 0 && (!window.items.hasNext() || run.cancelled)) {
+            window.promise.tryComplete(window.failed);
+        }
+    }
+
+    /**
+     * Counts the datasets of all catalogues up front for the ETA. Without counts the total grows with every catalogue.
+     */
+    private Future<Map<String, Long>> countDatasets() {
+        String query = "SELECT ?catalogue (COUNT(?dataset) AS ?count) WHERE { ?catalogue a <" + DCAT.Catalog + "> ; <"
+                + DCAT.dataset + "> ?dataset } GROUP BY ?catalogue";
+        Promise<Map<String, Long>> promise = Promise.promise();
+        connector.query(query, "application/sparql-results+json", ar -> {
+            Map<String, Long> counts = new HashMap<>();
+            if (ar.succeeded()) {
+                try {
+                    ResultSet set = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
+                    while (set.hasNext()) {
+                        QuerySolution solution = set.next();
+                        counts.put(solution.getResource("catalogue").getURI(), solution.getLiteral("count").getLong());
+                    }
+                } catch (Exception e) {
+                    log.warn("Counting datasets failed: {}", e.getMessage());
+                }
+            } else {
+                log.warn("Counting datasets failed: {}", ar.cause().getMessage());
+            }
+            promise.complete(counts);
+        });
+        return promise.future();
+    }
+
+    private Future<Void> checkpoint(JsonObject entry) {
+        return blocking(() -> {
+            checkpoints.append(entry);
+            return null;
+        });
+    }
+
+    private <T> Future<T> blocking(Callable<T> task) {
+        Promise<T> promise = Promise.promise();
+        vertx.<T>executeBlocking(future -> {
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        }, true, promise);
+        return promise.future();
+    }
+
+}
@@ -0,0 +1,67 @@
+package io.piveau.hub.util;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The latest record modification per catalogue which was already reindexed.
+ * A watermark is kept as the literal found in the store, with lexical form and datatype. It is compared in SPARQL
+ * by its lexical form, ISO 8601 dates and date times of any datatype order correctly that way.
+ */
+class ReindexWatermarks {
+
+    /**
+     * Pattern of comparable lexical forms, the same in Java and SPARQL.
+     */
+    static final String ISO_DATE_PATTERN = "^[0-9]{4}-[0-9]{2}-[0-9]{2}";
+
+    private static final Pattern ISO_DATE = Pattern.compile(ISO_DATE_PATTERN);
+
+    private final AppendLog journal;
+
+    ReindexWatermarks(AppendLog journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return the watermarks by catalogue uri ref, each with value and datatype
+     */
+    Map<String, JsonObject> load() {
+        Map<String, JsonObject> watermarks = new HashMap<>();
+        journal.readAll().forEach(entry -> watermarks.put(entry.getString("catalogue"), entry.getJsonObject("watermark")));
+        return watermarks;
+    }
+
+    /**
+     * Replaces the watermarks of the given catalogues in one atomic rewrite, the others are kept.
+     */
+    void advance(Map<String, JsonObject> advanced) {
+        if (advanced.isEmpty()) {
+            return;
+        }
+        Map<String, JsonObject> watermarks = load();
+        watermarks.putAll(advanced);
+        journal.rewrite(watermarks.entrySet().stream()
+                .map(entry -> new JsonObject().put("catalogue", entry.getKey()).put("watermark", entry.getValue()))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the lexical form as SPARQL string literal
+     */
+    static String lexical(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * @return true if the lexical form starts with an ISO 8601 date and can be compared with others
+     */
+    static boolean comparable(String value) {
+        return ISO_DATE.matcher(value).find();
+    }
+
+}
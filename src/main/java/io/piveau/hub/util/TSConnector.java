@@ -233,6 +233,23 @@ public class TSConnector {
         });
     }
 
+    public void getCatalogueUriRefForDataset(String datasetUriRef, Handler<AsyncResult<String>> handler) {
+        String query = "SELECT ?c WHERE { GRAPH ?c { ?c <" + DCAT.dataset + "> <" + datasetUriRef + "> } } LIMIT 1";
+
+        query(query, "application/sparql-results+json", ar -> {
+            if (ar.succeeded()) {
+                ResultSet set = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
+                if (set.hasNext()) {
+                    handler.handle(Future.succeededFuture(set.next().getResource("c").getURI()));
+                } else {
+                    handler.handle(Future.failedFuture(new ReplyException(ReplyFailure.RECIPIENT_FAILURE, 404, "No catalogue found for " + datasetUriRef)));
+                }
+            } else {
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+    }
+
     public void getGraph(String graphName, Handler<AsyncResult<Model>> handler) {
         HttpRequest<Buffer> request = client
                 .getAbs(uri + dataEndpoint)
@@ -386,6 +403,23 @@ public class TSConnector {
         });
     }
 
+    /**
+     * Replaces the description of a catalogue with one update. The dataset and record links of the catalogue stay
+     * untouched. Only the catalogue subject and the resources it describes, like its publisher, are matched,
+     * down to two levels, so the update does not scan the links of the catalogue.
+     *
+     * @param metadata the new description, dataset and record links in it are added
+     */
+    public void replaceCatalogueMetadata(String catalogueUriRef, Model metadata, Handler<AsyncResult<HttpResponse<Buffer>>> handler) {
+        String described = "<" + catalogueUriRef + "> ?cp ?s FILTER (?cp NOT IN (<" + DCAT.dataset + ">, <" + DCAT.record + ">) && !isLiteral(?s) && ?s != <" + catalogueUriRef + ">)";
+        String update = "WITH <" + catalogueUriRef + "> DELETE { ?n ?p ?o } WHERE { " + described + " ?s ?sp ?n FILTER (!isLiteral(?n) && ?n != <" + catalogueUriRef + ">) ?n ?p ?o } ;\n"
+                + "WITH <" + catalogueUriRef + "> DELETE { ?s ?p ?o } WHERE { " + described + " ?s ?p ?o } ;\n"
+                + "WITH <" + catalogueUriRef + "> DELETE { <" + catalogueUriRef + "> ?p ?o } WHERE { <" + catalogueUriRef + "> ?p ?o FILTER (?p NOT IN (<"
+                + DCAT.dataset + ">, <" + DCAT.record + ">)) } ;\n"
+                + "INSERT DATA { GRAPH <" + catalogueUriRef + "> {\n" + JenaUtils.write(metadata, Lang.NTRIPLES) + "} }";
+        updatePost(update, handler);
+    }
+
     public void removeDatasetFromCatalogue(String datasetUri, String recordUri, Handler<AsyncResult<HttpResponse<Buffer>>> handler) {
         String catalogueQuery = "SELECT DISTINCT ?catalogue { GRAPH ?catalogue { ?s <" + DCAT.dataset + "> <" + datasetUri + "> } }";
         PiveauLogger log = PiveauLoggerFactory.getDatasetLogger(DCATAPUriSchema.parseUriRef(datasetUri).getId(), getClass());
@@ -551,151 +585,6 @@ public class TSConnector {
         });
     }
 
-    public void getDatasetsAndRecords(String catalogue, Handler<AsyncResult<Map<String, List<Resource>>>> handler) {
-        PiveauLogger log = PiveauLoggerFactory.getCatalogueLogger(DCATAPUriSchema.parseUriRef(catalogue).getId(), getClass());
-        String datasetQuery = "SELECT DISTINCT ?dataset  \n" +
-                "{ \n" +
-                "\tGRAPH  <" + catalogue + "> \n" +
-                "\t{ \n" +
-                "\t\t<" + catalogue + "> <" + DCAT.dataset + "> ?dataset.\n" +
-                "\t\t\n" +
-                "\t} \n" +
-                "}";
-
-        String recordQuery = "SELECT DISTINCT  ?record \n" +
-                "{ \n" +
-                "\tGRAPH  <" + catalogue + "> \n" +
-                "\t{ \n" +
-                "\t\t<" + catalogue + "> <" + DCAT.record + "> ?record.\n" +
-                "\t\t\n" +
-                "\t} \n" +
-                "}";
-
-
-        String datasetCountQuery = "SELECT (count(DISTINCT ?ds) as ?count) { GRAPH  <" + catalogue + "> { <" + catalogue + "> <" + DCAT.dataset.getURI() + "> ?ds.} }";
-        String recordCountQuery = "SELECT (count(DISTINCT ?ds) as ?count) { GRAPH  <" + catalogue + "> { <" + catalogue + "> <" + DCAT.record.getURI() + "> ?ds.} }";
-
-        Future<List<Resource>> dsFuture = Future.future();
-        Future<List<Resource>> rsFuture = Future.future();
-        Map<String, List<Resource>> resourceList = new HashMap<>();
-        resourceList.put("dataset", new ArrayList<>());
-        resourceList.put("record", new ArrayList<>());
-
-        //get datasets
-        //log.info("datasetCountQuery: {}", datasetCountQuery);
-        query(datasetCountQuery, "application/json", ar -> {
-            if (ar.succeeded()) {
-                InputStream is = new ByteArrayInputStream(ar.result().body().getBytes());
-                ResultSet resultSet = ResultSetFactory.fromJSON(is);
-                resultSet.forEachRemaining(querySolution -> {
-                    try {
-                        Literal subject = querySolution.getLiteral("count");
-                        if (subject != null) {
-                            log.debug("Counted ds: {}", subject.getInt());
-                            enumResources(subject.getInt(), 0, datasetQuery, "dataset", resourceList.get("dataset"), dsFuture);
-                        } else {
-                            log.warn("subject is null");
-                            dsFuture.handle(Future.failedFuture("could not find IDs"));
-                        }
-                    } catch (ClassCastException cce) {
-                        log.warn("could not cast {} to literal", querySolution.get("s").toString());
-                    } catch (Exception e) {
-                        log.error("error while traversing resultSet: ", e);
-                    }
-                });
-            } else {
-                dsFuture.handle(Future.failedFuture(ar.cause()));
-                if (ar.result() != null && ar.result().body() != null) {
-                    log.error(ar.result().bodyAsString());
-                }
-            }
-        });
-
-        //get records
-        query(recordCountQuery, "application/json", ar -> {
-            if (ar.succeeded()) {
-                InputStream is = new ByteArrayInputStream(ar.result().body().getBytes());
-                ResultSet resultSet = ResultSetFactory.fromJSON(is);
-                resultSet.forEachRemaining(querySolution -> {
-                    try {
-                        Literal subject = querySolution.getLiteral("count");
-                        if (subject != null) {
-                            log.debug("Counted rs: {}", subject.getInt());
-                            enumResources(subject.getInt(), 0, recordQuery, "record", resourceList.get("record"), rsFuture);
-                        } else {
-                            log.warn("subject is null");
-                            rsFuture.handle(Future.failedFuture("could not find IDs"));
-                        }
-                    } catch (ClassCastException cce) {
-                        log.warn("could not cast {} to literal", querySolution.get("s").toString());
-                    } catch (Exception e) {
-                        log.error("error while traversing resultSet: ", e);
-                    }
-                });
-            } else {
-                rsFuture.handle(Future.failedFuture(ar.cause()));
-                if (ar.result() != null && ar.result().body() != null) {
-                    log.error(ar.result().bodyAsString());
-                }
-            }
-        });
-
-        CompositeFuture.all(Arrays.asList(dsFuture, rsFuture)).setHandler(cohandler -> {
-            if (cohandler.succeeded()) {
-                handler.handle(Future.succeededFuture(resourceList));
-            } else {
-                handler.handle(Future.failedFuture(cohandler.cause()));
-            }
-        });
-
-
-    }
-
-
-    private void enumResources(Integer count, Integer offset, String query, String varName, List<Resource> resourceList, Handler<AsyncResult<List<Resource>>> handler) {
-        PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
-        String tempQuery = query;
-        if (count > 10000) {
-            tempQuery += " LIMIT 10000";
-        }
-
-        if (offset > 0) {
-            tempQuery += " OFFSET " + offset;
-        }
-        query(tempQuery, "application/json", ar -> {
-            if (ar.succeeded()) {
-                ResultSet resultSet = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
-
-                resultSet.forEachRemaining(querySolution -> {
-                    try {
-
-                        Resource subject = querySolution.getResource(varName);
-                        if (subject != null) {
-
-                            resourceList.add(subject);
-                        } else {
-                            log.warn("subject is null");
-                        }
-
-
-                    } catch (ClassCastException cce) {
-                        log.warn("could not cast {} to literal", querySolution.get("s").toString());
-                    } catch (Exception e) {
-                        log.error("error while traversing resultSet: ", e);
-                    }
-                });
-
-                if ((offset + 10000) < count) {
-                    enumResources(count, offset + 10000, query, varName, resourceList, handler);
-                } else {
-                    handler.handle(Future.succeededFuture(resourceList));
-                }
-            } else {
-                handler.handle(Future.failedFuture(ar.cause()));
-            }
-        });
-    }
-
     public void findFreeNormalized(DatasetHelper helper, AtomicInteger counter, Handler<AsyncResult<String>> handler) {
         int tempCounter = counter.getAndIncrement();
         String candidate = tempCounter == 0 ? helper.uriRef() : helper.uriRef() + "_" + tempCounter;
@@ -761,14 +650,18 @@ public class TSConnector {
     }
 
     private void send(HttpRequest<Buffer> request, HttpMethod method, Promise<HttpResponse<Buffer>> promise) {
-        request.send(ar -> {
+        send(request, method, null, promise);
+    }
+
+    private void send(HttpRequest<Buffer> request, HttpMethod method, MultiMap form, Promise<HttpResponse<Buffer>> promise) {
+        Handler<AsyncResult<HttpResponse<Buffer>>> responseHandler = ar -> {
             if (ar.succeeded()) {
                 HttpResponse<Buffer> response = ar.result();
                 if (response.statusCode() == 401) {
                     String authenticate = DigestAuth.authenticate(response.getHeader("WWW-Authenticate"), uri, method.name(), username, password);
                     if (authenticate != null) {
                         request.putHeader("Authorization", authenticate);
-                        send(request, method, promise);
+                        send(request, method, form, promise);
                     } else {
                         promise.fail("Could not authenticate");
                     }
@@ -780,7 +673,12 @@ public class TSConnector {
             } else {
                 promise.fail(ar.cause());
             }
-        });
+        };
+        if (form != null) {
+            request.sendForm(form, responseHandler);
+        } else {
+            request.send(responseHandler);
+        }
     }
 
     public void query(String query, String accept, Handler<AsyncResult<HttpResponse<Buffer>>> handler) {
@@ -793,6 +691,39 @@ public class TSConnector {
         query(request, handler);
     }
 
+    /**
+     * Sends the query as form post, for queries which are too long for an url, e.g. with large VALUES blocks.
+     */
+    public void queryPost(String query, String accept, Handler<AsyncResult<HttpResponse<Buffer>>> handler) {
+        HttpRequest<Buffer> request = client.postAbs(uri + queryEndpoint);
+        if (accept != null) {
+            request.putHeader("Accept", accept);
+        }
+        MultiMap form = MultiMap.caseInsensitiveMultiMap().add("query", query);
+        if (breaker != null) {
+            breaker.<HttpResponse<Buffer>>execute(promise -> send(request, HttpMethod.POST, form, promise)).setHandler(handler);
+        } else {
+            Promise<HttpResponse<Buffer>> promise = Promise.promise();
+            send(request, HttpMethod.POST, form, promise);
+            promise.future().setHandler(handler);
+        }
+    }
+
+    /**
+     * Sends the update as form post, for updates which are too long for an url, e.g. with inserted data.
+     */
+    public void updatePost(String update, Handler<AsyncResult<HttpResponse<Buffer>>> handler) {
+        HttpRequest<Buffer> request = client.postAbs(uri + updateEndpoint);
+        MultiMap form = MultiMap.caseInsensitiveMultiMap().add("query", update);
+        if (breaker != null) {
+            breaker.<HttpResponse<Buffer>>execute(promise -> send(request, HttpMethod.POST, form, promise)).setHandler(handler);
+        } else {
+            Promise<HttpResponse<Buffer>> promise = Promise.promise();
+            send(request, HttpMethod.POST, form, promise);
+            promise.future().setHandler(handler);
+        }
+    }
+
     public void update(String update, String accept, Handler<AsyncResult<HttpResponse<Buffer>>> handler) {
         HttpRequest<Buffer> request = client
                 .getAbs(uri + updateEndpoint)
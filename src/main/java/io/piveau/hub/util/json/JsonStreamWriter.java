@@ -0,0 +1,187 @@
+package io.piveau.hub.util.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static java.time.format.DateTimeFormatter.ISO_INSTANT;
+
+/**
+ * Writes json with a Jackson generator, the output is the same as encoding the equivalent JsonObject.
+ */
+public class JsonStreamWriter implements JsonWriter {
+
+    private final JsonGenerator generator;
+
+    public JsonStreamWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public JsonWriter startObject() {
+        try {
+            generator.writeStartObject();
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter startObject(String name) {
+        try {
+            generator.writeObjectFieldStart(name);
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() {
+        try {
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter startArray(String name) {
+        try {
+            generator.writeArrayFieldStart(name);
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() {
+        try {
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter put(String name, String value) {
+        try {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter put(String name, boolean value) {
+        try {
+            generator.writeBooleanField(name, value);
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter put(String name, JsonObject value) {
+        try {
+            generator.writeFieldName(name);
+            write(generator, value);
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter add(String value) {
+        try {
+            generator.writeString(value);
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter add(JsonObject value) {
+        try {
+            write(generator, value);
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * Writes a value of a JsonObject or JsonArray the way Json.encode does.
+     */
+    public static void write(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof JsonObject) {
+            writeMap(generator, ((JsonObject) value).getMap());
+        } else if (value instanceof Map) {
+            writeMap(generator, (Map<?, ?>) value);
+        } else if (value instanceof JsonArray) {
+            writeList(generator, ((JsonArray) value).getList());
+        } else if (value instanceof List) {
+            writeList(generator, (List<?>) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Float) {
+            generator.writeNumber((Float) value);
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            generator.writeNumber((BigInteger) value);
+        } else if (value instanceof byte[]) {
+            generator.writeString(Base64.getEncoder().encodeToString((byte[]) value));
+        } else if (value instanceof Instant) {
+            generator.writeString(ISO_INSTANT.format((Instant) value));
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private static void writeMap(JsonGenerator generator, Map<?, ?> map) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            generator.writeFieldName(entry.getKey().toString());
+            write(generator, entry.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeList(JsonGenerator generator, List<?> list) throws IOException {
+        generator.writeStartArray();
+        for (Object item : list) {
+            write(generator, item);
+        }
+        generator.writeEndArray();
+    }
+
+}
@@ -0,0 +1,37 @@
+package io.piveau.hub.util.json;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Writes a json request body event by event straight into a buffer.
+ * Methods with a name write a field of the current object, the others write the root or an element of the current array.
+ */
+public interface JsonWriter {
+
+    JsonWriter startObject();
+
+    JsonWriter startObject(String name);
+
+    JsonWriter endObject();
+
+    JsonWriter startArray(String name);
+
+    JsonWriter endArray();
+
+    /**
+     * @param value written as null if null
+     */
+    JsonWriter put(String name, String value);
+
+    JsonWriter put(String name, boolean value);
+
+    /**
+     * Writes a complete tree, e.g. a geometry.
+     */
+    JsonWriter put(String name, JsonObject value);
+
+    JsonWriter add(String value);
+
+    JsonWriter add(JsonObject value);
+
+}
@@ -0,0 +1,138 @@
+package io.piveau.hub.util.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+
+/**
+ * A request body written with a Jackson generator into a buffer of the Netty pool, without encoding its parts to strings first.
+ * Index documents are still built as JsonObjects, only the body around them is not.
+ * <p>
+ * The memory goes back to the pool when the owner and every send released it. Take {@link #retain()} for each send
+ * and release it in the response handler, the owner releases once it is done with the body.
+ * Root values are not separated, callers write their own separators with {@link #raw(char)}.
+ * Nothing can be written after the first send.
+ */
+public final class PooledJsonBuffer {
+
+    private final ByteBuf byteBuf;
+    private final Buffer buffer;
+    private final JsonGenerator generator;
+    private final JsonStreamWriter writer;
+    private boolean closed = false;
+
+    private PooledJsonBuffer(int initialCapacity) {
+        byteBuf = PooledByteBufAllocator.DEFAULT.heapBuffer(initialCapacity);
+        buffer = Buffer.buffer(byteBuf);
+        try {
+            generator = Json.mapper.getFactory().createGenerator(new ByteBufOutputStream(byteBuf), JsonEncoding.UTF8);
+        } catch (IOException e) {
+            byteBuf.release();
+            throw new EncodeException(e.getMessage());
+        }
+        generator.setRootValueSeparator(null);
+        writer = new JsonStreamWriter(generator);
+    }
+
+    public static PooledJsonBuffer allocate(int initialCapacity) {
+        return new PooledJsonBuffer(initialCapacity);
+    }
+
+    /**
+     * @return a buffer with the json of the tree
+     */
+    public static PooledJsonBuffer of(JsonObject value) {
+        PooledJsonBuffer json = allocate(1024);
+        json.writer().add(value);
+        return json;
+    }
+
+    public JsonWriter writer() {
+        return writer;
+    }
+
+    public JsonGenerator generator() {
+        return generator;
+    }
+
+    public PooledJsonBuffer raw(char c) {
+        try {
+            generator.writeRaw(c);
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public int length() {
+        flush();
+        return byteBuf.writerIndex();
+    }
+
+    /**
+     * Drops everything written after the given length.
+     */
+    public void truncate(int length) {
+        flush();
+        byteBuf.writerIndex(length);
+    }
+
+    /**
+     * Appends the bytes from offset on of another buffer.
+     */
+    public void append(PooledJsonBuffer other, int offset) {
+        flush();
+        other.flush();
+        byteBuf.writeBytes(other.byteBuf, offset, other.byteBuf.writerIndex() - offset);
+    }
+
+    /**
+     * The first send ends writing, the generator hands its own buffer back to Jackson.
+     *
+     * @return the body for one send, to be released when the send is done
+     */
+    public Buffer retain() {
+        close();
+        byteBuf.retain();
+        return buffer;
+    }
+
+    public void release() {
+        close();
+        byteBuf.release();
+    }
+
+    private void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                generator.close();
+            } catch (IOException e) {
+                throw new EncodeException(e.getMessage());
+            }
+        }
+    }
+
+    private void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            generator.flush();
+        } catch (IOException e) {
+            throw new EncodeException(e.getMessage());
+        }
+    }
+
+}
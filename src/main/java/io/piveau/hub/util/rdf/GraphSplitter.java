@@ -0,0 +1,63 @@
+package io.piveau.hub.util.rdf;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects a stream of quads into one model per named graph. Triples of the default graph are dropped.
+ */
+public class GraphSplitter implements StreamRDF {
+
+    private final Map<String, Model> models = new HashMap<>();
+
+    private long quads = 0;
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void triple(Triple triple) {
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        if (quad.isDefaultGraph() || !quad.getGraph().isURI()) {
+            return;
+        }
+        models.computeIfAbsent(quad.getGraph().getURI(), graph -> ModelFactory.createDefaultModel())
+                .getGraph()
+                .add(quad.asTriple());
+        quads++;
+    }
+
+    @Override
+    public void base(String base) {
+    }
+
+    @Override
+    public void prefix(String prefix, String iri) {
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    /**
+     * @return the models by graph name, graphs without any quad are missing
+     */
+    public Map<String, Model> getModels() {
+        return models;
+    }
+
+    public long getQuads() {
+        return quads;
+    }
+
+}
@@ -0,0 +1,35 @@
+package io.piveau.hub.util.rdf;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Vocabulary definition for the paging terms of the <a href="https://www.hydra-cg.com/spec/latest/core/">Hydra Core vocabulary</a>.
+ */
+public class HYDRA {
+
+    private static final Model m = ModelFactory.createDefaultModel();
+
+    public static final String HYDRA_NS = "http://www.w3.org/ns/hydra/core#";
+
+    public static Map<String, String> getNsMap() {
+        Map<String, String> map = new HashMap<>();
+        map.put("hydra", HYDRA_NS);
+        return map;
+    }
+
+    //classes
+    public static final Resource PartialCollectionView = m.createResource(HYDRA_NS + "PartialCollectionView");
+
+    //properties
+    public static final Property view = m.createProperty(HYDRA_NS + "view");
+    public static final Property first = m.createProperty(HYDRA_NS + "first");
+    public static final Property next = m.createProperty(HYDRA_NS + "next");
+    public static final Property itemsPerPage = m.createProperty(HYDRA_NS + "itemsPerPage");
+
+}
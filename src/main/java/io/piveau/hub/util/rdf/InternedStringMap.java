@@ -0,0 +1,70 @@
+package io.piveau.hub.util.rdf;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable map with string keys, using open addressing with linear probing in two flat arrays.
+ * Keys are interned when the map is built, so lookups with IRIs taken from Jena nodes mostly hit by identity.
+ */
+final class InternedStringMap<V> {
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    InternedStringMap(Map<String, V> entries) {
+        int capacity = 2;
+        while (capacity < entries.size() * 2) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = entries.size();
+        entries.forEach((key, value) -> {
+            String interned = key.intern();
+            int index = spread(interned.hashCode()) & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = interned;
+            values[index] = value;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(String key) {
+        if (key == null) {
+            return null;
+        }
+        int index = spread(key.hashCode()) & mask;
+        String candidate;
+        while ((candidate = keys[index]) != null) {
+            if (candidate == key || candidate.equals(key)) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<String, V> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
@@ -246,8 +246,11 @@ public class PropertyHelper {
         return result;
     }
 
-    public Resource getResourceFromVocabulary(Resource resource) {
-        return VocabularyManager.model.containsResource(resource) ? VocabularyManager.model.getResource(resource.getURI()) : null;
+    /**
+     * @return the concept from the vocabulary lookup tables, or null if the node is no vocabulary IRI
+     */
+    public VocabularyConcept getConceptFromVocabulary(RDFNode node) {
+        return node != null && node.isURIResource() ? VocabularyManager.tables().concept(node.asResource().getURI()) : null;
     }
 
     public JsonObject guessTitleAndResource(RDFNode node, String customLabel)  {
@@ -233,9 +233,9 @@ public class PropertyParser {
     public JsonObject getDctPublisher(Resource resource) throws PropertyNotAvailableException {
         JsonObject result = new JsonObject();
         Resource publisher = propertyHelper.getPropertyAsResource(resource, DCATAP.dctPublisher);
-        Resource vocResource = propertyHelper.getResourceFromVocabulary(publisher);
+        VocabularyConcept vocConcept = propertyHelper.getConceptFromVocabulary(publisher);
 
-        if (vocResource == null) {
+        if (vocConcept == null) {
             try {
                 Resource type = propertyHelper.getPropertyAsResource(publisher, DCATAP.rdfType);
                 result.put("type", type.getLocalName());
@@ -260,21 +260,15 @@ public class PropertyParser {
         } else {
             result.put("type", "Organisation");
 
-            try {
-                String name = propertyHelper.getEnglishLiteral(vocResource, SKOS.prefLabel);
-                result.put("name", name);
-            } catch (PropertyNotAvailableException e) {
-                //throw new PropertyNotAvailableException(e.getMessage());
+            if (vocConcept.hasPrefLabel()) {
+                result.put("name", vocConcept.prefLabel("en"));
             }
 
-            try {
-                Resource homepage = propertyHelper.getPropertyAsResource(vocResource, DCATAP.foafHomepage);
-                result.put("email", homepage.getURI());
-            } catch (PropertyNotAvailableException e) {
-                //throw new PropertyNotAvailableException(e.getMessage());
+            if (vocConcept.homepage() != null) {
+                result.put("email", vocConcept.homepage());
             }
 
-            result.put("resource", vocResource.getURI());
+            result.put("resource", vocConcept.uri());
         }
 
         if (result.isEmpty()) {
@@ -475,15 +469,11 @@ public class PropertyParser {
             while (stmtIterator.hasNext()) {
                 Statement stmt = stmtIterator.nextStatement();
                 if (stmt.getObject().isResource()) {
-                    Resource res = propertyHelper.getResourceFromVocabulary(stmt.getResource());
-                    StmtIterator stms = res.listProperties(EUVOC.atOpMappedCode);
-                    while (stms.hasNext()) {
-                        RDFNode rdfNode = stms.nextStatement().getObject();
-                        String h = rdfNode.asResource().getProperty(EUVOC.dcSource).getString();
-                        if (h.equals("iso-639-1")) {
-                            result.add(rdfNode.asResource().getProperty(EUVOC.atLegacyCode).getString());
-                        }
+                    VocabularyConcept language = propertyHelper.getConceptFromVocabulary(stmt.getObject());
+                    if (language == null) {
+                        throw new PropertyNotAvailableException(stmt.getObject() + " is not in the vocabulary");
                     }
+                    language.languageCodes().forEach(result::add);
                 }
             }
         } catch (RuntimeException e) {
@@ -621,29 +611,17 @@ public class PropertyParser {
             throw new PropertyNotAvailableException(e.getMessage());
         }
 
-        Resource spatial = propertyHelper.getResourceFromVocabulary(spatialResource);
+        VocabularyConcept spatial = propertyHelper.getConceptFromVocabulary(spatialResource);
         if (spatial == null) {
             throw new PropertyNotAvailableException("Spatial not in vocabulary.");
         }
-        //result.put("id", propertyHelper.getSingleLiteral(spatial, EUVOC.dcIdentifier));
 
-        StmtIterator stmtIterator = propertyHelper.getPropertiesAsStmtIterator(spatial, EUVOC.skosPrefLabel);
-        while (stmtIterator.hasNext()) {
-            Statement stmt = stmtIterator.nextStatement();
-            Literal literal = stmt.getLiteral();
-            if (literal.getLanguage().equals("en")) {
-                result.put("title", literal.getString());
-            }
+        if (spatial.prefLabel("en") != null) {
+            result.put("title", spatial.prefLabel("en"));
         }
 
-        stmtIterator = propertyHelper.getPropertiesAsStmtIterator(spatial, EUVOC.euvocXlNotation);
-        while (stmtIterator.hasNext()) {
-            Statement stmt = stmtIterator.nextStatement();
-            Resource notation = stmt.getResource();
-            Resource notationType = notation.getPropertyResourceValue(DCATAP.dctType);
-            if (notationType.equals(EUVOC.EuvocAlpha2)) {
-                result.put("id", notation.getProperty(EUVOC.euvocXlCodification).getString().toLowerCase());
-            }
+        if (spatial.countryCode() != null) {
+            result.put("id", spatial.countryCode().toLowerCase());
         }
 
         return result;
@@ -770,8 +748,8 @@ public class PropertyParser {
             if (stmt != null) {
                 RDFNode node = stmt.getObject();
                 if (node.isResource()) {
-                    Resource res = propertyHelper.getResourceFromVocabulary(node.asResource());
-                    if (res == null) {
+                    VocabularyConcept concept = propertyHelper.getConceptFromVocabulary(node);
+                    if (concept == null) {
                         try {
                             String format = propertyHelper.getSingleLiteral(node.asResource(), RDFS.label);
                             result.put("id", propertyHelper.generateID(format));
@@ -782,7 +760,10 @@ public class PropertyParser {
                             result.put("title", format);
                         }
                     } else {
-                        String format = propertyHelper.getSingleLiteral(res, EUVOC.dcIdentifier);
+                        String format = concept.identifier();
+                        if (format == null) {
+                            throw new PropertyNotAvailableException(EUVOC.dcIdentifier + " of " + concept.uri() + " is not set");
+                        }
                         result.put("id", propertyHelper.generateID(format));
                         result.put("title", format);
                     }
@@ -816,8 +797,8 @@ public class PropertyParser {
             if (stmt != null) {
                 RDFNode node = stmt.getObject();
                 if (node.isResource()) {
-                    Resource res = propertyHelper.getResourceFromVocabulary(node.asResource());
-                    if (res == null) {
+                    VocabularyConcept concept = propertyHelper.getConceptFromVocabulary(node);
+                    if (concept == null) {
 
                         try {
                             result.put("id", propertyHelper.getSingleLiteral(node.asResource(), EUVOC.dcIdentifier));
@@ -836,25 +817,27 @@ public class PropertyParser {
 
                     } else {
 
-                        Statement stmtSameAs = res.getProperty(OWL.sameAs);
-                        if (stmtSameAs != null) {
-                            res = propertyHelper.getResourceFromVocabulary(stmtSameAs.getResource());
+                        if (concept.sameAs() != null) {
+                            concept = VocabularyManager.tables().concept(concept.sameAs());
+                            if (concept == null) {
+                                throw new PropertyNotAvailableException(OWL.sameAs + " of " + node + " is not in the vocabulary");
+                            }
                         }
 
-                        String id = propertyHelper.getSingleLiteral(res, EUVOC.dcIdentifier);
-                        String title = propertyHelper.getEnglishLiteral(res, EUVOC.skosAltLabel);
-                        String description = propertyHelper.getEnglishLiteral(res, EUVOC.skosPrefLabel);
-                        try {
-                            Resource url = propertyHelper.getPropertyAsResource(res, EUVOC.skosExactMatch);
-                            result.put("resource", url.getURI());
-                        } catch (PropertyNotAvailableException e) {
-                            result.putNull("resource");
+                        String id = concept.identifier();
+                        if (id == null) {
+                            throw new PropertyNotAvailableException(EUVOC.dcIdentifier + " of " + concept.uri() + " is not set");
+                        }
+                        if (!concept.hasAltLabel() || !concept.hasPrefLabel()) {
+                            throw new PropertyNotAvailableException("Labels of " + concept.uri() + " are not set");
                         }
+                        String title = concept.altLabel("en");
+                        String description = concept.prefLabel("en");
+                        result.put("resource", concept.exactMatch());
 
-                        try {
-                            Resource resLA = propertyHelper.getPropertyAsResource(res, EDP.edpLicensingAssistant);
-                            result.put("la_url", resLA.getURI());
-                        } catch (PropertyNotAvailableException e) {
+                        if (concept.licensingAssistant() != null) {
+                            result.put("la_url", concept.licensingAssistant());
+                        } else {
                             result.putNull("in_la");
                         }
 
@@ -0,0 +1,317 @@
+package io.piveau.hub.util.rdf;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.locationtech.jts.io.gml2.GMLHandler;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Converts geometry literals to GeoJSON, with the same results as {@link GeoParser}.
+ * <p>
+ * Readers, XML parsers and compiled XPath expressions are kept per thread. Geometries are built into a JsonObject
+ * directly instead of writing and parsing a GeoJSON string. Results, failures included, are cached in a fixed
+ * number of slots chosen by the hash of the literal, a colliding literal replaces the cached one. Literals longer
+ * than {@link #MAX_CACHED_LENGTH} are not cached. Callers get a copy of the cached result.
+ */
+public class SpatialConverter {
+
+    public static final String GEOJSON = "https://www.iana.org/assignments/media-types/application/vnd.geo+json";
+    public static final String WKT = "http://www.openlinksw.com/schemas/virtrdf#Geometry";
+    public static final String GML = "http://www.opengis.net/ont/geosparql#gmlLiteral";
+
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+    public static final int MAX_CACHED_LENGTH = 65536;
+
+    private static final SpatialConverter SHARED = new SpatialConverter(DEFAULT_CACHE_SIZE);
+
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    // rounding of the GeoJsonWriter, see formatOrdinate there
+    private static final double SCALE = Math.pow(10, GeoJsonWriter.DEFAULT_DECIMALS);
+    private static final double MIN_ROUNDED = Math.pow(10, -3);
+    private static final double MAX_ROUNDED = Math.pow(10, 7);
+
+    private static final ThreadLocal<Parsers> parsers = ThreadLocal.withInitial(Parsers::new);
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param cacheSize number of cache slots, rounded up to a power of two, 0 disables the cache
+     */
+    public SpatialConverter(int cacheSize) {
+        int size = cacheSize > 0 ? Integer.highestOneBit(cacheSize * 2 - 1) : 0;
+        entries = new AtomicReferenceArray<>(Math.max(size, 1));
+        mask = size - 1;
+    }
+
+    public static SpatialConverter shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the GeoJSON of the literal, null if the datatype is not supported
+     */
+    public JsonObject convert(String datatype, String literal) throws GeoParsingException {
+        if (!GEOJSON.equals(datatype) && !WKT.equals(datatype) && !GML.equals(datatype)) {
+            return null;
+        }
+        if (mask < 0 || literal.length() > MAX_CACHED_LENGTH) {
+            return parse(datatype, literal);
+        }
+        int hash = literal.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Entry entry = entries.get(slot);
+        if (entry != null && entry.hash == hash && entry.datatype.equals(datatype) && entry.literal.equals(literal)) {
+            hits.increment();
+            return entry.result();
+        }
+        misses.increment();
+        try {
+            entry = new Entry(hash, datatype, literal, parse(datatype, literal), null);
+        } catch (GeoParsingException e) {
+            entry = new Entry(hash, datatype, literal, null, e);
+        }
+        entries.set(slot, entry);
+        return entry.result();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public JsonObject wktToGeoJson(String input) throws GeoParsingException {
+        try {
+            return toGeoJson(parsers.get().wktReader.read(input));
+        } catch (ParseException e) {
+            throw new GeoParsingException();
+        } catch (RuntimeException e) {
+            throw new GeoParsingException(e.getMessage());
+        }
+    }
+
+    public JsonObject gml2ToGeoJson(String input) throws GeoParsingException {
+        SAXParser parser = parsers.get().saxParser;
+        try {
+            GMLHandler handler = new GMLHandler(FACTORY, null);
+            parser.parse(new InputSource(new StringReader(input)), handler);
+            return toGeoJson(handler.getGeometry());
+        } catch (SAXException | IOException e) {
+            throw new GeoParsingException(e.getMessage());
+        } finally {
+            parser.reset();
+        }
+    }
+
+    public JsonObject gml3ToGeoJson(String input) throws GeoParsingException {
+        Parsers current = parsers.get();
+        try {
+            Document document = current.documentBuilder.parse(new InputSource(new StringReader(input)));
+            String upper = ((Node) current.upperCorner.evaluate(document, XPathConstants.NODE)).getNodeValue();
+            String lower = ((Node) current.lowerCorner.evaluate(document, XPathConstants.NODE)).getNodeValue();
+            String[] upperSplitted = upper.split("\\s+");
+            String[] lowerSplitted = lower.split("\\s+");
+            // latitude first, x is the longitude
+            Envelope envelope = new Envelope(
+                    new Coordinate(Double.valueOf(lowerSplitted[1]), Double.valueOf(lowerSplitted[0])),
+                    new Coordinate(Double.valueOf(upperSplitted[1]), Double.valueOf(upperSplitted[0])));
+            return toGeoJson(FACTORY.toGeometry(envelope));
+        } catch (GeoParsingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GeoParsingException(e.getMessage());
+        } finally {
+            current.documentBuilder.reset();
+        }
+    }
+
+    private JsonObject parse(String datatype, String literal) throws GeoParsingException {
+        switch (datatype) {
+            case GEOJSON:
+                try {
+                    return new JsonObject(literal);
+                } catch (RuntimeException e) {
+                    throw new GeoParsingException(e.getMessage());
+                }
+            case WKT:
+                return wktToGeoJson(literal);
+            default:
+                return gml3ToGeoJson(literal);
+        }
+    }
+
+    /**
+     * Same structure and numbers as parsing the output of the GeoJsonWriter without CRS.
+     */
+    static JsonObject toGeoJson(Geometry geometry) throws GeoParsingException {
+        if (geometry.isEmpty()) {
+            // the writer has its own idea of empty geometries
+            GeoJsonWriter writer = new GeoJsonWriter();
+            writer.setEncodeCRS(false);
+            try {
+                return new JsonObject(writer.write(geometry));
+            } catch (RuntimeException e) {
+                throw new GeoParsingException(e.getMessage());
+            }
+        }
+        JsonObject result = new JsonObject().put("type", geometry.getGeometryType());
+        if (geometry instanceof Point) {
+            result.put("coordinates", sequence(((Point) geometry).getCoordinateSequence()));
+        } else if (geometry instanceof LineString) {
+            result.put("coordinates", sequence(((LineString) geometry).getCoordinateSequence()));
+        } else if (geometry instanceof Polygon) {
+            result.put("coordinates", polygon((Polygon) geometry));
+        } else if (geometry instanceof MultiPoint || geometry instanceof MultiLineString) {
+            JsonArray parts = new JsonArray();
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Geometry part = geometry.getGeometryN(i);
+                parts.add(sequence(part instanceof Point
+                        ? ((Point) part).getCoordinateSequence()
+                        : ((LineString) part).getCoordinateSequence()));
+            }
+            result.put("coordinates", parts);
+        } else if (geometry instanceof MultiPolygon) {
+            JsonArray polygons = new JsonArray();
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                polygons.add(polygon((Polygon) geometry.getGeometryN(i)));
+            }
+            result.put("coordinates", polygons);
+        } else if (geometry instanceof GeometryCollection) {
+            JsonArray geometries = new JsonArray();
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                geometries.add(toGeoJson(geometry.getGeometryN(i)));
+            }
+            result.put("geometries", geometries);
+        } else {
+            throw new GeoParsingException("Unsupported geometry " + geometry.getGeometryType());
+        }
+        return result;
+    }
+
+    private static JsonArray polygon(Polygon polygon) throws GeoParsingException {
+        JsonArray rings = new JsonArray().add(sequence(polygon.getExteriorRing().getCoordinateSequence()));
+        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+            rings.add(sequence(polygon.getInteriorRingN(i).getCoordinateSequence()));
+        }
+        return rings;
+    }
+
+    /**
+     * Like the writer, a sequence of one coordinate is that coordinate.
+     */
+    private static JsonArray sequence(CoordinateSequence sequence) throws GeoParsingException {
+        if (sequence.size() == 1) {
+            return coordinate(sequence, 0);
+        }
+        JsonArray coordinates = new JsonArray();
+        for (int i = 0; i < sequence.size(); i++) {
+            coordinates.add(coordinate(sequence, i));
+        }
+        return coordinates;
+    }
+
+    private static JsonArray coordinate(CoordinateSequence sequence, int index) throws GeoParsingException {
+        JsonArray coordinate = new JsonArray()
+                .add(ordinate(sequence.getOrdinate(index, CoordinateSequence.X)))
+                .add(ordinate(sequence.getOrdinate(index, CoordinateSequence.Y)));
+        if (sequence.getDimension() > 2) {
+            double z = sequence.getOrdinate(index, CoordinateSequence.Z);
+            if (!Double.isNaN(z)) {
+                coordinate.add(ordinate(z));
+            }
+        }
+        return coordinate;
+    }
+
+    /**
+     * Rounded like the writer, whole numbers become Integer or Long like they do when parsing JSON.
+     */
+    private static Number ordinate(double value) throws GeoParsingException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // not valid JSON in the written GeoJSON either
+            throw new GeoParsingException("Invalid ordinate " + value);
+        }
+        if (Math.abs(value) >= MIN_ROUNDED && value < MAX_ROUNDED) {
+            double rounded = Math.floor(value * SCALE + 0.5) / SCALE;
+            long whole = (long) rounded;
+            if (whole == rounded) {
+                return whole >= Integer.MIN_VALUE && whole <= Integer.MAX_VALUE ? (Number) (int) whole : (Number) whole;
+            }
+            return rounded;
+        }
+        return value;
+    }
+
+    private static final class Entry {
+        final int hash;
+        final String datatype;
+        final String literal;
+        final JsonObject geoJson;
+        final GeoParsingException failure;
+
+        Entry(int hash, String datatype, String literal, JsonObject geoJson, GeoParsingException failure) {
+            this.hash = hash;
+            this.datatype = datatype;
+            this.literal = literal;
+            this.geoJson = geoJson;
+            this.failure = failure;
+        }
+
+        JsonObject result() throws GeoParsingException {
+            if (failure != null) {
+                throw new GeoParsingException(failure.getMessage());
+            }
+            return geoJson.copy();
+        }
+    }
+
+    private static final class Parsers {
+        final WKTReader wktReader = new WKTReader(FACTORY);
+        final SAXParser saxParser;
+        final DocumentBuilder documentBuilder;
+        final XPathExpression upperCorner;
+        final XPathExpression lowerCorner;
+
+        Parsers() {
+            try {
+                // configured like the GMLReader
+                SAXParserFactory saxFactory = SAXParserFactory.newInstance();
+                saxFactory.setNamespaceAware(false);
+                saxFactory.setValidating(false);
+                saxParser = saxFactory.newSAXParser();
+                documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+                upperCorner = XPathFactory.newInstance().newXPath().compile("/Envelope/upperCorner/text()");
+                lowerCorner = XPathFactory.newInstance().newXPath().compile("/Envelope/lowerCorner/text()");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package io.piveau.hub.util.rdf;
+
+import java.util.List;
+
+/**
+ * The values of a vocabulary concept needed for indexing, compiled from the vocabulary graph.
+ * Single valued properties hold the first statement only, like getProperty, and are null if that is not set
+ * or has no usable value.
+ */
+public final class VocabularyConcept {
+
+    private final String uri;
+    private final String identifier;
+    private final InternedStringMap<String> prefLabels;
+    private final InternedStringMap<String> altLabels;
+    private final String exactMatch;
+    private final String sameAs;
+    private final String licensingAssistant;
+    private final String homepage;
+    private final String countryCode;
+    private final List<String> languageCodes;
+
+    VocabularyConcept(String uri, String identifier, InternedStringMap<String> prefLabels, InternedStringMap<String> altLabels,
+                      String exactMatch, String sameAs, String licensingAssistant, String homepage, String countryCode,
+                      List<String> languageCodes) {
+        this.uri = uri;
+        this.identifier = identifier;
+        this.prefLabels = prefLabels;
+        this.altLabels = altLabels;
+        this.exactMatch = exactMatch;
+        this.sameAs = sameAs;
+        this.licensingAssistant = licensingAssistant;
+        this.homepage = homepage;
+        this.countryCode = countryCode;
+        this.languageCodes = languageCodes;
+    }
+
+    public String uri() {
+        return uri;
+    }
+
+    /**
+     * @return dc:identifier
+     */
+    public String identifier() {
+        return identifier;
+    }
+
+    /**
+     * @return true if skos:prefLabel is set at all, even without a literal
+     */
+    public boolean hasPrefLabel() {
+        return prefLabels != null;
+    }
+
+    /**
+     * @return the first skos:prefLabel in the language
+     */
+    public String prefLabel(String lang) {
+        return prefLabels != null ? prefLabels.get(lang) : null;
+    }
+
+    /**
+     * @return true if skos:altLabel is set at all, even without a literal
+     */
+    public boolean hasAltLabel() {
+        return altLabels != null;
+    }
+
+    /**
+     * @return the first skos:altLabel in the language
+     */
+    public String altLabel(String lang) {
+        return altLabels != null ? altLabels.get(lang) : null;
+    }
+
+    /**
+     * @return skos:exactMatch
+     */
+    public String exactMatch() {
+        return exactMatch;
+    }
+
+    /**
+     * @return owl:sameAs, an empty string if it is set to something else than an IRI
+     */
+    public String sameAs() {
+        return sameAs;
+    }
+
+    /**
+     * @return edp:licensingAssistant
+     */
+    public String licensingAssistant() {
+        return licensingAssistant;
+    }
+
+    /**
+     * @return foaf:homepage
+     */
+    public String homepage() {
+        return homepage;
+    }
+
+    /**
+     * @return the ISO 3166-1 alpha-2 notation of a country concept, null for other concepts
+     */
+    public String countryCode() {
+        return countryCode;
+    }
+
+    /**
+     * @return the ISO 639-1 codes of a language concept, empty for other concepts
+     */
+    public List<String> languageCodes() {
+        return languageCodes;
+    }
+
+    InternedStringMap<String> prefLabels() {
+        return prefLabels;
+    }
+
+    InternedStringMap<String> altLabels() {
+        return altLabels;
+    }
+
+}
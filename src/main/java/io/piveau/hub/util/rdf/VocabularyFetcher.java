@@ -0,0 +1,258 @@
+package io.piveau.hub.util.rdf;
+
+import io.vertx.core.*;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.SKOS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Fetches concept schemes from remote.
+ * <p>
+ * A scheme with a configured dump is downloaded with one request. Otherwise the scheme and then each of its
+ * concepts are requested, with at most concurrency requests in flight. Every response is parsed on its own
+ * worker into its own model, the models of a scheme are merged once at the end.
+ * <p>
+ * Responses are kept in the cache directory and revalidated with If-None-Match and If-Modified-Since.
+ * If a request fails, a cached response is used even if it is stale.
+ */
+public class VocabularyFetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(VocabularyFetcher.class);
+
+    private final Vertx vertx;
+    private final WebClient client;
+    private final String cacheDir;
+    private final int concurrency;
+    private final JsonObject dumps;
+
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int active = 0;
+
+    private long requests = 0;
+    private long notModified = 0;
+    private long staleHits = 0;
+    private int maxActive = 0;
+
+    /**
+     * @param dumps dump URLs by concept scheme
+     */
+    public VocabularyFetcher(Vertx vertx, WebClient client, Path cacheDir, int concurrency, JsonObject dumps) {
+        this.vertx = vertx;
+        this.client = client;
+        this.cacheDir = cacheDir.toString();
+        this.concurrency = Math.max(1, concurrency);
+        this.dumps = dumps;
+        vertx.fileSystem().mkdirsBlocking(this.cacheDir);
+    }
+
+    /**
+     * @return a new model with the scheme and all its concepts
+     */
+    public Future<Model> fetchScheme(String schemeUri) {
+        String dump = dumps.getString(schemeUri);
+        if (dump != null) {
+            return get(dump).compose(this::parse);
+        }
+        return get(schemeUri).compose(this::parse).compose(scheme -> {
+            List<Future> concepts = scheme
+                    .listSubjectsWithProperty(SKOS.inScheme, scheme.createResource(schemeUri))
+                    .filterKeep(RDFNode::isURIResource)
+                    .mapWith(Resource::getURI)
+                    .toList()
+                    .stream()
+                    .map(uri -> (Future) get(uri).compose(this::parse))
+                    .collect(Collectors.toList());
+            return CompositeFuture.all(concepts).compose(all -> merge(scheme, all.list()));
+        });
+    }
+
+    /**
+     * @return request counts and the most requests in flight so far
+     */
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+                .put("requests", requests)
+                .put("notModified", notModified)
+                .put("staleHits", staleHits)
+                .put("maxActive", maxActive)
+                .put("concurrency", concurrency);
+    }
+
+    private Future<Model> parse(Buffer buffer) {
+        Promise<Model> promise = Promise.promise();
+        vertx.executeBlocking(parse -> {
+            Model model = ModelFactory.createDefaultModel();
+            RDFDataMgr.read(model, new ByteArrayInputStream(buffer.getBytes()), Lang.RDFXML);
+            parse.complete(model);
+        }, false, promise);
+        return promise.future();
+    }
+
+    private Future<Model> merge(Model scheme, List<Model> concepts) {
+        Promise<Model> promise = Promise.promise();
+        vertx.executeBlocking(merge -> {
+            concepts.forEach(scheme::add);
+            merge.complete(scheme);
+        }, false, promise);
+        return promise.future();
+    }
+
+    private Future<Buffer> get(String url) {
+        Promise<Buffer> promise = Promise.promise();
+        schedule(() -> cachedGet(url).setHandler(ar -> {
+            release();
+            promise.handle(ar);
+        }));
+        return promise.future();
+    }
+
+    private synchronized void schedule(Runnable request) {
+        if (active < concurrency) {
+            active++;
+            maxActive = Math.max(maxActive, active);
+            vertx.runOnContext(v -> request.run());
+        } else {
+            waiting.add(request);
+        }
+    }
+
+    private synchronized void release() {
+        Runnable next = waiting.poll();
+        if (next != null) {
+            vertx.runOnContext(v -> next.run());
+        } else {
+            active--;
+        }
+    }
+
+    private Future<Buffer> cachedGet(String url) {
+        String key = key(url);
+        String bodyFile = cacheDir + "/" + key + ".rdf";
+        String metaFile = cacheDir + "/" + key + ".json";
+
+        return readMeta(metaFile).compose(meta -> {
+            Promise<Buffer> promise = Promise.promise();
+            HttpRequest<Buffer> request = client.getAbs(url).putHeader("Accept", "application/rdf+xml");
+            if (meta != null) {
+                if (meta.containsKey("etag")) {
+                    request.putHeader("If-None-Match", meta.getString("etag"));
+                }
+                if (meta.containsKey("lastModified")) {
+                    request.putHeader("If-Modified-Since", meta.getString("lastModified"));
+                }
+            }
+            count(false);
+            request.send(ar -> {
+                if (ar.succeeded() && ar.result().statusCode() == 304 && meta != null) {
+                    count(true);
+                    vertx.fileSystem().readFile(bodyFile, promise);
+                } else if (ar.succeeded() && ar.result().statusCode() == 200) {
+                    HttpResponse<Buffer> response = ar.result();
+                    Buffer body = response.bodyAsBuffer() != null ? response.bodyAsBuffer() : Buffer.buffer();
+                    writeCache(url, bodyFile, metaFile, response, body).setHandler(written -> promise.complete(body));
+                } else {
+                    String cause = ar.succeeded() ? "status " + ar.result().statusCode() : ar.cause().getMessage();
+                    if (meta != null) {
+                        log.warn("Fetching {} failed ({}), using cached response", url, cause);
+                        synchronized (this) {
+                            staleHits++;
+                        }
+                        vertx.fileSystem().readFile(bodyFile, promise);
+                    } else {
+                        promise.fail("Fetching " + url + " failed: " + cause);
+                    }
+                }
+            });
+            return promise.future();
+        });
+    }
+
+    private Future<JsonObject> readMeta(String metaFile) {
+        Promise<JsonObject> promise = Promise.promise();
+        vertx.fileSystem().readFile(metaFile, ar -> {
+            if (ar.succeeded()) {
+                try {
+                    promise.complete(new JsonObject(ar.result()));
+                } catch (RuntimeException e) {
+                    promise.complete(null);
+                }
+            } else {
+                promise.complete(null);
+            }
+        });
+        return promise.future();
+    }
+
+    /**
+     * The body is written before the validators, so validators never point to a missing or older body.
+     * A failing write is only logged.
+     */
+    private Future<Void> writeCache(String url, String bodyFile, String metaFile, HttpResponse<Buffer> response, Buffer body) {
+        Promise<Void> promise = Promise.promise();
+        JsonObject meta = new JsonObject().put("url", url);
+        if (response.getHeader("ETag") != null) {
+            meta.put("etag", response.getHeader("ETag"));
+        }
+        if (response.getHeader("Last-Modified") != null) {
+            meta.put("lastModified", response.getHeader("Last-Modified"));
+        }
+        // without validators the cached response can't be revalidated, it is still a fallback
+        vertx.fileSystem().writeFile(bodyFile, body, written -> {
+            if (written.succeeded()) {
+                vertx.fileSystem().writeFile(metaFile, meta.toBuffer(), ar -> {
+                    if (ar.failed()) {
+                        log.warn("Caching {} failed", url, ar.cause());
+                    }
+                    promise.complete();
+                });
+            } else {
+                log.warn("Caching {} failed", url, written.cause());
+                promise.complete();
+            }
+        });
+        return promise.future();
+    }
+
+    private synchronized void count(boolean cached) {
+        if (cached) {
+            notModified++;
+        } else {
+            requests++;
+        }
+    }
+
+    private static String key(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -1,80 +1,295 @@
 package io.piveau.hub.util.rdf;
 
 import io.piveau.hub.util.Constants;
+import io.piveau.utils.ConfigHelper;
 import io.vertx.core.*;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.WebClient;
-import io.vertx.ext.web.client.predicate.ResponsePredicate;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
-import org.apache.jena.vocabulary.SKOS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class VocabularyManager {
 
     private static final Logger log = LoggerFactory.getLogger(VocabularyManager.class);
 
-    public static Model model = ModelFactory.createDefaultModel();
+    /**
+     * Concept schemes with their local fallback
+     */
+    static final List<String[]> SCHEMES = Arrays.asList(
+            new String[]{"http://publications.europa.eu/resource/authority/language", "vocabularies/languages-skos.rdf"},
+            new String[]{"http://publications.europa.eu/resource/authority/data-theme", "vocabularies/data-theme-skos-ap-act.rdf"},
+            new String[]{"http://publications.europa.eu/resource/authority/file-type", "vocabularies/filetypes-skos.rdf"},
+            new String[]{"http://publications.europa.eu/resource/authority/country", "vocabularies/countries-skos-ap-act.rdf"},
+            new String[]{"http://publications.europa.eu/resource/authority/continent", "vocabularies/continents-skos-ap-act.rdf"},
+            new String[]{"http://publications.europa.eu/resource/authority/corporate-body", "vocabularies/corporatebodies-skos-ap-act.rdf"},
+            new String[]{"http://publications.europa.eu/resource/authority/licence", "vocabularies/licences-skos.rdf"});
+
+    static final String PIVEAU_LICENCES = "vocabularies/piveau-licences-skos.rdf";
+
+    /**
+     * All vocabularies loaded from local files, in this order
+     */
+    static final List<String> LOCAL_VOCABULARIES = localVocabularies();
+
+    /**
+     * The graph the tables were compiled from, empty if they were read from a snapshot. Lookups use {@link #tables()}.
+     */
+    private static Model model = ModelFactory.createDefaultModel();
+
+    private static volatile VocabularyTables tables = VocabularyTables.EMPTY;
+
+    private static boolean refreshing = false;
 
     public static WebClient client;
 
+    private static VocabularyFetcher fetcher;
+
     public static void init(JsonObject config, Vertx vertx, Handler<AsyncResult<Void>> handler) {
         client = WebClient.create(vertx);
-        if (config.getBoolean(Constants.ENV_PIVEAU_HUB_LOAD_VOCABULARIES, true)) {
-            loadVocabularies(vertx, config.getBoolean(Constants.ENV_PIVEAU_HUB_LOAD_VOCABULARIES_FETCH, false), handler);
-        } else {
+        boolean fetch = config.getBoolean(Constants.ENV_PIVEAU_HUB_LOAD_VOCABULARIES_FETCH, false);
+        JsonObject snapshotConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_VOCABULARY_SNAPSHOT);
+        if (fetch || snapshotConfig.getLong("refreshInterval", 0L) > 0) {
+            JsonObject fetchConfig = ConfigHelper.forConfig(config).forceJsonObject(Constants.ENV_PIVEAU_HUB_VOCABULARY_FETCH);
+            String defaultCacheDir = Paths.get(config.getString(Constants.ENV_PIVEAU_HUB_STATE_DIR, "state"), "vocabularies").toString();
+            fetcher = new VocabularyFetcher(vertx, client,
+                    Paths.get(fetchConfig.getString("cacheDir", defaultCacheDir)),
+                    fetchConfig.getInteger("concurrency", 8),
+                    fetchConfig.getJsonObject("dumps", new JsonObject()));
+        }
+        if (!config.getBoolean(Constants.ENV_PIVEAU_HUB_LOAD_VOCABULARIES, true)) {
             log.debug("Loading vocabularies disabled.");
             handler.handle(Future.succeededFuture());
-        }
-    }
+        } else if (snapshotConfig.getBoolean("enabled", false)) {
+            String defaultPath = Paths.get(config.getString(Constants.ENV_PIVEAU_HUB_STATE_DIR, "state"), "vocabularies.snapshot").toString();
+            Path path = Paths.get(snapshotConfig.getString("path", defaultPath));
+            loadSnapshot(vertx, path).recover(cause -> {
+                log.info("No vocabulary snapshot available ({}), loading vocabularies.", cause.getMessage());
+                Promise<Void> loaded = Promise.promise();
+                loadVocabularies(vertx, fetch, loaded);
+                return loaded.future().compose(v -> writeSnapshot(vertx, path));
+            }).setHandler(handler);
 
-    private static void loadVocabularies(Vertx vertx, boolean fetch, Handler<AsyncResult<Void>> handler) {
-        List<Future> vocFutures = new ArrayList<>();
-
-        if (fetch) {
-            vocFutures.add(fetchVocabulary(vertx, "http://publications.europa.eu/resource/authority/language", "vocabularies/languages-skos.rdf"));
-            vocFutures.add(fetchVocabulary(vertx, "http://publications.europa.eu/resource/authority/data-theme", "vocabularies/data-theme-skos-ap-act.rdf"));
-            vocFutures.add(fetchVocabulary(vertx, "http://publications.europa.eu/resource/authority/file-type", "vocabularies/filetypes-skos.rdf"));
-            vocFutures.add(fetchVocabulary(vertx, "http://publications.europa.eu/resource/authority/country", "vocabularies/countries-skos-ap-act.rdf"));
-            vocFutures.add(fetchVocabulary(vertx, "http://publications.europa.eu/resource/authority/continent", "vocabularies/continents-skos-ap-act.rdf"));
-            vocFutures.add(fetchVocabulary(vertx, "http://publications.europa.eu/resource/authority/corporate-body", "vocabularies/corporatebodies-skos-ap-act.rdf"));
-            vocFutures.add(fetchVocabulary(vertx, "http://publications.europa.eu/resource/authority/licence", "vocabularies/licences-skos.rdf"));
+            long interval = snapshotConfig.getLong("refreshInterval", 0L);
+            if (interval > 0) {
+                vertx.setPeriodic(interval, id -> refresh(vertx, path));
+            }
         } else {
-            vocFutures.add(loadVocabulary(vertx, "vocabularies/languages-skos.rdf"));
-            vocFutures.add(loadVocabulary(vertx, "vocabularies/data-theme-skos-ap-act.rdf"));
-            vocFutures.add(loadVocabulary(vertx, "vocabularies/filetypes-skos.rdf"));
-            vocFutures.add(loadVocabulary(vertx, "vocabularies/countries-skos-ap-act.rdf"));
-            vocFutures.add(loadVocabulary(vertx, "vocabularies/continents-skos-ap-act.rdf"));
-            vocFutures.add(loadVocabulary(vertx, "vocabularies/corporatebodies-skos-ap-act.rdf"));
-            vocFutures.add(loadVocabulary(vertx, "vocabularies/licences-skos.rdf"));
+            loadVocabularies(vertx, fetch, handler);
         }
-        vocFutures.add(loadVocabulary(vertx, "vocabularies/piveau-licences-skos.rdf"));
+    }
 
-        CompositeFuture.join(vocFutures).setHandler(ar -> {
+    private static void loadVocabularies(Vertx vertx, boolean fetch, Handler<AsyncResult<Void>> handler) {
+        load(vertx, model, fetch).setHandler(ar -> vertx.executeBlocking(build -> {
+            // the tables are compiled from whatever was loaded, even if some vocabularies failed
+            compileTables(model);
+            build.complete();
+        }, built -> {
             if (ar.succeeded()) {
-                log.debug("Loading vocabularies finished.");
+                log.debug("Loading vocabularies finished, {} concepts.", tables.size());
                 handler.handle(Future.succeededFuture());
             } else {
                 log.error("Loading vocabularies failed.", ar.cause());
                 handler.handle(Future.failedFuture(ar.cause()));
             }
+        }));
+    }
+
+    private static Future<Void> load(Vertx vertx, Model target, boolean fetch) {
+        List<Future> vocFutures = new ArrayList<>();
+        SCHEMES.forEach(scheme -> vocFutures.add(fetch
+                ? fetchVocabulary(vertx, target, scheme[0], scheme[1])
+                : loadVocabulary(vertx, target, scheme[1])));
+        vocFutures.add(loadVocabulary(vertx, target, PIVEAU_LICENCES));
+        return CompositeFuture.join(vocFutures).mapEmpty();
+    }
+
+    /**
+     * @return the lookup tables of the loaded vocabularies, empty until loading finished
+     */
+    public static VocabularyTables tables() {
+        return tables;
+    }
+
+    private static synchronized void compileTables(Model source) {
+        tables = VocabularyTables.build(source);
+    }
+
+    /**
+     * Maps the snapshot, extracting the one of the build first if there is none yet or the existing one was
+     * stamped by another build.
+     */
+    private static Future<Void> loadSnapshot(Vertx vertx, Path path) {
+        Promise<Void> promise = Promise.promise();
+        vertx.<VocabularyTables>executeBlocking(read -> {
+            try {
+                String bundled = VocabularySnapshot.bundledStamp();
+                if (bundled != null && Files.exists(path) && !bundled.equals(VocabularySnapshot.stamp(path))) {
+                    log.info("Vocabulary snapshot {} is not from the vocabularies of this build, replacing it", path);
+                    VocabularySnapshot.extract(path);
+                }
+                if (!Files.exists(path) && !VocabularySnapshot.extract(path)) {
+                    read.fail("no snapshot at " + path + " and none in the build");
+                    return;
+                }
+                long start = System.nanoTime();
+                VocabularyTables snapshot = VocabularySnapshot.read(path);
+                log.info("Vocabulary snapshot {} with {} concepts loaded in {} ms", path, snapshot.size(),
+                        (System.nanoTime() - start) / 1000000);
+                read.complete(snapshot);
+            } catch (Exception e) {
+                read.fail(e);
+            }
+        }, ar -> {
+            if (ar.succeeded()) {
+                tables = ar.result();
+                promise.complete();
+            } else {
+                promise.fail(ar.cause());
+            }
+        });
+        return promise.future();
+    }
+
+    private static Future<Void> writeSnapshot(Vertx vertx, Path path) {
+        Promise<Void> promise = Promise.promise();
+        VocabularyTables current = tables;
+        vertx.executeBlocking(write -> {
+            try {
+                VocabularySnapshot.write(current, VocabularySnapshot.bundledStamp(), path);
+                write.complete();
+            } catch (Exception e) {
+                write.fail(e);
+            }
+        }, ar -> {
+            if (ar.failed()) {
+                // the loaded vocabularies are in use anyway
+                log.warn("Writing vocabulary snapshot " + path + " failed", ar.cause());
+            }
+            promise.complete();
         });
+        return promise.future();
+    }
+
+    /**
+     * Checks the concept schemes with conditional requests and reloads all vocabularies into a new model
+     * if any of them changed. The validators of the last refresh are stored next to the snapshot.
+     */
+    private static synchronized void refresh(Vertx vertx, Path path) {
+        if (refreshing) {
+            return;
+        }
+        refreshing = true;
+        Path validatorsPath = Paths.get(path.toString() + ".validators");
+        vertx.fileSystem().readFile(validatorsPath.toString(), ar -> {
+            JsonObject validators = new JsonObject();
+            if (ar.succeeded()) {
+                try {
+                    validators = new JsonObject(ar.result());
+                } catch (Exception e) {
+                    log.warn("Ignoring unreadable vocabulary validators {}", validatorsPath);
+                }
+            }
+            refresh(vertx, path, validatorsPath, validators);
+        });
+    }
+
+    private static void refresh(Vertx vertx, Path path, Path validatorsPath, JsonObject validators) {
+        JsonObject updated = validators.copy();
+
+        List<Future> checks = new ArrayList<>();
+        SCHEMES.forEach(scheme -> checks.add(checkScheme(scheme[0], validators.getJsonObject(scheme[0]), updated)));
+        CompositeFuture.join(checks).setHandler(checked -> {
+            boolean changed = checks.stream().anyMatch(check -> check.succeeded() && (Boolean) check.result());
+            if (!changed) {
+                log.debug("Vocabularies unchanged");
+                endRefresh();
+                return;
+            }
+            Model fresh = ModelFactory.createDefaultModel();
+            load(vertx, fresh, true).setHandler(loaded -> {
+                if (loaded.failed()) {
+                    // keep the current snapshot and validators, the next refresh tries again
+                    log.warn("Refreshing vocabularies failed", loaded.cause());
+                    endRefresh();
+                    return;
+                }
+                vertx.executeBlocking(build -> {
+                    compileTables(fresh);
+                    model = fresh;
+                    build.complete();
+                }, built -> writeSnapshot(vertx, path).setHandler(written -> {
+                    vertx.fileSystem().writeFile(validatorsPath.toString(), updated.toBuffer(), ar -> {
+                        log.info("Vocabularies refreshed, {} concepts", tables.size());
+                        endRefresh();
+                    });
+                }));
+            });
+        });
+    }
+
+    private static synchronized void endRefresh() {
+        refreshing = false;
+    }
+
+    /**
+     * @return true if the scheme changed since the given validators
+     */
+    private static Future<Boolean> checkScheme(String uri, JsonObject validators, JsonObject updated) {
+        Promise<Boolean> promise = Promise.promise();
+        HttpRequest<Buffer> request = client.headAbs(uri).putHeader("Accept", "application/rdf+xml");
+        if (validators != null) {
+            if (validators.containsKey("etag")) {
+                request.putHeader("If-None-Match", validators.getString("etag"));
+            }
+            if (validators.containsKey("lastModified")) {
+                request.putHeader("If-Modified-Since", validators.getString("lastModified"));
+            }
+        }
+        request.send(ar -> {
+            if (ar.failed()) {
+                promise.fail(ar.cause());
+            } else if (ar.result().statusCode() == 304) {
+                promise.complete(false);
+            } else if (ar.result().statusCode() == 200) {
+                JsonObject current = new JsonObject();
+                if (ar.result().getHeader("ETag") != null) {
+                    current.put("etag", ar.result().getHeader("ETag"));
+                }
+                if (ar.result().getHeader("Last-Modified") != null) {
+                    current.put("lastModified", ar.result().getHeader("Last-Modified"));
+                }
+                synchronized (updated) {
+                    updated.put(uri, current);
+                }
+                promise.complete(validators == null || current.isEmpty() || !current.equals(validators));
+            } else {
+                promise.fail("Checking " + uri + " returned " + ar.result().statusCode());
+            }
+        });
+        return promise.future();
     }
 
-    private static Future<Void> loadVocabulary(Vertx vertx, String resource) {
+    private static Future<Void> loadVocabulary(Vertx vertx, Model target, String resource) {
         Promise<Void> promise = Promise.promise();
         vertx.fileSystem().readFile(resource, ar -> {
             if (ar.succeeded()) {
                 vertx.executeBlocking(parse -> {
-                    parseRDF(new ByteArrayInputStream(ar.result().getBytes()));
+                    parseRDF(target, new ByteArrayInputStream(ar.result().getBytes()));
                     parse.complete();
                 }, res -> {
                     if (res.succeeded()) {
@@ -90,59 +305,34 @@ public class VocabularyManager {
         return promise.future();
     }
 
-    private static Future<Void> fetchVocabulary(Vertx vertx, String uri, String resource) {
-        Promise<Void> fetchPromise = Promise.promise();
-        readVocabulary(uri).setHandler(read -> {
-            if (read.succeeded()) {
-                // iterate through concepts
-                List<Future> conceptFutures = model
-                        .listSubjectsWithProperty(SKOS.inScheme, model.createResource(uri))
-                        .mapWith(r -> (Future)readVocabulary(r.getURI()))
-                        .toList();
-                CompositeFuture.join(conceptFutures).setHandler(concepts -> {
-                    if (concepts.succeeded()) {
-                        log.debug("{} - {} concepts", uri, conceptFutures.size());
-                        fetchPromise.complete();
-                    } else {
-                        log.warn("Fetch concept from remote failed (using local fallback)", concepts.cause());
-                        loadVocabulary(vertx, resource).setHandler(load -> {
-                            if (load.succeeded()) {
-                                fetchPromise.complete();
-                            } else {
-                                fetchPromise.fail(load.cause());
-                            }
-                        });
-                    }
-                });
-            } else {
-                log.warn("Fetch concept scheme from remote failed (using local fallback)", read.cause());
-                loadVocabulary(vertx, resource).setHandler(load -> {
-                    if (load.succeeded()) {
-                        fetchPromise.complete();
-                    } else {
-                        fetchPromise.fail(load.cause());
-                    }
-                });
-            }
+    private static Future<Void> fetchVocabulary(Vertx vertx, Model target, String uri, String resource) {
+        return fetcher.fetchScheme(uri).compose(scheme -> {
+            Promise<Void> merged = Promise.promise();
+            vertx.executeBlocking(merge -> {
+                addModel(target, scheme);
+                merge.complete();
+            }, false, merged);
+            log.debug("{} - {} triples", uri, scheme.size());
+            return merged.future();
+        }).recover(cause -> {
+            log.warn("Fetch concept scheme from remote failed (using local fallback)", cause);
+            return loadVocabulary(vertx, target, resource);
         });
-        return fetchPromise.future();
     }
 
-    private static Future<Void> readVocabulary(String uri) {
-        Promise<Void> readPromise = Promise.promise();
-        client.getAbs(uri).expect(ResponsePredicate.SC_OK).send(ar -> {
-            if (ar.succeeded()) {
-                parseRDF(new ByteArrayInputStream(ar.result().body().getBytes()));
-                readPromise.complete();
-            } else {
-                readPromise.fail(ar.cause());
-            }
-        });
-        return readPromise.future();
+    private static synchronized void parseRDF(Model target, InputStream stream) {
+        RDFDataMgr.read(target, stream, Lang.RDFXML);
+    }
+
+    private static synchronized void addModel(Model target, Model source) {
+        target.add(source);
     }
 
-    private static synchronized void parseRDF(InputStream stream) {
-        RDFDataMgr.read(model, stream, Lang.RDFXML);
+    private static List<String> localVocabularies() {
+        List<String> resources = new ArrayList<>();
+        SCHEMES.forEach(scheme -> resources.add(scheme[1]));
+        resources.add(PIVEAU_LICENCES);
+        return resources;
     }
 
 }
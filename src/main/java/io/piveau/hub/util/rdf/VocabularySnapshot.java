@@ -0,0 +1,314 @@
+package io.piveau.hub.util.rdf;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Binary snapshot of the vocabulary lookup tables, so the hub does not parse RDF/XML on start.
+ * <p>
+ * The format is a stamp, a table of all distinct strings and one fixed order record per concept referring to
+ * those strings by index, -1 for null. All numbers are big endian ints. The snapshot is read through a memory
+ * mapping and written to a temporary file that replaces the old one atomically.
+ * <p>
+ * The build creates a snapshot of the bundled vocabularies with {@link #main(String[])}, stamped with a hash of
+ * their files. Snapshots written at runtime carry the stamp of the bundled snapshot they replace, so a snapshot
+ * from another build is recognized by its stamp.
+ */
+public final class VocabularySnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(VocabularySnapshot.class);
+
+    public static final String RESOURCE = "vocabularies/vocabularies.snapshot";
+
+    private static final int MAGIC = 0x50564f43;
+    private static final int VERSION = 3;
+
+    private VocabularySnapshot() {
+    }
+
+    /**
+     * @param stamp identifies the vocabularies the tables were built from
+     */
+    public static void write(VocabularyTables tables, String stamp, Path path) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        List<VocabularyConcept> concepts = new ArrayList<>(tables.size());
+        tables.forEach(concept -> {
+            concepts.add(concept);
+            index(strings, concept.uri());
+            index(strings, concept.identifier());
+            index(strings, concept.exactMatch());
+            index(strings, concept.sameAs());
+            index(strings, concept.licensingAssistant());
+            index(strings, concept.homepage());
+            index(strings, concept.countryCode());
+            labels(concept.prefLabels(), (lang, label) -> {
+                index(strings, lang);
+                index(strings, label);
+            });
+            labels(concept.altLabels(), (lang, label) -> {
+                index(strings, lang);
+                index(strings, label);
+            });
+            concept.languageCodes().forEach(code -> index(strings, code));
+        });
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, stamp != null ? stamp : "");
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                writeString(out, string);
+            }
+            out.writeInt(concepts.size());
+            for (VocabularyConcept concept : concepts) {
+                out.writeInt(strings.get(concept.uri()));
+                out.writeInt(ref(strings, concept.identifier()));
+                out.writeInt(ref(strings, concept.exactMatch()));
+                out.writeInt(ref(strings, concept.sameAs()));
+                out.writeInt(ref(strings, concept.licensingAssistant()));
+                out.writeInt(ref(strings, concept.homepage()));
+                out.writeInt(ref(strings, concept.countryCode()));
+                writeLabels(out, strings, concept.prefLabels());
+                writeLabels(out, strings, concept.altLabels());
+                out.writeInt(concept.languageCodes().size());
+                for (String code : concept.languageCodes()) {
+                    out.writeInt(strings.get(code));
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @throws IOException if the file is missing, not a snapshot or of another version
+     */
+    public static VocabularyTables read(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            readHeader(buffer, path);
+
+            String[] strings = new String[buffer.getInt()];
+            byte[] bytes = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getInt();
+                if (length > bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8).intern();
+            }
+
+            int count = buffer.getInt();
+            Map<String, VocabularyConcept> concepts = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String uri = strings[buffer.getInt()];
+                String identifier = string(strings, buffer.getInt());
+                String exactMatch = string(strings, buffer.getInt());
+                String sameAs = string(strings, buffer.getInt());
+                String licensingAssistant = string(strings, buffer.getInt());
+                String homepage = string(strings, buffer.getInt());
+                String countryCode = string(strings, buffer.getInt());
+                InternedStringMap<String> prefLabels = readLabels(buffer, strings);
+                InternedStringMap<String> altLabels = readLabels(buffer, strings);
+                int codeCount = buffer.getInt();
+                List<String> codes = codeCount == 0 ? Collections.emptyList() : new ArrayList<>(codeCount);
+                for (int c = 0; c < codeCount; c++) {
+                    codes.add(strings[buffer.getInt()]);
+                }
+                concepts.put(uri, new VocabularyConcept(uri, identifier, prefLabels, altLabels, exactMatch, sameAs,
+                        licensingAssistant, homepage, countryCode, codeCount == 0 ? codes : Collections.unmodifiableList(codes)));
+            }
+            return VocabularyTables.of(concepts);
+        } catch (RuntimeException e) {
+            throw new IOException(path + " is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the stamp of the snapshot, null if it is missing, not a snapshot or of another version
+     */
+    public static String stamp(Path path) {
+        try (InputStream stream = Files.newInputStream(path)) {
+            return readStamp(stream);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the stamp of the snapshot bundled with the build, null if the build has none
+     */
+    public static String bundledStamp() {
+        try (InputStream stream = VocabularySnapshot.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            return stream != null ? readStamp(stream) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Copies the snapshot bundled with the build to the path, if there is one.
+     *
+     * @return false if the build has no snapshot
+     */
+    public static boolean extract(Path path) throws IOException {
+        try (InputStream stream = VocabularySnapshot.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (stream == null) {
+                return false;
+            }
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+            Files.copy(stream, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+    }
+
+    /**
+     * Build step, compiles the bundled vocabularies into a snapshot.
+     *
+     * @param args the vocabularies directory and the snapshot file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: VocabularySnapshot <vocabularies directory> <snapshot file>");
+        }
+        Path directory = Paths.get(args[0]);
+        Model model = ModelFactory.createDefaultModel();
+        MessageDigest digest = sha256();
+        for (String resource : VocabularyManager.LOCAL_VOCABULARIES) {
+            Path file = directory.resolve(Paths.get(resource).getFileName());
+            if (Files.exists(file)) {
+                byte[] bytes = Files.readAllBytes(file);
+                digest.update(resource.getBytes(StandardCharsets.UTF_8));
+                digest.update(bytes);
+                RDFDataMgr.read(model, new ByteArrayInputStream(bytes), Lang.RDFXML);
+            } else {
+                log.warn("{} not found, not part of the snapshot", file);
+            }
+        }
+        VocabularyTables tables = VocabularyTables.build(model);
+        write(tables, hex(digest.digest()), Paths.get(args[1]));
+        log.info("Vocabulary snapshot {} with {} concepts written", args[1], tables.size());
+    }
+
+    private static void readHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(path + " is no vocabulary snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(path + " has snapshot version " + version + ", expected " + VERSION);
+        }
+        byte[] stamp = new byte[buffer.getInt()];
+        buffer.get(stamp);
+    }
+
+    private static String readStamp(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return null;
+        }
+        byte[] stamp = new byte[in.readInt()];
+        in.readFully(stamp);
+        return new String(stamp, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void index(Map<String, Integer> strings, String string) {
+        if (string != null) {
+            strings.putIfAbsent(string, strings.size());
+        }
+    }
+
+    private static int ref(Map<String, Integer> strings, String string) {
+        return string != null ? strings.get(string) : -1;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index >= 0 ? strings[index] : null;
+    }
+
+    private static void labels(InternedStringMap<String> labels, BiConsumer<String, String> consumer) {
+        if (labels != null) {
+            labels.forEach(consumer);
+        }
+    }
+
+    private static void writeLabels(DataOutputStream out, Map<String, Integer> strings, InternedStringMap<String> labels) throws IOException {
+        if (labels == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(labels.size());
+        List<String> pairs = new ArrayList<>(labels.size() * 2);
+        labels.forEach((lang, label) -> {
+            pairs.add(lang);
+            pairs.add(label);
+        });
+        for (String string : pairs) {
+            out.writeInt(strings.get(string));
+        }
+    }
+
+    private static InternedStringMap<String> readLabels(ByteBuffer buffer, String[] strings) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        Map<String, String> labels = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String lang = strings[buffer.getInt()];
+            labels.put(lang, strings[buffer.getInt()]);
+        }
+        return new InternedStringMap<>(labels);
+    }
+
+}
@@ -0,0 +1,168 @@
+package io.piveau.hub.util.rdf;
+
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.OWL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Immutable lookup tables of all vocabulary concepts, compiled once from the vocabulary graph after loading.
+ * Lookups don't touch the Jena graph and are safe from any thread.
+ * <p>
+ * Every IRI that is the subject of a statement in the vocabularies is a concept, even without any of the indexed
+ * properties, so a concept lookup answers the same as a containsResource check for all concepts.
+ */
+public final class VocabularyTables {
+
+    public static final VocabularyTables EMPTY = new VocabularyTables(new InternedStringMap<>(Collections.emptyMap()));
+
+    private final InternedStringMap<VocabularyConcept> concepts;
+
+    private VocabularyTables(InternedStringMap<VocabularyConcept> concepts) {
+        this.concepts = concepts;
+    }
+
+    /**
+     * @param model the vocabulary graph, it must not be changed while the tables are built
+     */
+    public static VocabularyTables build(Model model) {
+        Map<String, VocabularyConcept> concepts = new HashMap<>();
+        ResIterator subjects = model.listSubjects();
+        while (subjects.hasNext()) {
+            Resource subject = subjects.nextResource();
+            if (subject.isURIResource()) {
+                concepts.put(subject.getURI(), compile(subject));
+            }
+        }
+        return of(concepts);
+    }
+
+    static VocabularyTables of(Map<String, VocabularyConcept> concepts) {
+        return new VocabularyTables(new InternedStringMap<>(concepts));
+    }
+
+    void forEach(Consumer<VocabularyConcept> consumer) {
+        concepts.forEach((uri, concept) -> consumer.accept(concept));
+    }
+
+    /**
+     * @return the concept, or null if the IRI is not in the vocabularies
+     */
+    public VocabularyConcept concept(String uri) {
+        return concepts.get(uri);
+    }
+
+    public int size() {
+        return concepts.size();
+    }
+
+    private static VocabularyConcept compile(Resource subject) {
+        Statement identifier = null;
+        Statement exactMatch = null;
+        Statement sameAs = null;
+        Statement licensingAssistant = null;
+        Statement homepage = null;
+        String countryCode = null;
+        Map<String, String> prefLabels = null;
+        Map<String, String> altLabels = null;
+        List<String> languageCodes = new ArrayList<>();
+
+        StmtIterator it = subject.listProperties();
+        while (it.hasNext()) {
+            Statement stmt = it.nextStatement();
+            switch (stmt.getPredicate().getURI()) {
+                case EUVOC.DC_NS + "identifier":
+                    identifier = identifier == null ? stmt : identifier;
+                    break;
+                case EUVOC.SKOS_NS + "prefLabel":
+                    prefLabels = prefLabels == null ? new HashMap<>() : prefLabels;
+                    addLabel(prefLabels, stmt);
+                    break;
+                case EUVOC.SKOS_NS + "altLabel":
+                    altLabels = altLabels == null ? new HashMap<>() : altLabels;
+                    addLabel(altLabels, stmt);
+                    break;
+                case EUVOC.SKOS_NS + "exactMatch":
+                    exactMatch = exactMatch == null ? stmt : exactMatch;
+                    break;
+                case OWL.NS + "sameAs":
+                    sameAs = sameAs == null ? stmt : sameAs;
+                    break;
+                case EDP.EDP_NS + "licensingAssistant":
+                    licensingAssistant = licensingAssistant == null ? stmt : licensingAssistant;
+                    break;
+                case DCATAP.FOAF_NS + "homepage":
+                    homepage = homepage == null ? stmt : homepage;
+                    break;
+                case EUVOC.EUVOC_NS + "xlNotation":
+                    countryCode = countryCode == null ? countryCode(stmt.getObject()) : countryCode;
+                    break;
+                case EUVOC.AT_NS + "op-mapped-code":
+                    String code = languageCode(stmt.getObject());
+                    if (code != null) {
+                        languageCodes.add(code.intern());
+                    }
+                    break;
+                default:
+            }
+        }
+
+        String sameAsUri = null;
+        if (sameAs != null) {
+            sameAsUri = sameAs.getObject().isURIResource() ? sameAs.getResource().getURI() : "";
+        }
+
+        return new VocabularyConcept(
+                subject.getURI(),
+                identifier != null && identifier.getObject().isLiteral() ? identifier.getString().intern() : null,
+                prefLabels != null ? new InternedStringMap<>(prefLabels) : null,
+                altLabels != null ? new InternedStringMap<>(altLabels) : null,
+                uri(exactMatch),
+                sameAsUri,
+                uri(licensingAssistant),
+                uri(homepage),
+                countryCode,
+                languageCodes.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(languageCodes));
+    }
+
+    private static void addLabel(Map<String, String> labels, Statement stmt) {
+        if (stmt.getObject().isLiteral()) {
+            labels.putIfAbsent(stmt.getLiteral().getLanguage(), stmt.getLiteral().getString().intern());
+        }
+    }
+
+    private static String uri(Statement stmt) {
+        return stmt != null && stmt.getObject().isURIResource() ? stmt.getResource().getURI().intern() : null;
+    }
+
+    private static String countryCode(RDFNode notation) {
+        if (!notation.isResource()) {
+            return null;
+        }
+        Resource type = notation.asResource().getPropertyResourceValue(DCATAP.dctType);
+        Statement codification = notation.asResource().getProperty(EUVOC.euvocXlCodification);
+        if (EUVOC.EuvocAlpha2.equals(type) && codification != null && codification.getObject().isLiteral()) {
+            return codification.getString().intern();
+        }
+        return null;
+    }
+
+    private static String languageCode(RDFNode mappedCode) {
+        if (!mappedCode.isResource()) {
+            return null;
+        }
+        Statement source = mappedCode.asResource().getProperty(EUVOC.dcSource);
+        Statement legacy = mappedCode.asResource().getProperty(EUVOC.atLegacyCode);
+        if (source != null && source.getObject().isLiteral() && "iso-639-1".equals(source.getString())
+                && legacy != null && legacy.getObject().isLiteral()) {
+            return legacy.getString();
+        }
+        return null;
+    }
+
+}
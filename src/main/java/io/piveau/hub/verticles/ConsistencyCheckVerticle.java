@@ -0,0 +1,93 @@
+package io.piveau.hub.verticles;
+
+import io.piveau.hub.util.ConsistencyChecker;
+import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.TSConnector;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.utils.ConfigHelper;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the consistency check between triplestore and search index periodically in the background.
+ */
+public class ConsistencyCheckVerticle extends AbstractVerticle {
+
+    private TSConnector connector;
+    private ConsistencyChecker checker;
+
+    private JsonArray catalogues;
+    private boolean repair;
+    private boolean running = false;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        JsonObject checkConfig = ConfigHelper.forConfig(config()).forceJsonObject(Constants.ENV_PIVEAU_HUB_CONSISTENCY_CHECK);
+        catalogues = checkConfig.getJsonArray("catalogues", new JsonArray());
+        repair = checkConfig.getBoolean("repair", true);
+
+        WebClient client = WebClient.create(vertx);
+        connector = TSConnector.create(client, null, ConfigHelper.forConfig(config()).forceJsonObject(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG));
+        checker = new ConsistencyChecker(vertx, client, connector, config());
+
+        vertx.setPeriodic(checkConfig.getLong("interval", 86400000L), id -> run());
+        startPromise.complete();
+    }
+
+    private void run() {
+        if (running) {
+            log.warn("Previous consistency check still running, skipping this one");
+            return;
+        }
+        running = true;
+
+        Promise<List<String>> cataloguesPromise = Promise.promise();
+        if (catalogues.isEmpty()) {
+            connector.query("SELECT ?c WHERE {?c a dcat:Catalog}", "application/json", ar -> {
+                if (ar.succeeded()) {
+                    List<String> ids = new ArrayList<>();
+                    ResultSet set = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
+                    set.forEachRemaining(qs -> ids.add(DCATAPUriSchema.parseUriRef(qs.getResource("c").getURI()).getId()));
+                    cataloguesPromise.complete(ids);
+                } else {
+                    cataloguesPromise.fail(ar.cause());
+                }
+            });
+        } else {
+            cataloguesPromise.complete(catalogues.stream().map(Object::toString).collect(Collectors.toList()));
+        }
+
+        cataloguesPromise.future().setHandler(ar -> {
+            if (ar.succeeded()) {
+                check(ar.result());
+            } else {
+                log.error("Listing catalogues for consistency check", ar.cause());
+                running = false;
+            }
+        });
+    }
+
+    private void check(List<String> catalogueIds) {
+        if (catalogueIds.isEmpty()) {
+            running = false;
+            return;
+        }
+        // the checker logs every report itself
+        checker.check(catalogueIds.remove(0), repair, ar -> check(catalogueIds));
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.piveau.hub.verticles;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.util.*;
+import io.piveau.hub.util.logger.PiveauLogger;
+import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.utils.ConfigHelper;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the incremental reindex periodically in the background.
+ */
+public class IncrementalReindexVerticle extends AbstractVerticle {
+
+    private TSConnector connector;
+    private ReindexEngine engine;
+
+    private JsonArray catalogues;
+    private JsonObject options;
+
+    private final PiveauLogger log = PiveauLoggerFactory.getLogger(getClass());
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        JsonObject reindexConfig = ConfigHelper.forConfig(config()).forceJsonObject(Constants.ENV_PIVEAU_HUB_INCREMENTAL_REINDEX);
+        catalogues = reindexConfig.getJsonArray("catalogues", new JsonArray());
+        options = new JsonObject();
+        reindexConfig.fieldNames().stream()
+                .filter(ReindexEngine.defaults()::containsKey)
+                .forEach(key -> options.put(key, reindexConfig.getValue(key)));
+
+        WebClient client = WebClient.create(vertx);
+        JsonObject triplestoreConfig = ConfigHelper.forConfig(config()).forceJsonObject(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG);
+        connector = TSConnector.create(client, null, triplestoreConfig);
+        engine = new ReindexEngine(vertx, connector, new GraphReader(connector, triplestoreConfig),
+                IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS),
+                new ConsistencyChecker(vertx, client, connector, config()),
+                IndexConversionPool.shared(vertx, config()),
+                config().getString(Constants.ENV_PIVEAU_HUB_STATE_DIR, "state"));
+
+        vertx.setPeriodic(reindexConfig.getLong("interval", 900000L), id -> run());
+        startPromise.complete();
+    }
+
+    private void run() {
+        if (engine.progress() != null) {
+            log.warn("Previous incremental reindex still running, skipping this one");
+            return;
+        }
+
+        Promise<List<String>> cataloguesPromise = Promise.promise();
+        if (catalogues.isEmpty()) {
+            connector.query("SELECT ?c WHERE {?c a dcat:Catalog}", "application/json", ar -> {
+                if (ar.succeeded()) {
+                    List<String> uriRefs = new ArrayList<>();
+                    ResultSet set = ResultSetFactory.fromJSON(new ByteArrayInputStream(ar.result().body().getBytes()));
+                    set.forEachRemaining(qs -> uriRefs.add(qs.getResource("c").getURI()));
+                    cataloguesPromise.complete(uriRefs);
+                } else {
+                    cataloguesPromise.fail(ar.cause());
+                }
+            });
+        } else {
+            cataloguesPromise.complete(catalogues.stream()
+                    .map(id -> DCATAPUriSchema.applyFor(id.toString()).getCatalogueUriRef())
+                    .collect(Collectors.toList()));
+        }
+
+        cataloguesPromise.future()
+                .compose(uriRefs -> engine.runIncremental(uriRefs, options, message -> {
+                    if (!message.isBlank() && !message.startsWith("\r")) {
+                        log.debug(message.trim());
+                    }
+                }))
+                .setHandler(ar -> {
+                    if (ar.failed()) {
+                        log.error("Incremental reindex failed", ar.cause());
+                    }
+                });
+    }
+
+}
@@ -1,23 +1,21 @@
 package io.piveau.hub.verticles;
 
 import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.sideeffects.SideEffectsService;
+import io.piveau.hub.services.statistics.StatisticsService;
 import io.piveau.hub.util.*;
 import io.piveau.hub.util.Constants;
 
-import io.piveau.indexing.Indexing;
-import io.piveau.rdf.RDFMimeTypes;
 import io.piveau.utils.ConfigHelper;
-import io.piveau.utils.JenaUtils;
-import io.piveau.utils.experimental.DCATAPUriRef;
 import io.piveau.utils.experimental.DCATAPUriSchema;
 import io.vertx.circuitbreaker.CircuitBreaker;
 import io.vertx.circuitbreaker.CircuitBreakerOptions;
 import io.vertx.core.*;
-import io.vertx.core.buffer.Buffer;
 import io.vertx.core.cli.Argument;
 import io.vertx.core.cli.CLI;
 import io.vertx.core.cli.CommandLine;
 import io.vertx.core.cli.Option;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.shell.ShellService;
@@ -27,22 +25,13 @@ import io.vertx.ext.shell.command.CommandProcess;
 import io.vertx.ext.shell.command.CommandRegistry;
 import io.vertx.ext.shell.term.HttpTermOptions;
 import io.vertx.ext.shell.term.TelnetTermOptions;
-import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.WebClient;
-import org.apache.jena.ext.com.google.common.collect.Lists;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.query.ResultSetFactory;
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
-import org.apache.jena.rdf.model.RDFNode;
-import org.apache.jena.riot.Lang;
-import org.apache.jena.vocabulary.DCAT;
 
 import java.io.ByteArrayInputStream;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class ShellVerticle extends AbstractVerticle {
@@ -51,6 +40,10 @@ public class ShellVerticle extends AbstractVerticle {
 
     private TSConnector connector;
 
+    private ConsistencyChecker consistencyChecker;
+
+    private ReindexEngine reindexEngine;
+
     @Override
     public void start(Promise<Void> promise) {
 
@@ -62,6 +55,7 @@ public class ShellVerticle extends AbstractVerticle {
 
         JsonObject conf = ConfigHelper.forConfig(config()).forceJsonObject(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG);
         connector = TSConnector.create(client, null, conf);
+        consistencyChecker = new ConsistencyChecker(vertx, client, connector, config());
 
         JsonObject cliConfig = ConfigHelper.forConfig(config()).forceJsonObject(Constants.ENV_PIVEAU_HUB_SEARCH_CLI_CONFIG);
         Integer cliPort = cliConfig.getInteger("port", 8085);
@@ -82,8 +76,13 @@ public class ShellVerticle extends AbstractVerticle {
             service.start(ar -> {
                 if (ar.succeeded()) {
                     indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
+                    reindexEngine = new ReindexEngine(vertx, connector, new GraphReader(connector, conf), indexService, consistencyChecker,
+                            IndexConversionPool.shared(vertx, config()), config().getString(Constants.ENV_PIVEAU_HUB_STATE_DIR, "state"));
 
                     CommandRegistry.getShared(vertx).registerCommand(simskiReindex().build(vertx));
+                    CommandRegistry.getShared(vertx).registerCommand(sideEffects().build(vertx));
+                    CommandRegistry.getShared(vertx).registerCommand(checkConsistency().build(vertx));
+                    CommandRegistry.getShared(vertx).registerCommand(statistics().build(vertx));
 
                     promise.complete();
                 } else {
@@ -114,14 +113,34 @@ public class ShellVerticle extends AbstractVerticle {
                                         .setLongName("partitionSize")
                                         .setDefaultValue("1000")
                                         .setDescription("Page size for partitioning datasets."))
+                        .addOption(
+                                new Option()
+                                        .setArgName("catalogueConcurrency")
+                                        .setShortName("c")
+                                        .setLongName("catalogueConcurrency")
+                                        .setDefaultValue("2")
+                                        .setDescription("Number of catalogues indexed in parallel."))
+                        .addOption(
+                                new Option()
+                                        .setArgName("datasetConcurrency")
+                                        .setShortName("d")
+                                        .setLongName("datasetConcurrency")
+                                        .setDefaultValue("16")
+                                        .setDescription("Number of datasets in flight per catalogue."))
+                        .addOption(new Option().setFlag(true).setArgName("resume").setShortName("r").setLongName("resume")
+                                .setDescription("Continue the last interrupted reindex from its checkpoint."))
+                        .addOption(new Option().setFlag(true).setArgName("incremental").setShortName("i").setLongName("incremental")
+                                .setDescription("Only reindex datasets whose records changed since the last incremental reindex."))
+                        .addOption(new Option().setFlag(true).setArgName("force").setShortName("f").setLongName("force")
+                                .setDescription("Send all documents, even if they did not change since they were indexed."))
                         .addOption(new Option().setHelp(true).setFlag(true).setArgName("help").setShortName("h").setLongName("help"))
                         .addOption(new Option().setFlag(true).setArgName("verbose").setShortName("v").setLongName("verbose")));
 
         commandBuilder.processHandler(process -> {
-            process.session().put("syncIndexCounter", new AtomicInteger());
-
             CommandLine commandLine = process.commandLine();
-            if (commandLine.allArguments().isEmpty()) {
+            if (commandLine.isFlagEnabled("resume")) {
+                syncCatalogues(new ArrayList<>(), process);
+            } else if (commandLine.allArguments().isEmpty()) {
                 process.write("Reindexing all catalogues\n");
                 listCatalogues(ar -> {
                     if (ar.succeeded()) {
@@ -139,192 +158,175 @@ public class ShellVerticle extends AbstractVerticle {
         return commandBuilder;
     }
 
-    private void syncCatalogues(List<String> uriRefs, CommandProcess process) {
-        Instant start = Instant.now();
-        String exclude = process.commandLine().getOptionValue("exclude");
-        List<String> excludeCatalogues = exclude.isBlank() ? Collections.emptyList() : Arrays.stream(exclude.split(",")).map(s -> io.piveau.utils.experimental.DCATAPUriSchema.applyFor(s).getCatalogueUriRef()).collect(Collectors.toList());
-        uriRefs.removeAll(excludeCatalogues);
-        if (!uriRefs.isEmpty()) {
-            Promise<Void> promise = Promise.promise();
-            reduceCatalogues(uriRefs, process, promise);
-            promise.future().setHandler(v -> {
-                process.write("Reindexing all catalogues finished. Overall duration " + Duration.between(start, Instant.now()) + "\n");
+    private CommandBuilder sideEffects() {
+        CommandBuilder commandBuilder = CommandBuilder.command(
+                CLI.create("sideEffects")
+                        .addOption(new Option().setFlag(true).setArgName("flush").setShortName("f").setLongName("flush")
+                                .setDescription("Process all pending side effects immediately."))
+                        .addOption(new Option().setHelp(true).setFlag(true).setArgName("help").setShortName("h").setLongName("help")));
+
+        commandBuilder.processHandler(process -> {
+            SideEffectsService sideEffectsService = SideEffectsService.createProxy(vertx, SideEffectsService.SERVICE_ADDRESS);
+            Promise<JsonObject> flushPromise = Promise.promise();
+            if (process.commandLine().isFlagEnabled("flush")) {
+                sideEffectsService.flush(flushPromise);
+            } else {
+                flushPromise.complete(new JsonObject());
+            }
+            flushPromise.future().compose(flushed -> {
+                Promise<JsonObject> metricsPromise = Promise.promise();
+                sideEffectsService.metrics(metricsPromise);
+                return metricsPromise.future().map(metrics -> metrics.mergeIn(flushed));
+            }).setHandler(ar -> {
+                if (ar.succeeded()) {
+                    process.write(ar.result().encodePrettily() + "\n");
+                } else {
+                    process.write("Side effects not available: " + ar.cause().getMessage() + "\n");
+                }
                 process.end();
             });
-        } else {
-            process.write("No catalogues for indexing.\n");
-            process.end();
-        }
+        });
+        return commandBuilder;
     }
 
-    private void reduceCatalogues(List<String> catalogues, CommandProcess process, Promise<Void> promise) {
-        String catalogue = catalogues.remove(0);
-        DCATAPUriRef schema = DCATAPUriSchema.parseUriRef(catalogue);
-        process.write("Start indexing " + schema.getId() + "\n");
-        syncCatalogue(schema, process, ic -> {
-            if (ic.succeeded()) {
-                process.write("Reindex of " + schema.getId() + " finished. Duration " + ic.result().toString() + "\n");
-            } else {
-                process.write("Reindex of " + schema.getId() + " failed: " + ic.cause().getMessage() + "\n");
-            }
-            if (catalogues.isEmpty()) {
-                promise.complete();
+    private CommandBuilder statistics() {
+        CommandBuilder commandBuilder = CommandBuilder.command(
+                CLI.create("statistics").addArgument(
+                        new Argument()
+                                .setArgName("catalogueIds")
+                                .setRequired(false)
+                                .setDescription("The ids of the catalogues, all if omitted when rebuilding."))
+                        .addOption(new Option().setFlag(true).setArgName("rebuild").setShortName("r").setLongName("rebuild")
+                                .setDescription("Count the catalogues again from the triplestore."))
+                        .addOption(new Option().setHelp(true).setFlag(true).setArgName("help").setShortName("h").setLongName("help")));
+
+        commandBuilder.processHandler(process -> {
+            // a rebuild reads all datasets of the catalogues before it answers
+            StatisticsService statisticsService = StatisticsService.createProxy(vertx, StatisticsService.SERVICE_ADDRESS,
+                    new DeliveryOptions().setSendTimeout(Duration.ofHours(6).toMillis()));
+            List<String> catalogueIds = process.commandLine().allArguments();
+            Promise<JsonObject> promise = Promise.promise();
+            if (process.commandLine().isFlagEnabled("rebuild")) {
+                process.write("Rebuilding statistics of " + (catalogueIds.isEmpty() ? "all catalogues" : String.join(", ", catalogueIds)) + "\n");
+                statisticsService.rebuild(new JsonArray(new ArrayList<>(catalogueIds)), promise);
+            } else if (catalogueIds.isEmpty()) {
+                promise.fail("Give the ids of the catalogues or rebuild with -r");
             } else {
-                reduceCatalogues(catalogues, process, promise);
+                List<Future> catalogues = catalogueIds.stream().map(id -> {
+                    Promise<JsonObject> catalogue = Promise.promise();
+                    statisticsService.getStatistics(id, catalogue);
+                    return catalogue.future();
+                }).collect(Collectors.toList());
+                CompositeFuture.all(catalogues).setHandler(ar -> promise.handle(ar.map(all ->
+                        new JsonObject().put("catalogues", new JsonArray(all.list())))));
             }
+            promise.future().setHandler(ar -> {
+                if (ar.succeeded()) {
+                    process.write(ar.result().encodePrettily() + "\n");
+                } else {
+                    process.write("Statistics not available: " + ar.cause().getMessage() + "\n");
+                }
+                process.end();
+            });
         });
+        return commandBuilder;
     }
 
-    private void syncCatalogue(DCATAPUriRef catalogueRef, CommandProcess process, Handler<AsyncResult<Duration>> handler) {
-        Instant start = Instant.now();
+    private CommandBuilder checkConsistency() {
+        CommandBuilder commandBuilder = CommandBuilder.command(
+                CLI.create("checkConsistency").addArgument(
+                        new Argument()
+                                .setArgName("catalogueIds")
+                                .setRequired(false)
+                                .setDescription("The ids of the catalogues to check, all if omitted."))
+                        .addOption(new Option().setFlag(true).setArgName("dryRun").setShortName("n").setLongName("dry-run")
+                                .setDescription("Only report differences, do not reindex or delete."))
+                        .addOption(new Option().setHelp(true).setFlag(true).setArgName("help").setShortName("h").setLongName("help")));
 
-        int chunk = Integer.parseInt(process.commandLine().getOptionValue("partitionSize"));
-        boolean verbose = process.commandLine().isFlagEnabled("verbose");
+        commandBuilder.processHandler(process -> {
+            boolean repair = !process.commandLine().isFlagEnabled("dryRun");
+            Promise<List<String>> cataloguesPromise = Promise.promise();
+            if (process.commandLine().allArguments().isEmpty()) {
+                listCatalogues(ar -> cataloguesPromise.handle(ar.map(uriRefs -> uriRefs.stream()
+                        .map(uriRef -> DCATAPUriSchema.parseUriRef(uriRef).getId())
+                        .collect(Collectors.toList()))));
+            } else {
+                cataloguesPromise.complete(new ArrayList<>(process.commandLine().allArguments()));
+            }
+            cataloguesPromise.future().setHandler(ar -> {
+                if (ar.succeeded()) {
+                    checkCatalogues(ar.result(), repair, process);
+                } else {
+                    process.write("Listing catalogues failed: " + ar.cause().getMessage() + "\n");
+                    process.end();
+                }
+            });
+        });
+        return commandBuilder;
+    }
 
-        String queryCatalogue = "CONSTRUCT WHERE {GRAPH <" + catalogueRef.getCatalogueGraphName() + "> {?s ?p ?o filter (?p != dcat:record)}}";
-        constructGraph(queryCatalogue, ModelFactory.createDefaultModel(), 0, ar -> {
+    private void checkCatalogues(List<String> catalogueIds, boolean repair, CommandProcess process) {
+        if (catalogueIds.isEmpty()) {
+            process.write("Consistency check finished.\n");
+            process.end();
+            return;
+        }
+        String catalogueId = catalogueIds.remove(0);
+        consistencyChecker.check(catalogueId, repair, ar -> {
             if (ar.succeeded()) {
-                Model catalogueModel = ar.result();
-                Promise<Void> cataloguePromise = Promise.promise();
-                indexService.addCatalog(Indexing.indexingCatalogue(catalogueModel.getResource(catalogueRef.getCatalogueUriRef())), cr -> {
-                    if (cr.succeeded()) {
-                        process.write("Indexing metadata of catalogue " + catalogueRef.getId() + " was successful.\n");
-                        cataloguePromise.complete();
-                    } else {
-                        process.write("Indexing metadata of catalogue " + catalogueRef.getId() + " failed: " + cr.cause().getMessage() + "\n");
-                        cataloguePromise.fail(cr.cause());
-                    }
-                });
-                cataloguePromise.future().compose(v -> {
-                    Promise<Void> promise = Promise.promise();
-                    List<RDFNode> datasets = catalogueModel.listObjectsOfProperty(DCAT.dataset).toList();
-                    process.write("Start indexing " + datasets.size() + " datasets...\n");
-                    List<List<RDFNode>> partitions = Lists.partition(datasets, chunk);
-                    if (verbose) {
-                        process.write("Index datasets in " + partitions.size() + " partitions\n");
-                    }
-                    reducePartitions(catalogueRef, partitions, process, promise);
-                    return promise.future();
-                }).setHandler(v -> {
-                    if (v.succeeded()) {
-                        process.write("\nIndexing datasets finished.\n");
-                        getIndexDatasetIds(catalogueRef.getId(), il -> {
-                            if (il.succeeded()) {
-                                Set<String> indexList = il.result();
-                                Set<String> storeList = catalogueModel.listObjectsOfProperty(DCAT.dataset).toSet().stream().map(node -> DCATAPUriSchema.parseUriRef(node.asResource().getURI()).getId()).collect(Collectors.toSet());
-                                indexList.removeAll(storeList);
-                                process.write("Number of obsolete datasets in " + catalogueRef.getId() + " index: " + indexList.size() + "\n");
-                                indexList.forEach(id -> {
-                                    indexService.deleteDataset(id, dr -> {
-                                        if (dr.failed()) {
-                                            process.write(dr.cause().getMessage());
-                                        }
-                                    });
-                                });
-                                handler.handle(Future.succeededFuture(Duration.between(start, Instant.now())));
-                            } else {
-                                process.write(il.cause().getMessage());
-                                handler.handle(Future.failedFuture(il.cause()));
-                            }
-                        });
-                    } else {
-                        handler.handle(Future.failedFuture(v.cause()));
-                    }
-                });
+                process.write(ar.result().encode() + "\n");
             } else {
-                handler.handle(Future.failedFuture(ar.cause()));
+                process.write("Consistency check of " + catalogueId + " failed: " + ar.cause().getMessage() + "\n");
             }
+            checkCatalogues(catalogueIds, repair, process);
         });
     }
 
-    private void reducePartitions(DCATAPUriRef catalogueSchema, List<List<RDFNode>> partitions, CommandProcess process, Promise<Void> promise) {
-        boolean verbose = process.commandLine().isFlagEnabled("verbose");
+    private void syncCatalogues(List<String> uriRefs, CommandProcess process) {
+        CommandLine commandLine = process.commandLine();
+        JsonObject options = new JsonObject()
+                .put("catalogueConcurrency", Integer.parseInt(commandLine.getOptionValue("catalogueConcurrency")))
+                .put("datasetConcurrency", Integer.parseInt(commandLine.getOptionValue("datasetConcurrency")))
+                .put("partitionSize", Integer.parseInt(commandLine.getOptionValue("partitionSize")))
+                .put("force", commandLine.isFlagEnabled("force"))
+                .put("verbose", commandLine.isFlagEnabled("verbose"));
 
-        if (partitions.isEmpty()) {
-            if (verbose) {
-                process.write("No more partitions\n");
-            }
-            promise.complete();
+        Future<JsonObject> run;
+        if (commandLine.isFlagEnabled("resume")) {
+            run = reindexEngine.resume(options, process::write);
         } else {
-            List<Future> futures = new ArrayList<>();
-            List<RDFNode> partition = partitions.get(0);
-            partition.forEach(node -> {
-                if (node.isURIResource()) {
-                    if (verbose) {
-                        process.write("Index dataset " + node.asResource().getURI() + "\n");
-                    }
-                    Promise<Void> datasetPromise = Promise.promise();
-                    futures.add(datasetPromise.future());
-                    String queryDataset = "CONSTRUCT WHERE {GRAPH <" + node.asResource().getURI() + "> {?s ?p ?o }}";
-                    constructGraph(queryDataset, ModelFactory.createDefaultModel(), 0, dr -> {
-                        if (dr.succeeded()) {
-                            if (verbose) {
-                                process.write("Dataset " + node.asResource().getURI() + " fetched successfully\n");
-                            }
-                            Model dataset = dr.result();
-                            try {
-                                JsonObject indexInfo = Indexing.indexingDataset(dataset.getResource(node.asResource().getURI()), catalogueSchema.getId(), "de");
-                                if (!indexInfo.isEmpty()) {
-                                    if (verbose) {
-                                        process.write("Index info for " + node.asResource().getURI() + " generated successfully\n");
-                                    }
-                                    indexService.addDatasetPut(indexInfo, ir -> {
-                                        if (ir.failed()) {
-                                            process.write("\nSent indexed dataset " + node.asResource().getURI() + " failed: " + indexInfo.encodePrettily() + " - " + ir.cause() + "\n");
-                                            datasetPromise.fail(ir.cause());
-                                        } else {
-                                            if (verbose) {
-                                                process.write("Dataset " + node.asResource().getURI() + " indexed successfully\n");
-                                            }
-                                            datasetPromise.complete();
-                                        }
-                                    });
-                                } else {
-                                    if (verbose) {
-                                        process.write("Index info for " + node.asResource().getURI() + " was empty!\n");
-                                    }
-                                    datasetPromise.fail("Index info for " + node.asResource().getURI() + " was empty!");
-                                }
-                            } catch (Exception e) {
-                                if (verbose) {
-                                    process.write("Indexing dataset " + node.asResource().getURI() + " failed (" + e.getMessage() + "): " + JenaUtils.write(dataset, Lang.TURTLE) + "\n");
-                                } else {
-                                    process.write("\nIndexing dataset " + node.asResource().getURI() + " failed: " + e.getMessage() + "\n");
-                                }
-                                datasetPromise.fail(e);
-                            }
-                        } else {
-                            process.write("\nFailed to fetch " + node.asResource().getURI() + ": " + dr.cause().getMessage() + "\n");
-                            datasetPromise.fail(dr.cause());
-                        }
-                    });
-                }
-            });
-            CompositeFuture.join(futures).setHandler(cf -> {
-                if (!verbose) {
-                    AtomicInteger counter = process.session().get("syncIndexCounter");
-                    process.write("\rIndexed " + counter.addAndGet(partition.size()));
-                }
-                reducePartitions(catalogueSchema, partitions.subList(1, partitions.size()), process, promise);
-            });
+            String exclude = commandLine.getOptionValue("exclude");
+            List<String> excludeCatalogues = exclude.isBlank() ? Collections.emptyList() : Arrays.stream(exclude.split(",")).map(s -> io.piveau.utils.experimental.DCATAPUriSchema.applyFor(s).getCatalogueUriRef()).collect(Collectors.toList());
+            uriRefs.removeAll(excludeCatalogues);
+            if (uriRefs.isEmpty()) {
+                process.write("No catalogues for indexing.\n");
+                process.end();
+                return;
+            }
+            run = commandLine.isFlagEnabled("incremental")
+                    ? reindexEngine.runIncremental(uriRefs, options, process::write)
+                    : reindexEngine.run(uriRefs, options, process::write);
         }
-    }
 
-    private void constructGraph(String query, Model model, int offset, Handler<AsyncResult<Model>> handler) {
-        String page = query + " OFFSET " + offset + " LIMIT 5000";
-        connector.query(page, RDFMimeTypes.NTRIPLES, ar -> {
+        process.interruptHandler(v -> {
+            if (reindexEngine.cancel()) {
+                process.write("\nCancelling reindex, waiting for datasets in flight...\n");
+            }
+        });
+        run.setHandler(ar -> indexService.fingerprintStatus(fr -> {
+            if (fr.succeeded() && fr.result().getBoolean("enabled")) {
+                process.write("Unchanged documents not sent since start: " + fr.result().getLong("suppressed") + "\n");
+            }
             if (ar.succeeded()) {
-                String body = ar.result().bodyAsString();
-                if (!body.contains("# Empty NT")) {
-                    model.add(JenaUtils.read(body.getBytes(), RDFMimeTypes.NTRIPLES));
-                    constructGraph(query, model, offset + 500, handler);
-                } else {
-                    handler.handle(Future.succeededFuture(model));
-                }
+                JsonObject summary = ar.result();
+                process.write("Reindexing finished. " + summary.getLong("indexed") + " datasets indexed, "
+                        + summary.getLong("failed") + " failed, " + summary.getLong("skipped") + " skipped, "
+                        + summary.getDouble("rate") + " datasets/s. Overall duration " + Duration.ofMillis(summary.getLong("duration")) + "\n");
             } else {
-                handler.handle(Future.failedFuture(ar.cause()));
+                process.write("\nReindexing stopped: " + ar.cause().getMessage() + "\n");
             }
-        });
+            process.end();
+        }));
     }
 
     private void listCatalogues(Handler<AsyncResult<List<String>>> handler) {
@@ -343,24 +345,4 @@ public class ShellVerticle extends AbstractVerticle {
         });
     }
 
-    private void getIndexDatasetIds(String catalogueId, Handler<AsyncResult<Set<String>>> handler) {
-        String address = config().getString(Constants.ENV_PIVEAU_HUB_ELASTICSEARCH_ADDRESS, "http://elasticsearch:9200");
-        WebClient client = WebClient.create(vertx);
-        HttpRequest<Buffer> request = client.getAbs(address + "/dataset/_search")
-                .addQueryParam("q", "catalog.id:" + catalogueId)
-                .addQueryParam("_source_includes", "id")
-                .addQueryParam("size", "250000");
-
-        request.send(ar -> {
-            if (ar.succeeded()) {
-                JsonObject result = ar.result().bodyAsJsonObject();
-                JsonArray hits = result.getJsonObject("hits", new JsonObject()).getJsonArray("hits", new JsonArray());
-                Set<String> ids = hits.stream().map(obj -> ((JsonObject) obj).getJsonObject("_source").getString("id")).collect(Collectors.toSet());
-                handler.handle(Future.succeededFuture(ids));
-            } else {
-                handler.handle(Future.failedFuture(ar.cause()));
-            }
-        });
-    }
-
 }
@@ -2,16 +2,26 @@ package io.piveau.hub;
 
 import io.piveau.hub.services.catalogues.CataloguesService;
 import io.piveau.hub.services.catalogues.CataloguesServiceVerticle;
+import io.piveau.hub.services.jobs.JobsService;
+import io.piveau.hub.services.jobs.JobsServiceVerticle;
+import io.piveau.hub.util.AppendLog;
 import io.piveau.hub.util.Constants;
 import io.piveau.hub.util.MockTripleStore;
+import io.piveau.hub.util.TSConnector;
 import io.piveau.hub.util.logger.PiveauLoggerFactory;
+import io.piveau.hub.util.rdf.HYDRA;
 import io.piveau.utils.JenaUtils;
+import io.piveau.utils.experimental.DCATAPUriRef;
 import io.piveau.utils.experimental.DCATAPUriSchema;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.Checkpoint;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
@@ -20,16 +30,26 @@ import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.riot.ResultSetMgr;
 import org.apache.jena.sparql.resultset.ResultsFormat;
+import org.apache.jena.sparql.vocabulary.FOAF;
 import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.RDF;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,15 +60,19 @@ class CatalogueImplServiceTest {
     private CataloguesService cataloguesService;
 
     private String exampleCatalogue;
+    private Path stateDir;
 
     @BeforeEach
-    void setUp(Vertx vertx, VertxTestContext testContext) {
+    void setUp(Vertx vertx, VertxTestContext testContext, @TempDir Path stateDir) {
+        this.stateDir = stateDir;
 
         DeploymentOptions options = new DeploymentOptions()
                 .setConfig(new JsonObject()
-                        .put(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG, MockTripleStore.getTriplestoreConfig(false)));
+                        .put(Constants.ENV_PIVEAU_HUB_STATE_DIR, stateDir.toString())
+                        .put(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG, MockTripleStore.getTriplestoreConfig(false))
+                        .put(Constants.ENV_PIVEAU_HUB_CATALOGUE_DELETE, new JsonObject().put("batchSize", 2)));
 
-        Checkpoint checkpoint = testContext.checkpoint(3);
+        Checkpoint checkpoint = testContext.checkpoint(4);
 
         vertx.deployVerticle(MockTripleStore.class.getName(), options, ar -> {
             if (ar.succeeded()) {
@@ -66,6 +90,15 @@ class CatalogueImplServiceTest {
             }
         });
 
+        // deletions are queued as delete jobs
+        vertx.deployVerticle(JobsServiceVerticle.class.getName(), options, ar -> {
+            if (ar.succeeded()) {
+                checkpoint.flag();
+            } else {
+                testContext.failNow(ar.cause());
+            }
+        });
+
         vertx.fileSystem().readFile("misc/example_catalog.ttl", ar -> {
             if (ar.succeeded()) {
                 exampleCatalogue = ar.result().toString();
@@ -140,7 +173,7 @@ class CatalogueImplServiceTest {
             if (ar.succeeded()) {
                cataloguesService.deleteCatalogue(datasetID, handler -> {
                     if (handler.succeeded()) {
-                        cataloguesService.getCatalogue(datasetID, "text/turtle", ar2 -> {
+                        awaitJob(vertx, handler.result().getString("id")).setHandler(testContext.succeeding(job -> cataloguesService.getCatalogue(datasetID, "text/turtle", ar2 -> {
                             if (ar2.succeeded()) {
                                 JsonObject result = ar2.result();
                                 testContext.verify(() -> {
@@ -151,7 +184,7 @@ class CatalogueImplServiceTest {
                             } else {
                                 testContext.failNow(ar2.cause());
                             }
-                        });
+                        })));
                     } else {
                         testContext.failNow(handler.cause());
                     }
@@ -417,4 +450,206 @@ class CatalogueImplServiceTest {
         });
     }
 
+    @Test
+    @DisplayName("Receive a catalogue page by page")
+    void testGetCataloguePages(Vertx vertx, VertxTestContext testContext) {
+        String catalogueId = "page-test-catalogue";
+        addDatasets(vertx, catalogueId, 5).setHandler(testContext.succeeding(v -> {
+            List<String> datasets = new ArrayList<>();
+            List<String> records = new ArrayList<>();
+            readPages(catalogueId, null, datasets, records, 0).setHandler(testContext.succeeding(pages -> testContext.verify(() -> {
+                assertEquals(3, pages);
+                assertEquals(5, datasets.size());
+                assertEquals(5, new HashSet<>(datasets).size());
+                assertEquals(datasets.stream().sorted().collect(Collectors.toList()), datasets);
+                assertEquals(5, records.size());
+                testContext.completeNow();
+            })));
+        }));
+    }
+
+    @Test
+    @DisplayName("Stream a catalogue in chunks")
+    void testStreamCatalogue(Vertx vertx, VertxTestContext testContext) {
+        String catalogueId = "stream-test-catalogue";
+        String address = "test.catalogue.stream";
+        Buffer content = Buffer.buffer();
+        vertx.eventBus().<Buffer>consumer(address, message -> {
+            if (message.headers().contains("end")) {
+                testContext.verify(() -> {
+                    assertEquals("success", message.headers().get("end"));
+                    Model model = JenaUtils.read(content.getBytes(), "application/n-triples");
+                    Resource catalogue = model.getResource(DCATAPUriSchema.applyFor(catalogueId).getCatalogueUriRef());
+                    assertEquals(DCAT.Catalog, catalogue.getProperty(RDF.type).getObject());
+                    assertEquals(5, model.listObjectsOfProperty(catalogue, DCAT.dataset).toList().size());
+                    assertEquals(5, model.listObjectsOfProperty(catalogue, DCAT.record).toList().size());
+                    testContext.completeNow();
+                });
+                return;
+            }
+            content.appendBuffer(message.body());
+            message.reply(null);
+        });
+        addDatasets(vertx, catalogueId, 5).setHandler(testContext.succeeding(v ->
+                cataloguesService.streamCatalogue(catalogueId, "application/n-triples", address, testContext.succeeding(result -> testContext.verify(() ->
+                        assertEquals("streaming", result.getString("status"))))))));
+    }
+
+    @Test
+    @DisplayName("Stream a missing catalogue")
+    void testStreamMissingCatalogue(Vertx vertx, VertxTestContext testContext) {
+        cataloguesService.streamCatalogue("stream-missing-catalogue", "text/turtle", "test.catalogue.missing", testContext.succeeding(result -> testContext.verify(() -> {
+            assertEquals("not found", result.getString("status"));
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("Reject a cursor which is no dataset uri ref")
+    void testInvalidCursor(Vertx vertx, VertxTestContext testContext) {
+        String catalogueId = "cursor-test-catalogue";
+        String injected = DCATAPUriSchema.applyFor("a").getDatasetUriRef() + "> ) } GRAPH ?g { ?s ?p ?member } FILTER (<x";
+        String cursor = Base64.getUrlEncoder().encodeToString(injected.getBytes(StandardCharsets.UTF_8));
+        addDatasets(vertx, catalogueId, 1).setHandler(testContext.succeeding(v ->
+                cataloguesService.getCataloguePage(catalogueId, "text/turtle", cursor, 2, "http://localhost/catalogues/" + catalogueId, testContext.succeeding(result -> testContext.verify(() -> {
+                    assertEquals("invalid cursor", result.getString("status"));
+                    testContext.completeNow();
+                })))));
+    }
+
+    @Test
+    @DisplayName("Update the metadata of a catalogue with datasets")
+    void testUpdateCatalogueMetadata(Vertx vertx, VertxTestContext testContext) {
+        String catalogueId = "update-test-catalogue";
+        String updated = exampleCatalogue.replace("\"Example Catalog\"@en", "\"Updated Catalog\"@en");
+        addDatasets(vertx, catalogueId, 5).setHandler(testContext.succeeding(v ->
+                cataloguesService.putCatalogue(catalogueId, updated, "text/turtle", null, testContext.succeeding(put -> {
+                    testContext.verify(() -> assertEquals("updated", put.getString("status")));
+                    cataloguesService.getCatalogue(catalogueId, "text/turtle", testContext.succeeding(result -> testContext.verify(() -> {
+                        Model model = JenaUtils.read(result.getString("content").getBytes(), "text/turtle");
+                        Resource catalogue = model.getResource(DCATAPUriSchema.applyFor(catalogueId).getCatalogueUriRef());
+                        assertEquals(1, model.listObjectsOfProperty(catalogue, DCTerms.title).toList().size());
+                        assertEquals("Updated Catalog", catalogue.getProperty(DCTerms.title).getString());
+                        assertEquals(1, model.listObjectsOfProperty(catalogue, DCTerms.publisher).toList().size());
+                        assertEquals(1, model.listSubjectsWithProperty(RDF.type, FOAF.Agent).toList().size());
+                        assertEquals(1, model.listObjectsOfProperty(catalogue, DCTerms.modified).toList().size());
+                        assertEquals(5, model.listObjectsOfProperty(catalogue, DCAT.dataset).toList().size());
+                        assertEquals(5, model.listObjectsOfProperty(catalogue, DCAT.record).toList().size());
+                        testContext.completeNow();
+                    })));
+                }))));
+    }
+
+    @Test
+    @DisplayName("Continue deleting a catalogue in batches after a checkpoint")
+    void testDeleteCatalogueInBatches(Vertx vertx, VertxTestContext testContext) {
+        String catalogueId = "batch-delete-test-catalogue";
+        TSConnector connector = TSConnector.create(WebClient.create(vertx), null, MockTripleStore.getTriplestoreConfig(false));
+        List<DCATAPUriRef> datasets = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            datasets.add(DCATAPUriSchema.applyFor(catalogueId + "-dataset-" + i));
+        }
+
+        addDatasets(vertx, catalogueId, datasets.size()).compose(v -> {
+            List<Future> graphs = new ArrayList<>();
+            datasets.forEach(dataset -> List.of(dataset.getDatasetGraphName(), dataset.getValidationGraphName()).forEach(graphName -> {
+                Model model = JenaUtils.read(("<" + dataset.getDatasetUriRef() + "> a <" + DCAT.Dataset + "> .").getBytes(), "text/turtle");
+                Promise<HttpResponse<Buffer>> promise = Promise.promise();
+                connector.putGraph(graphName, model, promise);
+                graphs.add(promise.future());
+            }));
+            return CompositeFuture.all(graphs);
+        }).compose(v -> {
+            // as if an earlier deletion stopped after the first batch
+            AppendLog.open(stateDir.resolve("deletes").toString(), catalogueId + ".log").append(new JsonObject()
+                    .put("catalogue", catalogueId)
+                    .put("after", datasets.get(1).getDatasetUriRef())
+                    .put("deleted", 2));
+            Promise<JsonObject> promise = Promise.promise();
+            cataloguesService.deleteCatalogue(catalogueId, promise);
+            return promise.future();
+        }).compose(queued -> awaitJob(vertx, queued.getString("id"))).compose(job -> {
+            testContext.verify(() -> {
+                assertEquals("finished", job.getString("state"));
+                assertEquals(5, job.getJsonObject("result").getJsonArray("catalogues").getJsonObject(0).getInteger("deleted"));
+            });
+            Promise<HttpResponse<Buffer>> promise = Promise.promise();
+            connector.query("SELECT DISTINCT ?g WHERE { GRAPH ?g { ?s ?p ?o } }", "application/sparql-results+json", promise);
+            return promise.future();
+        }).setHandler(testContext.succeeding(response -> testContext.verify(() -> {
+            List<String> graphs = response.bodyAsJsonObject().getJsonObject("results").getJsonArray("bindings").stream()
+                    .map(binding -> ((JsonObject) binding).getJsonObject("g").getString("value"))
+                    .collect(Collectors.toList());
+            assertFalse(graphs.contains(DCATAPUriSchema.applyFor(catalogueId).getCatalogueGraphName()));
+            // the datasets before the checkpoint are not visited again
+            assertTrue(graphs.contains(datasets.get(0).getDatasetGraphName()));
+            assertTrue(graphs.contains(datasets.get(1).getValidationGraphName()));
+            datasets.subList(2, datasets.size()).forEach(dataset -> {
+                assertFalse(graphs.contains(dataset.getDatasetGraphName()));
+                assertFalse(graphs.contains(dataset.getValidationGraphName()));
+            });
+            assertFalse(vertx.fileSystem().existsBlocking(stateDir.resolve("deletes").resolve(catalogueId + ".log").toString()));
+            testContext.completeNow();
+        })));
+    }
+
+    /**
+     * @return the job when it is neither queued nor running anymore
+     */
+    private Future<JsonObject> awaitJob(Vertx vertx, String id) {
+        Promise<JsonObject> promise = Promise.promise();
+        JobsService.createProxy(vertx, JobsService.SERVICE_ADDRESS).getJob(id, ar -> {
+            if (ar.failed()) {
+                promise.fail(ar.cause());
+            } else if (List.of("queued", "running").contains(ar.result().getString("state"))) {
+                vertx.setTimer(50, t -> awaitJob(vertx, id).setHandler(promise));
+            } else {
+                promise.complete(ar.result());
+            }
+        });
+        return promise.future();
+    }
+
+    private Future<Void> addDatasets(Vertx vertx, String catalogueId, int count) {
+        TSConnector connector = TSConnector.create(WebClient.create(vertx), null, MockTripleStore.getTriplestoreConfig(false));
+        String catalogueUriRef = DCATAPUriSchema.applyFor(catalogueId).getCatalogueUriRef();
+        Promise<JsonObject> put = Promise.promise();
+        cataloguesService.putCatalogue(catalogueId, exampleCatalogue, "text/turtle", null, put);
+        return put.future().compose(created -> {
+            List<Future> added = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                DCATAPUriRef dataset = DCATAPUriSchema.applyFor(catalogueId + "-dataset-" + i);
+                Promise<HttpResponse<Buffer>> promise = Promise.promise();
+                connector.addDatasetToCatalogue(dataset.getDatasetUriRef(), dataset.getRecordUriRef(), catalogueUriRef, promise);
+                added.add(promise.future());
+            }
+            return CompositeFuture.all(added).mapEmpty();
+        });
+    }
+
+    private Future<Integer> readPages(String catalogueId, String after, List<String> datasets, List<String> records, int pages) {
+        Promise<JsonObject> promise = Promise.promise();
+        cataloguesService.getCataloguePage(catalogueId, "text/turtle", after, 2, "http://localhost/catalogues/" + catalogueId, promise);
+        return promise.future().compose(result -> {
+            assertEquals("success", result.getString("status"));
+            Model model = JenaUtils.read(result.getString("content").getBytes(), "text/turtle");
+            Resource catalogue = model.getResource(DCATAPUriSchema.applyFor(catalogueId).getCatalogueUriRef());
+            List<String> page = model.listObjectsOfProperty(catalogue, DCAT.dataset).mapWith(node -> node.asResource().getURI()).toList();
+            Collections.sort(page);
+            datasets.addAll(page);
+            model.listObjectsOfProperty(catalogue, DCAT.record).forEachRemaining(node -> records.add(node.asResource().getURI()));
+
+            Resource view = catalogue.getPropertyResourceValue(HYDRA.view);
+            assertNotNull(view);
+            assertTrue(view.hasProperty(RDF.type, HYDRA.PartialCollectionView));
+            String next = result.getString("next");
+            if (next == null) {
+                assertFalse(view.hasProperty(HYDRA.next));
+                return Future.succeededFuture(pages + 1);
+            }
+            assertEquals(next, view.getPropertyResourceValue(HYDRA.next).getURI());
+            return readPages(catalogueId, next.substring(next.indexOf("after=") + "after=".length()), datasets, records, pages + 1);
+        });
+    }
+
 }
@@ -83,7 +83,7 @@ class DatasetImplServiceTest {
     void testCreateExampleDataset(Vertx vertx, VertxTestContext testContext) {
         String datasetID = "create-test-dataset";
 
-        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, ar -> {
+        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, false, ar -> {
             if (ar.succeeded()) {
                 JsonObject result = ar.result();
                 testContext.verify(() -> {
@@ -104,7 +104,7 @@ class DatasetImplServiceTest {
     void testDeleteExampleDataset(Vertx vertx, VertxTestContext testContext) {
         String datasetID = "delete-test-dataset";
 
-        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, ar -> {
+        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, false, ar -> {
             if (ar.succeeded()) {
                 datasetsService.deleteDataset(datasetID, catalogueID, handler -> {
                     if (handler.succeeded()) {
@@ -134,7 +134,7 @@ class DatasetImplServiceTest {
     @DisplayName("Receive an example dataset")
     void testGetExampleDataset(Vertx vertx, VertxTestContext testContext) {
 
-        datasetsService.putDataset("get-test-dataset", exampleDataset, "text/turtle", catalogueID, null, false, ar -> {
+        datasetsService.putDataset("get-test-dataset", exampleDataset, "text/turtle", catalogueID, null, false, false, ar -> {
             if (ar.succeeded()) {
                 datasetsService.getDataset("get-test-dataset", catalogueID, "text/turtle", ar2 -> {
                     if (ar2.succeeded()) {
@@ -165,7 +165,7 @@ class DatasetImplServiceTest {
     void testGetExampleDatasetNormalizedID(Vertx vertx, VertxTestContext testContext) {
         String datasetID = "test-Get-normalized-Dataset .id";
 
-        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, ar -> {
+        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, false, ar -> {
             if (ar.succeeded()) {
                 datasetsService.getDatasetByNormalizedId(DCATAPUriSchema.applyFor(datasetID).getId(), "text/turtle", ar2 -> {
                     if (ar2.succeeded()) {
@@ -244,7 +244,7 @@ class DatasetImplServiceTest {
     void testCountOneDataset(Vertx vertx, VertxTestContext testContext) {
         String datasetID = "count-one-test-dataset";
 
-        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, ar -> {
+        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, false, ar -> {
             if (ar.succeeded()) {
                 datasetsService.listDatasets("application/json", catalogueID, 20, 0, true, ar2 -> {
                     if (ar2.succeeded()) {
@@ -273,9 +273,9 @@ class DatasetImplServiceTest {
     void testCountTwoDatasetsInOneCat(Vertx vertx, VertxTestContext testContext) {
         String datasetID = "count-two-test-dataset";
 
-        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, ar -> {
+        datasetsService.putDataset(datasetID, exampleDataset, "text/turtle", catalogueID, null, false, false, ar -> {
             if (ar.succeeded()) {
-                datasetsService.putDataset(datasetID + "2", exampleDataset, "text/turtle", catalogueID, null, false, putHandler -> {
+                datasetsService.putDataset(datasetID + "2", exampleDataset, "text/turtle", catalogueID, null, false, false, putHandler -> {
                     if (putHandler.succeeded()) {
                         datasetsService.listDatasets("application/json", catalogueID, 20, 0, true, ar2 -> {
                             if (ar2.succeeded()) {
@@ -315,9 +315,9 @@ class DatasetImplServiceTest {
         Async async = tc.async();
         cataloguesService.putCatalogue(catalogueID+"2", cbuffer.toString(), "text/turtle", null, cr -> {
             if (cr.succeeded()) {
-                datasetsService.putDataset(datasetID, buffer.toString(), "text/turtle",catalogueID, null,false, ar -> {
+                datasetsService.putDataset(datasetID, buffer.toString(), "text/turtle",catalogueID, null,false, false, ar -> {
                     if (ar.succeeded()) {
-                        datasetsService.putDataset(datasetID, buffer.toString(), "text/turtle",catalogueID+"2", null,false, putHandler -> {
+                        datasetsService.putDataset(datasetID, buffer.toString(), "text/turtle",catalogueID+"2", null,false, false, putHandler -> {
                             if (putHandler.succeeded()) {
 
 
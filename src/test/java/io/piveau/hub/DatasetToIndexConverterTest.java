@@ -0,0 +1,89 @@
+package io.piveau.hub;
+
+import io.piveau.hub.converters.DatasetToIndexConverter;
+import io.piveau.hub.util.PropertyParserDatasetConverter;
+import io.piveau.hub.util.rdf.EDP;
+import io.piveau.utils.JenaUtils;
+import io.vertx.core.json.JsonObject;
+import org.apache.jena.datatypes.BaseDatatype;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the single pass dataset converter")
+class DatasetToIndexConverterTest {
+
+    private final DatasetToIndexConverter converter = new DatasetToIndexConverter();
+    private final PropertyParserDatasetConverter reference = new PropertyParserDatasetConverter();
+
+    @Test
+    @DisplayName("Converting the example datasets like the property parser")
+    void testExampleDatasets() throws IOException {
+        for (String file : new String[]{"misc/example_dataset.ttl", "misc/example_index_dataset.ttl"}) {
+            Model model = JenaUtils.read(Files.readAllBytes(Paths.get(file)), "text/turtle");
+            String uriRef = model.listSubjectsWithProperty(RDF.type, DCAT.Dataset).next().getURI();
+            addRecord(model, uriRef);
+
+            JsonObject expected = reference.convert(model, uriRef, "test-catalog");
+            JsonObject result = converter.convert(model, uriRef, "test-catalog");
+            assertEquals(expected, result, file);
+            assertEquals(expected.fieldNames().toString(), result.fieldNames().toString(), file);
+        }
+    }
+
+    @Test
+    @DisplayName("Converting a sparse dataset without exceptions")
+    void testSparseDataset() {
+        Model model = ModelFactory.createDefaultModel();
+        String uriRef = "https://piveau.io/set/data/sparse-dataset";
+        Resource dataset = model.createResource(uriRef, DCAT.Dataset)
+                .addProperty(DCTerms.title, "Sparse")
+                .addProperty(DCTerms.description, model.createResource())
+                .addProperty(DCTerms.issued, "not a date")
+                .addProperty(DCAT.landingPage, model.createResource())
+                .addProperty(DCTerms.spatial, model.createResource()
+                        .addProperty(EDP.locnGeometry, model.createTypedLiteral("no geometry", new BaseDatatype("http://www.openlinksw.com/schemas/virtrdf#Geometry"))));
+        dataset.addProperty(DCAT.distribution, model.createResource()
+                .addProperty(DCTerms.license, "CC-BY")
+                .addProperty(DCTerms.format, model.createResource("https://example.de/def/format/")));
+        model.createResource("https://piveau.io/set/record/sparse-dataset", DCAT.CatalogRecord);
+
+        JsonObject result = converter.convert(model, uriRef, "test-catalog");
+        assertEquals(reference.convert(model, uriRef, "test-catalog"), result);
+        assertEquals("Sparse", result.getJsonObject("title").getString("en"));
+        assertFalse(result.containsKey("description"));
+        assertFalse(result.containsKey("release_date"));
+        assertFalse(result.containsKey("spatial"));
+        assertEquals(1, result.getJsonArray("distributions").size());
+        assertFalse(result.getJsonArray("distributions").getJsonObject(0).containsKey("format"));
+    }
+
+    @Test
+    @DisplayName("Converting a model without record")
+    void testWithoutRecord() {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource("https://piveau.io/set/data/no-record", DCAT.Dataset).addProperty(DCTerms.title, "No record");
+        assertTrue(converter.convert(model, "https://piveau.io/set/data/no-record", "test-catalog").isEmpty());
+    }
+
+    private void addRecord(Model model, String uriRef) {
+        model.createResource(uriRef.replace("/data/", "/record/"), DCAT.CatalogRecord)
+                .addProperty(DCTerms.modified, model.createTypedLiteral("2019-11-20T10:00:00", XSDDatatype.XSDdateTime))
+                .addProperty(EDP.edpTranslationIssued, model.createTypedLiteral("2019-11-20T10:00:00", XSDDatatype.XSDdateTime))
+                .addProperty(EDP.edpTranslationReceived, model.createTypedLiteral("2019-11-20T11:00:00", XSDDatatype.XSDdateTime))
+                .addProperty(EDP.edpTranslationStatus, EDP.edpTranslationCompleted);
+    }
+
+}
@@ -0,0 +1,121 @@
+package io.piveau.hub;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.index.IndexServiceVerticle;
+import io.piveau.hub.util.Constants;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the elasticsearch index backend")
+@ExtendWith(VertxExtension.class)
+class ElasticsearchIndexServiceTest {
+
+    private static final int ELASTICSEARCH_PORT = 9098;
+
+    private IndexService indexService;
+
+    private final List<List<JsonObject>> bulkRequests = new ArrayList<>();
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext testContext) {
+        Checkpoint checkpoint = testContext.checkpoint(2);
+
+        HttpServer server = vertx.createHttpServer().requestHandler(request -> request.bodyHandler(body -> {
+            if (request.path().equals("/_bulk")) {
+                List<JsonObject> lines = new ArrayList<>();
+                for (String line : body.toString().split("\n")) {
+                    lines.add(new JsonObject(line));
+                }
+                bulkRequests.add(lines);
+
+                JsonArray items = new JsonArray();
+                for (int i = 0; i < lines.size(); i++) {
+                    JsonObject line = lines.get(i);
+                    String type = line.fieldNames().iterator().next();
+                    String id = line.getJsonObject(type).getString("_id");
+                    if ("index".equals(type)) {
+                        // skip the document line
+                        i++;
+                    }
+                    if (id.startsWith("broken")) {
+                        items.add(new JsonObject().put(type, new JsonObject().put("_id", id).put("status", 400)
+                                .put("error", new JsonObject().put("type", "mapper_parsing_exception"))));
+                    } else if (id.startsWith("missing")) {
+                        items.add(new JsonObject().put(type, new JsonObject().put("_id", id).put("status", 404).put("result", "not_found")));
+                    } else {
+                        items.add(new JsonObject().put(type, new JsonObject().put("_id", id).put("status", 200).put("result", "updated")));
+                    }
+                }
+                request.response().setStatusCode(200).end(new JsonObject().put("errors", false).put("items", items).encode());
+            } else {
+                request.response().setStatusCode(200).end(new JsonObject().put("deleted", 0).encode());
+            }
+        }));
+        server.listen(ELASTICSEARCH_PORT, testContext.succeeding(s -> checkpoint.flag()));
+
+        DeploymentOptions options = new DeploymentOptions()
+                .setConfig(new JsonObject()
+                        .put(Constants.ENV_PIVEAU_HUB_ELASTICSEARCH_ADDRESS, "http://localhost:" + ELASTICSEARCH_PORT)
+                        .put(Constants.ENV_PIVEAU_HUB_SEARCH_SERVICE, new JsonObject()
+                                .put("backend", "elasticsearch")
+                                .put("elasticsearch", new JsonObject()
+                                        .put("maxActions", 2)
+                                        .put("maxInFlight", 2)
+                                        .put("maxDelay", 200))));
+
+        vertx.deployVerticle(IndexServiceVerticle.class.getName(), options, testContext.succeeding(id -> {
+            indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
+            checkpoint.flag();
+        }));
+    }
+
+    @Test
+    @DisplayName("Send datasets in bounded NDJSON chunks")
+    void testChunks(Vertx vertx, VertxTestContext testContext) {
+        JsonArray datasets = new JsonArray();
+        for (int i = 0; i < 5; i++) {
+            datasets.add(new JsonObject().put("id", "dataset-" + i).put("title", "Dataset " + i));
+        }
+
+        indexService.addDatasetsUpsert(new JsonObject().put("datasets", datasets), testContext.succeeding(r -> testContext.verify(() -> {
+            // chunks run in parallel and may arrive in any order
+            assertEquals(3, bulkRequests.size());
+            assertEquals(10, bulkRequests.stream().mapToInt(List::size).sum());
+            bulkRequests.forEach(lines -> {
+                assertTrue(lines.size() <= 4);
+                assertEquals("dataset", lines.get(0).getJsonObject("index").getString("_index"));
+                String id = lines.get(0).getJsonObject("index").getString("_id");
+                assertEquals(id.replace("dataset-", "Dataset "), lines.get(1).getString("title"));
+            });
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("Report the result of every action")
+    void testPerItemResults(Vertx vertx, VertxTestContext testContext) {
+        Checkpoint checkpoint = testContext.checkpoint(3);
+
+        indexService.addDatasetPut(new JsonObject().put("id", "dataset-1"), testContext.succeeding(r -> checkpoint.flag()));
+        indexService.addDatasetPut(new JsonObject().put("id", "broken-1"), ar -> testContext.verify(() -> {
+            assertTrue(ar.failed());
+            assertTrue(ar.cause().getMessage().contains("mapper_parsing_exception"));
+            checkpoint.flag();
+        }));
+        indexService.deleteDataset("missing-1", testContext.succeeding(r -> checkpoint.flag()));
+    }
+
+}
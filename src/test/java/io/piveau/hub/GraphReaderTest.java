@@ -0,0 +1,105 @@
+package io.piveau.hub;
+
+import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.GraphReader;
+import io.piveau.hub.util.MockTripleStore;
+import io.piveau.hub.util.TSConnector;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the graph reader")
+@ExtendWith(VertxExtension.class)
+class GraphReaderTest {
+
+    private static final String GRAPH_1 = "https://piveau.io/set/data/graph-reader-1";
+    private static final String GRAPH_2 = "https://piveau.io/set/data/graph-reader-2";
+
+    private TSConnector connector;
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext testContext) {
+        DeploymentOptions options = new DeploymentOptions()
+                .setConfig(new JsonObject()
+                        .put(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG, MockTripleStore.getTriplestoreConfig(false)));
+        connector = TSConnector.create(WebClient.create(vertx), null, MockTripleStore.getTriplestoreConfig(false));
+
+        vertx.deployVerticle(MockTripleStore.class.getName(), options, testContext.succeeding(id -> {
+            Promise<Void> first = Promise.promise();
+            Promise<Void> second = Promise.promise();
+            connector.putGraph(GRAPH_1, dataset(GRAPH_1, "First", 1), ar -> first.handle(ar.mapEmpty()));
+            connector.putGraph(GRAPH_2, dataset(GRAPH_2, "Second", 2), ar -> second.handle(ar.mapEmpty()));
+            CompositeFuture.all(first.future(), second.future()).setHandler(testContext.succeeding(v -> testContext.completeNow()));
+        }));
+    }
+
+    @Test
+    @DisplayName("Reading several graphs with one query")
+    void testReadGraphs(Vertx vertx, VertxTestContext testContext) {
+        new GraphReader(connector).readGraphs(List.of(GRAPH_1, GRAPH_2, "https://piveau.io/set/data/missing"))
+                .setHandler(testContext.succeeding(models -> testContext.verify(() -> {
+                    assertEquals(2, models.size());
+                    assertFalse(models.containsKey("https://piveau.io/set/data/missing"));
+
+                    Resource first = models.get(GRAPH_1).getResource(GRAPH_1);
+                    assertEquals("First", first.getProperty(DCTerms.title).getString());
+                    assertEquals("en", first.getProperty(DCTerms.title).getLanguage());
+                    assertEquals(1, models.get(GRAPH_1).listObjectsOfProperty(DCAT.distribution).toList().size());
+                    assertEquals(2, models.get(GRAPH_2).listObjectsOfProperty(DCAT.distribution).toList().size());
+                    assertFalse(models.get(GRAPH_1).containsResource(models.get(GRAPH_2).getResource(GRAPH_2)));
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    @DisplayName("Reading a large graph in pages without duplicates")
+    void testReadGraphPaged(Vertx vertx, VertxTestContext testContext) {
+        String graph = "https://piveau.io/set/data/graph-reader-large";
+        Model model = dataset(graph, "Large", 1200);
+        connector.putGraph(graph, model, testContext.succeeding(response -> {
+            GraphReader reader = new GraphReader(connector, new JsonObject().put("maxResultRows", 1000));
+            reader.readGraph(graph, "?p != <" + DCAT.distribution + ">").setHandler(testContext.succeeding(result -> testContext.verify(() -> {
+                assertEquals(model.size() - 1200, result.size());
+                assertFalse(result.listStatements(null, DCAT.distribution, (RDFNode) null).hasNext());
+
+                JsonObject stats = reader.stats();
+                assertTrue(stats.getLong("pages") > 1);
+                assertEquals(stats.getLong("fetched"), stats.getLong("kept"));
+                testContext.completeNow();
+            })));
+        }));
+    }
+
+    private Model dataset(String uri, String title, int distributions) {
+        Model model = ModelFactory.createDefaultModel();
+        Resource dataset = model.createResource(uri, DCAT.Dataset)
+                .addProperty(DCTerms.title, title, "en");
+        for (int i = 0; i < distributions; i++) {
+            dataset.addProperty(DCAT.distribution, model.createResource()
+                    .addProperty(RDF.type, DCAT.Distribution)
+                    .addProperty(DCTerms.title, title + " " + i));
+        }
+        return model;
+    }
+
+}
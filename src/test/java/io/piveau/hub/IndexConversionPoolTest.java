@@ -0,0 +1,153 @@
+package io.piveau.hub;
+
+import io.piveau.hub.converters.DatasetToIndexConverter;
+import io.piveau.hub.util.ConsistencyChecker;
+import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.IndexConversionPool;
+import io.piveau.indexing.Indexing;
+import io.piveau.utils.JenaUtils;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.vocabulary.FOAF;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the index conversion pool")
+@ExtendWith(VertxExtension.class)
+class IndexConversionPoolTest {
+
+    private static final JsonObject CONFIG = new JsonObject()
+            .put(Constants.ENV_PIVEAU_HUB_CONVERSION_POOL, new JsonObject().put("size", 2).put("queueSize", 2));
+
+    private static final JsonObject SINGLE_PASS_CONFIG = new JsonObject()
+            .put(Constants.ENV_PIVEAU_HUB_CONVERSION_POOL, new JsonObject().put("size", 2).put("converter", "hub"));
+
+    @Test
+    @DisplayName("Results arrive on the calling context, overflowing tasks wait for the pool")
+    void testSubmit(Vertx vertx, VertxTestContext testContext) {
+        IndexConversionPool pool = IndexConversionPool.shared(vertx, CONFIG);
+        assertSame(pool, IndexConversionPool.shared(vertx, new JsonObject()));
+
+        Context context = vertx.getOrCreateContext();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        context.runOnContext(v -> {
+            List<Future> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                int value = i;
+                results.add(pool.submit(() -> {
+                    threads.add(Thread.currentThread().getName());
+                    Thread.sleep(20);
+                    return value * 2;
+                }).map(result -> {
+                    assertSame(context, vertx.getOrCreateContext());
+                    return result;
+                }));
+            }
+            CompositeFuture.all(results).setHandler(testContext.succeeding(all -> testContext.verify(() -> {
+                for (int i = 0; i < 20; i++) {
+                    assertEquals(i * 2, (int) all.resultAt(i));
+                }
+                JsonObject metrics = pool.metrics();
+                assertEquals(2, metrics.getInteger("size"));
+                assertEquals(20, metrics.getLong("submitted"));
+                assertTrue(metrics.getLong("overflow") > 0);
+                assertEquals(0, metrics.getInteger("waiting"));
+                assertTrue(threads.stream().allMatch(thread -> thread.startsWith("hub-conversion-")));
+                testContext.completeNow();
+            })));
+        });
+    }
+
+    @Test
+    @DisplayName("Datasets are converted with the indexing library by default")
+    void testConvertDatasetIndexing(Vertx vertx, VertxTestContext testContext) throws IOException {
+        Model model = exampleDataset();
+        String uriRef = model.listSubjectsWithProperty(RDF.type, DCAT.Dataset).next().getURI();
+        JsonObject expected = Indexing.indexingDataset(model.getResource(uriRef), "test-catalog", "en");
+
+        IndexConversionPool.shared(vertx, CONFIG).convertDataset(model, uriRef, "test-catalog", "en")
+                .setHandler(testContext.succeeding(document -> testContext.verify(() -> {
+                    document.remove(ConsistencyChecker.CHECKSUM_FIELD);
+                    assertEquals(expected, document);
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    @DisplayName("Datasets are converted with the single pass converter if configured")
+    void testConvertDataset(Vertx vertx, VertxTestContext testContext) throws IOException {
+        Model model = exampleDataset();
+        String uriRef = model.listSubjectsWithProperty(RDF.type, DCAT.Dataset).next().getURI();
+        JsonObject expected = new DatasetToIndexConverter().convert(model, uriRef, "test-catalog");
+
+        IndexConversionPool.shared(vertx, SINGLE_PASS_CONFIG).convertDataset(model, uriRef, "test-catalog", "en")
+                .setHandler(testContext.succeeding(document -> testContext.verify(() -> {
+                    assertEquals(expected, document);
+                    testContext.completeNow();
+                })));
+    }
+
+    private Model exampleDataset() throws IOException {
+        Model model = JenaUtils.read(Files.readAllBytes(Paths.get("misc/example_dataset.ttl")), "text/turtle");
+        String uriRef = model.listSubjectsWithProperty(RDF.type, DCAT.Dataset).next().getURI();
+        model.createResource(uriRef.replace("/data/", "/record/"), DCAT.CatalogRecord)
+                .addProperty(FOAF.primaryTopic, model.getResource(uriRef));
+        return model;
+    }
+
+    @Test
+    @DisplayName("Tasks beyond the waiting limit are rejected")
+    void testRejected(Vertx vertx, VertxTestContext testContext) {
+        JsonObject config = new JsonObject().put(Constants.ENV_PIVEAU_HUB_CONVERSION_POOL, new JsonObject()
+                .put("size", 1).put("queueSize", 1).put("maxWaiting", 1));
+        IndexConversionPool pool = IndexConversionPool.shared(vertx, config);
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<Future> accepted = new ArrayList<>();
+        // one running, one queued, one waiting
+        for (int i = 0; i < 3; i++) {
+            accepted.add(pool.submit(() -> {
+                blocked.await();
+                return true;
+            }));
+        }
+        pool.<Boolean>submit(() -> true).setHandler(testContext.failing(cause -> testContext.verify(() -> {
+            assertTrue(cause instanceof RejectedExecutionException);
+            assertEquals(1, pool.metrics().getLong("rejected"));
+            blocked.countDown();
+            CompositeFuture.all(accepted).setHandler(testContext.succeeding(all -> testContext.completeNow()));
+        })));
+    }
+
+    @Test
+    @DisplayName("A failing task fails its future")
+    void testFailure(Vertx vertx, VertxTestContext testContext) {
+        IndexConversionPool.shared(vertx, CONFIG).<String>submit(() -> {
+            throw new IllegalStateException("broken");
+        }).setHandler(testContext.failing(cause -> testContext.verify(() -> {
+            assertEquals("broken", cause.getMessage());
+            testContext.completeNow();
+        })));
+    }
+
+}
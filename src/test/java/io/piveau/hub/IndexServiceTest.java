@@ -0,0 +1,268 @@
+package io.piveau.hub;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.index.IndexServiceVerticle;
+import io.piveau.hub.util.Constants;
+import io.vertx.circuitbreaker.CircuitBreaker;
+import io.vertx.circuitbreaker.CircuitBreakerOptions;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the index service")
+@ExtendWith(VertxExtension.class)
+class IndexServiceTest {
+    private static final int SEARCH_PORT = 9097;
+
+    private IndexService indexService;
+
+    private final List<JsonObject> bulkRequests = new ArrayList<>();
+    private final List<String> requests = new ArrayList<>();
+
+    private boolean searchAvailable = true;
+    private boolean searchHeld = false;
+    private final List<HttpServerRequest> heldRequests = new ArrayList<>();
+
+    private Path stateDir;
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext testContext, @TempDir Path stateDir) {
+        this.stateDir = stateDir;
+        Checkpoint checkpoint = testContext.checkpoint(2);
+
+        HttpServer server = vertx.createHttpServer().requestHandler(request -> request.bodyHandler(body -> {
+            requests.add(request.method() + " " + request.path());
+            if (searchHeld) {
+                heldRequests.add(request);
+            } else if (!searchAvailable) {
+                request.response().setStatusCode(503).end();
+            } else if (request.path().equals("/dataset/_mget")) {
+                JsonArray docs = new JsonArray();
+                body.toJsonObject().getJsonArray("ids").forEach(id -> docs.add(new JsonObject()
+                        .put("_id", id)
+                        .put("found", id.toString().startsWith("existing"))));
+                request.response().setStatusCode(200).end(new JsonObject().put("docs", docs).encode());
+            } else if (request.path().startsWith("/datasets/") && request.method() == HttpMethod.GET) {
+                request.response().setStatusCode(request.path().startsWith("/datasets/existing") ? 200 : 404).end();
+            } else if (request.path().equals("/datasets") && request.method() == HttpMethod.POST) {
+                request.response().setStatusCode(201).end();
+            } else if (request.path().equals("/datasets")) {
+                JsonObject payload = body.toJsonObject();
+                bulkRequests.add(payload);
+                JsonArray result = new JsonArray();
+                payload.getJsonArray("datasets").forEach(item -> {
+                    String id = ((JsonObject) item).getString("id");
+                    result.add(new JsonObject().put("id", id).put("success", !id.startsWith("broken")));
+                });
+                request.response().setStatusCode(200).end(new JsonObject().put("success", true).put("result", result).encode());
+            } else {
+                request.response().setStatusCode(200).end(new JsonObject().put("success", true).encode());
+            }
+        }));
+        server.listen(SEARCH_PORT, testContext.succeeding(s -> checkpoint.flag()));
+
+        DeploymentOptions options = new DeploymentOptions()
+                .setConfig(new JsonObject()
+                        .put(Constants.ENV_PIVEAU_HUB_STATE_DIR, stateDir.toString())
+                        .put(Constants.ENV_PIVEAU_HUB_ELASTICSEARCH_ADDRESS, "http://localhost:" + SEARCH_PORT)
+                        .put(Constants.ENV_PIVEAU_HUB_SEARCH_SERVICE, new JsonObject()
+                                .put("url", "localhost")
+                                .put("port", SEARCH_PORT)
+                                .put("api_key", "apiKey")
+                                .put("batching", new JsonObject()
+                                        .put("enabled", true)
+                                        .put("maxSize", 3)
+                                        .put("maxDelay", 200))
+                                .put("outbox", new JsonObject()
+                                        .put("enabled", true)
+                                        .put("baseDelay", 60000))
+                                .put("fingerprints", new JsonObject()
+                                        .put("enabled", true))));
+
+        vertx.deployVerticle(IndexServiceVerticle.class.getName(), options, testContext.succeeding(id -> {
+            indexService = IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS);
+            checkpoint.flag();
+        }));
+    }
+
+    @Test
+    @DisplayName("Batch datasets, latest document wins")
+    void testBatchLatestWins(Vertx vertx, VertxTestContext testContext) {
+        Checkpoint checkpoint = testContext.checkpoint(3);
+
+        indexService.addDatasetPut(new JsonObject().put("id", "dataset-1").put("title", "old"), testContext.succeeding(r -> checkpoint.flag()));
+        indexService.addDatasetPut(new JsonObject().put("id", "dataset-2"), testContext.succeeding(r -> checkpoint.flag()));
+        indexService.addDatasetPut(new JsonObject().put("id", "dataset-1").put("title", "new"), testContext.succeeding(r -> testContext.verify(() -> {
+            assertEquals(1, bulkRequests.size());
+            JsonArray datasets = bulkRequests.get(0).getJsonArray("datasets");
+            assertEquals(2, datasets.size());
+            assertEquals("new", datasets.getJsonObject(0).getString("title"));
+            checkpoint.flag();
+        })));
+    }
+
+    @Test
+    @DisplayName("Report results per document")
+    void testBatchPerDocumentResult(Vertx vertx, VertxTestContext testContext) {
+        Checkpoint checkpoint = testContext.checkpoint(2);
+
+        indexService.addDatasetPut(new JsonObject().put("id", "dataset-1"), testContext.succeeding(r -> checkpoint.flag()));
+        indexService.addDatasetPut(new JsonObject().put("id", "broken-1"), ar -> testContext.verify(() -> {
+            assertTrue(ar.failed());
+            checkpoint.flag();
+        }));
+    }
+
+    @Test
+    @DisplayName("Upsert without existence checks, look up existence at the search service")
+    void testUpsertWithoutExistenceCheck(Vertx vertx, VertxTestContext testContext) {
+        indexService.addDatasetWithoutCB(datasets(10), testContext.succeeding(u -> testContext.verify(() -> {
+            assertEquals(List.of("PUT /datasets"), requests);
+            requests.clear();
+
+            indexService.datasetsExist(new JsonArray().add("existing-0").add("new-1"), testContext.succeeding(existing -> testContext.verify(() -> {
+                assertEquals(new JsonObject().put("existing-0", true).put("new-1", false), existing);
+                assertEquals(2, requests.size());
+                assertTrue(requests.contains("GET /datasets/existing-0"));
+                assertTrue(requests.contains("GET /datasets/new-1"));
+                testContext.completeNow();
+            })));
+        })));
+    }
+
+    @Test
+    @DisplayName("Split updates and creations with one elasticsearch existence check")
+    void testElasticsearchExistenceCheck(Vertx vertx, VertxTestContext testContext) {
+        JsonObject config = new JsonObject()
+                .put("url", "localhost")
+                .put("port", SEARCH_PORT)
+                .put("api_key", "apiKey")
+                .put("elasticsearchAddress", "http://localhost:" + SEARCH_PORT)
+                .put("existenceCheck", "elasticsearch");
+        CircuitBreaker breaker = CircuitBreaker.create("existence-breaker", vertx, new CircuitBreakerOptions().setMaxRetries(0));
+
+        IndexService.create(vertx, WebClient.create(vertx), breaker, config, testContext.succeeding(service ->
+                service.addDatasetWithoutCB(datasets(1000), testContext.succeeding(s -> testContext.verify(() -> {
+                    assertEquals(3, requests.size());
+                    assertTrue(requests.contains("POST /dataset/_mget"));
+                    assertTrue(requests.contains("PUT /datasets"));
+                    assertTrue(requests.contains("POST /datasets"));
+                    testContext.completeNow();
+                })))));
+    }
+
+    private static JsonObject datasets(int count) {
+        JsonArray datasets = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            datasets.add(new JsonObject().put("id", (i % 2 == 0 ? "existing-" : "new-") + i).put("title", "Dataset " + i));
+        }
+        return new JsonObject().put("datasets", datasets);
+    }
+
+    @Test
+    @DisplayName("Keep failed operations in the outbox and drain them")
+    void testOutboxDrain(Vertx vertx, VertxTestContext testContext) {
+        searchAvailable = false;
+        indexService.deleteDataset("dataset-1", ar -> testContext.verify(() -> {
+            assertTrue(ar.failed());
+            indexService.outboxStatus(testContext.succeeding(status -> testContext.verify(() -> {
+                assertEquals(1, status.getLong("pending"));
+                assertEquals(1, status.getJsonObject("byType").getLong("deleteDataset"));
+
+                searchAvailable = true;
+                indexService.drainOutbox("dataset-1", testContext.succeeding(drained -> testContext.verify(() -> {
+                    assertEquals(1, drained.getLong("drained"));
+                    assertEquals(0, drained.getLong("remaining"));
+                    indexService.outboxStatus(testContext.succeeding(after -> testContext.verify(() -> {
+                        assertEquals(0, after.getLong("pending"));
+                        assertEquals(1, after.getLong("recovered"));
+                        testContext.completeNow();
+                    })));
+                })));
+            })));
+        }));
+    }
+
+    @Test
+    @DisplayName("Journal operations in the outbox while they are sent")
+    void testOutboxJournalsSending(Vertx vertx, VertxTestContext testContext) {
+        searchHeld = true;
+        indexService.deleteDataset("dataset-1", testContext.succeeding(r ->
+                indexService.outboxStatus(testContext.succeeding(after -> testContext.verify(() -> {
+                    assertEquals(0, after.getLong("sending"));
+                    assertEquals(0, after.getLong("pending"));
+                    testContext.completeNow();
+                })))));
+
+        vertx.setTimer(200, t -> indexService.outboxStatus(testContext.succeeding(status -> testContext.verify(() -> {
+            assertEquals(1, status.getLong("sending"));
+            assertEquals(0, status.getLong("pending"));
+            assertTrue(Files.readString(stateDir.resolve("indexoutbox.log")).contains("dataset:dataset-1"));
+
+            searchHeld = false;
+            heldRequests.forEach(request -> request.response().setStatusCode(200).end(new JsonObject().put("success", true).encode()));
+        }))));
+    }
+
+    @Test
+    @DisplayName("Suppress unchanged documents unless fingerprints are forgotten")
+    void testFingerprints(Vertx vertx, VertxTestContext testContext) {
+        JsonObject dataset = new JsonObject().put("id", "dataset-1").put("title", "Title").put("catalog", new JsonObject().put("id", "catalog-1"));
+        JsonObject reordered = new JsonObject().put("catalog", new JsonObject().put("id", "catalog-1")).put("title", "Title").put("id", "dataset-1");
+
+        indexService.addDatasetPut(dataset, testContext.succeeding(first ->
+                indexService.addDatasetPut(reordered, testContext.succeeding(second -> testContext.verify(() -> {
+                    assertEquals("unchanged", second.getString("status"));
+                    assertEquals(1, bulkRequests.size());
+
+                    indexService.forgetFingerprints("catalog-1", testContext.succeeding(forgotten -> testContext.verify(() -> {
+                        assertEquals(1, forgotten.getInteger("forgotten"));
+                        indexService.addDatasetPut(dataset, testContext.succeeding(third ->
+                                indexService.fingerprintStatus(testContext.succeeding(status -> testContext.verify(() -> {
+                                    assertEquals(2, bulkRequests.size());
+                                    assertEquals(1, status.getLong("suppressed"));
+                                    assertEquals(1, status.getInteger("entries"));
+                                    testContext.completeNow();
+                                })))));
+                    })));
+                })))));
+    }
+
+    @Test
+    @DisplayName("Send a document again after a failed send of another version")
+    void testFingerprintDroppedOnFailure(Vertx vertx, VertxTestContext testContext) {
+        JsonObject dataset = new JsonObject().put("id", "dataset-1").put("title", "Title");
+
+        indexService.addDatasetPut(dataset, testContext.succeeding(first -> {
+            searchAvailable = false;
+            indexService.addDatasetPut(dataset.copy().put("title", "Changed"), ar -> testContext.verify(() -> {
+                assertTrue(ar.failed());
+                searchAvailable = true;
+                indexService.addDatasetPut(dataset, testContext.succeeding(third -> testContext.verify(() -> {
+                    assertNotEquals("unchanged", third != null ? third.getString("status") : null);
+                    assertEquals(2, bulkRequests.size());
+                    testContext.completeNow();
+                })));
+            }));
+        }));
+    }
+
+}
@@ -0,0 +1,90 @@
+package io.piveau.hub;
+
+import io.piveau.hub.util.json.PooledJsonBuffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the json writers")
+class JsonWriterTest {
+
+    @Test
+    @DisplayName("Streaming a tree gives the same json as encoding it")
+    void testTree() {
+        JsonObject tree = new JsonObject()
+                .put("string", "Ünïcode \"quoted\" \\ \n tab\t")
+                .put("int", 42)
+                .put("long", 1L << 40)
+                .put("double", 13.66)
+                .put("whole", 50.0)
+                .put("boolean", true)
+                .putNull("null")
+                .put("binary", new byte[]{1, 2, 3})
+                .put("instant", Instant.parse("2020-03-01T12:00:00Z"))
+                .put("array", new JsonArray().add(1).add("two").addNull().add(new JsonArray().add(3.5)))
+                .put("object", new JsonObject().put("nested", new JsonObject()));
+
+        PooledJsonBuffer body = PooledJsonBuffer.of(tree);
+        assertEquals(tree.encode(), body.retain().toString());
+        body.release();
+        body.release();
+    }
+
+    @Test
+    @DisplayName("Writing events gives the same document as encoding the tree")
+    void testEvents() {
+        JsonObject tree = new JsonObject()
+                .put("id", "dataset")
+                .putNull("missing")
+                .put("machine_translated", false)
+                .put("title", new JsonObject().put("en", "Title").put("de", "Titel"))
+                .put("keywords", new JsonArray().add("one").add(new JsonObject().put("id", "two")))
+                .put("spatial", new JsonObject().put("type", "Point").put("coordinates", new JsonArray().add(50).add(50)))
+                .put("distributions", new JsonArray().add(new JsonObject().put("id", "distribution")));
+
+        PooledJsonBuffer body = PooledJsonBuffer.allocate(16);
+        body.writer().startObject()
+                .put("id", "dataset")
+                .put("missing", (String) null)
+                .put("machine_translated", false)
+                .startObject("title").put("en", "Title").put("de", "Titel").endObject()
+                .startArray("keywords").add("one").add(new JsonObject().put("id", "two")).endArray()
+                .put("spatial", new JsonObject().put("type", "Point").put("coordinates", new JsonArray().add(50).add(50)))
+                .startArray("distributions")
+                .startObject().put("id", "distribution").endObject()
+                .endArray()
+                .endObject();
+
+        assertEquals(tree.encode(), body.retain().toString());
+        body.release();
+        body.release();
+    }
+
+    @Test
+    @DisplayName("Root values without separator, moving a tail into another buffer")
+    void testTruncateAndAppend() {
+        PooledJsonBuffer first = PooledJsonBuffer.allocate(16);
+        first.writer().add(new JsonObject().put("line", 1));
+        first.raw('\n');
+        int mark = first.length();
+        first.writer().add(new JsonObject().put("line", 2));
+        first.raw('\n');
+
+        PooledJsonBuffer second = PooledJsonBuffer.allocate(16);
+        second.append(first, mark);
+        first.truncate(mark);
+
+        assertEquals("{\"line\":1}\n", first.retain().toString());
+        assertEquals("{\"line\":2}\n", second.retain().toString());
+        first.release();
+        first.release();
+        second.release();
+        second.release();
+    }
+
+}
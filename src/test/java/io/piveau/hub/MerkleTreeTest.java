@@ -0,0 +1,44 @@
+package io.piveau.hub;
+
+import io.piveau.hub.util.MerkleTree;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing merkle tree")
+class MerkleTreeTest {
+
+    @Test
+    @DisplayName("Equal pairs give equal trees regardless of order")
+    void equalTrees() {
+        MerkleTree first = new MerkleTree(3);
+        MerkleTree second = new MerkleTree(3);
+        for (int i = 0; i < 1000; i++) {
+            first.add("dataset-" + i, "checksum-" + i);
+            second.add("dataset-" + (999 - i), "checksum-" + (999 - i));
+        }
+        assertEquals(first.root(), second.root());
+        assertEquals(1000, second.size());
+        assertTrue(first.diff(second).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A changed checksum differs in exactly its leaf")
+    void changedChecksum() {
+        MerkleTree first = new MerkleTree(3);
+        MerkleTree second = new MerkleTree(3);
+        for (int i = 0; i < 1000; i++) {
+            first.add("dataset-" + i, "checksum-" + i);
+            second.add("dataset-" + i, i == 42 ? "changed" : "checksum-" + i);
+        }
+        second.add("missing", "checksum");
+
+        List<Integer> leaves = first.diff(second);
+        assertTrue(leaves.contains(first.leaf("dataset-42")));
+        assertTrue(leaves.contains(first.leaf("missing")));
+        assertTrue(leaves.size() <= 2);
+    }
+}
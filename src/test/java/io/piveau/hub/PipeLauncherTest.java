@@ -97,7 +97,7 @@ class PipeLauncherTest {
             checkpoint.flag();
         }).listen(8098);
 
-        datasetsService.putDataset("launch-test-dataset", vertx.fileSystem().readFileBlocking("misc/example_dataset.ttl").toString(), "text/turtle", "test-catalog", null, false, ar -> {
+        datasetsService.putDataset("launch-test-dataset", vertx.fileSystem().readFileBlocking("misc/example_dataset.ttl").toString(), "text/turtle", "test-catalog", null, false, false, ar -> {
             if (ar.succeeded()) {
                 checkpoint.flag();
             } else {
@@ -0,0 +1,268 @@
+package io.piveau.hub;
+
+import io.piveau.hub.services.index.IndexService;
+import io.piveau.hub.services.index.IndexServiceVerticle;
+import io.piveau.hub.util.AppendLog;
+import io.piveau.hub.util.ConsistencyChecker;
+import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.GraphReader;
+import io.piveau.hub.util.IndexConversionPool;
+import io.piveau.hub.util.MockTripleStore;
+import io.piveau.hub.util.ReindexEngine;
+import io.piveau.hub.util.TSConnector;
+import io.piveau.utils.JenaUtils;
+import io.piveau.utils.experimental.DCATAPUriRef;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.*;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.util.ResourceUtils;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.FOAF;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the reindex engine")
+@ExtendWith(VertxExtension.class)
+class ReindexEngineTest {
+    private static final int SEARCH_PORT = 9099;
+    private static final String CATALOGUE_ID = "reindex-catalogue";
+    private static final int DATASETS = 5;
+
+    private final List<String> indexedDatasets = new ArrayList<>();
+    private volatile ReindexEngine cancelOnIndex;
+
+    private JsonObject config;
+    private TSConnector connector;
+    private Path stateDir;
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext testContext, @TempDir Path stateDir) {
+        this.stateDir = stateDir;
+        Checkpoint checkpoint = testContext.checkpoint(3);
+
+        // search service and elasticsearch in one, the index holds no datasets of the catalogue
+        vertx.createHttpServer().requestHandler(request -> request.bodyHandler(body -> {
+            if (request.path().startsWith("/datasets/") && request.method() == HttpMethod.PUT) {
+                indexedDatasets.add(request.path().substring("/datasets/".length()));
+                if (cancelOnIndex != null) {
+                    cancelOnIndex.cancel();
+                }
+            }
+            request.response().setStatusCode(200).end(new JsonObject().put("success", true).encode());
+        })).listen(SEARCH_PORT, testContext.succeeding(s -> checkpoint.flag()));
+
+        config = new JsonObject()
+                .put(Constants.ENV_PIVEAU_HUB_STATE_DIR, stateDir.toString())
+                .put(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG, MockTripleStore.getTriplestoreConfig(false))
+                .put(Constants.ENV_PIVEAU_HUB_ELASTICSEARCH_ADDRESS, "http://localhost:" + SEARCH_PORT)
+                .put(Constants.ENV_PIVEAU_HUB_CONVERSION_POOL, new JsonObject().put("converter", "hub"))
+                .put(Constants.ENV_PIVEAU_HUB_SEARCH_SERVICE, new JsonObject()
+                        .put("url", "localhost")
+                        .put("port", SEARCH_PORT)
+                        .put("api_key", "apiKey"));
+        connector = TSConnector.create(WebClient.create(vertx), null, MockTripleStore.getTriplestoreConfig(false));
+
+        DeploymentOptions options = new DeploymentOptions().setConfig(config);
+        vertx.deployVerticle(MockTripleStore.class.getName(), options, testContext.succeeding(mock ->
+                storeCatalogue().setHandler(testContext.succeeding(v -> checkpoint.flag()))));
+        vertx.deployVerticle(IndexServiceVerticle.class.getName(), options, testContext.succeeding(id -> checkpoint.flag()));
+    }
+
+    @Test
+    @DisplayName("Resume a run after its checkpoint")
+    void testResume(Vertx vertx, VertxTestContext testContext) {
+        String catalogueUriRef = DCATAPUriSchema.applyFor(CATALOGUE_ID).getCatalogueUriRef();
+        List<String> datasets = datasetUriRefs();
+
+        // as if a run with partitions of two datasets stopped after its first partition
+        AppendLog checkpoints = AppendLog.open(stateDir.toString(), "reindex.log");
+        checkpoints.rewrite(List.of(
+                new JsonObject()
+                        .put("op", "start")
+                        .put("catalogues", new JsonArray().add(catalogueUriRef))
+                        .put("options", ReindexEngine.defaults().put("partitionSize", 2))
+                        .put("time", Instant.now().toString()),
+                new JsonObject()
+                        .put("op", "partition")
+                        .put("catalogue", catalogueUriRef)
+                        .put("partition", 0)
+                        .put("first", datasets.get(0))));
+        checkpoints.close();
+
+        engine(vertx).resume(new JsonObject(), message -> {
+        }).setHandler(testContext.succeeding(summary -> testContext.verify(() -> {
+            assertEquals(2, summary.getLong("skipped"));
+            assertEquals(3, summary.getLong("indexed"));
+            assertEquals(0, summary.getLong("failed"));
+            assertEquals(ids(datasets.subList(2, DATASETS)), sorted(indexedDatasets));
+
+            List<JsonObject> entries = AppendLog.open(stateDir.toString(), "reindex.log").readAll();
+            assertEquals("finish", entries.get(entries.size() - 1).getString("op"));
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("A cancelled incremental run does not advance the watermarks")
+    void testCancelledIncremental(Vertx vertx, VertxTestContext testContext) {
+        String catalogueUriRef = DCATAPUriSchema.applyFor(CATALOGUE_ID).getCatalogueUriRef();
+        ReindexEngine engine = engine(vertx);
+
+        Promise<JsonObject> first = Promise.promise();
+        engine.runIncremental(List.of(catalogueUriRef), new JsonObject(), message -> {
+        }).setHandler(first);
+        first.future().compose(summary -> CompositeFuture.all(storeDataset(1, 9), storeDataset(2, 8))).compose(v -> {
+            // the datasets in flight are finished, then the run stops
+            cancelOnIndex = engine;
+            Promise<JsonObject> cancelled = Promise.promise();
+            engine.runIncremental(List.of(catalogueUriRef), new JsonObject(), message -> {
+            }).setHandler(cancelled);
+            return cancelled.future().<Void>map(summary -> {
+                throw new IllegalStateException("The cancelled run finished");
+            }).recover(cause -> {
+                testContext.verify(() -> assertEquals("Reindex cancelled, watermarks not advanced", cause.getMessage()));
+                return Future.succeededFuture();
+            });
+        }).compose(v -> {
+            cancelOnIndex = null;
+            indexedDatasets.clear();
+            Promise<JsonObject> next = Promise.promise();
+            engine.runIncremental(List.of(catalogueUriRef), new JsonObject(), message -> {
+            }).setHandler(next);
+            return next.future();
+        }).setHandler(testContext.succeeding(summary -> testContext.verify(() -> {
+            // still listed from the watermark of the first run
+            List<String> datasets = datasetUriRefs();
+            assertEquals(3, summary.getLong("total"));
+            assertEquals(ids(List.of(datasets.get(1), datasets.get(2), datasets.get(DATASETS - 1))), sorted(indexedDatasets));
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("An incremental run lists the records modified at or after the watermark")
+    void testIncrementalWatermark(Vertx vertx, VertxTestContext testContext) {
+        String catalogueUriRef = DCATAPUriSchema.applyFor(CATALOGUE_ID).getCatalogueUriRef();
+        ReindexEngine engine = engine(vertx);
+
+        Promise<JsonObject> first = Promise.promise();
+        engine.runIncremental(List.of(catalogueUriRef), new JsonObject(), message -> {
+        }).setHandler(first);
+        first.future().compose(summary -> {
+            testContext.verify(() -> {
+                assertEquals(DATASETS, summary.getLong("total"));
+                assertEquals(1, summary.getInteger("advancedWatermarks"));
+            });
+            indexedDatasets.clear();
+            // modified after the watermark, the last dataset keeps exactly the watermark
+            return storeDataset(1, 9);
+        }).compose(v -> {
+            Promise<JsonObject> second = Promise.promise();
+            engine.runIncremental(List.of(catalogueUriRef), new JsonObject(), message -> {
+            }).setHandler(second);
+            return second.future();
+        }).setHandler(testContext.succeeding(summary -> testContext.verify(() -> {
+            List<String> datasets = datasetUriRefs();
+            assertEquals(2, summary.getLong("total"));
+            assertEquals(ids(List.of(datasets.get(1), datasets.get(DATASETS - 1))), sorted(indexedDatasets));
+            testContext.completeNow();
+        })));
+    }
+
+    private ReindexEngine engine(Vertx vertx) {
+        JsonObject triplestoreConfig = MockTripleStore.getTriplestoreConfig(false);
+        return new ReindexEngine(vertx, connector, new GraphReader(connector, triplestoreConfig),
+                IndexService.createProxy(vertx, IndexService.SERVICE_ADDRESS),
+                new ConsistencyChecker(vertx, WebClient.create(vertx), connector, config),
+                IndexConversionPool.shared(vertx, config), stateDir.toString());
+    }
+
+    /**
+     * Stores the example catalogue with its datasets, the record of dataset i was modified on day i + 1 of march 2020.
+     */
+    private Future<Void> storeCatalogue() {
+        DCATAPUriRef catalogueRef = DCATAPUriSchema.applyFor(CATALOGUE_ID);
+        Model catalogue;
+        try {
+            catalogue = JenaUtils.read(Files.readAllBytes(Paths.get("misc/example_catalog.ttl")), "text/turtle");
+        } catch (IOException e) {
+            return Future.failedFuture(e);
+        }
+        Resource catalogueResource = ResourceUtils.renameResource(
+                catalogue.listSubjectsWithProperty(RDF.type, DCAT.Catalog).next(), catalogueRef.getCatalogueUriRef());
+
+        List<Future> stored = new ArrayList<>();
+        for (int i = 0; i < DATASETS; i++) {
+            DCATAPUriRef datasetRef = DCATAPUriSchema.applyFor(CATALOGUE_ID + "-dataset-" + i);
+            catalogueResource.addProperty(DCAT.dataset, catalogue.createResource(datasetRef.getDatasetUriRef()));
+            catalogueResource.addProperty(DCAT.record, catalogue.createResource(datasetRef.getRecordUriRef()));
+            stored.add(storeDataset(i, i + 1));
+        }
+        Promise<HttpResponse<Buffer>> cataloguePromise = Promise.promise();
+        connector.putGraph(catalogueRef.getCatalogueGraphName(), catalogue, cataloguePromise);
+        stored.add(cataloguePromise.future());
+        return CompositeFuture.all(stored).mapEmpty();
+    }
+
+    private Future<Void> storeDataset(int index, int day) {
+        DCATAPUriRef ref = DCATAPUriSchema.applyFor(CATALOGUE_ID + "-dataset-" + index);
+        Model model = ModelFactory.createDefaultModel();
+        Resource dataset = model.createResource(ref.getDatasetUriRef(), DCAT.Dataset)
+                .addProperty(DCTerms.title, "Dataset " + index, "en");
+        model.createResource(ref.getRecordUriRef(), DCAT.CatalogRecord)
+                .addProperty(FOAF.primaryTopic, dataset)
+                .addProperty(DCTerms.modified, "2020-03-0" + day + "T12:00:00Z", XSDDatatype.XSDdateTime);
+        Promise<HttpResponse<Buffer>> promise = Promise.promise();
+        connector.putGraph(ref.getDatasetGraphName(), model, promise);
+        return promise.future().mapEmpty();
+    }
+
+    private static List<String> datasetUriRefs() {
+        List<String> uriRefs = new ArrayList<>();
+        for (int i = 0; i < DATASETS; i++) {
+            uriRefs.add(DCATAPUriSchema.applyFor(CATALOGUE_ID + "-dataset-" + i).getDatasetUriRef());
+        }
+        Collections.sort(uriRefs);
+        return uriRefs;
+    }
+
+    private static List<String> ids(List<String> uriRefs) {
+        return sorted(uriRefs.stream().map(uriRef -> DCATAPUriSchema.parseUriRef(uriRef).getId()).collect(Collectors.toList()));
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+
+}
@@ -0,0 +1,88 @@
+package io.piveau.hub;
+
+import io.piveau.hub.services.datasets.DatasetsService;
+import io.piveau.hub.services.sideeffects.SideEffectsService;
+import io.piveau.hub.services.sideeffects.SideEffectsServiceVerticle;
+import io.piveau.hub.util.Constants;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the side effects service")
+@ExtendWith(VertxExtension.class)
+class SideEffectsServiceTest {
+
+    private SideEffectsService sideEffectsService;
+
+    private final List<JsonObject> processed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext testContext, @TempDir Path stateDir) {
+        DeploymentOptions options = new DeploymentOptions()
+                .setConfig(new JsonObject()
+                        .put(Constants.ENV_PIVEAU_HUB_STATE_DIR, stateDir.toString())
+                        .put(Constants.ENV_PIVEAU_HUB_SIDE_EFFECTS, new JsonObject()
+                                .put("enabled", true)
+                                .put("quietPeriod", 300)
+                                .put("maxDelay", 5000)));
+
+        vertx.eventBus().<JsonObject>consumer(DatasetsService.SERVICE_ADDRESS, message -> {
+            processed.add(message.body());
+            message.reply(new JsonObject().put("status", "processed"));
+        });
+
+        vertx.deployVerticle(SideEffectsServiceVerticle.class.getName(), options, testContext.succeeding(id -> {
+            sideEffectsService = SideEffectsService.createProxy(vertx, SideEffectsService.SERVICE_ADDRESS);
+            testContext.completeNow();
+        }));
+    }
+
+    @Test
+    @DisplayName("Coalesce multiple requests for one dataset")
+    void testCoalesce(Vertx vertx, VertxTestContext testContext) {
+        Checkpoint checkpoint = testContext.checkpoint(4);
+        sideEffectsService.schedule("dataset-1", "catalog-1", new JsonArray().add(SideEffectsService.INDEX), testContext.succeeding(r -> checkpoint.flag()));
+        sideEffectsService.schedule("dataset-1", null, new JsonArray().add(SideEffectsService.INDEX).add(SideEffectsService.TRANSLATE), testContext.succeeding(r -> checkpoint.flag()));
+        sideEffectsService.schedule("dataset-1", null, new JsonArray().add(SideEffectsService.VALIDATE), testContext.succeeding(r -> checkpoint.flag()));
+
+        vertx.setTimer(1000, t -> sideEffectsService.metrics(testContext.succeeding(metrics -> testContext.verify(() -> {
+            assertEquals(1, processed.size());
+            JsonObject call = processed.get(0);
+            assertEquals("dataset-1", call.getString("datasetId"));
+            assertEquals("catalog-1", call.getString("catalogueId"));
+            assertEquals(3, call.getJsonArray("effects").size());
+
+            assertEquals(3, metrics.getLong("requests"));
+            assertEquals(1, metrics.getLong("processed"));
+            assertEquals(0, metrics.getInteger("pending"));
+            assertEquals(3.0, metrics.getDouble("coalescingRatio"));
+            checkpoint.flag();
+        }))));
+    }
+
+    @Test
+    @DisplayName("Flush pending side effects")
+    void testFlush(Vertx vertx, VertxTestContext testContext) {
+        sideEffectsService.schedule("dataset-1", "catalog-1", new JsonArray().add(SideEffectsService.INDEX), testContext.succeeding(r ->
+                sideEffectsService.schedule("dataset-2", "catalog-1", new JsonArray().add(SideEffectsService.INDEX), testContext.succeeding(r2 ->
+                        sideEffectsService.flush(testContext.succeeding(flushed -> testContext.verify(() -> {
+                            assertEquals(2, flushed.getInteger("flushed"));
+                            assertEquals(2, processed.size());
+                            testContext.completeNow();
+                        })))))));
+    }
+
+}
@@ -0,0 +1,98 @@
+package io.piveau.hub;
+
+import io.piveau.hub.util.rdf.GeoParser;
+import io.piveau.hub.util.rdf.GeoParsingException;
+import io.piveau.hub.util.rdf.SpatialConverter;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the spatial converter")
+class SpatialConverterTest {
+
+    static List<String[]> corpus() throws IOException {
+        return Files.readAllLines(Paths.get("src/test/resources/spatial/literals.tsv")).stream()
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .map(line -> line.split("\t", 2))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Converting gives the same GeoJSON as the geo parser, from the cache as well")
+    void testCorpus() throws IOException {
+        GeoParser geoParser = new GeoParser();
+        SpatialConverter converter = new SpatialConverter(SpatialConverter.DEFAULT_CACHE_SIZE);
+        List<String[]> corpus = corpus();
+        for (int round = 0; round < 2; round++) {
+            for (String[] literal : corpus) {
+                String expected;
+                try {
+                    expected = expected(geoParser, literal[0], literal[1]).encode();
+                } catch (GeoParsingException | RuntimeException e) {
+                    expected = "failed";
+                }
+                String actual;
+                try {
+                    actual = converter.convert(literal[0], literal[1]).encode();
+                } catch (GeoParsingException e) {
+                    actual = "failed";
+                }
+                assertEquals(expected, actual, literal[1]);
+            }
+        }
+        // literals sharing a slot replace each other
+        assertEquals(corpus.size() * 2, converter.hits() + converter.misses());
+        assertTrue(converter.hits() > 0);
+    }
+
+    @Test
+    @DisplayName("Converting GML 2 gives the same GeoJSON as the geo parser")
+    void testGML2() throws GeoParsingException {
+        String gml = "<gml:Polygon><gml:outerBoundaryIs><gml:LinearRing><gml:coordinates>" +
+                "5.8663,47.2701 15.0419,47.2701 15.0419,55.0584 5.8663,55.0584 5.8663,47.2701" +
+                "</gml:coordinates></gml:LinearRing></gml:outerBoundaryIs></gml:Polygon>";
+        SpatialConverter converter = new SpatialConverter(0);
+        assertEquals(new GeoParser().GML2toGeoJSON(gml).encode(), converter.gml2ToGeoJson(gml).encode());
+        assertEquals(new GeoParser().GML2toGeoJSON(gml).encode(), converter.gml2ToGeoJson(gml).encode());
+        assertThrows(GeoParsingException.class, () -> converter.gml2ToGeoJson("<gml:Polygon>"));
+    }
+
+    @Test
+    @DisplayName("Cached results can't be changed by callers, unsupported datatypes give null")
+    void testCache() throws GeoParsingException {
+        SpatialConverter converter = new SpatialConverter(1);
+        JsonObject point = converter.convert(SpatialConverter.WKT, "POINT(1 2)");
+        point.put("type", "changed");
+        assertEquals("Point", converter.convert(SpatialConverter.WKT, "POINT(1 2)").getString("type"));
+        assertEquals(1, converter.hits());
+
+        // one slot only, the other literal replaces the cached one
+        converter.convert(SpatialConverter.WKT, "POINT(3 4)");
+        converter.convert(SpatialConverter.WKT, "POINT(1 2)");
+        assertEquals(1, converter.hits());
+        assertEquals(3, converter.misses());
+
+        assertNull(converter.convert("http://www.w3.org/2001/XMLSchema#string", "POINT(1 2)"));
+        assertNull(converter.convert(null, "POINT(1 2)"));
+    }
+
+    private JsonObject expected(GeoParser geoParser, String datatype, String literal) throws GeoParsingException {
+        switch (datatype) {
+            case SpatialConverter.WKT:
+                return geoParser.WKTtoGeoJSON(literal);
+            case SpatialConverter.GML:
+                return geoParser.GML3toGeoJSON(literal);
+            default:
+                return new JsonObject(literal);
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package io.piveau.hub;
+
+import io.piveau.hub.services.statistics.StatisticsService;
+import io.piveau.hub.services.statistics.StatisticsServiceVerticle;
+import io.piveau.hub.util.CatalogueStatistics;
+import io.piveau.hub.util.Constants;
+import io.piveau.hub.util.MockTripleStore;
+import io.piveau.hub.util.TSConnector;
+import io.piveau.utils.experimental.DCATAPUriRef;
+import io.piveau.utils.experimental.DCATAPUriSchema;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.vocabulary.FOAF;
+import org.apache.jena.vocabulary.DCAT;
+import org.apache.jena.vocabulary.DCTerms;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the catalogue statistics")
+@ExtendWith(VertxExtension.class)
+class StatisticsServiceTest {
+
+    private static final String CSV = "http://publications.europa.eu/resource/authority/file-type/CSV";
+
+    private StatisticsService statisticsService;
+
+    private DeploymentOptions options;
+    private String deploymentId;
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext testContext, @TempDir Path stateDir) {
+        options = new DeploymentOptions()
+                .setConfig(new JsonObject()
+                        .put(Constants.ENV_PIVEAU_HUB_STATE_DIR, stateDir.toString())
+                        .put(Constants.ENV_PIVEAU_HUB_TRIPLESTORE_CONFIG, MockTripleStore.getTriplestoreConfig(false))
+                        .put(Constants.ENV_PIVEAU_HUB_CATALOGUE_STATISTICS, new JsonObject()
+                                .put("enabled", true)
+                                .put("pageSize", 2)));
+
+        vertx.deployVerticle(MockTripleStore.class.getName(), options, testContext.succeeding(mock ->
+                vertx.deployVerticle(StatisticsServiceVerticle.class.getName(), options, testContext.succeeding(id -> {
+                    deploymentId = id;
+                    statisticsService = StatisticsService.createProxy(vertx, StatisticsService.SERVICE_ADDRESS);
+                    testContext.completeNow();
+                }))));
+    }
+
+    @Test
+    @DisplayName("Counting the changes of a dataset")
+    void testUpdates(Vertx vertx, VertxTestContext testContext) {
+        Model created = dataset("stats-dataset", 1, CSV, "JSON");
+        Model updated = dataset("stats-dataset", 2, "JSON");
+
+        JsonObject contribution = CatalogueStatistics.contribution(created);
+        assertEquals(1, contribution.getInteger("datasets"));
+        assertEquals(2, contribution.getInteger("distributions"));
+        assertEquals(1, contribution.getJsonObject("formats").getInteger(CSV));
+
+        Promise<JsonObject> create = Promise.promise();
+        statisticsService.update("stats-catalogue", CatalogueStatistics.delta(null, contribution), create);
+        create.future().compose(v -> {
+            Promise<JsonObject> update = Promise.promise();
+            statisticsService.update("stats-catalogue", CatalogueStatistics.delta(contribution, CatalogueStatistics.contribution(updated)), update);
+            return update.future();
+        }).compose(v -> {
+            Promise<JsonObject> get = Promise.promise();
+            statisticsService.getStatistics("stats-catalogue", get);
+            return get.future();
+        }).setHandler(testContext.succeeding(statistics -> testContext.verify(() -> {
+            assertEquals("stats-catalogue", statistics.getString("catalogue"));
+            assertEquals(1, statistics.getInteger("datasets"));
+            assertEquals(1, statistics.getInteger("distributions"));
+            assertEquals(new JsonObject().put("JSON", 1), statistics.getJsonObject("formats"));
+            assertEquals("2020-03-02T12:00:00Z", statistics.getString("modified"));
+            // counted from the first change on, not from the triplestore
+            assertTrue(statistics.getBoolean("stale", false));
+
+            statisticsService.update("stats-catalogue", CatalogueStatistics.delta(CatalogueStatistics.contribution(updated), null), testContext.succeeding(deleted -> testContext.verify(() -> {
+                assertEquals(0, deleted.getInteger("datasets"));
+                assertEquals(0, deleted.getInteger("distributions"));
+                assertTrue(deleted.getJsonObject("formats").isEmpty());
+                testContext.completeNow();
+            })));
+        })));
+    }
+
+    @Test
+    @DisplayName("Statistics survive a restart and are removed with their catalogue")
+    void testRecover(Vertx vertx, VertxTestContext testContext) {
+        JsonObject contribution = CatalogueStatistics.contribution(dataset("stats-dataset", 1, CSV));
+        statisticsService.update("stats-catalogue", CatalogueStatistics.delta(null, contribution), testContext.succeeding(v ->
+                vertx.undeploy(deploymentId, testContext.succeeding(u ->
+                        vertx.deployVerticle(StatisticsServiceVerticle.class.getName(), options, testContext.succeeding(id ->
+                                statisticsService.getStatistics("stats-catalogue", testContext.succeeding(statistics -> {
+                                    testContext.verify(() -> {
+                                        assertEquals(1, statistics.getInteger("datasets"));
+                                        assertEquals(1, statistics.getJsonObject("formats").getInteger(CSV));
+                                    });
+                                    statisticsService.removeCatalogue("stats-catalogue", testContext.succeeding(r ->
+                                            statisticsService.getStatistics("stats-catalogue", ar -> testContext.verify(() -> {
+                                                assertTrue(ar.failed());
+                                                assertEquals(404, ((ReplyException) ar.cause()).failureCode());
+                                                testContext.completeNow();
+                                            }))));
+                                }))))))));
+    }
+
+    @Test
+    @DisplayName("Rebuild the statistics of a catalogue from the triplestore")
+    void testRebuild(Vertx vertx, VertxTestContext testContext) {
+        storeCatalogue(vertx).compose(v -> {
+            Promise<JsonObject> rebuild = Promise.promise();
+            statisticsService.rebuild(new JsonArray().add("stats-catalogue"), rebuild);
+            return rebuild.future();
+        }).setHandler(testContext.succeeding(result -> testContext.verify(() -> {
+            JsonObject statistics = result.getJsonArray("catalogues").getJsonObject(0);
+            assertEquals("stats-catalogue", statistics.getString("catalogue"));
+            assertEquals(3, statistics.getInteger("datasets"));
+            assertEquals(3, statistics.getInteger("distributions"));
+            assertEquals(2, statistics.getJsonObject("formats").getInteger(CSV));
+            assertEquals(1, statistics.getJsonObject("formats").getInteger("JSON"));
+            assertEquals("2020-03-03T12:00:00Z", statistics.getString("modified"));
+            assertFalse(statistics.containsKey("stale"));
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("A change during the rebuild marks the statistics stale")
+    void testChangeDuringRebuild(Vertx vertx, VertxTestContext testContext) {
+        JsonObject contribution = CatalogueStatistics.contribution(dataset("stats-dataset-4", 4, "JSON"));
+        storeCatalogue(vertx).compose(v -> {
+            Promise<JsonObject> rebuild = Promise.promise();
+            statisticsService.rebuild(new JsonArray().add("stats-catalogue"), rebuild);
+            // arrives while the catalogue is counted
+            statisticsService.update("stats-catalogue", CatalogueStatistics.delta(null, contribution), ar -> {
+            });
+            return rebuild.future();
+        }).setHandler(testContext.succeeding(result -> testContext.verify(() -> {
+            JsonObject statistics = result.getJsonArray("catalogues").getJsonObject(0);
+            assertEquals(4, statistics.getInteger("datasets"));
+            assertEquals("2020-03-04T12:00:00Z", statistics.getString("modified"));
+            assertTrue(statistics.getBoolean("stale", false));
+            testContext.completeNow();
+        })));
+    }
+
+    /**
+     * Stores a catalogue with three datasets, modified on the first three days of march 2020.
+     */
+    private Future<Void> storeCatalogue(Vertx vertx) {
+        TSConnector connector = TSConnector.create(WebClient.create(vertx), null, MockTripleStore.getTriplestoreConfig(false));
+        DCATAPUriRef catalogueRef = DCATAPUriSchema.applyFor("stats-catalogue");
+        Model catalogue = ModelFactory.createDefaultModel();
+        Resource catalogueResource = catalogue.createResource(catalogueRef.getCatalogueUriRef(), DCAT.Catalog);
+
+        List<Future> stored = new ArrayList<>();
+        List<Model> datasets = List.of(
+                dataset("stats-dataset-1", 1, CSV, CSV),
+                dataset("stats-dataset-2", 2, "JSON"),
+                dataset("stats-dataset-3", 3));
+        for (int i = 0; i < datasets.size(); i++) {
+            DCATAPUriRef datasetRef = DCATAPUriSchema.applyFor("stats-dataset-" + (i + 1));
+            catalogueResource.addProperty(DCAT.dataset, catalogue.createResource(datasetRef.getDatasetUriRef()));
+            Promise<HttpResponse<Buffer>> promise = Promise.promise();
+            connector.putGraph(datasetRef.getDatasetGraphName(), datasets.get(i), promise);
+            stored.add(promise.future());
+        }
+        Promise<HttpResponse<Buffer>> cataloguePromise = Promise.promise();
+        connector.putGraph(catalogueRef.getCatalogueGraphName(), catalogue, cataloguePromise);
+        stored.add(cataloguePromise.future());
+        return CompositeFuture.all(stored).mapEmpty();
+    }
+
+    /**
+     * @param day     the day in march 2020 the record was modified
+     * @param formats the format of each distribution, a uri or a literal
+     * @return a dataset graph with its record
+     */
+    private static Model dataset(String id, int day, String... formats) {
+        DCATAPUriRef ref = DCATAPUriSchema.applyFor(id);
+        Model model = ModelFactory.createDefaultModel();
+        Resource dataset = model.createResource(ref.getDatasetUriRef(), DCAT.Dataset);
+        for (int i = 0; i < formats.length; i++) {
+            Resource distribution = model.createResource(ref.getDatasetUriRef() + "/distribution/" + i, DCAT.Distribution);
+            if (formats[i].startsWith("http")) {
+                distribution.addProperty(DCTerms.format, model.createResource(formats[i]));
+            } else {
+                distribution.addProperty(DCTerms.format, formats[i]);
+            }
+            dataset.addProperty(DCAT.distribution, distribution);
+        }
+        model.createResource(ref.getRecordUriRef(), DCAT.CatalogRecord)
+                .addProperty(FOAF.primaryTopic, dataset)
+                .addProperty(DCTerms.modified, "2020-03-0" + day + "T12:00:00Z", XSDDatatype.XSDdateTime);
+        return model;
+    }
+
+}
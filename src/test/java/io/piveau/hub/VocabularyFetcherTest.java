@@ -0,0 +1,153 @@
+package io.piveau.hub;
+
+import io.piveau.hub.util.rdf.VocabularyFetcher;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.SKOS;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the vocabulary fetcher")
+@ExtendWith(VertxExtension.class)
+class VocabularyFetcherTest {
+
+    private static final int CONCEPTS = 12;
+
+    private HttpServer server;
+    private String base;
+    private WebClient client;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger served = new AtomicInteger();
+    private volatile boolean down = false;
+
+    @BeforeEach
+    void startServer(Vertx vertx, VertxTestContext testContext) {
+        client = WebClient.create(vertx);
+        server = vertx.createHttpServer().requestHandler(request -> handle(vertx, request));
+        server.listen(0, testContext.succeeding(started -> {
+            base = "http://localhost:" + started.actualPort();
+            testContext.completeNow();
+        }));
+    }
+
+    @AfterEach
+    void stopServer(VertxTestContext testContext) {
+        client.close();
+        server.close(testContext.succeeding(v -> testContext.completeNow()));
+    }
+
+    @Test
+    @DisplayName("Concepts are fetched with bounded concurrency and revalidated from the cache")
+    void testFetchScheme(Vertx vertx, VertxTestContext testContext, @TempDir Path cacheDir) {
+        VocabularyFetcher fetcher = new VocabularyFetcher(vertx, client, cacheDir, 3, new JsonObject());
+        fetcher.fetchScheme(base + "/scheme").setHandler(testContext.succeeding(model -> testContext.verify(() -> {
+            assertEquals(CONCEPTS, model.listSubjectsWithProperty(SKOS.prefLabel).toList().size());
+            assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+            assertEquals(CONCEPTS + 1, fetcher.stats().getLong("requests"));
+            assertEquals(0, fetcher.stats().getLong("notModified"));
+
+            fetcher.fetchScheme(base + "/scheme").setHandler(testContext.succeeding(cached -> testContext.verify(() -> {
+                assertTrue(cached.isIsomorphicWith(model));
+                assertEquals(CONCEPTS + 1, fetcher.stats().getLong("notModified"));
+                assertTrue(fetcher.stats().getInteger("maxActive") <= 3);
+                testContext.completeNow();
+            })));
+        })));
+    }
+
+    @Test
+    @DisplayName("A scheme with a dump is fetched with a single request")
+    void testDump(Vertx vertx, VertxTestContext testContext, @TempDir Path cacheDir) {
+        JsonObject dumps = new JsonObject().put(base + "/scheme", base + "/dump");
+        VocabularyFetcher fetcher = new VocabularyFetcher(vertx, client, cacheDir, 3, dumps);
+        fetcher.fetchScheme(base + "/scheme").setHandler(testContext.succeeding(model -> testContext.verify(() -> {
+            assertEquals(CONCEPTS, model.listSubjectsWithProperty(SKOS.prefLabel).toList().size());
+            assertEquals(1, served.get());
+            assertEquals(1, fetcher.stats().getLong("requests"));
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    @DisplayName("Failing requests fall back to the cache, without cache the fetch fails")
+    void testStale(Vertx vertx, VertxTestContext testContext, @TempDir Path cacheDir) {
+        VocabularyFetcher fetcher = new VocabularyFetcher(vertx, client, cacheDir, 4, new JsonObject());
+        fetcher.fetchScheme(base + "/scheme").setHandler(testContext.succeeding(model -> {
+            down = true;
+            fetcher.fetchScheme(base + "/scheme").setHandler(testContext.succeeding(stale -> testContext.verify(() -> {
+                assertTrue(stale.isIsomorphicWith(model));
+                assertEquals(CONCEPTS + 1, fetcher.stats().getLong("staleHits"));
+
+                fetcher.fetchScheme(base + "/other").setHandler(testContext.failing(cause -> testContext.completeNow()));
+            })));
+        }));
+    }
+
+    private void handle(Vertx vertx, HttpServerRequest request) {
+        served.incrementAndGet();
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        vertx.setTimer(20, id -> {
+            inFlight.decrementAndGet();
+            String path = request.path();
+            if (down || !(path.equals("/scheme") || path.equals("/dump") || path.startsWith("/concept/"))) {
+                request.response().setStatusCode(500).end();
+            } else if ("\"v1\"".equals(request.getHeader("If-None-Match"))) {
+                request.response().setStatusCode(304).end();
+            } else {
+                Model model = path.startsWith("/concept/") ? concept(path) : scheme(path.equals("/dump"));
+                StringWriter writer = new StringWriter();
+                RDFDataMgr.write(writer, model, Lang.RDFXML);
+                request.response()
+                        .putHeader("Content-Type", "application/rdf+xml")
+                        .putHeader("ETag", "\"v1\"")
+                        .end(writer.toString());
+            }
+        });
+    }
+
+    private Model scheme(boolean withConcepts) {
+        Model model = ModelFactory.createDefaultModel();
+        Resource scheme = model.createResource(base + "/scheme", SKOS.ConceptScheme);
+        for (int i = 0; i < CONCEPTS; i++) {
+            Resource concept = model.createResource(base + "/concept/" + i, SKOS.Concept)
+                    .addProperty(SKOS.inScheme, scheme);
+            if (withConcepts) {
+                concept.addProperty(SKOS.prefLabel, "Concept " + i, "en");
+            }
+        }
+        return model;
+    }
+
+    private Model concept(String path) {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource(base + path)
+                .addProperty(RDF.type, SKOS.Concept)
+                .addProperty(SKOS.prefLabel, "Concept " + path.substring("/concept/".length()), "en");
+        return model;
+    }
+
+}
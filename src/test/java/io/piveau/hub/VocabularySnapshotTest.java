@@ -0,0 +1,81 @@
+package io.piveau.hub;
+
+import io.piveau.hub.util.rdf.VocabularyConcept;
+import io.piveau.hub.util.rdf.VocabularySnapshot;
+import io.piveau.hub.util.rdf.VocabularyTables;
+import io.piveau.utils.JenaUtils;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the vocabulary snapshot")
+class VocabularySnapshotTest {
+
+    @Test
+    @DisplayName("Reading a written snapshot gives the same concepts")
+    void testRoundTrip(@TempDir Path dir) throws IOException {
+        Model model = ModelFactory.createDefaultModel();
+        try (InputStream stream = new FileInputStream("src/main/resources/vocabularies/piveau-licences-skos.rdf")) {
+            RDFDataMgr.read(model, stream, Lang.RDFXML);
+        }
+        String turtle = "@prefix at: <http://publications.europa.eu/ontology/authority/> .\n" +
+                "@prefix dc: <http://purl.org/dc/elements/1.1/> .\n" +
+                "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n" +
+                "<http://publications.europa.eu/resource/authority/language/ENG>\n" +
+                "    at:op-mapped-code [ dc:source \"iso-639-1\" ; at:legacy-code \"en\" ] .\n" +
+                "<http://example.org/licence/old> owl:sameAs <http://example.org/licence/new> .\n";
+        model.add(JenaUtils.read(turtle.getBytes(), "text/turtle"));
+        VocabularyTables tables = VocabularyTables.build(model);
+
+        Path path = dir.resolve("snapshot/vocabularies.snapshot");
+        VocabularySnapshot.write(tables, "test-stamp", path);
+        VocabularyTables read = VocabularySnapshot.read(path);
+
+        assertEquals("test-stamp", VocabularySnapshot.stamp(path));
+
+        assertEquals(tables.size(), read.size());
+        model.listSubjects().filterKeep(subject -> subject.isURIResource()).forEachRemaining(subject -> {
+            VocabularyConcept expected = tables.concept(subject.getURI());
+            VocabularyConcept concept = read.concept(subject.getURI());
+            assertNotNull(concept, subject.getURI());
+            assertEquals(expected.identifier(), concept.identifier());
+            assertEquals(expected.hasPrefLabel(), concept.hasPrefLabel());
+            assertEquals(expected.hasAltLabel(), concept.hasAltLabel());
+            for (String lang : new String[]{"en", "de", "nl", ""}) {
+                assertEquals(expected.prefLabel(lang), concept.prefLabel(lang));
+                assertEquals(expected.altLabel(lang), concept.altLabel(lang));
+            }
+            assertEquals(expected.exactMatch(), concept.exactMatch());
+            assertEquals(expected.sameAs(), concept.sameAs());
+            assertEquals(expected.licensingAssistant(), concept.licensingAssistant());
+            assertEquals(expected.homepage(), concept.homepage());
+            assertEquals(expected.countryCode(), concept.countryCode());
+            assertEquals(expected.languageCodes(), concept.languageCodes());
+        });
+        assertEquals("http://example.org/licence/new", read.concept("http://example.org/licence/old").sameAs());
+    }
+
+    @Test
+    @DisplayName("Rejecting a file which is no snapshot")
+    void testInvalid(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("vocabularies.snapshot");
+        Files.write(path, "no snapshot".getBytes());
+        assertThrows(IOException.class, () -> VocabularySnapshot.read(path));
+        assertThrows(IOException.class, () -> VocabularySnapshot.read(dir.resolve("missing.snapshot")));
+        assertNull(VocabularySnapshot.stamp(path));
+        assertNull(VocabularySnapshot.stamp(dir.resolve("missing.snapshot")));
+    }
+
+}
@@ -0,0 +1,114 @@
+package io.piveau.hub;
+
+import io.piveau.hub.util.rdf.EDP;
+import io.piveau.hub.util.rdf.EUVOC;
+import io.piveau.hub.util.rdf.VocabularyConcept;
+import io.piveau.hub.util.rdf.VocabularyTables;
+import io.piveau.utils.JenaUtils;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Testing the vocabulary lookup tables")
+class VocabularyTablesTest {
+
+    @Test
+    @DisplayName("Compiling the licences like the graph lookups")
+    void testLicences() throws IOException {
+        Model model = ModelFactory.createDefaultModel();
+        try (InputStream stream = new FileInputStream("src/main/resources/vocabularies/piveau-licences-skos.rdf")) {
+            RDFDataMgr.read(model, stream, Lang.RDFXML);
+        }
+        VocabularyTables tables = VocabularyTables.build(model);
+
+        int licences = 0;
+        ResIterator subjects = model.listSubjects();
+        while (subjects.hasNext()) {
+            Resource subject = subjects.nextResource();
+            if (!subject.isURIResource()) {
+                continue;
+            }
+            VocabularyConcept concept = tables.concept(subject.getURI());
+            assertNotNull(concept, subject.getURI());
+            assertEquals(literal(subject, EUVOC.dcIdentifier), concept.identifier());
+            assertEquals(english(subject, EUVOC.skosAltLabel), concept.altLabel("en"));
+            assertEquals(english(subject, EUVOC.skosPrefLabel), concept.prefLabel("en"));
+            assertEquals(subject.hasProperty(EUVOC.skosPrefLabel), concept.hasPrefLabel());
+            assertEquals(uri(subject, EUVOC.skosExactMatch), concept.exactMatch());
+            assertEquals(uri(subject, EDP.edpLicensingAssistant), concept.licensingAssistant());
+            licences++;
+        }
+        assertTrue(licences > 0);
+        assertEquals(licences, tables.size());
+        assertNull(tables.concept("http://example.org/not-a-concept"));
+        assertNull(tables.concept(null));
+    }
+
+    @Test
+    @DisplayName("Compiling languages and same as links")
+    void testLanguages() {
+        String turtle = "@prefix at: <http://publications.europa.eu/ontology/authority/> .\n" +
+                "@prefix dc: <http://purl.org/dc/elements/1.1/> .\n" +
+                "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n" +
+                "<http://publications.europa.eu/resource/authority/language/ENG>\n" +
+                "    at:op-mapped-code [ dc:source \"iso-639-1\" ; at:legacy-code \"en\" ] ,\n" +
+                "                      [ dc:source \"iso-639-2b\" ; at:legacy-code \"eng\" ] .\n" +
+                "<http://example.org/licence/old> owl:sameAs <http://example.org/licence/new> .\n" +
+                "<http://example.org/licence/broken> owl:sameAs \"new\" .\n";
+        Model model = JenaUtils.read(turtle.getBytes(), "text/turtle");
+        VocabularyTables tables = VocabularyTables.build(model);
+
+        VocabularyConcept english = tables.concept("http://publications.europa.eu/resource/authority/language/ENG");
+        assertEquals(Collections.singletonList("en"), english.languageCodes());
+        assertNull(english.sameAs());
+        assertFalse(english.hasPrefLabel());
+
+        assertEquals("http://example.org/licence/new", tables.concept("http://example.org/licence/old").sameAs());
+        assertEquals("", tables.concept("http://example.org/licence/broken").sameAs());
+        assertNull(tables.concept("http://example.org/licence/new"));
+    }
+
+    @Test
+    @DisplayName("Compiling the alpha-2 notation of countries")
+    void testCountries() {
+        String turtle = "@prefix euvoc: <http://publications.europa.eu/ontology/euvoc#> .\n" +
+                "@prefix dct: <http://purl.org/dc/terms/> .\n" +
+                "<http://publications.europa.eu/resource/authority/country/DEU>\n" +
+                "    euvoc:xlNotation [ dct:type <http://publications.europa.eu/resource/authority/notation-type/ISO_3166_1_ALPHA_3> ; euvoc:xlCodification \"DEU\" ] ,\n" +
+                "                     [ dct:type <http://publications.europa.eu/resource/authority/notation-type/ISO_3166_1_ALPHA_2> ; euvoc:xlCodification \"DE\" ] .\n";
+        VocabularyTables tables = VocabularyTables.build(JenaUtils.read(turtle.getBytes(), "text/turtle"));
+
+        assertEquals("DE", tables.concept("http://publications.europa.eu/resource/authority/country/DEU").countryCode());
+    }
+
+    private String literal(Resource resource, Property property) {
+        Statement stmt = resource.getProperty(property);
+        return stmt != null && stmt.getObject().isLiteral() ? stmt.getString() : null;
+    }
+
+    private String uri(Resource resource, Property property) {
+        Statement stmt = resource.getProperty(property);
+        return stmt != null && stmt.getObject().isURIResource() ? stmt.getResource().getURI() : null;
+    }
+
+    private String english(Resource resource, Property property) {
+        StmtIterator it = resource.listProperties(property);
+        while (it.hasNext()) {
+            RDFNode node = it.nextStatement().getObject();
+            if (node.isLiteral() && "en".equals(node.asLiteral().getLanguage())) {
+                return node.asLiteral().getString();
+            }
+        }
+        return null;
+    }
+
+}
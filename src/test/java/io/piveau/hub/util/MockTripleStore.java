@@ -54,7 +54,8 @@ public class MockTripleStore extends AbstractVerticle {
                 .put("data_endpoint", getDataEndpoint())
                 .put("query_endpoint", getQueryEndpoint())
                 .put("update_endpoint", getUpdateEndpoint())
-                .put("create_catalog", withCatalog);
+                .put("create_catalog", withCatalog)
+                .put("keysetOrder", "string");
     }
 
     @Override
@@ -72,12 +73,14 @@ public class MockTripleStore extends AbstractVerticle {
 
         Router router = Router.router(vertx);
         router.get(queryEndpoint).handler(this::query);
+        router.post(queryEndpoint).handler(BodyHandler.create()).handler(this::query);
 
         router.put(dataEndpoint).handler(BodyHandler.create()).handler(this::putData);
         router.get(dataEndpoint).handler(this::getData);
         router.delete(dataEndpoint).handler(this::deleteData);
 
         router.get(updateEndpoint).handler(this::update);
+        router.post(updateEndpoint).handler(BodyHandler.create()).handler(this::update);
 
         vertx.createHttpServer().requestHandler(router).listen(config.getInteger("port", 8890), ar -> {
             if (ar.succeeded()) {
@@ -90,12 +93,13 @@ public class MockTripleStore extends AbstractVerticle {
 
     private void query(RoutingContext context) {
         //PiveauLoggerFactory.getLogger(getClass()).info("Got query");
-        if (context.queryParam("query").isEmpty() || context.queryParam("query") == null || context.queryParam("query").get(0).isEmpty()) {
+        String queryString = context.request().getParam("query");
+        if (queryString == null || queryString.isEmpty()) {
             PiveauLoggerFactory.getLogger(getClass()).warn("Param 'query' is missing or empty");
             context.response().setStatusCode(400).end("Param 'query' is missing or empty");
             return;
         }
-        PiveauLoggerFactory.getLogger(getClass()).debug("query: {}", context.queryParam("query").get(0));
+        PiveauLoggerFactory.getLogger(getClass()).debug("query: {}", queryString);
         String accept = null;
         try {
             accept = context.parsedHeaders().accept().get(0).rawValue();
@@ -106,7 +110,7 @@ public class MockTripleStore extends AbstractVerticle {
         Query query = QueryFactory.create();
         try {
             //PiveauLoggerFactory.getLogger(getClass()).info("query is not empty");
-            query = QueryFactory.create(context.queryParam("query").get(0));
+            query = QueryFactory.create(queryString);
         } catch (Exception e) {
             PiveauLoggerFactory.getLogger(getClass()).error("convert query error:", e);
         }
@@ -159,12 +163,14 @@ public class MockTripleStore extends AbstractVerticle {
 
     private void update(RoutingContext context) {
         PiveauLoggerFactory.getLogger(getClass()).trace("Got update");
-        if (context.queryParam("query").isEmpty() || context.queryParam("query").get(0).isEmpty()) {
+        // request params include the form attributes of posted updates
+        String updateString = context.request().getParam("query");
+        if (updateString == null || updateString.isEmpty()) {
             context.response().setStatusCode(400).end("Param 'query' is missing or empty");
             return;
         }
         try {
-            UpdateRequest updateRequest = UpdateFactory.create(context.queryParam("query").get(0));
+            UpdateRequest updateRequest = UpdateFactory.create(updateString);
             UpdateAction.execute(updateRequest, storeDataset);
         } catch (Exception e) {
             PiveauLoggerFactory.getLogger(getClass()).error("Update error", e);